@@ -0,0 +1,16 @@
+package com.example.auth.config;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class RestTemplateConfig {
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+        // Pooled client, timeouts and lb:// support come from the shared HttpClientAutoConfiguration
+        return builder.build();
+    }
+}
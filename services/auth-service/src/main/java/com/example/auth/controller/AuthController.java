@@ -34,6 +34,7 @@ public class AuthController {
     private final TokenBlacklist tokenBlacklist;
     private final RefreshTokenService refreshTokenService;
     private final AuditLogService auditLogService;
+    private final RestTemplate rest;
     
     @Value("${services.user.base-url:http://localhost:8082}")
     private String userServiceBaseUrl;
@@ -48,7 +49,8 @@ public class AuthController {
             @Value("${security.jwt.kid:legacy}") String keyId,
             TokenBlacklist tokenBlacklist,
             RefreshTokenService refreshTokenService,
-            AuditLogService auditLogService
+            AuditLogService auditLogService,
+            RestTemplate restTemplate
     ) {
         // Prefer explicit security.jwt.secret; fallback to JWT_SECRET env; finally to hardcoded default
         String effective = (secret != null && !secret.isBlank()) ? secret : envSecret;
@@ -59,6 +61,7 @@ public class AuthController {
         this.tokenBlacklist = tokenBlacklist;
         this.refreshTokenService = refreshTokenService;
         this.auditLogService = auditLogService;
+        this.rest = restTemplate;
         // initialize TokenRegistry with blacklist so revokeAllForSubject can revoke tokens
         new TokenRegistry(tokenBlacklist);
     }
@@ -75,7 +78,6 @@ public class AuthController {
             return ResponseEntity.badRequest().body(Map.of("error", "username or email required"));
         }
         try {
-            RestTemplate rest = new RestTemplate();
             @SuppressWarnings("rawtypes")
             org.springframework.http.ResponseEntity resp;
             try {
@@ -170,7 +172,6 @@ public class AuthController {
             return ResponseEntity.badRequest().body(Map.of("error", "username, email, password required"));
         }
         try {
-            RestTemplate rest = new RestTemplate();
             var resp = rest.postForEntity(userServiceBaseUrl + "/api/users/register", req, Map.class);
             if (!resp.getStatusCode().is2xxSuccessful()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Register failed"));
@@ -218,7 +219,6 @@ public class AuthController {
     @PostMapping("/phone/send-otp")
     public ResponseEntity<Map<String, Object>> sendPhoneOtp(@RequestBody Map<String, String> body) {
         try {
-            RestTemplate rest = new RestTemplate();
             var resp = rest.postForEntity(userServiceBaseUrl + "/api/users/phone/send-otp", body, Map.class);
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = (Map<String, Object>) resp.getBody();
@@ -234,7 +234,6 @@ public class AuthController {
     @PostMapping("/phone/verify-otp")
     public ResponseEntity<Map<String, Object>> verifyPhoneOtp(@RequestBody Map<String, String> body) {
         try {
-            RestTemplate rest = new RestTemplate();
             var resp = rest.postForEntity(userServiceBaseUrl + "/api/users/phone/verify-otp", body, Map.class);
             if (resp.getStatusCode().is2xxSuccessful()) {
                 @SuppressWarnings("unchecked")
@@ -277,7 +276,6 @@ public class AuthController {
     @PostMapping("/forgot-password")
     public ResponseEntity<Map<String, Object>> forgotPassword(@RequestBody Map<String, String> request) {
         try {
-            RestTemplate rest = new RestTemplate();
             var resp = rest.postForEntity(userServiceBaseUrl + "/api/users/password/forgot", request, Map.class);
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = (Map<String, Object>) resp.getBody();
@@ -300,7 +298,6 @@ public class AuthController {
             String newPwd = request.getOrDefault("newPassword", request.getOrDefault("password", ""));
             payload.put("newPassword", newPwd);
 
-            RestTemplate rest = new RestTemplate();
             org.springframework.http.ResponseEntity<Map<String, Object>> resp;
             try {
                 resp = rest.exchange(
@@ -334,7 +331,6 @@ public class AuthController {
     @PostMapping("/verify-email")
     public ResponseEntity<Map<String, Object>> verifyEmail(@RequestBody Map<String, String> request) {
         try {
-            RestTemplate rest = new RestTemplate();
             org.springframework.http.ResponseEntity<Map<String, Object>> resp;
             try {
                 resp = rest.exchange(
@@ -373,7 +369,6 @@ public class AuthController {
             String token = authHeader.replace(BEARER_PREFIX, "");
             String subject = jwtService.parseSubject(token);
             
-            RestTemplate rest = new RestTemplate();
             var resp = rest.postForEntity(userServiceBaseUrl + "/api/users/change-password?userId=" + subject, request, Map.class);
             @SuppressWarnings("unchecked")
             Map<String, Object> responseBody = (Map<String, Object>) resp.getBody();
@@ -395,7 +390,6 @@ public class AuthController {
     @PostMapping("/oauth2-signup")
     public ResponseEntity<Map<String, Object>> oauth2Signup(@RequestBody Map<String, String> req) {
         try {
-            RestTemplate rest = new RestTemplate();
             org.springframework.http.ResponseEntity<Map<String, Object>> resp = rest.exchange(
                 userServiceBaseUrl + "/api/users/oauth2-signup",
                 HttpMethod.POST,
@@ -451,7 +445,6 @@ public class AuthController {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid token"));
         }
         try {
-            RestTemplate rest = new RestTemplate();
             org.springframework.http.ResponseEntity<Map<String, Object>> resp = rest.exchange(
                 userServiceBaseUrl + "/api/users/me?identifier=" + subject,
                 HttpMethod.GET,
@@ -609,7 +602,6 @@ public class AuthController {
                     userData.put("facebookId", providerId);
                 }
                 
-                RestTemplate rest = new RestTemplate();
                 org.springframework.http.ResponseEntity<Map<String, Object>> userResp = rest.exchange(
                     userServiceBaseUrl + "/api/users/oauth2-signup",
                     HttpMethod.POST,
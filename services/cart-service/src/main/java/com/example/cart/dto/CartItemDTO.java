@@ -12,6 +12,10 @@ public class CartItemDTO implements Serializable {
     private Integer quantity;
     private BigDecimal total;
     private Integer stockQuantity; // Available stock quantity
+    private Long categoryId; // Used by voucher applicability; null for items added before it was stored
+    private Long brandId;
+    private String variantId; // Set when the item was added as a product variant
+    private boolean priceStale; // Price came from the last known product data; re-priced when product-service answers
     
     public CartItemDTO() {}
     
@@ -81,4 +85,36 @@ public class CartItemDTO implements Serializable {
     public void setStockQuantity(Integer stockQuantity) {
         this.stockQuantity = stockQuantity;
     }
-}
\ No newline at end of file
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+    
+    public Long getBrandId() {
+        return brandId;
+    }
+    
+    public void setBrandId(Long brandId) {
+        this.brandId = brandId;
+    }
+    
+    public boolean isPriceStale() {
+        return priceStale;
+    }
+    
+    public void setPriceStale(boolean priceStale) {
+        this.priceStale = priceStale;
+    }
+    
+    public String getVariantId() {
+        return variantId;
+    }
+    
+    public void setVariantId(String variantId) {
+        this.variantId = variantId;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.cart.service;
 
 import com.example.cart.dto.CartDTO;
 import com.example.cart.dto.CartItemDTO;
+import com.example.shared.resilience.DependencyGuard;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,9 @@ public class CartService {
     
     @Autowired
     private RestTemplate restTemplate;
+
+    @Autowired
+    private DependencyGuard dependencyGuard;
     
     @Autowired
     private RedisTemplate<String, CartDTO> cartRedisTemplate;
@@ -53,6 +57,9 @@ public class CartService {
         if (cart == null) {
             cart = new CartDTO(userId);
             cartRedisTemplate.opsForValue().set(cartKey, cart, Duration.ofMillis(CART_EXPIRATION_TIME));
+        } else if (repriceStaleItems(cart)) {
+            recalculateCart(cart);
+            saveCart(cartKey, cart);
         }
         
         // Enrich cart items with current stock quantities
@@ -108,30 +115,36 @@ public class CartService {
                 logger.info("Fetching product info from: {}", productEndpoint);
             }
             
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> productResp = (Map<String, Object>) restTemplate.getForObject(productEndpoint, Map.class);
-                productResponse = productResp;
-            } catch (Exception e) {
-                logger.error("Failed to fetch product/variant from product service: {}", e.getMessage());
-                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable");
-            }
+            // Last known product data is served while product-service is unavailable;
+            // its price is only shown (priceStale) and re-priced before it can reach an order
+            boolean[] live = {false};
+            @SuppressWarnings("unchecked")
+            Map<String, Object> productResp = dependencyGuard.callWithCachedFallback("product-service", productEndpoint,
+                () -> {
+                    Map<String, Object> fetched = (Map<String, Object>) restTemplate.getForObject(productEndpoint, Map.class);
+                    live[0] = true;
+                    return fetched;
+                },
+                e -> {
+                    logger.error("Failed to fetch product/variant from product service: {}", e.getMessage());
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable");
+                });
+            productResponse = productResp;
             
             if (productResponse == null) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, variantId != null ? "Product variant not found" : "Product not found");
             }
             
             // Check inventory with error handling
-            Map<String, Object> inventoryResponse = null;
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> invResp = (Map<String, Object>) restTemplate.getForObject(
-                    inventoryServiceUrl + "/api/inventory/check-stock?productId=" + productId + "&quantity=" + quantity, Map.class);
-                inventoryResponse = invResp;
-            } catch (Exception e) {
-                logger.warn("Failed to check inventory for product {}: {}", productId, e.getMessage());
-                // Continue without inventory check if service is down
-            }
+            // Continue without inventory check if service is down
+            @SuppressWarnings("unchecked")
+            Map<String, Object> inventoryResponse = dependencyGuard.callWithFallback("inventory-service",
+                () -> (Map<String, Object>) restTemplate.getForObject(
+                    inventoryServiceUrl + "/api/inventory/check-stock?productId=" + productId + "&quantity=" + quantity, Map.class),
+                e -> {
+                    logger.warn("Failed to check inventory for product {}: {}", productId, e.getMessage());
+                    return null;
+                });
             
             if (inventoryResponse != null && !Boolean.TRUE.equals(inventoryResponse.get("inStock"))) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock");
@@ -152,21 +165,17 @@ public class CartService {
                 item.setStockQuantity(getStockQuantity(productId));
             } else {
                 // Add new item
-                // Get price: ưu tiên salePrice nếu có, nếu không thì dùng price
-                BigDecimal itemPrice;
-                if (productResponse.containsKey("salePrice") && productResponse.get("salePrice") != null) {
-                    itemPrice = new BigDecimal(productResponse.get("salePrice").toString());
-                } else {
-                    itemPrice = new BigDecimal(productResponse.get("price").toString());
-                }
-                
                 CartItemDTO newItem = new CartItemDTO(
                     productId,
                     (String) productResponse.get("name"),
                     getProductImage(productResponse),
-                    itemPrice,
+                    priceOf(productResponse),
                     quantity
                 );
+                newItem.setCategoryId(toLong(productResponse.get("categoryId")));
+                newItem.setBrandId(toLong(productResponse.get("brandId")));
+                newItem.setVariantId(variantId != null && !variantId.isEmpty() ? variantId : null);
+                newItem.setPriceStale(!live[0]);
                 // Set stock quantity
                 newItem.setStockQuantity(getStockQuantity(productId));
                 cart.getItems().add(newItem);
@@ -216,8 +225,8 @@ public class CartService {
         } else {
             // Check stock with inventory service before updating
             try {
-                Map<?, ?> inventoryResponse = restTemplate.getForObject(
-                    inventoryServiceUrl + "/api/inventory/check-stock?productId=" + productId + "&quantity=" + quantity, Map.class);
+                Map<?, ?> inventoryResponse = dependencyGuard.callIdempotent("inventory-service", () -> restTemplate.getForObject(
+                    inventoryServiceUrl + "/api/inventory/check-stock?productId=" + productId + "&quantity=" + quantity, Map.class));
                 if (inventoryResponse != null && Boolean.FALSE.equals(inventoryResponse.get("inStock"))) {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient stock");
                 }
@@ -244,8 +253,11 @@ public class CartService {
      */
     private Integer getStockQuantity(String productId) {
         try {
-            Map<String, Object> stockResponse = restTemplate.getForObject(
-                inventoryServiceUrl + "/api/inventory/stock-quantity/" + productId, Map.class);
+            String stockUrl = inventoryServiceUrl + "/api/inventory/stock-quantity/" + productId;
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stockResponse = dependencyGuard.callWithCachedFallback("inventory-service", stockUrl,
+                () -> (Map<String, Object>) restTemplate.getForObject(stockUrl, Map.class),
+                e -> { throw e; });
             if (stockResponse != null && stockResponse.containsKey("quantity")) {
                 Object quantityObj = stockResponse.get("quantity");
                 if (quantityObj instanceof Number) {
@@ -256,8 +268,11 @@ public class CartService {
             logger.warn("Failed to get stock quantity for product {}: {}", productId, e.getMessage());
             // Fallback to product service
             try {
-                Map<String, Object> productResponse = restTemplate.getForObject(
-                    productServiceUrl + "/api/products/" + productId, Map.class);
+                String productUrl = productServiceUrl + "/api/products/" + productId;
+                @SuppressWarnings("unchecked")
+                Map<String, Object> productResponse = dependencyGuard.callWithCachedFallback("product-service", productUrl,
+                    () -> (Map<String, Object>) restTemplate.getForObject(productUrl, Map.class),
+                    e -> { throw e; });
                 if (productResponse != null && productResponse.containsKey("stockQuantity")) {
                     Object stockObj = productResponse.get("stockQuantity");
                     if (stockObj instanceof Number) {
@@ -271,6 +286,48 @@ public class CartService {
         return null; // Return null if unable to fetch stock
     }
     
+    /**
+     * Replace prices taken from cached product data with live ones.
+     * Items stay stale (and are re-tried on the next read) while product-service is unavailable.
+     * 
+     * @return true if any price was updated
+     */
+    private boolean repriceStaleItems(CartDTO cart) {
+        boolean changed = false;
+        for (CartItemDTO item : cart.getItems()) {
+            if (!item.isPriceStale()) {
+                continue;
+            }
+            try {
+                String productUrl = item.getVariantId() != null
+                    ? productServiceUrl + "/api/products/variants/" + item.getVariantId()
+                    : productServiceUrl + "/api/products/" + item.getProductId();
+                @SuppressWarnings("unchecked")
+                Map<String, Object> product = dependencyGuard.callIdempotent("product-service",
+                    () -> (Map<String, Object>) restTemplate.getForObject(productUrl, Map.class));
+                if (product != null) {
+                    item.setPrice(priceOf(product));
+                    item.setQuantity(item.getQuantity()); // recomputes the item total
+                    item.setPriceStale(false);
+                    changed = true;
+                }
+            } catch (Exception e) {
+                logger.debug("Cannot re-price cart item {} yet: {}", item.getProductId(), e.getMessage());
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Get price: ưu tiên salePrice nếu có, nếu không thì dùng price
+     */
+    private BigDecimal priceOf(Map<String, Object> productResponse) {
+        if (productResponse.containsKey("salePrice") && productResponse.get("salePrice") != null) {
+            return new BigDecimal(productResponse.get("salePrice").toString());
+        }
+        return new BigDecimal(productResponse.get("price").toString());
+    }
+    
     /**
      * Enrich cart items with current stock quantities
      * Always refreshes stock to ensure data is up-to-date
@@ -337,8 +394,8 @@ public class CartService {
                     Map<String, Object> itemMap = new HashMap<>();
                     itemMap.put("productId", item.getProductId());
                     itemMap.put("productName", item.getProductName());
-                    itemMap.put("categoryId", 1L); 
-                    itemMap.put("brandId", 1L);   
+                    itemMap.put("categoryId", item.getCategoryId());
+                    itemMap.put("brandId", item.getBrandId());
                     itemMap.put("price", item.getPrice());
                     itemMap.put("quantity", item.getQuantity());
                     return itemMap;
@@ -349,10 +406,11 @@ public class CartService {
 
             // Validate voucher with Voucher Service
             @SuppressWarnings("unchecked")
-            Map<String, Object> voucherResponse = (Map<String, Object>) restTemplate.postForObject(
-                voucherServiceUrl + "/api/vouchers/validate",
-                validationRequest,
-                Map.class);
+            Map<String, Object> voucherResponse = dependencyGuard.callIdempotent("voucher-service",
+                () -> (Map<String, Object>) restTemplate.postForObject(
+                    voucherServiceUrl + "/api/vouchers/validate",
+                    validationRequest,
+                    Map.class));
 
             if (voucherResponse != null && Boolean.TRUE.equals(voucherResponse.get("valid"))) {
                 cart.setVoucherCode(voucherCode);
@@ -438,6 +496,23 @@ public class CartService {
         return "guest_" + (sessionId != null ? sessionId : UUID.randomUUID().toString());
     }
     
+    /**
+     * Read a numeric id (category, brand) from the product response; null if absent or not a number
+     */
+    private Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value != null) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring non-numeric id in product response: {}", value);
+            }
+        }
+        return null;
+    }
+
     /**
      * Get product image from product response
      * Priority: 1) imageUrl (main product image), 2) images[0].imageUrl (first image in array)
@@ -3,11 +3,14 @@ package com.example.favorites.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
@@ -33,6 +36,12 @@ public class SecurityConfig {
     @Value("${JWT_SECRET:}")
     private String jwtSecretEnv;
 
+    @Value("${interservice.username:service}")
+    private String interserviceUsername;
+
+    @Value("${interservice.password:service123}")
+    private String interservicePassword;
+
     @Bean
     public JwtDecoder jwtDecoder() {
         String effective = (jwtSecretProp != null && !jwtSecretProp.isBlank()) ? jwtSecretProp : jwtSecretEnv;
@@ -43,7 +52,31 @@ public class SecurityConfig {
         return NimbusJwtDecoder.withSecretKey(key).build();
     }
 
+    /**
+     * Internal endpoints used by other services, authenticated with the inter-service basic credentials
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain internalFilterChain(HttpSecurity http) throws Exception {
+        InMemoryUserDetailsManager serviceUsers = new InMemoryUserDetailsManager(User.builder()
+            .username(interserviceUsername)
+            .password("{noop}" + interservicePassword)
+            .roles("SERVICE")
+            .build());
+
+        http
+            .securityMatcher("/api/favorites/internal/**")
+            .csrf(csrf -> csrf.disable())
+            .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authorizeHttpRequests(auth -> auth.anyRequest().hasRole("SERVICE"))
+            .userDetailsService(serviceUsers)
+            .httpBasic(basic -> basic.realmName("favorites-service"));
+
+        return http.build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         JwtGrantedAuthoritiesConverter gac = new JwtGrantedAuthoritiesConverter();
         gac.setAuthoritiesClaimName("role");
@@ -490,6 +490,29 @@ public class FavoritesController {
         }
     }
     
+    /**
+     * Users who favorited a product, paged by favorite id (for notification service).
+     * Secured with inter-service basic auth, see SecurityConfig.
+     */
+    @GetMapping("/internal/products/{productId}/users")
+    public ResponseEntity<Map<String, Object>> getInterestedUsers(
+            @PathVariable String productId,
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(favoritesService.getInterestedUsers(productId, afterId, limit));
+    }
+    
+    /**
+     * Distinct favorited product ids, paged by product id (for notification service).
+     * Secured with inter-service basic auth, see SecurityConfig.
+     */
+    @GetMapping("/internal/products")
+    public ResponseEntity<Map<String, Object>> getFavoritedProducts(
+            @RequestParam(defaultValue = "") String afterProductId,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(favoritesService.getFavoritedProductIds(afterProductId, limit));
+    }
+    
     /**
      * Helper method to check if string is alphanumeric ID (e.g., "a1", "user123")
      */
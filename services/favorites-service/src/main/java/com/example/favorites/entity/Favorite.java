@@ -9,6 +9,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "favorites", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"user_id", "product_id"})
+}, indexes = {
+    @Index(name = "idx_favorites_product", columnList = "product_id, id")
 })
 @EntityListeners(AuditingEntityListener.class)
 public class Favorite {
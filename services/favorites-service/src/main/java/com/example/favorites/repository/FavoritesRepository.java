@@ -49,6 +49,19 @@ public interface FavoritesRepository extends JpaRepository<Favorite, Long> {
      */
     List<Favorite> findByProductId(String productId);
     
+    /**
+     * Users who favorited a product, in id order after {@code afterId} (keyset page).
+     * Each row is {@code [favoriteId, userId]}.
+     */
+    @Query("SELECT f.id, f.userId FROM Favorite f WHERE f.productId = :productId AND f.id > :afterId ORDER BY f.id")
+    List<Object[]> findUserIdsByProductId(@Param("productId") String productId, @Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Distinct favorited product ids after a given id, in id order (keyset paging)
+     */
+    @Query("SELECT DISTINCT f.productId FROM Favorite f WHERE f.productId > :afterProductId ORDER BY f.productId")
+    List<String> findFavoritedProductIds(@Param("afterProductId") String afterProductId, Pageable pageable);
+    
     /**
      * Count favorites by product
      */
@@ -113,6 +113,41 @@ public class FavoritesService {
         return favoritesRepository.findAll();
     }
     
+    /**
+     * One page of the users who favorited a product (for internal services).
+     * Pass the returned {@code nextAfterId} to get the next page; it is null on the last page.
+     */
+    public Map<String, Object> getInterestedUsers(String productId, long afterId, int limit) {
+        int size = Math.max(1, Math.min(limit, 1000));
+        List<Object[]> rows = favoritesRepository.findUserIdsByProductId(productId, afterId,
+            org.springframework.data.domain.PageRequest.of(0, size));
+        List<String> userIds = new java.util.ArrayList<>(rows.size());
+        Long lastId = null;
+        for (Object[] row : rows) {
+            lastId = (Long) row[0];
+            userIds.add((String) row[1]);
+        }
+        Map<String, Object> page = new HashMap<>();
+        page.put("productId", productId);
+        page.put("userIds", userIds);
+        page.put("nextAfterId", rows.size() == size ? lastId : null);
+        return page;
+    }
+    
+    /**
+     * One page of the distinct favorited product ids (for internal services).
+     * Pass the returned {@code nextAfterProductId} to get the next page; it is null on the last page.
+     */
+    public Map<String, Object> getFavoritedProductIds(String afterProductId, int limit) {
+        int size = Math.max(1, Math.min(limit, 1000));
+        List<String> productIds = favoritesRepository.findFavoritedProductIds(
+            afterProductId != null ? afterProductId : "", org.springframework.data.domain.PageRequest.of(0, size));
+        Map<String, Object> page = new HashMap<>();
+        page.put("productIds", productIds);
+        page.put("nextAfterProductId", productIds.size() == size ? productIds.get(productIds.size() - 1) : null);
+        return page;
+    }
+    
     /**
      * Get favorite by ID
      */
@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "inventory_items")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, com.example.inventory.event.StockChangeListener.class})
 public class InventoryItem {
     
     @Id
@@ -54,6 +54,10 @@ public class InventoryItem {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Available quantity as loaded from the database, used to detect stock transitions on update
+    @Transient
+    private Integer loadedQuantityAvailable;
+    
     // Constructors
     public InventoryItem() {}
     
@@ -207,4 +211,12 @@ public class InventoryItem {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public Integer loadedQuantityAvailable() {
+        return loadedQuantityAvailable;
+    }
+    
+    public void rememberQuantityAvailable() {
+        this.loadedQuantityAvailable = quantityAvailable;
+    }
 }
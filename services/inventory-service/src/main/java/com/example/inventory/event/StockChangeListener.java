@@ -0,0 +1,47 @@
+package com.example.inventory.event;
+
+import com.example.inventory.entity.InventoryItem;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA listener that reports when an inventory item runs out of stock or comes back in stock.
+ *
+ * Only transitions across zero are published; ordinary quantity changes are not interesting
+ * to subscribers and would flood the topic on every order.
+ */
+public class StockChangeListener {
+
+    @Autowired
+    private StockEventPublisher stockEventPublisher;
+
+    @PostLoad
+    public void remember(InventoryItem item) {
+        item.rememberQuantityAvailable();
+    }
+
+    @PostPersist
+    public void afterInsert(InventoryItem item) {
+        int available = quantity(item.getQuantityAvailable());
+        item.rememberQuantityAvailable();
+        if (available > 0) {
+            stockEventPublisher.publishStockChanged(item.getProductId(), 0, available);
+        }
+    }
+
+    @PostUpdate
+    public void afterUpdate(InventoryItem item) {
+        int previous = quantity(item.loadedQuantityAvailable());
+        int available = quantity(item.getQuantityAvailable());
+        item.rememberQuantityAvailable();
+        if ((previous > 0) != (available > 0)) {
+            stockEventPublisher.publishStockChanged(item.getProductId(), previous, available);
+        }
+    }
+
+    private static int quantity(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.inventory.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publishes stock availability changes for other services (wishlist notifications).
+ *
+ * Events are sent after the surrounding transaction commits and are keyed by product id.
+ */
+@Service
+public class StockEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockEventPublisher.class);
+
+    public static final String PRODUCT_STOCK_CHANGED_TOPIC = "product-stock-changed";
+
+    @Autowired(required = false)
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kafka.enabled:false}")
+    private boolean kafkaEnabled;
+
+    /**
+     * Publish a transition between out of stock and in stock
+     */
+    public void publishStockChanged(String productId, int previousQuantity, int availableQuantity) {
+        if (!kafkaEnabled || kafkaTemplate == null) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("productId", productId);
+        event.put("availableQuantity", availableQuantity);
+        event.put("inStock", availableQuantity > 0);
+        event.put("wasInStock", previousQuantity > 0);
+        event.put("changedAt", System.currentTimeMillis());
+        afterCommit(() -> send(productId, event));
+    }
+
+    private void send(String productId, Map<String, Object> event) {
+        try {
+            kafkaTemplate.send(PRODUCT_STOCK_CHANGED_TOPIC, productId, objectMapper.writeValueAsString(event));
+            logger.debug("Published stock change for product {}: {}", productId, event.get("availableQuantity"));
+        } catch (Exception e) {
+            logger.warn("Failed to publish stock change for product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.example.inventory.entity.InventoryItem;
 import com.example.inventory.entity.OrderReservation;
 import com.example.inventory.repository.InventoryItemRepository;
 import com.example.inventory.repository.OrderReservationRepository;
+import com.example.shared.resilience.DependencyGuard;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,6 +34,9 @@ public class InventoryService {
     
     @Autowired
     private RestTemplate restTemplate;
+
+    @Autowired
+    private DependencyGuard dependencyGuard;
     
     @Value("${services.product.base-url:http://localhost:8083}")
     private String productServiceUrl;
@@ -84,7 +88,8 @@ public class InventoryService {
             // Fallback to product stock via Product Service
             logger.info("Product {} not found in inventory_items, checking product service...", productId);
             try {
-                var productResponse = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class);
+                var productResponse = dependencyGuard.callIdempotent("product-service",
+                    () -> restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class));
                 if (productResponse != null) {
                     Object stockObj = productResponse.get("stockQuantity");
                     Integer currentStock = null;
@@ -134,7 +139,10 @@ public class InventoryService {
                         java.util.Map<String, Object> updateRequest = new java.util.HashMap<>();
                         updateRequest.put("stockQuantity", currentStock - quantity);
                         
-                        restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                        dependencyGuard.call("product-service", () -> {
+                            restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                            return null;
+                        });
                         
                         logger.info("Inventory reserved (product): productId={}, quantity={}, oldStock={}, newStock={}, orderId={}", 
                             productId, quantity, currentStock, currentStock - quantity, orderId);
@@ -192,14 +200,18 @@ public class InventoryService {
 
             // Fallback to product stock via Product Service
             try {
-                var productResponse = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class);
+                var productResponse = dependencyGuard.callIdempotent("product-service",
+                    () -> restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class));
                 if (productResponse != null) {
                     Integer currentStock = (Integer) productResponse.get("stockQuantity");
                     if (currentStock != null) {
                         java.util.Map<String, Object> updateRequest = new java.util.HashMap<>();
                         updateRequest.put("stockQuantity", currentStock + quantity);
                         
-                        restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                        dependencyGuard.call("product-service", () -> {
+                            restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                            return null;
+                        });
                         
                         logger.info("Inventory released (product): productId={}, qty={}, newStock={}", productId, quantity, currentStock + quantity);
                     }
@@ -413,9 +425,16 @@ public class InventoryService {
     }
     
     /**
-     * Get current stock status
+     * Get current stock status (for display)
+     * 
+     * Products without an inventory item fall back to product-service; while it is unavailable
+     * the last known stock is shown. Stock decisions use {@link #isInStock}, which never does.
      */
     public InventoryStatus getInventoryStatus(String productId) {
+        return getInventoryStatus(productId, true);
+    }
+    
+    private InventoryStatus getInventoryStatus(String productId, boolean allowStale) {
         // Prefer inventory_items if present
         Optional<InventoryItem> invOpt = inventoryItemRepository.findByProductId(productId);
         if (invOpt.isPresent()) {
@@ -429,7 +448,12 @@ public class InventoryService {
         
         // Fallback to product stock via Product Service
         try {
-            var productResponse = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class);
+            String productUrl = productServiceUrl + "/api/products/" + productId;
+            var productResponse = allowStale
+                ? dependencyGuard.callWithCachedFallback("product-service", "product:" + productId,
+                    () -> restTemplate.getForObject(productUrl, java.util.Map.class), e -> { throw e; })
+                : dependencyGuard.callIdempotent("product-service",
+                    () -> restTemplate.getForObject(productUrl, java.util.Map.class));
             if (productResponse != null) {
                 Integer stock = (Integer) productResponse.get("stockQuantity");
                 if (stock != null) {
@@ -445,9 +469,11 @@ public class InventoryService {
     
     /**
      * Check if product is in stock
+     * 
+     * Always reads live stock: a cached value may be minutes old and would let orders oversell.
      */
     public boolean isInStock(String productId, Integer quantity) {
-        InventoryStatus status = getInventoryStatus(productId);
+        InventoryStatus status = getInventoryStatus(productId, false);
         return status.availableQuantity >= quantity;
     }
     
@@ -568,14 +594,18 @@ public class InventoryService {
                 
                 // Also update product stock via Product Service
                 try {
-                    var productResponse = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class);
+                    var productResponse = dependencyGuard.callIdempotent("product-service",
+                        () -> restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, java.util.Map.class));
                     if (productResponse != null) {
                         Integer currentStock = (Integer) productResponse.get("stockQuantity");
                         if (currentStock != null) {
                             java.util.Map<String, Object> updateRequest = new java.util.HashMap<>();
                             updateRequest.put("stockQuantity", currentStock + quantity);
                             
-                            restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                            dependencyGuard.call("product-service", () -> {
+                                restTemplate.put(productServiceUrl + "/api/products/" + productId + "/stock", updateRequest);
+                                return null;
+                            });
                             
                             logger.info("Updated product stock: productId={}, oldStock={}, newStock={}", 
                                 productId, currentStock, currentStock + quantity);
@@ -714,7 +744,7 @@ public class InventoryService {
                 try {
                     String url = productServiceUrl + "/api/products?page=" + page + "&size=" + size + "&sort=createdAt,desc";
                     @SuppressWarnings("unchecked")
-                    Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+                    Map<String, Object> response = dependencyGuard.callIdempotent("product-service", () -> restTemplate.getForObject(url, Map.class));
                     
                     if (response == null || !response.containsKey("content")) {
                         logger.warn("No content in product service response at page {}", page);
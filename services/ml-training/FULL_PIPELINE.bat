@@ -53,6 +53,15 @@ if errorlevel 1 (
     exit /b 1
 )
 
+REM Flat binary factors for recommendation-service (in-process CF scoring)
+python export_model_factors.py
+if errorlevel 1 (
+    echo.
+    echo ERROR: Failed to export model factors
+    pause
+    exit /b 1
+)
+
 echo.
 echo ========================================
 echo.
@@ -67,6 +76,10 @@ copy "%SOURCE_DIR%user_label_encoder.joblib" "%TARGET_DIR%" /Y
 copy "%SOURCE_DIR%item_label_encoder.joblib" "%TARGET_DIR%" /Y
 copy "%SOURCE_DIR%model_metadata.json" "%TARGET_DIR%" /Y
 
+REM export_model_factors.py writes the factors into recommendation-service's working
+REM directory, where recommendation.cf.model-path points; the service reloads them automatically
+echo Model factors: %~dp0..\recommendation-service\recommendation_factors.bin
+
 echo.
 echo ========================================
 echo   PIPELINE COMPLETE!
@@ -78,6 +78,7 @@ echo Press any key to start training...
 pause >nul
 
 %PYTHON_CMD% train_model.py
+%PYTHON_CMD% export_model_factors.py
 
 echo.
 pause
@@ -0,0 +1,129 @@
+"""
+Export the trained recommendation model as flat binary factors for recommendation-service
+
+recommendation-service scores Collaborative Filtering in-process from this file (see CfModel.java),
+so the personalized path does not need the Python reco_service.
+
+Works with both model types:
+1. Simple CF (dict with global mean and user/item biases) -> rank 0, biases only
+2. Surprise SVD -> biases plus latent vectors (pu, qi)
+
+File layout (little-endian):
+    bytes   magic "RCF1"
+    int32   version (1)
+    int32   n_users, n_items, rank
+    float32 global_mean, min_rating, max_rating
+    n_users x (int32 length + UTF-8 bytes)   raw user ids
+    n_items x (int32 length + UTF-8 bytes)   raw product ids
+    float32 user_bias[n_users], item_bias[n_items]
+    float32 user_factors[n_users * rank], item_factors[n_items * rank]   (row-major)
+"""
+import os
+import struct
+from pathlib import Path
+
+import joblib
+import numpy as np
+
+OUTPUT_DIR = Path(__file__).parent.parent.parent  # Buildd30_7 directory
+MODEL_PATH = OUTPUT_DIR / "recommendation_model.pkl"
+USER_ENCODER_PATH = OUTPUT_DIR / "user_label_encoder.joblib"
+ITEM_ENCODER_PATH = OUTPUT_DIR / "item_label_encoder.joblib"
+# recommendation-service runs from its module directory (START.ps1) and reads
+# recommendation.cf.model-path relative to it, so write the file there by default
+SERVICE_DIR = OUTPUT_DIR / "services" / "recommendation-service"
+FACTORS_PATH = Path(os.getenv("CF_MODEL_PATH", str(SERVICE_DIR / "recommendation_factors.bin")))
+
+MAGIC = b"RCF1"
+VERSION = 1
+MIN_RATING = 1.0
+MAX_RATING = 5.0
+
+
+def extract_simple_cf(model, n_users, n_items):
+    """Simple CF: biases are keyed by encoded id; users/items without a bias get 0"""
+    user_bias = np.zeros(n_users, dtype=np.float32)
+    item_bias = np.zeros(n_items, dtype=np.float32)
+    for encoded, bias in model['user_biases'].items():
+        user_bias[int(encoded)] = bias
+    for encoded, bias in model['item_biases'].items():
+        item_bias[int(encoded)] = bias
+    empty = np.zeros(0, dtype=np.float32)
+    return float(model['global_mean']), user_bias, item_bias, empty, empty, 0
+
+
+def extract_svd(model, n_users, n_items):
+    """
+    Surprise SVD: map encoded ids to the trainset's inner ids.
+    Users/items that only appeared in the test split keep zero bias and zero vectors,
+    which is what model.predict() does for unknown ids.
+    """
+    trainset = model.trainset
+    rank = model.pu.shape[1]
+    user_bias = np.zeros(n_users, dtype=np.float32)
+    item_bias = np.zeros(n_items, dtype=np.float32)
+    user_factors = np.zeros((n_users, rank), dtype=np.float32)
+    item_factors = np.zeros((n_items, rank), dtype=np.float32)
+    for encoded in range(n_users):
+        try:
+            inner = trainset.to_inner_uid(encoded)
+        except ValueError:
+            continue
+        user_bias[encoded] = model.bu[inner]
+        user_factors[encoded] = model.pu[inner]
+    for encoded in range(n_items):
+        try:
+            inner = trainset.to_inner_iid(encoded)
+        except ValueError:
+            continue
+        item_bias[encoded] = model.bi[inner]
+        item_factors[encoded] = model.qi[inner]
+    return float(trainset.global_mean), user_bias, item_bias, user_factors.ravel(), item_factors.ravel(), rank
+
+
+def write_ids(f, ids):
+    for raw_id in ids:
+        encoded = str(raw_id).encode('utf-8')
+        f.write(struct.pack('<i', len(encoded)))
+        f.write(encoded)
+
+
+def export(model, user_encoder, item_encoder, path):
+    n_users = len(user_encoder.classes_)
+    n_items = len(item_encoder.classes_)
+
+    if isinstance(model, dict) and model.get('type') == 'simple_cf':
+        global_mean, user_bias, item_bias, user_factors, item_factors, rank = extract_simple_cf(model, n_users, n_items)
+    elif hasattr(model, 'pu') and hasattr(model, 'qi'):
+        global_mean, user_bias, item_bias, user_factors, item_factors, rank = extract_svd(model, n_users, n_items)
+    else:
+        raise ValueError(f"Unsupported model type: {type(model).__name__}")
+
+    # Write next to the target and rename, so a reloading service never reads a half-written file
+    tmp_path = path.with_name(path.name + ".tmp")
+    with open(tmp_path, 'wb') as f:
+        f.write(MAGIC)
+        f.write(struct.pack('<iiiifff', VERSION, n_users, n_items, rank, global_mean, MIN_RATING, MAX_RATING))
+        write_ids(f, user_encoder.classes_)
+        write_ids(f, item_encoder.classes_)
+        for values in (user_bias, item_bias, user_factors, item_factors):
+            f.write(np.ascontiguousarray(values, dtype='<f4').tobytes())
+    os.replace(tmp_path, path)
+
+    print(f"   Users: {n_users:,}, Products: {n_items:,}, Rank: {rank}")
+    print(f"   Factors saved: {path} ({path.stat().st_size:,} bytes)")
+
+
+def main():
+    print("=" * 70)
+    print("EXPORTING MODEL FACTORS FOR RECOMMENDATION-SERVICE")
+    print("=" * 70)
+
+    model = joblib.load(MODEL_PATH)
+    user_encoder = joblib.load(USER_ENCODER_PATH)
+    item_encoder = joblib.load(ITEM_ENCODER_PATH)
+    export(model, user_encoder, item_encoder, FACTORS_PATH)
+
+
+if __name__ == "__main__":
+    main()
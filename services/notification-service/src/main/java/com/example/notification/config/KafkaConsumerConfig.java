@@ -1,23 +1,55 @@
 package com.example.notification.config;
 
+import com.example.notification.dto.WarrantyEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Kafka consumers.
+ *
+ * {@link #kafkaListenerContainerFactory()} is the plain single-record String factory.
+ * {@link #warrantyBatchListenerContainerFactory()} delivers warranty events in batches, already
+ * deserialized to {@link WarrantyEvent}, with offsets committed after each batch. Listener
+ * concurrency is set per {@code @KafkaListener} and should match the topic's partition count.
+ *
+ * Both consumer factories register the client metrics with Micrometer, which includes the
+ * consumer lag ({@code kafka.consumer.fetch.manager.records.lag} / {@code .records.lag.max}).
+ */
 @Configuration
 public class KafkaConsumerConfig {
 
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    @Value("${notification.kafka.batch.max-poll-records:200}")
+    private int maxPollRecords;
+
+    @Value("${notification.kafka.batch.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    @Value("${notification.kafka.batch.max-retries:3}")
+    private long maxRetries;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -28,7 +60,9 @@ public class KafkaConsumerConfig {
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
 
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        DefaultKafkaConsumerFactory<String, String> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        registerMetrics(factory);
+        return factory;
     }
 
     @Bean
@@ -38,4 +72,39 @@ public class KafkaConsumerConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
+
+    @Bean
+    public ConsumerFactory<String, WarrantyEvent> warrantyConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-service-warranty-group");
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        // Producers send plain JSON without type headers; a record that cannot be read arrives as null
+        JsonDeserializer<WarrantyEvent> valueDeserializer = new JsonDeserializer<>(WarrantyEvent.class, false);
+        DefaultKafkaConsumerFactory<String, WarrantyEvent> factory = new DefaultKafkaConsumerFactory<>(
+            configProps, new StringDeserializer(), new ErrorHandlingDeserializer<>(valueDeserializer));
+        registerMetrics(factory);
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, WarrantyEvent> warrantyBatchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, WarrantyEvent> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(warrantyConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // Records before the failed index are committed, the rest of the batch is redelivered
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryIntervalMs, maxRetries)));
+        return factory;
+    }
+
+    private <K, V> void registerMetrics(DefaultKafkaConsumerFactory<K, V> factory) {
+        if (meterRegistry != null) {
+            factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        }
+    }
 }
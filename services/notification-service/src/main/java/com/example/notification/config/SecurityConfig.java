@@ -65,6 +65,7 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/notifications/order/status-change").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/notifications/payment").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/notifications/create").permitAll()
+                .requestMatchers("/api/notifications/campaigns", "/api/notifications/campaigns/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.decoder(jwtDecoder()).jwtAuthenticationConverter(jwtAuthConverter)));
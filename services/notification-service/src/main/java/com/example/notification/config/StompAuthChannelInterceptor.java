@@ -0,0 +1,102 @@
+package com.example.notification.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Authenticates STOMP connections and guards user destinations.
+ *
+ * CONNECT: the {@code Authorization: Bearer <jwt>} header is decoded and the session principal is
+ * set to the user id, which is what user destinations and the user registry are keyed on.
+ * Connections without a token stay anonymous and only receive broadcasts.
+ *
+ * SUBSCRIBE: clients subscribe to {@code /user/{userId}/queue/...}. The user id segment is checked
+ * against the principal and stripped, so the subscription resolves to this session's queue.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    private static final String USER_PREFIX = "/user/";
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            authenticate(accessor);
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            checkSubscription(accessor);
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return;
+        }
+        try {
+            Jwt jwt = jwtDecoder.decode(header.substring(7).trim());
+            String userId = userId(jwt);
+            if (userId != null) {
+                accessor.setUser(new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+            }
+        } catch (JwtException e) {
+            logger.debug("Rejected WebSocket token: {}", e.getMessage());
+            throw new MessageDeliveryException("401 Unauthorized");
+        }
+    }
+
+    private void checkSubscription(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(USER_PREFIX)) {
+            return;
+        }
+        int userEnd = destination.indexOf('/', USER_PREFIX.length());
+        if (userEnd < 0) {
+            return;
+        }
+        String segment = destination.substring(USER_PREFIX.length(), userEnd);
+        if ("queue".equals(segment) || "topic".equals(segment)) {
+            // Already the session-relative form /user/queue/...
+            return;
+        }
+        Principal user = accessor.getUser();
+        if (user == null || !segment.equals(user.getName())) {
+            throw new MessageDeliveryException("403 Forbidden: " + destination);
+        }
+        accessor.setDestination(USER_PREFIX + destination.substring(userEnd + 1));
+    }
+
+    private static String userId(Jwt jwt) {
+        Object userId = jwt.getClaim("userId");
+        if (userId == null) {
+            userId = jwt.getClaim("id");
+        }
+        return userId != null ? userId.toString() : jwt.getSubject();
+    }
+}
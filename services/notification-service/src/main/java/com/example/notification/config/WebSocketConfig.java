@@ -1,16 +1,92 @@
 package com.example.notification.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.lang.NonNull;
 
+/**
+ * STOMP over WebSocket.
+ *
+ * {@code notification.websocket.broker.mode} selects the broker:
+ * <ul>
+ *   <li>{@code simple} (default) - in-memory broker, single node only</li>
+ *   <li>{@code relay} - external STOMP broker (RabbitMQ STOMP plugin). User destinations and the
+ *       user registry are broadcast through the broker, so every node can reach users connected
+ *       to any other node and {@link org.springframework.messaging.simp.user.SimpUserRegistry}
+ *       reflects the whole cluster.</li>
+ *   <li>{@code kafka} - in-memory broker on every node, with pushes fanned out to all nodes through a
+ *       Kafka topic (see {@link com.example.notification.service.WebSocketFanoutService}). Presence
+ *       stays per node.</li>
+ * </ul>
+ * Slow clients are bounded by the send time / buffer limits; a session exceeding them is closed
+ * instead of holding messages for everyone else.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    public static final String USER_DESTINATION_BROADCAST = "/topic/unresolved-user-destination";
+    public static final String USER_REGISTRY_BROADCAST = "/topic/simp-user-registry";
+
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    @Autowired
+    @Lazy
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Value("${notification.websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${notification.websocket.broker.relay-host:localhost}")
+    private String relayHost;
+
+    @Value("${notification.websocket.broker.relay-port:61613}")
+    private int relayPort;
+
+    @Value("${notification.websocket.broker.virtual-host:/}")
+    private String virtualHost;
+
+    @Value("${notification.websocket.broker.client-login:guest}")
+    private String clientLogin;
+
+    @Value("${notification.websocket.broker.client-passcode:guest}")
+    private String clientPasscode;
+
+    @Value("${notification.websocket.broker.system-login:guest}")
+    private String systemLogin;
+
+    @Value("${notification.websocket.broker.system-passcode:guest}")
+    private String systemPasscode;
+
+    @Value("${notification.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${notification.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${notification.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${notification.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${notification.websocket.outbound-threads:8}")
+    private int outboundThreads;
+
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
@@ -18,10 +94,44 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            logger.info("WebSocket broker relay to {}:{} (vhost {})", relayHost, relayPort, virtualHost);
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setVirtualHost(virtualHost)
+                .setClientLogin(clientLogin)
+                .setClientPasscode(clientPasscode)
+                .setSystemLogin(systemLogin)
+                .setSystemPasscode(systemPasscode)
+                .setSystemHeartbeatSendInterval(heartbeatMs)
+                .setSystemHeartbeatReceiveInterval(heartbeatMs)
+                .setUserDestinationBroadcast(USER_DESTINATION_BROADCAST)
+                .setUserRegistryBroadcast(USER_REGISTRY_BROADCAST);
+        } else {
+            registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         registry.setApplicationDestinationPrefixes("/app");
         registry.setUserDestinationPrefix("/user");
     }
-}
 
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration
+            .setSendTimeLimit(sendTimeLimitMs)
+            .setSendBufferSizeLimit(sendBufferSizeLimit)
+            .setMessageSizeLimit(messageSizeLimit);
+    }
 
+    @Override
+    public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor().corePoolSize(outboundThreads).maxPoolSize(outboundThreads);
+    }
+}
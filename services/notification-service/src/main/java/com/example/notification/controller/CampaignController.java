@@ -0,0 +1,102 @@
+package com.example.notification.controller;
+
+import com.example.notification.entity.Campaign;
+import com.example.notification.service.CampaignService;
+import com.example.shared.util.AuthUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin API for bulk email / SMS campaigns
+ */
+@RestController
+@RequestMapping("/api/notifications/campaigns")
+public class CampaignController {
+
+    @Autowired
+    private CampaignService campaignService;
+
+    /**
+     * Create a draft campaign.
+     * Body: name, channel (email|sms), subject, template, recipients [{address, userId, data}]
+     */
+    @PostMapping
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> createCampaign(@RequestBody Map<String, Object> request,
+                                                              Authentication authentication) {
+        try {
+            Object recipients = request.get("recipients");
+            Campaign campaign = campaignService.createCampaign(
+                (String) request.get("name"),
+                (String) request.get("channel"),
+                (String) request.get("subject"),
+                (String) request.get("template"),
+                recipients instanceof List ? (List<Map<String, Object>>) recipients : List.of(),
+                AuthUtils.extractUserIdFromAuth(authentication));
+            return ResponseEntity.ok(campaignService.getProgress(campaign.getId()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Append recipients to a draft or paused campaign
+     */
+    @PostMapping("/{id}/recipients")
+    public ResponseEntity<Map<String, Object>> addRecipients(@PathVariable Long id,
+                                                             @RequestBody List<Map<String, Object>> recipients) {
+        try {
+            campaignService.addRecipients(id, recipients);
+            return ResponseEntity.ok(campaignService.getProgress(id));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/start")
+    public ResponseEntity<Map<String, Object>> start(@PathVariable Long id) {
+        try {
+            campaignService.start(id);
+            return ResponseEntity.ok(campaignService.getProgress(id));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<Map<String, Object>> pause(@PathVariable Long id) {
+        try {
+            campaignService.pause(id);
+            return ResponseEntity.ok(campaignService.getProgress(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable Long id) {
+        try {
+            campaignService.cancel(id);
+            return ResponseEntity.ok(campaignService.getProgress(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Campaign progress (sent / failed / pending counts and checkpoint)
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getProgress(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(campaignService.getProgress(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.example.notification.entity.NotificationType;
 import com.example.notification.repository.NotificationRepository;
 import com.example.notification.service.EmailService;
 import com.example.notification.service.NotificationService;
+import com.example.notification.service.PresenceService;
+import com.example.notification.service.WebSocketService;
 import com.example.shared.util.AuthUtils;
 import com.example.shared.util.SecurityUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -38,6 +40,12 @@ public class NotificationController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Autowired
+    private PresenceService presenceService;
+    
     @Autowired
     private NotificationRepository notificationRepository;
     
@@ -381,11 +389,7 @@ public class NotificationController {
             message.put("isRead", notification.getIsRead());
             
             // Send to user-specific queue
-            messagingTemplate.convertAndSendToUser(
-                userId, 
-                "/queue/notifications", 
-                message
-            );
+            webSocketService.sendNotificationToUser(userId, message);
             
             // Also broadcast to general topic for admin monitoring
             messagingTemplate.convertAndSend("/topic/admin/notifications", message);
@@ -619,6 +623,14 @@ public class NotificationController {
         }
     }
 
+    /**
+     * WebSocket presence: users online across all nodes and sessions on this node
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<Map<String, Object>> getPresence() {
+        return ResponseEntity.ok(presenceService.getStatus());
+    }
+
     /**
      * Create notification response DTO
      */
@@ -0,0 +1,36 @@
+package com.example.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Payload of the warranty-requested / warranty-status-updated topics: the warranty-service
+ * request serialized as JSON. Only the fields the notifications need are mapped.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WarrantyEvent {
+
+    private String requestNumber;
+    private String userId;
+    private String customerName;
+    private String customerEmail;
+    private String productName;
+    private String status;
+    private String rejectionReason;
+
+    public WarrantyEvent() {}
+
+    public String getRequestNumber() { return requestNumber; }
+    public void setRequestNumber(String requestNumber) { this.requestNumber = requestNumber; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getCustomerName() { return customerName; }
+    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getRejectionReason() { return rejectionReason; }
+    public void setRejectionReason(String rejectionReason) { this.rejectionReason = rejectionReason; }
+}
@@ -0,0 +1,110 @@
+package com.example.notification.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bulk email / SMS campaign. Subject and body are templates with {@code {{name}}} placeholders
+ * merged per recipient. {@code checkpointId} is the last recipient id whose outcome was recorded.
+ */
+@Entity
+@Table(name = "notification_campaigns", indexes = {
+    @Index(name = "idx_campaigns_status_lease", columnList = "status, lease_until")
+})
+public class Campaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "channel", nullable = false, length = 20)
+    private String channel;
+
+    @Column(name = "subject_template")
+    private String subjectTemplate;
+
+    @Column(name = "body_template", columnDefinition = "TEXT", nullable = false)
+    private String bodyTemplate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private CampaignStatus status = CampaignStatus.DRAFT;
+
+    @Column(name = "total_recipients", nullable = false)
+    private Integer totalRecipients = 0;
+
+    @Column(name = "sent_count", nullable = false)
+    private Integer sentCount = 0;
+
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount = 0;
+
+    @Column(name = "checkpoint_id", nullable = false)
+    private Long checkpointId = 0L;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_by", length = 36)
+    private String createdBy;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public Campaign() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getChannel() { return channel; }
+    public void setChannel(String channel) { this.channel = channel; }
+    public String getSubjectTemplate() { return subjectTemplate; }
+    public void setSubjectTemplate(String subjectTemplate) { this.subjectTemplate = subjectTemplate; }
+    public String getBodyTemplate() { return bodyTemplate; }
+    public void setBodyTemplate(String bodyTemplate) { this.bodyTemplate = bodyTemplate; }
+    public CampaignStatus getStatus() { return status; }
+    public void setStatus(CampaignStatus status) { this.status = status; }
+    public Integer getTotalRecipients() { return totalRecipients; }
+    public void setTotalRecipients(Integer totalRecipients) { this.totalRecipients = totalRecipients; }
+    public Integer getSentCount() { return sentCount; }
+    public void setSentCount(Integer sentCount) { this.sentCount = sentCount; }
+    public Integer getFailedCount() { return failedCount; }
+    public void setFailedCount(Integer failedCount) { this.failedCount = failedCount; }
+    public Long getCheckpointId() { return checkpointId; }
+    public void setCheckpointId(Long checkpointId) { this.checkpointId = checkpointId; }
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+    public String getCreatedBy() { return createdBy; }
+    public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
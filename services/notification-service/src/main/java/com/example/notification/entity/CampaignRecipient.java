@@ -0,0 +1,60 @@
+package com.example.notification.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One recipient of a campaign: address (email or phone) plus merge values as a JSON object
+ */
+@Entity
+@Table(name = "notification_campaign_recipients", indexes = {
+    @Index(name = "idx_campaign_recipients_pending", columnList = "campaign_id, status, id")
+})
+public class CampaignRecipient {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    @Column(name = "address", nullable = false)
+    private String address;
+
+    @Column(name = "merge_data", columnDefinition = "TEXT")
+    private String mergeData;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private CampaignRecipientStatus status = CampaignRecipientStatus.PENDING;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public CampaignRecipient() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getCampaignId() { return campaignId; }
+    public void setCampaignId(Long campaignId) { this.campaignId = campaignId; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+    public String getMergeData() { return mergeData; }
+    public void setMergeData(String mergeData) { this.mergeData = mergeData; }
+    public CampaignRecipientStatus getStatus() { return status; }
+    public void setStatus(CampaignRecipientStatus status) { this.status = status; }
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+}
@@ -0,0 +1,7 @@
+package com.example.notification.entity;
+
+public enum CampaignRecipientStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
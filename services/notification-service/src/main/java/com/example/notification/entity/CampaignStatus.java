@@ -0,0 +1,9 @@
+package com.example.notification.entity;
+
+public enum CampaignStatus {
+    DRAFT,      // Created, recipients can still be added
+    RUNNING,    // Being sent by the instance holding the lease
+    PAUSED,
+    COMPLETED,
+    CANCELLED
+}
@@ -7,7 +7,10 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notifications_dispatch", columnList = "is_sent, channel, dispatch_status, priority"),
+    @Index(name = "idx_notifications_expires", columnList = "expires_at")
+})
 public class Notification {
 
     @Id
@@ -66,6 +69,20 @@ public class Notification {
     @Column(name = "expires_at")
     private LocalDateTime expiresAt;
 
+    // Dispatcher state; null on rows created before the dispatcher existed (treated as PENDING)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dispatch_status", length = 20)
+    private NotificationDispatchStatus dispatchStatus = NotificationDispatchStatus.PENDING;
+
+    @Column(name = "claimed_by", length = 100)
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -139,6 +156,18 @@ public class Notification {
     public LocalDateTime getExpiresAt() { return expiresAt; }
     public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
 
+    public NotificationDispatchStatus getDispatchStatus() { return dispatchStatus; }
+    public void setDispatchStatus(NotificationDispatchStatus dispatchStatus) { this.dispatchStatus = dispatchStatus; }
+
+    public String getClaimedBy() { return claimedBy; }
+    public void setClaimedBy(String claimedBy) { this.claimedBy = claimedBy; }
+
+    public LocalDateTime getClaimedUntil() { return claimedUntil; }
+    public void setClaimedUntil(LocalDateTime claimedUntil) { this.claimedUntil = claimedUntil; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,9 @@
+package com.example.notification.entity;
+
+public enum NotificationDispatchStatus {
+    PENDING,    // Waiting to be claimed by a dispatcher
+    CLAIMED,    // Leased by one dispatcher instance until claimed_until
+    SENT,
+    FAILED,     // Gave up after max_retries
+    EXPIRED     // expires_at passed before it could be sent
+}
@@ -0,0 +1,55 @@
+package com.example.notification.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Last known price and stock state of a product, used to decide whether a product change
+ * event is a price drop or a back-in-stock transition worth notifying wishlist users about.
+ */
+@Entity
+@Table(name = "wishlist_product_state")
+public class WishlistProductState {
+
+    @Id
+    @Column(name = "product_id", length = 36)
+    private String productId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "last_price", precision = 15, scale = 2)
+    private BigDecimal lastPrice;
+
+    @Column(name = "in_stock")
+    private Boolean inStock;
+
+    @Column(name = "available_quantity")
+    private Integer availableQuantity;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public WishlistProductState() {}
+
+    public WishlistProductState(String productId) {
+        this.productId = productId;
+    }
+
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+    public BigDecimal getLastPrice() { return lastPrice; }
+    public void setLastPrice(BigDecimal lastPrice) { this.lastPrice = lastPrice; }
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+    public Integer getAvailableQuantity() { return availableQuantity; }
+    public void setAvailableQuantity(Integer availableQuantity) { this.availableQuantity = availableQuantity; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
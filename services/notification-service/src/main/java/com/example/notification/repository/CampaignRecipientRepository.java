@@ -0,0 +1,37 @@
+package com.example.notification.repository;
+
+import com.example.notification.entity.CampaignRecipient;
+import com.example.notification.entity.CampaignRecipientStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CampaignRecipientRepository extends JpaRepository<CampaignRecipient, Long> {
+
+    /**
+     * Next chunk of recipients still to send, after the checkpoint (keyset page)
+     */
+    @Query("SELECT r FROM CampaignRecipient r WHERE r.campaignId = :campaignId " +
+           "AND r.status = com.example.notification.entity.CampaignRecipientStatus.PENDING AND r.id > :afterId ORDER BY r.id")
+    List<CampaignRecipient> findPending(@Param("campaignId") Long campaignId, @Param("afterId") Long afterId, Pageable pageable);
+
+    long countByCampaignIdAndStatus(Long campaignId, CampaignRecipientStatus status);
+
+    @Modifying
+    @Query("UPDATE CampaignRecipient r SET r.status = com.example.notification.entity.CampaignRecipientStatus.SENT, " +
+           "r.sentAt = :now, r.errorMessage = NULL WHERE r.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CampaignRecipient r SET r.status = com.example.notification.entity.CampaignRecipientStatus.FAILED, " +
+           "r.errorMessage = :error WHERE r.id = :id")
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+}
@@ -0,0 +1,83 @@
+package com.example.notification.repository;
+
+import com.example.notification.entity.Campaign;
+import com.example.notification.entity.CampaignStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CampaignRepository extends JpaRepository<Campaign, Long> {
+
+    List<Campaign> findByStatusOrderByCreatedAtDesc(CampaignStatus status);
+
+    /**
+     * Running campaigns nobody holds a live lease on
+     */
+    @Query("SELECT c.id FROM Campaign c WHERE c.status = com.example.notification.entity.CampaignStatus.RUNNING " +
+           "AND (c.leaseUntil IS NULL OR c.leaseUntil < :now) ORDER BY c.id")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now);
+
+    /**
+     * Take or renew the lease of a running campaign; returns 0 when another instance holds it
+     */
+    @Modifying
+    @Query("UPDATE Campaign c SET c.leaseOwner = :node, c.leaseUntil = :until " +
+           "WHERE c.id = :id AND c.status = com.example.notification.entity.CampaignStatus.RUNNING " +
+           "AND (c.leaseOwner = :node OR c.leaseUntil IS NULL OR c.leaseUntil < :now)")
+    int claim(@Param("id") Long id, @Param("node") String node, @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    /**
+     * Record the outcome of one chunk and move the checkpoint; only the lease owner may do this
+     */
+    @Modifying
+    @Query("UPDATE Campaign c SET c.sentCount = c.sentCount + :sent, c.failedCount = c.failedCount + :failed, " +
+           "c.checkpointId = :checkpointId, c.leaseUntil = :until, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.leaseOwner = :node")
+    int advance(@Param("id") Long id, @Param("sent") int sent, @Param("failed") int failed,
+                @Param("checkpointId") Long checkpointId, @Param("node") String node,
+                @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Campaign c SET c.status = com.example.notification.entity.CampaignStatus.COMPLETED, " +
+           "c.completedAt = :now, c.leaseOwner = NULL, c.leaseUntil = NULL, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.leaseOwner = :node AND c.status = com.example.notification.entity.CampaignStatus.RUNNING")
+    int complete(@Param("id") Long id, @Param("node") String node, @Param("now") LocalDateTime now);
+
+    /**
+     * Start or resume; leaves the counters and checkpoint that {@link #advance} maintains untouched
+     */
+    @Modifying
+    @Query("UPDATE Campaign c SET c.status = com.example.notification.entity.CampaignStatus.RUNNING, " +
+           "c.startedAt = COALESCE(c.startedAt, :now), c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.status NOT IN (com.example.notification.entity.CampaignStatus.COMPLETED, " +
+           "com.example.notification.entity.CampaignStatus.CANCELLED)")
+    int markRunning(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Pause or cancel; a completed or cancelled campaign keeps its status
+     */
+    @Modifying
+    @Query("UPDATE Campaign c SET c.status = :status, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.status NOT IN (com.example.notification.entity.CampaignStatus.COMPLETED, " +
+           "com.example.notification.entity.CampaignStatus.CANCELLED)")
+    int updateStatus(@Param("id") Long id, @Param("status") CampaignStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Count appended recipients; only draft and paused campaigns take new recipients
+     */
+    @Modifying
+    @Query("UPDATE Campaign c SET c.totalRecipients = c.totalRecipients + :count, c.updatedAt = :now " +
+           "WHERE c.id = :id AND c.status IN (com.example.notification.entity.CampaignStatus.DRAFT, " +
+           "com.example.notification.entity.CampaignStatus.PAUSED)")
+    int addToTotal(@Param("id") Long id, @Param("count") int count, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Campaign c SET c.leaseOwner = NULL, c.leaseUntil = NULL WHERE c.id = :id AND c.leaseOwner = :node")
+    int release(@Param("id") Long id, @Param("node") String node);
+}
@@ -3,11 +3,13 @@ package com.example.notification.repository;
 import com.example.notification.entity.Notification;
 import com.example.notification.entity.NotificationType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -57,4 +59,89 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Long countByIsSent(Boolean isSent);
     
     Long countByIsRead(Boolean isRead);
+    
+    // Dispatcher (NotificationDispatcher)
+    
+    /**
+     * Lock the next dispatchable rows of a channel, highest priority first. Rows locked by another
+     * dispatcher are skipped, so replicas never wait on each other. Expired claims of other nodes are
+     * taken over; the caller's own claims never are, since it still holds them in its queues.
+     * Must run in a transaction that also marks the rows CLAIMED.
+     */
+    @Query(value = "SELECT * FROM notifications n WHERE n.channel = :channel AND n.is_sent = false " +
+           "AND (n.dispatch_status IS NULL OR n.dispatch_status = 'PENDING' OR (n.dispatch_status = 'CLAIMED' " +
+           "AND n.claimed_until < :now AND (n.claimed_by IS NULL OR n.claimed_by <> :node))) " +
+           "AND COALESCE(n.retry_count, 0) < COALESCE(n.max_retries, 3) " +
+           "AND (n.scheduled_at IS NULL OR n.scheduled_at <= :now) " +
+           "AND (n.next_attempt_at IS NULL OR n.next_attempt_at <= :now) " +
+           "AND (n.expires_at IS NULL OR n.expires_at >= :now) " +
+           "ORDER BY n.priority DESC, n.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Notification> lockDispatchBatch(@Param("channel") String channel, @Param("node") String node,
+                                         @Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.CLAIMED, " +
+           "n.claimedBy = :node, n.claimedUntil = :until WHERE n.id IN :ids")
+    int markClaimed(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("until") LocalDateTime until);
+    
+    /**
+     * Claim a single row for immediate dispatch; returns 0 when it is already claimed, sent or not due
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.CLAIMED, " +
+           "n.claimedBy = :node, n.claimedUntil = :until " +
+           "WHERE n.id = :id AND n.isSent = false " +
+           "AND (n.dispatchStatus IS NULL OR n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.PENDING) " +
+           "AND (n.scheduledAt IS NULL OR n.scheduledAt <= :now) " +
+           "AND (n.expiresAt IS NULL OR n.expiresAt >= :now)")
+    int claimById(@Param("id") Long id, @Param("node") String node, @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+    
+    /**
+     * Extend the lease of rows this node still holds (queued or being sent)
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.claimedUntil = :until WHERE n.id IN :ids AND n.claimedBy = :node " +
+           "AND n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.CLAIMED")
+    int renewClaims(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("until") LocalDateTime until);
+    
+    /**
+     * Record a delivery with the provider's id; returns 0 when the claim is no longer held by {@code node}
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.isSent = true, n.sentAt = :now, n.externalId = :externalId, " +
+           "n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.SENT, " +
+           "n.claimedBy = NULL, n.claimedUntil = NULL, n.updatedAt = :now WHERE n.id = :id AND n.claimedBy = :node")
+    int markSent(@Param("id") Long id, @Param("node") String node, @Param("externalId") String externalId,
+                 @Param("now") LocalDateTime now);
+    
+    /**
+     * Record a failed attempt. Rows that reach max_retries become FAILED, others go back to PENDING
+     * until {@code retryAt}. Only rows still claimed by {@code node} are touched.
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET " +
+           "n.dispatchStatus = CASE WHEN COALESCE(n.retryCount, 0) + 1 >= COALESCE(n.maxRetries, 3) " +
+           "THEN com.example.notification.entity.NotificationDispatchStatus.FAILED " +
+           "ELSE com.example.notification.entity.NotificationDispatchStatus.PENDING END, " +
+           "n.retryCount = COALESCE(n.retryCount, 0) + 1, n.errorMessage = :error, n.nextAttemptAt = :retryAt, " +
+           "n.claimedBy = NULL, n.claimedUntil = NULL, n.updatedAt = :now " +
+           "WHERE n.id IN :ids AND n.claimedBy = :node")
+    int markFailed(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("error") String error,
+                   @Param("retryAt") LocalDateTime retryAt, @Param("now") LocalDateTime now);
+    
+    /**
+     * Release claims (e.g. on shutdown) so another dispatcher picks the rows up right away
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.PENDING, " +
+           "n.claimedBy = NULL, n.claimedUntil = NULL WHERE n.id IN :ids AND n.claimedBy = :node " +
+           "AND n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.CLAIMED")
+    int releaseClaims(@Param("ids") Collection<Long> ids, @Param("node") String node);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.EXPIRED, " +
+           "n.errorMessage = 'Notification expired', n.updatedAt = :now " +
+           "WHERE n.isSent = false AND n.expiresAt IS NOT NULL AND n.expiresAt < :now " +
+           "AND (n.dispatchStatus IS NULL OR n.dispatchStatus = com.example.notification.entity.NotificationDispatchStatus.PENDING)")
+    int expirePending(@Param("now") LocalDateTime now);
 }
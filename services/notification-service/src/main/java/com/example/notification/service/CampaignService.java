@@ -0,0 +1,533 @@
+package com.example.notification.service;
+
+import com.example.notification.entity.Campaign;
+import com.example.notification.entity.CampaignRecipient;
+import com.example.notification.entity.CampaignRecipientStatus;
+import com.example.notification.entity.CampaignStatus;
+import com.example.notification.repository.CampaignRecipientRepository;
+import com.example.notification.repository.CampaignRepository;
+import com.example.shared.util.NodeNames;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk email / SMS campaigns.
+ *
+ * A running campaign is leased by one instance, which walks the pending recipients in id order,
+ * one chunk at a time. Each chunk is split across sender threads: email threads borrow a pooled
+ * SMTP connection and send many messages over it, SMS threads call the SMS provider. Every send
+ * first takes a token from the channel's token bucket, so the provider limit holds however many
+ * threads run. Subject and body templates are parsed once per campaign and merged per recipient.
+ *
+ * After each chunk the recipient outcomes and the campaign counters / checkpoint are written in
+ * one transaction. Campaign rows are only ever changed through targeted UPDATE statements, so a
+ * pause or a recipient import never writes back stale counters. A crashed or restarted instance resumes after the checkpoint when the lease
+ * runs out, so at most one chunk can be sent twice.
+ */
+@Service
+public class CampaignService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CampaignService.class);
+
+    private static final TypeReference<Map<String, String>> MERGE_DATA = new TypeReference<>() {};
+
+    @Autowired
+    private CampaignRepository campaignRepository;
+
+    @Autowired
+    private CampaignRecipientRepository recipientRepository;
+
+    @Autowired
+    private SmtpConnectionPool smtpConnectionPool;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private SmsService smsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.mail.username:}")
+    private String fromEmail;
+
+    @Value("${notification.campaign.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.campaign.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${notification.campaign.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${notification.campaign.max-running:2}")
+    private int maxRunning;
+
+    @Value("${notification.campaign.sms-workers:4}")
+    private int smsWorkers;
+
+    @Value("${notification.campaign.rate.email-per-second:10}")
+    private double emailPerSecond;
+
+    @Value("${notification.campaign.rate.email-burst:20}")
+    private int emailBurst;
+
+    @Value("${notification.campaign.rate.sms-per-second:5}")
+    private double smsPerSecond;
+
+    @Value("${notification.campaign.rate.sms-burst:10}")
+    private int smsBurst;
+
+    private final String node = NodeNames.unique("notification-service");
+
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+
+    // Campaigns this instance is sending right now
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService campaignExecutor;
+    private ExecutorService senderExecutor;
+    private TransactionTemplate tx;
+
+    /**
+     * Outcome of sending to one recipient
+     */
+    private static class Outcome {
+        final Long recipientId;
+        final boolean sent;
+        final String error;
+
+        Outcome(Long recipientId, boolean sent, String error) {
+            this.recipientId = recipientId;
+            this.sent = sent;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Parsed templates of one campaign
+     */
+    private static class Templates {
+        final MessageTemplate subject;
+        final MessageTemplate body;
+
+        Templates(Campaign campaign, boolean html) {
+            this.subject = MessageTemplate.compile(campaign.getSubjectTemplate(), false);
+            this.body = MessageTemplate.compile(campaign.getBodyTemplate(), html);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        buckets.put(NotificationChannelSender.EMAIL, new TokenBucket(emailPerSecond, emailBurst));
+        buckets.put(NotificationChannelSender.SMS, new TokenBucket(smsPerSecond, smsBurst));
+        campaignExecutor = Executors.newFixedThreadPool(Math.max(1, maxRunning), daemonThreads("campaign"));
+        senderExecutor = Executors.newFixedThreadPool(Math.max(smtpConnectionPool.size(), smsWorkers), daemonThreads("campaign-send"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        campaignExecutor.shutdownNow();
+        senderExecutor.shutdownNow();
+        for (Long id : running) {
+            try {
+                tx.execute(status -> campaignRepository.release(id, node));
+            } catch (Exception e) {
+                logger.debug("Could not release campaign {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create a draft campaign with its recipients
+     *
+     * @param recipients each with "address" (email or phone), optional "userId" and optional "data" merge values
+     */
+    public Campaign createCampaign(String name, String channel, String subjectTemplate, String bodyTemplate,
+                                   List<Map<String, Object>> recipients, String createdBy) {
+        String normalized = channel != null ? channel.trim().toLowerCase() : "";
+        if (!NotificationChannelSender.EMAIL.equals(normalized) && !NotificationChannelSender.SMS.equals(normalized)) {
+            throw new IllegalArgumentException("Campaign channel must be email or sms");
+        }
+        if (bodyTemplate == null || bodyTemplate.isBlank()) {
+            throw new IllegalArgumentException("Campaign body template is required");
+        }
+        Campaign campaign = new Campaign();
+        campaign.setName(name != null ? name : "Campaign");
+        campaign.setChannel(normalized);
+        campaign.setSubjectTemplate(subjectTemplate);
+        campaign.setBodyTemplate(bodyTemplate);
+        campaign.setCreatedBy(createdBy);
+        // Own transaction, so the row is visible to addRecipients / start even when the caller has one open
+        Campaign saved = tx.execute(status -> campaignRepository.save(campaign));
+        if (recipients != null && !recipients.isEmpty()) {
+            return addRecipients(saved.getId(), recipients);
+        }
+        return saved;
+    }
+
+    /**
+     * Create a campaign and start sending it right away
+     */
+    public Campaign launch(String name, String channel, String subjectTemplate, String bodyTemplate,
+                           List<Map<String, Object>> recipients, String createdBy) {
+        Campaign campaign = createCampaign(name, channel, subjectTemplate, bodyTemplate, recipients, createdBy);
+        return start(campaign.getId());
+    }
+
+    /**
+     * Append recipients to a campaign that is not running
+     */
+    public Campaign addRecipients(Long campaignId, List<Map<String, Object>> recipients) {
+        tx.executeWithoutResult(status -> {
+            List<CampaignRecipient> rows = new ArrayList<>(recipients.size());
+            for (Map<String, Object> r : recipients) {
+                Object address = r.get("address");
+                if (address == null || address.toString().isBlank()) {
+                    continue;
+                }
+                CampaignRecipient row = new CampaignRecipient();
+                row.setCampaignId(campaignId);
+                row.setAddress(address.toString().trim());
+                row.setUserId(r.get("userId") != null ? r.get("userId").toString() : null);
+                if (r.get("data") instanceof Map) {
+                    try {
+                        row.setMergeData(objectMapper.writeValueAsString(r.get("data")));
+                    } catch (Exception e) {
+                        throw new IllegalArgumentException("Invalid merge data for " + address, e);
+                    }
+                }
+                rows.add(row);
+            }
+            // Targeted update: findById + save would write back counters advance() has moved on
+            if (campaignRepository.addToTotal(campaignId, rows.size(), LocalDateTime.now()) != 1) {
+                getCampaign(campaignId);
+                throw new IllegalStateException("Recipients can only be added to draft or paused campaigns");
+            }
+            recipientRepository.saveAll(rows);
+        });
+        return getCampaign(campaignId);
+    }
+
+    /**
+     * Start or resume sending; the next poll (or this call) picks the campaign up
+     */
+    public Campaign start(Long campaignId) {
+        Integer updated = tx.execute(status -> campaignRepository.markRunning(campaignId, LocalDateTime.now()));
+        if (updated == null || updated != 1) {
+            Campaign c = getCampaign(campaignId);
+            throw new IllegalStateException("Campaign " + campaignId + " is " + c.getStatus());
+        }
+        poll();
+        return getCampaign(campaignId);
+    }
+
+    /**
+     * Pause after the current chunk; {@link #start(Long)} resumes from the checkpoint
+     */
+    public Campaign pause(Long campaignId) {
+        return changeStatus(campaignId, CampaignStatus.PAUSED);
+    }
+
+    public Campaign cancel(Long campaignId) {
+        return changeStatus(campaignId, CampaignStatus.CANCELLED);
+    }
+
+    public Campaign getCampaign(Long campaignId) {
+        return campaignRepository.findById(campaignId)
+            .orElseThrow(() -> new IllegalArgumentException("Campaign not found: " + campaignId));
+    }
+
+    /**
+     * Progress of a campaign
+     */
+    public Map<String, Object> getProgress(Long campaignId) {
+        Campaign c = getCampaign(campaignId);
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", c.getId());
+        progress.put("name", c.getName());
+        progress.put("channel", c.getChannel());
+        progress.put("status", c.getStatus().name());
+        progress.put("totalRecipients", c.getTotalRecipients());
+        progress.put("sentCount", c.getSentCount());
+        progress.put("failedCount", c.getFailedCount());
+        progress.put("pendingCount", recipientRepository.countByCampaignIdAndStatus(c.getId(), CampaignRecipientStatus.PENDING));
+        progress.put("checkpointId", c.getCheckpointId());
+        progress.put("startedAt", c.getStartedAt());
+        progress.put("completedAt", c.getCompletedAt());
+        return progress;
+    }
+
+    /**
+     * Pick up running campaigns without a live lease (new, resumed, or left by a crashed instance)
+     */
+    @Scheduled(fixedDelayString = "${notification.campaign.poll-interval-ms:15000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Long id : campaignRepository.findClaimableIds(now)) {
+            if (running.size() >= Math.max(1, maxRunning) || !running.add(id)) {
+                continue;
+            }
+            Integer claimed = tx.execute(status -> campaignRepository.claim(id, node, now.plusSeconds(leaseSeconds), now));
+            if (claimed == null || claimed != 1) {
+                running.remove(id);
+                continue;
+            }
+            try {
+                campaignExecutor.execute(() -> {
+                    try {
+                        run(id);
+                    } catch (Exception e) {
+                        logger.error("Campaign {} stopped: {}", id, e.getMessage(), e);
+                        tx.execute(status -> campaignRepository.release(id, node));
+                    } finally {
+                        running.remove(id);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.remove(id);
+                tx.execute(status -> campaignRepository.release(id, node));
+            }
+        }
+    }
+
+    private Campaign changeStatus(Long campaignId, CampaignStatus target) {
+        tx.execute(status -> campaignRepository.updateStatus(campaignId, target, LocalDateTime.now()));
+        return getCampaign(campaignId);
+    }
+
+    private void run(Long campaignId) throws InterruptedException {
+        Campaign campaign = getCampaign(campaignId);
+        boolean email = NotificationChannelSender.EMAIL.equals(campaign.getChannel());
+        Templates templates = new Templates(campaign, email);
+        TokenBucket bucket = buckets.get(campaign.getChannel());
+        long afterId = campaign.getCheckpointId() != null ? campaign.getCheckpointId() : 0L;
+        logger.info("Sending campaign {} ({}) from checkpoint {}", campaignId, campaign.getChannel(), afterId);
+
+        while (!Thread.currentThread().isInterrupted()) {
+            CampaignStatus current = campaignRepository.findById(campaignId).map(Campaign::getStatus).orElse(CampaignStatus.CANCELLED);
+            if (current != CampaignStatus.RUNNING) {
+                tx.execute(status -> campaignRepository.release(campaignId, node));
+                logger.info("Campaign {} is {}, stopped at checkpoint {}", campaignId, current, afterId);
+                return;
+            }
+
+            List<CampaignRecipient> chunk = recipientRepository.findPending(campaignId, afterId,
+                PageRequest.of(0, Math.max(1, chunkSize)));
+            if (chunk.isEmpty()) {
+                tx.execute(status -> campaignRepository.complete(campaignId, node, LocalDateTime.now()));
+                logger.info("Campaign {} completed", campaignId);
+                return;
+            }
+
+            List<Outcome> outcomes = email ? sendEmails(chunk, templates, bucket) : sendSms(chunk, templates, bucket);
+            long checkpoint = chunk.get(chunk.size() - 1).getId();
+            Integer advanced = tx.execute(status -> record(campaignId, outcomes, checkpoint));
+            if (advanced == null || advanced != 1) {
+                logger.warn("Lost lease on campaign {}, stopping", campaignId);
+                return;
+            }
+            afterId = checkpoint;
+        }
+    }
+
+    private int record(Long campaignId, List<Outcome> outcomes, long checkpoint) {
+        List<Long> sentIds = new ArrayList<>();
+        int failed = 0;
+        for (Outcome outcome : outcomes) {
+            if (outcome.sent) {
+                sentIds.add(outcome.recipientId);
+            } else {
+                recipientRepository.markFailed(outcome.recipientId, outcome.error);
+                failed++;
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!sentIds.isEmpty()) {
+            recipientRepository.markSent(sentIds, now);
+        }
+        return campaignRepository.advance(campaignId, sentIds.size(), failed, checkpoint, node,
+            now.plusSeconds(leaseSeconds), now);
+    }
+
+    private List<Outcome> sendEmails(List<CampaignRecipient> chunk, Templates templates, TokenBucket bucket)
+            throws InterruptedException {
+        int workers = smtpConnectionPool.size();
+        return inParallel(chunk, workers, slice -> {
+            List<Outcome> outcomes = new ArrayList<>(slice.size());
+            if (!smtpConnectionPool.isAvailable()) {
+                // Not a JavaMailSenderImpl: fall back to one send per message
+                for (CampaignRecipient r : slice) {
+                    bucket.acquire();
+                    try {
+                        mailSender.send(buildEmail(r, templates));
+                        outcomes.add(new Outcome(r.getId(), true, null));
+                    } catch (Exception e) {
+                        outcomes.add(new Outcome(r.getId(), false, truncate(e.getMessage())));
+                    }
+                }
+                return outcomes;
+            }
+
+            SmtpConnectionPool.Connection connection = null;
+            try {
+                for (CampaignRecipient r : slice) {
+                    bucket.acquire();
+                    try {
+                        if (connection == null) {
+                            connection = smtpConnectionPool.borrow();
+                        }
+                        MimeMessage message = buildEmail(r, templates);
+                        message.saveChanges();
+                        connection.transport().sendMessage(message, message.getAllRecipients());
+                        connection.recordSent();
+                        outcomes.add(new Outcome(r.getId(), true, null));
+                    } catch (MessagingException | RuntimeException e) {
+                        outcomes.add(new Outcome(r.getId(), false, truncate(e.getMessage())));
+                        if (connection != null && !connection.transport().isConnected()) {
+                            smtpConnectionPool.release(connection, true);
+                            connection = null;
+                        }
+                    }
+                }
+            } finally {
+                if (connection != null) {
+                    smtpConnectionPool.release(connection, false);
+                }
+            }
+            return outcomes;
+        });
+    }
+
+    private List<Outcome> sendSms(List<CampaignRecipient> chunk, Templates templates, TokenBucket bucket)
+            throws InterruptedException {
+        return inParallel(chunk, Math.max(1, smsWorkers), slice -> {
+            List<Outcome> outcomes = new ArrayList<>(slice.size());
+            for (CampaignRecipient r : slice) {
+                bucket.acquire();
+                Map<String, Object> result = smsService.sendSms(r.getAddress(), templates.body.render(mergeValues(r)));
+                boolean success = Boolean.TRUE.equals(result.get("success"));
+                Object error = result.get("error");
+                outcomes.add(new Outcome(r.getId(), success, success ? null : truncate(error != null ? error.toString() : "Unknown error")));
+            }
+            return outcomes;
+        });
+    }
+
+    private MimeMessage buildEmail(CampaignRecipient r, Templates templates) throws MessagingException {
+        Map<String, String> values = mergeValues(r);
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(r.getAddress());
+        helper.setSubject(templates.subject.render(values));
+        helper.setText(templates.body.render(values), true);
+        return message;
+    }
+
+    private Map<String, String> mergeValues(CampaignRecipient r) {
+        Map<String, String> values = new HashMap<>();
+        if (r.getMergeData() != null && !r.getMergeData().isBlank()) {
+            try {
+                values.putAll(objectMapper.readValue(r.getMergeData(), MERGE_DATA));
+            } catch (Exception e) {
+                logger.debug("Invalid merge data for campaign recipient {}: {}", r.getId(), e.getMessage());
+            }
+        }
+        values.putIfAbsent("address", r.getAddress());
+        if (r.getUserId() != null) {
+            values.putIfAbsent("userId", r.getUserId());
+        }
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface SliceSender {
+        List<Outcome> send(List<CampaignRecipient> slice) throws InterruptedException;
+    }
+
+    /**
+     * Split a chunk into contiguous slices and send them on the sender pool
+     */
+    private List<Outcome> inParallel(List<CampaignRecipient> chunk, int workers, SliceSender sender)
+            throws InterruptedException {
+        int slices = Math.max(1, Math.min(workers, chunk.size()));
+        int per = (chunk.size() + slices - 1) / slices;
+        List<CompletableFuture<List<Outcome>>> futures = new ArrayList<>(slices);
+        for (int from = 0; from < chunk.size(); from += per) {
+            List<CampaignRecipient> slice = chunk.subList(from, Math.min(chunk.size(), from + per));
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return sender.send(slice);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Campaign sending interrupted", e);
+                }
+            }, senderExecutor));
+        }
+        List<Outcome> outcomes = new ArrayList<>(chunk.size());
+        try {
+            for (CompletableFuture<List<Outcome>> future : futures) {
+                outcomes.addAll(future.get());
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return outcomes;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return "Unknown error";
+        }
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
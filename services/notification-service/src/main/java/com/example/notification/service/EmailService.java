@@ -1,5 +1,6 @@
 package com.example.notification.service;
 
+import com.example.notification.entity.Campaign;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
@@ -10,6 +11,7 @@ import org.springframework.web.client.RestTemplate;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -20,6 +22,9 @@ public class EmailService {
     
     @Autowired
     private RestTemplate restTemplate;
+
+    @Autowired
+    private CampaignService campaignService;
     
     @Value("${spring.mail.username:}")
     private String fromEmail;
@@ -137,11 +142,13 @@ public class EmailService {
     }
 
     /**
-     * Send promotional email
+     * Send promotional email through the campaign sender (pooled SMTP, rate limited)
      */
     public Map<String, Object> sendPromotionalEmail(String email, String subject, String htmlContent) {
         try {
-            return sendHtmlEmail(email, subject, htmlContent);
+            Campaign campaign = campaignService.launch("Promotional email", NotificationChannelSender.EMAIL,
+                subject, htmlContent, List.of(Map.of("address", email)), "system");
+            return Map.of("success", true, "campaignId", campaign.getId(), "status", campaign.getStatus().name());
         } catch (Exception e) {
             return Map.of("success", false, "error", e.getMessage());
         }
@@ -0,0 +1,86 @@
+package com.example.notification.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template with {@code {{name}}} placeholders, parsed once and merged per recipient.
+ *
+ * Parsing splits the text into literal parts and placeholder names, so rendering is a single
+ * pass appending into a pre-sized builder. Values merged into HTML bodies are escaped.
+ */
+public final class MessageTemplate {
+
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+    private final boolean html;
+
+    private MessageTemplate(String[] literals, String[] names, boolean html) {
+        this.literals = literals;
+        this.names = names;
+        this.html = html;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static MessageTemplate compile(String template, boolean html) {
+        String text = template != null ? template : "";
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = text.indexOf("{{", pos);
+            int close = open >= 0 ? text.indexOf("}}", open + 2) : -1;
+            if (open < 0 || close < 0) {
+                literals.add(text.substring(pos));
+                break;
+            }
+            literals.add(text.substring(pos, open));
+            names.add(text.substring(open + 2, close).trim());
+            pos = close + 2;
+        }
+        return new MessageTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), html);
+    }
+
+    /**
+     * Merge values; unknown placeholders render empty
+     */
+    public String render(Map<String, String> values) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + names.length * 16);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = values != null ? values.get(names[i]) : null;
+            if (value != null) {
+                if (html) {
+                    escapeHtml(out, value);
+                } else {
+                    out.append(value);
+                }
+            }
+        }
+        out.append(literals[names.length]);
+        return out.toString();
+    }
+
+    private static void escapeHtml(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '&': out.append("&amp;"); break;
+                case '"': out.append("&quot;"); break;
+                case '\'': out.append("&#39;"); break;
+                default: out.append(c);
+            }
+        }
+    }
+}
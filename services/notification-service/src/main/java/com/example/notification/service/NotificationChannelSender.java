@@ -0,0 +1,169 @@
+package com.example.notification.service;
+
+import com.example.notification.entity.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Delivers one notification over its channel (email, sms, websocket).
+ * Does not touch the notification row; the dispatcher records the outcome.
+ */
+@Service
+public class NotificationChannelSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationChannelSender.class);
+
+    public static final String EMAIL = "email";
+    public static final String SMS = "sms";
+    public static final String WEBSOCKET = "websocket";
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SmsService smsService;
+
+    @Autowired
+    private WebSocketService webSocketService;
+
+    @Autowired(required = false)
+    private UserServiceClient userServiceClient;
+
+    public static boolean isSupported(String channel) {
+        return EMAIL.equals(channel) || SMS.equals(channel) || WEBSOCKET.equals(channel);
+    }
+
+    /**
+     * Send the notification; result has "success" and either "externalId" or "error"
+     */
+    public Map<String, Object> send(Notification notification) {
+        try {
+            String channel = notification.getChannel() != null ? notification.getChannel().toLowerCase() : "";
+            switch (channel) {
+                case EMAIL:
+                    return sendEmailNotification(notification);
+                case SMS:
+                    return sendSmsNotification(notification);
+                case WEBSOCKET:
+                    return sendWebSocketNotification(notification);
+                default:
+                    return Map.of("success", false, "error", "Unsupported channel: " + notification.getChannel() + ". Supported channels: email, sms, websocket");
+            }
+        } catch (Exception e) {
+            logger.error("Error sending notification {}: {}", notification.getId(), e.getMessage(), e);
+            return Map.of("success", false, "error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Send email notification
+     */
+    private Map<String, Object> sendEmailNotification(Notification notification) {
+        try {
+            // Get user email from user service
+            String userEmail = getUserEmail(notification.getUserId());
+            if (userEmail == null) {
+                return Map.of("success", false, "error", "User email not found");
+            }
+            
+            Map<String, Object> result = emailService.sendHtmlEmail(userEmail, notification.getTitle(), notification.getMessage());
+            result.put("externalId", "EMAIL_" + System.currentTimeMillis());
+            return result;
+        } catch (Exception e) {
+            return Map.of("success", false, "error", e.getMessage());
+        }
+    }
+
+    /**
+     * Send SMS notification
+     */
+    private Map<String, Object> sendSmsNotification(Notification notification) {
+        try {
+            String userPhone = getUserPhoneNumber(notification.getUserId());
+            if (userPhone == null) {
+                return Map.of("success", false, "error", "User phone number not found");
+            }
+            
+            Map<String, Object> result = smsService.sendSms(userPhone, notification.getMessage());
+            result.put("externalId", "SMS_" + System.currentTimeMillis());
+            return result;
+        } catch (Exception e) {
+            return Map.of("success", false, "error", e.getMessage());
+        }
+    }
+
+    /**
+     * Send WebSocket notification
+     */
+    private Map<String, Object> sendWebSocketNotification(Notification notification) {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("id", notification.getId());
+            data.put("type", notification.getType().name());
+            data.put("title", notification.getTitle());
+            data.put("message", notification.getMessage());
+            data.put("priority", notification.getPriority());
+            data.put("data", notification.getData());
+            
+            webSocketService.sendRealTimeNotification(
+                notification.getUserId(),
+                notification.getType().name(),
+                notification.getTitle(),
+                notification.getMessage(),
+                data
+            );
+            
+            return Map.of("success", true, "externalId", "WS_" + System.currentTimeMillis());
+        } catch (Exception e) {
+            return Map.of("success", false, "error", e.getMessage());
+        }
+    }
+
+    /**
+     * Get user email from user service
+     */
+    private String getUserEmail(String userId) {
+        try {
+            if (userServiceClient == null) {
+                logger.warn("UserServiceClient not available for userId: {}", userId);
+                return null;
+            }
+            
+            Map<String, Object> user = userServiceClient.getUserById(userId);
+            if (user != null && user.containsKey("email")) {
+                return user.get("email").toString();
+            }
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to get user email for userId {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get user phone number from user service
+     */
+    private String getUserPhoneNumber(String userId) {
+        try {
+            if (userServiceClient == null) {
+                logger.warn("UserServiceClient not available for userId: {}", userId);
+                return null;
+            }
+            
+            Map<String, Object> user = userServiceClient.getUserById(userId);
+            if (user != null && user.containsKey("phoneNumber")) {
+                Object phoneNumber = user.get("phoneNumber");
+                return phoneNumber != null ? phoneNumber.toString() : null;
+            }
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to get user phone number for userId {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.example.notification.service;
+
+import com.example.notification.entity.Notification;
+import com.example.notification.entity.NotificationDispatchStatus;
+import com.example.notification.repository.NotificationRepository;
+import com.example.shared.util.NodeNames;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers stored notifications through per-channel worker pools.
+ *
+ * Each channel (websocket, email, sms) has its own pool fed by a priority queue (priority desc,
+ * then id), so slow SMTP or SMS calls never hold up websocket pushes. Work reaches the queues two ways:
+ * <ul>
+ *   <li>{@link #dispatch(Notification)} claims a freshly created row right after its transaction
+ *       commits, so the common case is delivered immediately;</li>
+ *   <li>a short poll claims batches of due rows with {@code SELECT ... FOR UPDATE SKIP LOCKED}
+ *       (retries, scheduled rows, rows created by other replicas or while a queue was full).</li>
+ * </ul>
+ * A claim is a lease ({@code claimed_by} / {@code claimed_until}): only the owner records the
+ * outcome and a crashed instance's rows become claimable again when the lease runs out. While rows
+ * wait in a queue or are being sent the owner keeps renewing their lease, so a long queue never lets
+ * another replica take them over and send them a second time. Outcomes are buffered and written
+ * back on the next poll: failures in bulk, deliveries per row with the provider's external id.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    // Keeps IN lists of the bulk updates reasonable
+    private static final int MAX_IDS_PER_UPDATE = 500;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationChannelSender channelSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notification.dispatcher.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notification.dispatcher.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${notification.dispatcher.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${notification.dispatcher.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    @Value("${notification.dispatcher.workers.websocket:4}")
+    private int websocketWorkers;
+
+    @Value("${notification.dispatcher.workers.email:4}")
+    private int emailWorkers;
+
+    @Value("${notification.dispatcher.workers.sms:2}")
+    private int smsWorkers;
+
+    private final String node = NodeNames.unique("notification-service");
+
+    private final Map<String, ChannelPool> pools = new LinkedHashMap<>();
+
+    private final ConcurrentLinkedQueue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+
+    // Ids claimed by this instance whose outcome is not written yet
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private TransactionTemplate tx;
+
+    private Counter leaseLost;
+
+    private volatile long lastRenewal = System.currentTimeMillis();
+
+    /**
+     * Delivery outcome waiting for the next bulk update
+     */
+    private static class Outcome {
+        final Long id;
+        final boolean sent;
+        final String externalId;
+        final String error;
+
+        Outcome(Long id, boolean sent, String externalId, String error) {
+            this.id = id;
+            this.sent = sent;
+            this.externalId = externalId;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Worker pool of one channel
+     */
+    private class ChannelPool {
+        final String channel;
+        final ThreadPoolExecutor executor;
+        final Counter sent;
+        final Counter failed;
+
+        ChannelPool(String channel, int workers) {
+            this.channel = channel;
+            int size = Math.max(1, workers);
+            AtomicInteger threads = new AtomicInteger();
+            // Only DeliveryTask instances are queued, ordered by priority then id
+            Comparator<Runnable> order = Comparator.comparing((Runnable r) -> (DeliveryTask) r);
+            this.executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(Math.max(16, queueCapacity), order),
+                r -> {
+                    Thread t = new Thread(r, "notify-" + channel + "-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            this.sent = meterRegistry != null
+                ? Counter.builder("notifications.dispatch.sent").tag("channel", channel).register(meterRegistry) : null;
+            this.failed = meterRegistry != null
+                ? Counter.builder("notifications.dispatch.failed").tag("channel", channel).register(meterRegistry) : null;
+        }
+
+        int free() {
+            return queueCapacity - executor.getQueue().size() - executor.getActiveCount();
+        }
+    }
+
+    /**
+     * Sends one claimed notification
+     */
+    private class DeliveryTask implements Runnable, Comparable<DeliveryTask> {
+        final Notification notification;
+        final ChannelPool pool;
+        final int priority;
+        final long seq;
+
+        DeliveryTask(Notification notification, ChannelPool pool) {
+            this.notification = notification;
+            this.pool = pool;
+            this.priority = notification.getPriority() != null ? notification.getPriority() : 1;
+            this.seq = sequence.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            Map<String, Object> result = channelSender.send(notification);
+            boolean success = Boolean.TRUE.equals(result.get("success"));
+            Object error = result.get("error");
+            Object externalId = result.get("externalId");
+            outcomes.add(new Outcome(notification.getId(), success,
+                externalId != null ? externalId.toString() : null,
+                success ? null : truncate(error != null ? error.toString() : "Unknown error")));
+            Counter counter = success ? pool.sent : pool.failed;
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+
+        @Override
+        public int compareTo(DeliveryTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            Long id = notification.getId();
+            Long otherId = other.notification.getId();
+            if (id != null && otherId != null && !id.equals(otherId)) {
+                return Long.compare(id, otherId);
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        pools.put(NotificationChannelSender.WEBSOCKET, new ChannelPool(NotificationChannelSender.WEBSOCKET, websocketWorkers));
+        pools.put(NotificationChannelSender.EMAIL, new ChannelPool(NotificationChannelSender.EMAIL, emailWorkers));
+        pools.put(NotificationChannelSender.SMS, new ChannelPool(NotificationChannelSender.SMS, smsWorkers));
+
+        if (meterRegistry != null) {
+            for (ChannelPool pool : pools.values()) {
+                Gauge.builder("notifications.dispatch.queued", pool.executor, e -> e.getQueue().size())
+                    .tag("channel", pool.channel)
+                    .register(meterRegistry);
+            }
+            Gauge.builder("notifications.dispatch.claimed", claimed, Set::size).register(meterRegistry);
+            leaseLost = Counter.builder("notifications.dispatch.lease.lost").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Deliver a stored notification as soon as the current transaction (if any) commits.
+     * If it cannot be claimed right now the poll picks it up.
+     */
+    public void dispatch(Notification notification) {
+        if (!enabled || notification == null || notification.getId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatchNow(notification);
+                }
+            });
+        } else {
+            dispatchNow(notification);
+        }
+    }
+
+    private void dispatchNow(Notification notification) {
+        ChannelPool pool = pools.get(channelOf(notification));
+        if (pool == null) {
+            logger.warn("Notification {} has unsupported channel '{}', not dispatched", notification.getId(), notification.getChannel());
+            return;
+        }
+        if (pool.free() <= 0) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Integer updated = tx.execute(status ->
+                notificationRepository.claimById(notification.getId(), node, now.plusSeconds(leaseSeconds), now));
+            if (updated != null && updated == 1) {
+                notification.setDispatchStatus(NotificationDispatchStatus.CLAIMED);
+                submit(pool, notification);
+            }
+        } catch (Exception e) {
+            logger.warn("Immediate dispatch of notification {} failed, leaving it to the poller: {}",
+                notification.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Write back finished deliveries and claim more due rows for channels with free capacity
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatcher.poll-interval-ms:500}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        flushOutcomes();
+        renewLeases();
+
+        for (ChannelPool pool : pools.values()) {
+            int limit = Math.min(pool.free(), Math.max(1, batchSize));
+            if (limit <= 0) {
+                continue;
+            }
+            try {
+                List<Notification> batch = tx.execute(status -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    List<Notification> rows = notificationRepository.lockDispatchBatch(pool.channel, node, now, limit);
+                    if (!rows.isEmpty()) {
+                        List<Long> ids = rows.stream().map(Notification::getId).toList();
+                        notificationRepository.markClaimed(ids, node, now.plusSeconds(leaseSeconds));
+                    }
+                    return rows;
+                });
+                if (batch == null || batch.isEmpty()) {
+                    continue;
+                }
+                for (Notification notification : batch) {
+                    notification.setDispatchStatus(NotificationDispatchStatus.CLAIMED);
+                    submit(pool, notification);
+                }
+                logger.debug("Claimed {} {} notifications", batch.size(), pool.channel);
+            } catch (Exception e) {
+                logger.error("Error claiming {} notifications: {}", pool.channel, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Extend the lease of every row this node still holds, once a third of the lease has passed,
+     * so rows waiting behind a long queue stay ours until their outcome is written
+     */
+    private void renewLeases() {
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis - lastRenewal < leaseSeconds * 1000 / 3 || claimed.isEmpty()) {
+            return;
+        }
+        lastRenewal = nowMillis;
+        List<Long> ids = new ArrayList<>(claimed);
+        try {
+            LocalDateTime until = LocalDateTime.now().plusSeconds(leaseSeconds);
+            tx.executeWithoutResult(status -> {
+                for (List<Long> chunk : chunks(ids)) {
+                    notificationRepository.renewClaims(chunk, node, until);
+                }
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to renew {} notification leases: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Mark pending notifications past their expiry as EXPIRED in one statement
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatcher.expiry-interval-ms:300000}")
+    public void expireNotifications() {
+        try {
+            Integer expired = tx.execute(status -> notificationRepository.expirePending(LocalDateTime.now()));
+            if (expired != null && expired > 0) {
+                logger.info("Expired {} notifications", expired);
+            }
+        } catch (Exception e) {
+            logger.error("Error expiring notifications: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Long> unsent = new ArrayList<>();
+        for (ChannelPool pool : pools.values()) {
+            for (Runnable r : pool.executor.shutdownNow()) {
+                unsent.add(((DeliveryTask) r).notification.getId());
+            }
+        }
+        for (ChannelPool pool : pools.values()) {
+            try {
+                pool.executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushOutcomes();
+        if (!unsent.isEmpty()) {
+            try {
+                // Hand queued rows back now instead of waiting for the lease to run out
+                for (List<Long> chunk : chunks(unsent)) {
+                    tx.executeWithoutResult(status -> notificationRepository.releaseClaims(chunk, node));
+                }
+                logger.info("Released {} queued notifications on shutdown", unsent.size());
+            } catch (Exception e) {
+                logger.warn("Failed to release notification claims on shutdown: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void submit(ChannelPool pool, Notification notification) {
+        claimed.add(notification.getId());
+        try {
+            pool.executor.execute(new DeliveryTask(notification, pool));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the claim is released on shutdown or runs out with the lease
+            claimed.remove(notification.getId());
+        }
+    }
+
+    private void flushOutcomes() {
+        List<Outcome> drained = new ArrayList<>();
+        Outcome outcome;
+        while ((outcome = outcomes.poll()) != null) {
+            drained.add(outcome);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        List<Outcome> sent = new ArrayList<>();
+        Map<String, List<Long>> failedByError = new LinkedHashMap<>();
+        for (Outcome o : drained) {
+            if (o.sent) {
+                sent.add(o);
+            } else {
+                failedByError.computeIfAbsent(o.error, k -> new ArrayList<>()).add(o.id);
+            }
+        }
+
+        try {
+            List<Long> lost = new ArrayList<>();
+            tx.executeWithoutResult(status -> {
+                lost.clear();
+                LocalDateTime now = LocalDateTime.now();
+                for (Outcome o : sent) {
+                    if (notificationRepository.markSent(o.id, node, o.externalId, now) == 0) {
+                        lost.add(o.id);
+                    }
+                }
+                LocalDateTime retryAt = now.plusSeconds(retryBackoffSeconds);
+                for (Map.Entry<String, List<Long>> failed : failedByError.entrySet()) {
+                    for (List<Long> chunk : chunks(failed.getValue())) {
+                        notificationRepository.markFailed(chunk, node, failed.getKey(), retryAt, now);
+                    }
+                }
+            });
+            for (Outcome o : drained) {
+                claimed.remove(o.id);
+            }
+            if (!lost.isEmpty()) {
+                // Lease was taken over (e.g. the DB was unreachable while renewing): the row may go out twice
+                logger.warn("Sent {} notifications whose claim had moved to another dispatcher: {}", lost.size(), lost);
+                if (leaseLost != null) {
+                    leaseLost.increment(lost.size());
+                }
+            }
+        } catch (Exception e) {
+            // Keep the outcomes for the next poll; the lease covers the rows meanwhile
+            logger.error("Error writing {} notification outcomes: {}", drained.size(), e.getMessage(), e);
+            outcomes.addAll(drained);
+        }
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_UPDATE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_UPDATE)));
+        }
+        return chunks;
+    }
+
+    private static String channelOf(Notification notification) {
+        return notification.getChannel() != null ? notification.getChannel().trim().toLowerCase() : "";
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
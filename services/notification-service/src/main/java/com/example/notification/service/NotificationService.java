@@ -9,7 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,14 +31,14 @@ public class NotificationService {
     private EmailService emailService;
     
     @Autowired
-    private SmsService smsService;
-    
-    @Autowired
-    private WebSocketService webSocketService;
+    private NotificationDispatcher notificationDispatcher;
     
     @Autowired(required = false)
     private UserServiceClient userServiceClient;
 
+    @Autowired
+    private CampaignService campaignService;
+
     /**
      * Create notification
      */
@@ -50,7 +49,7 @@ public class NotificationService {
         notification.setType(type);
         notification.setTitle(title);
         notification.setMessage(message);
-        notification.setChannel(channel);
+        notification.setChannel(channel != null ? channel.trim().toLowerCase() : null);
         notification.setPriority(priority != null ? priority : 1);
         notification.setScheduledAt(LocalDateTime.now());
         
@@ -58,151 +57,11 @@ public class NotificationService {
     }
 
     /**
-     * Send notification immediately
+     * Send notification immediately (after the current transaction commits).
+     * Delivery and retries are handled by {@link NotificationDispatcher}.
      */
-    @Async
     public void sendNotification(Notification notification) {
-        try {
-            String channel = notification.getChannel();
-            Map<String, Object> result = null;
-            
-            switch (channel.toLowerCase()) {
-                case "email":
-                    result = sendEmailNotification(notification);
-                    break;
-                case "sms":
-                    result = sendSmsNotification(notification);
-                    break;
-                case "websocket":
-                    result = sendWebSocketNotification(notification);
-                    break;
-                default:
-                    result = Map.of("success", false, "error", "Unsupported channel: " + channel + ". Supported channels: email, sms, websocket");
-            }
-            
-            if ((Boolean) result.get("success")) {
-                notification.setIsSent(true);
-                notification.setSentAt(LocalDateTime.now());
-                notification.setExternalId((String) result.get("externalId"));
-            } else {
-                notification.setRetryCount(notification.getRetryCount() + 1);
-                notification.setErrorMessage((String) result.get("error"));
-                
-                if (notification.getRetryCount() >= notification.getMaxRetries()) {
-                    notification.setIsSent(false);
-                }
-            }
-            
-            notificationRepository.save(notification);
-        } catch (Exception e) {
-            logger.error("Error sending notification: {}", e.getMessage(), e);
-            notification.setRetryCount(notification.getRetryCount() + 1);
-            notification.setErrorMessage(e.getMessage());
-            notificationRepository.save(notification);
-        }
-    }
-
-    /**
-     * Send email notification
-     */
-    private Map<String, Object> sendEmailNotification(Notification notification) {
-        try {
-            // Get user email from user service
-            String userEmail = getUserEmail(notification.getUserId());
-            if (userEmail == null) {
-                return Map.of("success", false, "error", "User email not found");
-            }
-            
-            Map<String, Object> result = emailService.sendHtmlEmail(userEmail, notification.getTitle(), notification.getMessage());
-            result.put("externalId", "EMAIL_" + System.currentTimeMillis());
-            return result;
-        } catch (Exception e) {
-            return Map.of("success", false, "error", e.getMessage());
-        }
-    }
-
-    /**
-     * Send SMS notification
-     */
-    private Map<String, Object> sendSmsNotification(Notification notification) {
-        try {
-            String userPhone = getUserPhoneNumber(notification.getUserId());
-            if (userPhone == null) {
-                return Map.of("success", false, "error", "User phone number not found");
-            }
-            
-            Map<String, Object> result = smsService.sendSms(userPhone, notification.getMessage());
-            result.put("externalId", "SMS_" + System.currentTimeMillis());
-            return result;
-        } catch (Exception e) {
-            return Map.of("success", false, "error", e.getMessage());
-        }
-    }
-
-    /**
-     * Send WebSocket notification
-     */
-    private Map<String, Object> sendWebSocketNotification(Notification notification) {
-        try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("id", notification.getId());
-            data.put("type", notification.getType().name());
-            data.put("title", notification.getTitle());
-            data.put("message", notification.getMessage());
-            data.put("priority", notification.getPriority());
-            data.put("data", notification.getData());
-            
-            webSocketService.sendRealTimeNotification(
-                notification.getUserId(),
-                notification.getType().name(),
-                notification.getTitle(),
-                notification.getMessage(),
-                data
-            );
-            
-            return Map.of("success", true, "externalId", "WS_" + System.currentTimeMillis());
-        } catch (Exception e) {
-            return Map.of("success", false, "error", e.getMessage());
-        }
-    }
-
-
-    /**
-     * Process pending notifications
-     */
-    @Scheduled(fixedDelay = 30000) // Every 30 seconds
-    public void processPendingNotifications() {
-        try {
-            List<Notification> pendingNotifications = notificationRepository.findPendingNotifications(LocalDateTime.now());
-            
-            for (Notification notification : pendingNotifications) {
-                sendNotification(notification);
-            }
-            
-            logger.info("Processed {} pending notifications", pendingNotifications.size());
-        } catch (Exception e) {
-            logger.error("Error processing pending notifications: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Clean up expired notifications
-     */
-    @Scheduled(fixedDelay = 300000) // Every 5 minutes
-    public void cleanupExpiredNotifications() {
-        try {
-            List<Notification> expiredNotifications = notificationRepository.findExpiredNotifications(LocalDateTime.now());
-            
-            for (Notification notification : expiredNotifications) {
-                notification.setIsSent(false);
-                notification.setErrorMessage("Notification expired");
-                notificationRepository.save(notification);
-            }
-            
-            logger.info("Cleaned up {} expired notifications", expiredNotifications.size());
-        } catch (Exception e) {
-            logger.error("Error cleaning up expired notifications: {}", e.getMessage(), e);
-        }
+        notificationDispatcher.dispatch(notification);
     }
 
     /**
@@ -316,11 +175,22 @@ public class NotificationService {
     }
 
     /**
-     * Send promotional notification
+     * Send promotional notification: an in-app copy, and the email through the campaign sender
      */
     public void sendPromotionalNotification(String userId, String title, String message) {
-        Notification notification = createNotification(userId, NotificationType.PROMOTION, title, message, "email", 1);
+        Notification notification = createNotification(userId, NotificationType.PROMOTION, title, message, "websocket", 1);
         sendNotification(notification);
+
+        String email = getUserEmail(userId);
+        if (email == null) {
+            logger.warn("No email address for user {}, promotional email skipped", userId);
+            return;
+        }
+        Map<String, Object> recipient = new HashMap<>();
+        recipient.put("address", email);
+        recipient.put("userId", userId);
+        campaignService.launch("Promotion: " + title, NotificationChannelSender.EMAIL, title, message,
+            List.of(recipient), "system");
     }
 
     /**
@@ -477,41 +347,14 @@ public class NotificationService {
      * Get user email from user service
      */
     private String getUserEmail(String userId) {
-        try {
-            if (userServiceClient == null) {
-                logger.warn("UserServiceClient not available for userId: {}", userId);
-                return null;
-            }
-            
-            Map<String, Object> user = userServiceClient.getUserById(userId);
-            if (user != null && user.containsKey("email")) {
-                return user.get("email").toString();
-            }
-            return null;
-        } catch (Exception e) {
-            logger.error("Failed to get user email for userId {}: {}", userId, e.getMessage());
+        if (userServiceClient == null) {
             return null;
         }
-    }
-
-    /**
-     * Get user phone number from user service
-     */
-    private String getUserPhoneNumber(String userId) {
         try {
-            if (userServiceClient == null) {
-                logger.warn("UserServiceClient not available for userId: {}", userId);
-                return null;
-            }
-            
             Map<String, Object> user = userServiceClient.getUserById(userId);
-            if (user != null && user.containsKey("phoneNumber")) {
-                Object phoneNumber = user.get("phoneNumber");
-                return phoneNumber != null ? phoneNumber.toString() : null;
-            }
-            return null;
+            return user != null && user.get("email") != null ? user.get("email").toString() : null;
         } catch (Exception e) {
-            logger.error("Failed to get user phone number for userId {}: {}", userId, e.getMessage());
+            logger.error("Failed to get user email for userId {}: {}", userId, e.getMessage());
             return null;
         }
     }
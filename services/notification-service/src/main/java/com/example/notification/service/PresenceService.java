@@ -0,0 +1,93 @@
+package com.example.notification.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which users have a live WebSocket session.
+ *
+ * Backed by the STOMP user registry. In broker relay mode that registry is shared between
+ * notification nodes through the broker, so presence covers users connected to any node; in the
+ * other modes it only knows this node's sessions.
+ *
+ * Local sessions are tracked by session id: a disconnect event can be published more than once
+ * for the same session, and only the first one counts.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> localSessions = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry != null) {
+            meterRegistry.gauge("notifications.websocket.sessions.local", localSessions, Set::size);
+            meterRegistry.gauge("notifications.websocket.users.online", userRegistry, SimpUserRegistry::getUserCount);
+        }
+    }
+
+    /**
+     * True when the user has at least one connected session on any node
+     */
+    public boolean isOnline(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        SimpUser user = userRegistry.getUser(userId);
+        return user != null && user.hasSessions();
+    }
+
+    public int getOnlineUserCount() {
+        return userRegistry.getUserCount();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("onlineUsers", userRegistry.getUserCount());
+        status.put("localSessions", localSessions.size());
+        return status;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            localSessions.add(sessionId);
+        }
+        Principal user = event.getUser();
+        logger.debug("WebSocket session connected for {}", user != null ? user.getName() : "anonymous");
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        if (!localSessions.remove(event.getSessionId())) {
+            return; // already counted out
+        }
+        Principal user = event.getUser();
+        logger.debug("WebSocket session {} closed for {}", event.getSessionId(), user != null ? user.getName() : "anonymous");
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.notification.service;
 
+import com.example.notification.entity.Campaign;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -13,6 +17,11 @@ public class SmsService {
     
     @Autowired
     private RestTemplate restTemplate;
+
+    // CampaignService sends its SMS through this service
+    @Autowired
+    @Lazy
+    private CampaignService campaignService;
     
     @Value("${twilio.account.sid:}")
     private String accountSid;
@@ -108,28 +117,22 @@ public class SmsService {
     }
 
     /**
-     * Send bulk SMS
+     * Send bulk SMS as a campaign (worker threads, rate limited, checkpointed); returns once queued
      */
     public Map<String, Object> sendBulkSms(String[] phoneNumbers, String message) {
         try {
-            Map<String, Object> results = new HashMap<>();
-            int successCount = 0;
-            int failureCount = 0;
-            
+            List<Map<String, Object>> recipients = new ArrayList<>(phoneNumbers.length);
             for (String phoneNumber : phoneNumbers) {
-                Map<String, Object> result = sendSms(phoneNumber, message);
-                if ((Boolean) result.get("success")) {
-                    successCount++;
-                } else {
-                    failureCount++;
-                }
+                recipients.add(Map.of("address", phoneNumber));
             }
-            
+            Campaign campaign = campaignService.launch("Bulk SMS", NotificationChannelSender.SMS,
+                null, message, recipients, "system");
+
+            Map<String, Object> results = new HashMap<>();
             results.put("success", true);
-            results.put("totalSent", phoneNumbers.length);
-            results.put("successCount", successCount);
-            results.put("failureCount", failureCount);
-            
+            results.put("campaignId", campaign.getId());
+            results.put("status", campaign.getStatus().name());
+            results.put("totalRecipients", campaign.getTotalRecipients());
             return results;
         } catch (Exception e) {
             return Map.of("success", false, "error", e.getMessage());
@@ -0,0 +1,151 @@
+package com.example.notification.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of connected SMTP transports for bulk sending.
+ *
+ * Uses the session and credentials of the configured {@link JavaMailSenderImpl}
+ * ({@code spring.mail.*}), so it works against any SMTP server including a local stub.
+ * A connection is reused for up to {@code messages-per-connection} messages and then
+ * reopened, which keeps servers that cap messages per session happy.
+ */
+@Component
+public class SmtpConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${notification.campaign.smtp.pool-size:4}")
+    private int poolSize;
+
+    @Value("${notification.campaign.smtp.messages-per-connection:100}")
+    private int messagesPerConnection;
+
+    @Value("${notification.campaign.smtp.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMs;
+
+    private BlockingQueue<Connection> idle;
+    private Semaphore permits;
+
+    /**
+     * A transport plus how many messages went through it
+     */
+    public static class Connection {
+        final Transport transport;
+        int sent;
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+
+        public Transport transport() {
+            return transport;
+        }
+
+        public void recordSent() {
+            sent++;
+        }
+    }
+
+    public boolean isAvailable() {
+        return mailSender instanceof JavaMailSenderImpl;
+    }
+
+    public Session session() {
+        return ((JavaMailSenderImpl) mailSender).getSession();
+    }
+
+    public int size() {
+        return Math.max(1, poolSize);
+    }
+
+    /**
+     * Borrow a connected transport, opening one if no idle connection is left
+     */
+    public Connection borrow() throws MessagingException, InterruptedException {
+        initPool();
+        if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new MessagingException("Timed out waiting for an SMTP connection");
+        }
+        try {
+            Connection connection = idle.poll();
+            while (connection != null && !connection.transport.isConnected()) {
+                close(connection);
+                connection = idle.poll();
+            }
+            return connection != null ? connection : open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a connection; broken or used-up connections are closed instead of pooled
+     */
+    public void release(Connection connection, boolean broken) {
+        try {
+            if (broken || connection.sent >= messagesPerConnection || !connection.transport.isConnected()
+                    || !idle.offer(connection)) {
+                close(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (idle == null) {
+            return;
+        }
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            close(connection);
+        }
+    }
+
+    private synchronized void initPool() {
+        if (idle == null) {
+            idle = new ArrayBlockingQueue<>(size());
+            permits = new Semaphore(size());
+        }
+    }
+
+    private Connection open() throws MessagingException {
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) mailSender;
+        Transport transport = sender.getSession().getTransport(sender.getProtocol() != null ? sender.getProtocol() : "smtp");
+        String username = sender.getUsername();
+        String password = sender.getPassword();
+        transport.connect(sender.getHost(), sender.getPort(),
+            username != null && !username.isBlank() ? username : null,
+            password != null && !password.isBlank() ? password : null);
+        return new Connection(transport);
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+}
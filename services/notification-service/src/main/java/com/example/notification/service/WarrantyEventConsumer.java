@@ -1,15 +1,40 @@
 package com.example.notification.service;
 
+import com.example.notification.dto.WarrantyEvent;
 import com.example.notification.entity.NotificationType;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.shared.idempotency.ProcessedEventService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Turns warranty-service events into customer emails and in-app notifications.
+ *
+ * Records arrive in batches (see {@code KafkaConsumerConfig#warrantyBatchListenerContainerFactory}).
+ * Each event is identified by the producer's {@code eventId} header, or by topic/partition/offset
+ * for events published without one, and claimed through {@link ProcessedEventService} so a
+ * redelivered batch does not notify the customer twice. A claim is only marked done after the
+ * handler succeeded; handler errors propagate so the batch is retried from the failed record.
+ */
 @Service
 public class WarrantyEventConsumer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WarrantyEventConsumer.class);
+
     @Autowired
     private EmailService emailService;
 
@@ -17,62 +42,134 @@ public class WarrantyEventConsumer {
     private NotificationService notificationService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ProcessedEventService processedEventService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
 
     private static final String WARRANTY_REQUESTED_TOPIC = "warranty-requested";
     private static final String WARRANTY_STATUS_UPDATED_TOPIC = "warranty-status-updated";
+    private static final String CONSUMER_GROUP = "notification-service-warranty-group";
+    private static final String EVENT_ID_HEADER = "eventId";
 
     /**
      * Consume warranty requested events
      */
-    @KafkaListener(topics = WARRANTY_REQUESTED_TOPIC, groupId = "notification-service-warranty-group", autoStartup = "${kafka.enabled:true}")
-    public void consumeWarrantyRequestedEvent(String message) {
-        try {
-            System.out.println("Received WARRANTY_REQUESTED event: " + message);
-
-            JsonNode warrantyRequest = objectMapper.readTree(message);
-
+    @KafkaListener(topics = WARRANTY_REQUESTED_TOPIC, groupId = CONSUMER_GROUP,
+                   containerFactory = "warrantyBatchListenerContainerFactory",
+                   concurrency = "${notification.kafka.warranty.concurrency:3}",
+                   autoStartup = "${kafka.enabled:true}")
+    public void consumeWarrantyRequestedEvents(List<ConsumerRecord<String, WarrantyEvent>> records) {
+        processBatch(WARRANTY_REQUESTED_TOPIC, records, warrantyRequest -> {
             // Send confirmation email to customer
             sendWarrantyRequestConfirmationEmail(warrantyRequest);
 
             // Create in-app notification
             createWarrantyRequestNotification(warrantyRequest);
-
-        } catch (Exception e) {
-            System.err.println("Error processing WARRANTY_REQUESTED event: " + e.getMessage());
-        }
+        });
     }
 
     /**
      * Consume warranty status updated events
      */
-    @KafkaListener(topics = WARRANTY_STATUS_UPDATED_TOPIC, groupId = "notification-service-warranty-group", autoStartup = "${kafka.enabled:true}")
-    public void consumeWarrantyStatusUpdatedEvent(String message) {
-        try {
-            System.out.println("Received WARRANTY_STATUS_UPDATED event: " + message);
-
-            JsonNode warrantyRequest = objectMapper.readTree(message);
-
+    @KafkaListener(topics = WARRANTY_STATUS_UPDATED_TOPIC, groupId = CONSUMER_GROUP,
+                   containerFactory = "warrantyBatchListenerContainerFactory",
+                   concurrency = "${notification.kafka.warranty.concurrency:3}",
+                   autoStartup = "${kafka.enabled:true}")
+    public void consumeWarrantyStatusUpdatedEvents(List<ConsumerRecord<String, WarrantyEvent>> records) {
+        processBatch(WARRANTY_STATUS_UPDATED_TOPIC, records, warrantyRequest -> {
             // Send status update email to customer
             sendWarrantyStatusUpdateEmail(warrantyRequest);
 
             // Create in-app notification
             createWarrantyStatusUpdateNotification(warrantyRequest);
+        });
+    }
+
+    /**
+     * Handle the not yet processed events of a batch in offset order. On a failure the handled
+     * events are marked done, the claims of the failed and remaining events are released and the
+     * container redelivers from that record. An event another consumer is still working on is
+     * retried the same way rather than skipped.
+     */
+    private void processBatch(String topic, List<ConsumerRecord<String, WarrantyEvent>> records,
+                              Consumer<WarrantyEvent> handler) {
+        String consumer = CONSUMER_GROUP + ":" + topic;
+        List<String> eventIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, WarrantyEvent> record : records) {
+            eventIds.add(eventId(record));
+        }
+        ProcessedEventService.Claim claim = processedEventService.claim(consumer, eventIds);
+        Set<String> handled = new HashSet<>();
+        List<String> done = new ArrayList<>();
+
+        logger.debug("Received {} {} events, {} new", records.size(), topic, claim.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, WarrantyEvent> record = records.get(i);
+            String eventId = eventIds.get(i);
+            if (record.value() == null) {
+                logger.warn("Skipping unreadable {} event at {}-{}@{}", topic, record.topic(), record.partition(), record.offset());
+                count(topic, "invalid");
+                continue;
+            }
+            if (claim.isBusy(eventId)) {
+                count(topic, "busy");
+                throw fail(consumer, claim, eventIds, handled, done, i,
+                    new IllegalStateException("Event " + eventId + " is being processed by another consumer"));
+            }
+            if (!claim.isClaimed(eventId) || !handled.add(eventId)) {
+                count(topic, "duplicate");
+                continue;
+            }
+            try {
+                handler.accept(record.value());
+                done.add(eventId);
+                count(topic, "processed");
+            } catch (RuntimeException e) {
+                handled.remove(eventId);
+                count(topic, "failed");
+                throw fail(consumer, claim, eventIds, handled, done, i, e);
+            }
+        }
+        processedEventService.complete(consumer, done);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error processing WARRANTY_STATUS_UPDATED event: " + e.getMessage());
+    private BatchListenerFailedException fail(String consumer, ProcessedEventService.Claim claim, List<String> eventIds,
+                                              Set<String> handled, List<String> done, int index, RuntimeException cause) {
+        processedEventService.complete(consumer, done);
+        for (int j = index; j < eventIds.size(); j++) {
+            String pending = eventIds.get(j);
+            if (claim.isClaimed(pending) && !handled.contains(pending)) {
+                processedEventService.release(consumer, pending);
+            }
+        }
+        return new BatchListenerFailedException("Error processing event " + eventIds.get(index) + " for " + consumer,
+            cause, index);
+    }
+
+    private static String eventId(ConsumerRecord<String, ?> record) {
+        Header header = record.headers().lastHeader(EVENT_ID_HEADER);
+        if (header != null && header.value() != null) {
+            return new String(header.value(), StandardCharsets.UTF_8);
+        }
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
+    private void count(String topic, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("notifications.kafka.events", "topic", topic, "result", result).increment();
         }
     }
 
     /**
      * Send warranty request confirmation email
      */
-    private void sendWarrantyRequestConfirmationEmail(JsonNode warrantyRequest) {
+    private void sendWarrantyRequestConfirmationEmail(WarrantyEvent warrantyRequest) {
         try {
-            String customerEmail = warrantyRequest.get("customerEmail").asText();
-            String customerName = warrantyRequest.get("customerName").asText();
-            String requestNumber = warrantyRequest.get("requestNumber").asText();
-            String productName = warrantyRequest.get("productName").asText();
+            String customerEmail = warrantyRequest.getCustomerEmail();
+            String customerName = warrantyRequest.getCustomerName();
+            String requestNumber = warrantyRequest.getRequestNumber();
+            String productName = warrantyRequest.getProductName();
 
             String subject = "Xác nhận yêu cầu bảo hành - " + requestNumber;
 
@@ -90,23 +187,24 @@ public class WarrantyEventConsumer {
                 customerName, productName, requestNumber, productName, requestNumber
             );
 
-            emailService.sendSimpleEmail(customerEmail, subject, body);
+            send(customerEmail, subject, body);
 
-        } catch (Exception e) {
-            System.err.println("Error sending warranty confirmation email: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error sending warranty confirmation email: {}", e.getMessage());
+            throw e;
         }
     }
 
     /**
      * Send warranty status update email
      */
-    private void sendWarrantyStatusUpdateEmail(JsonNode warrantyRequest) {
+    private void sendWarrantyStatusUpdateEmail(WarrantyEvent warrantyRequest) {
         try {
-            String customerEmail = warrantyRequest.get("customerEmail").asText();
-            String customerName = warrantyRequest.get("customerName").asText();
-            String requestNumber = warrantyRequest.get("requestNumber").asText();
-            String productName = warrantyRequest.get("productName").asText();
-            String status = warrantyRequest.get("status").asText();
+            String customerEmail = warrantyRequest.getCustomerEmail();
+            String customerName = warrantyRequest.getCustomerName();
+            String requestNumber = warrantyRequest.getRequestNumber();
+            String productName = warrantyRequest.getProductName();
+            String status = warrantyRequest.getStatus();
 
             String statusText = getStatusText(status);
             String subject = "Cập nhật trạng thái bảo hành - " + requestNumber;
@@ -130,8 +228,8 @@ public class WarrantyEventConsumer {
                     body += "Sản phẩm của bạn đã được sửa chữa/bảo hành xong. Vui lòng đến nhận sản phẩm.\n\n";
                     break;
                 case "REJECTED":
-                    String rejectionReason = warrantyRequest.has("rejectionReason")
-                        ? warrantyRequest.get("rejectionReason").asText()
+                    String rejectionReason = warrantyRequest.getRejectionReason() != null
+                        ? warrantyRequest.getRejectionReason()
                         : "Không đủ điều kiện bảo hành";
                     body += "Lý do: " + rejectionReason + "\n\n";
                     break;
@@ -141,21 +239,22 @@ public class WarrantyEventConsumer {
                    "Trân trọng,\n" +
                    "Đội ngũ ShopPro";
 
-            emailService.sendSimpleEmail(customerEmail, subject, body);
+            send(customerEmail, subject, body);
 
-        } catch (Exception e) {
-            System.err.println("Error sending warranty status update email: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error sending warranty status update email: {}", e.getMessage());
+            throw e;
         }
     }
 
     /**
      * Create in-app notification for warranty request
      */
-    private void createWarrantyRequestNotification(JsonNode warrantyRequest) {
+    private void createWarrantyRequestNotification(WarrantyEvent warrantyRequest) {
         try {
-            String userId = warrantyRequest.get("userId").asText();
-            String requestNumber = warrantyRequest.get("requestNumber").asText();
-            String productName = warrantyRequest.get("productName").asText();
+            String userId = warrantyRequest.getUserId();
+            String requestNumber = warrantyRequest.getRequestNumber();
+            String productName = warrantyRequest.getProductName();
 
             String title = "Yêu cầu bảo hành đã được tạo";
             String message = String.format("Yêu cầu bảo hành cho sản phẩm %s (Mã: %s) đã được ghi nhận và đang xử lý.",
@@ -163,20 +262,21 @@ public class WarrantyEventConsumer {
 
             notificationService.createNotification(userId, NotificationType.WARRANTY_UPDATE, title, message, "websocket", 2);
 
-        } catch (Exception e) {
-            System.err.println("Error creating warranty request notification: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error creating warranty request notification: {}", e.getMessage());
+            throw e;
         }
     }
 
     /**
      * Create in-app notification for warranty status update
      */
-    private void createWarrantyStatusUpdateNotification(JsonNode warrantyRequest) {
+    private void createWarrantyStatusUpdateNotification(WarrantyEvent warrantyRequest) {
         try {
-            String userId = warrantyRequest.get("userId").asText();
-            String requestNumber = warrantyRequest.get("requestNumber").asText();
-            String productName = warrantyRequest.get("productName").asText();
-            String status = warrantyRequest.get("status").asText();
+            String userId = warrantyRequest.getUserId();
+            String requestNumber = warrantyRequest.getRequestNumber();
+            String productName = warrantyRequest.getProductName();
+            String status = warrantyRequest.getStatus();
 
             String title = "Cập nhật trạng thái bảo hành";
             String message = String.format("Trạng thái bảo hành cho sản phẩm %s (Mã: %s) đã được cập nhật thành: %s",
@@ -184,8 +284,23 @@ public class WarrantyEventConsumer {
 
             notificationService.createNotification(userId, NotificationType.WARRANTY_UPDATE, title, message, "websocket", 2);
 
-        } catch (Exception e) {
-            System.err.println("Error creating warranty status update notification: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Error creating warranty status update notification: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * EmailService reports failures in its result; turn them into an exception so the event is retried
+     */
+    private void send(String to, String subject, String body) {
+        if (to == null || to.isBlank()) {
+            logger.warn("Warranty event without customer email, email '{}' skipped", subject);
+            return;
+        }
+        Map<String, Object> result = emailService.sendSimpleEmail(to, subject, body);
+        if (!Boolean.TRUE.equals(result.get("success"))) {
+            throw new IllegalStateException("Email to " + to + " failed: " + result.get("error"));
         }
     }
 
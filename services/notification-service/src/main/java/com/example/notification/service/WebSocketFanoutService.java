@@ -0,0 +1,88 @@
+package com.example.notification.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Cross-node WebSocket fan-out over Kafka ({@code notification.websocket.broker.mode=kafka}).
+ *
+ * Every node keeps its in-memory STOMP broker. Pushes are published to the fan-out topic instead
+ * of being delivered locally, and every node consumes the topic in a consumer group of its own,
+ * so each push reaches the node(s) the user is connected to; nodes without a session for the user
+ * drop it. A new group starts at the latest offset, so a restarted node does not replay old pushes.
+ */
+@Service
+@ConditionalOnProperty(name = "notification.websocket.broker.mode", havingValue = "kafka")
+public class WebSocketFanoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketFanoutService.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() {};
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${notification.websocket.fanout.topic:notification-websocket-fanout}")
+    private String topic;
+
+    private volatile BiConsumer<String, Map<String, Object>> receiver;
+
+    /**
+     * Where pushes received from the topic go; userId is null for broadcasts
+     */
+    public void setReceiver(BiConsumer<String, Map<String, Object>> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Publish a push for the user, or for everyone when userId is null
+     */
+    public void publish(String userId, Map<String, Object> notification) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("userId", userId);
+        message.put("notification", notification);
+        try {
+            // Keyed by user so the pushes of one user stay in order
+            kafkaTemplate.send(topic, userId, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            logger.warn("Failed to publish WebSocket push for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @KafkaListener(
+        topics = "${notification.websocket.fanout.topic:notification-websocket-fanout}",
+        groupId = "notification-websocket-#{T(java.util.UUID).randomUUID()}",
+        properties = "auto.offset.reset=latest"
+    )
+    @SuppressWarnings("unchecked")
+    public void onMessage(String payload) {
+        BiConsumer<String, Map<String, Object>> current = receiver;
+        if (current == null) {
+            return;
+        }
+        try {
+            Map<String, Object> message = objectMapper.readValue(payload, PAYLOAD);
+            Object notification = message.get("notification");
+            if (notification instanceof Map) {
+                current.accept((String) message.get("userId"), (Map<String, Object>) notification);
+            }
+        } catch (Exception e) {
+            logger.warn("Dropping unreadable WebSocket push: {}", e.getMessage());
+        }
+    }
+}
@@ -1,31 +1,240 @@
 package com.example.notification.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Pushes notifications to WebSocket clients.
+ *
+ * Messages for a user are buffered in a small per-user outbox and flushed every
+ * {@code notification.websocket.coalesce.flush-interval-ms}. Updates about the same entity
+ * (e.g. several status changes of one order) collapse into the latest one, and an outbox keeps
+ * at most {@code max-pending-per-user} messages, dropping the oldest, so a burst for one user
+ * cannot pile up unbounded. Users without a live session are skipped; their notifications are
+ * still stored and listed through the REST API.
+ *
+ * The flush runs on a thread of its own rather than the shared {@code @Scheduled} pool, so a slow
+ * scheduled job cannot hold back pushes. In Kafka fan-out mode ({@link WebSocketFanoutService})
+ * pushes go through the fan-out topic first and are queued here on the node(s) the user is
+ * connected to.
+ */
 @Service
 public class WebSocketService {
-    
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketService.class);
+
+    private static final String USER_QUEUE = "/queue/notifications";
+    private static final String BROADCAST_TOPIC = "/topic/notifications";
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired(required = false)
+    private WebSocketFanoutService fanoutService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${notification.websocket.coalesce.enabled:true}")
+    private boolean coalesceEnabled;
+
+    @Value("${notification.websocket.coalesce.max-pending-per-user:50}")
+    private int maxPendingPerUser;
+
+    @Value("${notification.websocket.skip-offline-users:true}")
+    private boolean skipOfflineUsers;
+
+    @Value("${notification.websocket.coalesce.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    private final ConcurrentHashMap<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Counter coalescedCounter;
+    private Counter droppedCounter;
+    private Counter offlineCounter;
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Pending messages of one user, keyed by coalescing key in arrival order
+     */
+    private static class Outbox {
+        final LinkedHashMap<String, Map<String, Object>> pending = new LinkedHashMap<>();
+        boolean closed;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry != null) {
+            coalescedCounter = Counter.builder("notifications.websocket.coalesced").register(meterRegistry);
+            droppedCounter = Counter.builder("notifications.websocket.dropped").register(meterRegistry);
+            offlineCounter = Counter.builder("notifications.websocket.offline").register(meterRegistry);
+        }
+        if (fanoutService != null) {
+            fanoutService.setReceiver(this::receive);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "websocket-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Send notification to specific user
      */
     public void sendNotificationToUser(String userId, Map<String, Object> notification) {
-        String destination = "/user/" + userId + "/queue/notifications";
-        messagingTemplate.convertAndSend(destination, notification);
+        if (fanoutService != null) {
+            fanoutService.publish(userId, notification);
+            return;
+        }
+        enqueue(userId, notification);
+    }
+
+    /**
+     * Push arriving from the fan-out topic; userId is null for broadcasts
+     */
+    private void receive(String userId, Map<String, Object> notification) {
+        if (userId == null) {
+            messagingTemplate.convertAndSend(BROADCAST_TOPIC, notification);
+        } else {
+            enqueue(userId, notification);
+        }
+    }
+
+    private void enqueue(String userId, Map<String, Object> notification) {
+        if (skipOfflineUsers && !presenceService.isOnline(userId)) {
+            increment(offlineCounter);
+            return;
+        }
+        if (!coalesceEnabled) {
+            deliver(userId, notification);
+            return;
+        }
+        String key = coalesceKey(notification);
+        while (true) {
+            Outbox outbox = outboxes.computeIfAbsent(userId, k -> new Outbox());
+            synchronized (outbox) {
+                if (outbox.closed) {
+                    // Flusher just retired this outbox, take a fresh one
+                    continue;
+                }
+                if (outbox.pending.remove(key) != null) {
+                    increment(coalescedCounter);
+                }
+                outbox.pending.put(key, notification);
+                if (outbox.pending.size() > maxPendingPerUser) {
+                    Iterator<String> eldest = outbox.pending.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    increment(droppedCounter);
+                }
+                return;
+            }
+        }
     }
 
     /**
      * Send notification to all users
      */
     public void sendNotificationToAll(Map<String, Object> notification) {
-        messagingTemplate.convertAndSend("/topic/notifications", notification);
+        if (fanoutService != null) {
+            fanoutService.publish(null, notification);
+            return;
+        }
+        messagingTemplate.convertAndSend(BROADCAST_TOPIC, notification);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // An exception escaping would cancel the periodic flush
+            logger.error("Error flushing WebSocket outboxes: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Flush the per-user outboxes
+     */
+    public void flush() {
+        for (Map.Entry<String, Outbox> entry : outboxes.entrySet()) {
+            Outbox outbox = entry.getValue();
+            List<Map<String, Object>> batch;
+            synchronized (outbox) {
+                if (outbox.pending.isEmpty()) {
+                    outbox.closed = true;
+                    outboxes.remove(entry.getKey(), outbox);
+                    continue;
+                }
+                batch = new ArrayList<>(outbox.pending.values());
+                outbox.pending.clear();
+            }
+            for (Map<String, Object> notification : batch) {
+                deliver(entry.getKey(), notification);
+            }
+        }
+    }
+
+    private void deliver(String userId, Map<String, Object> notification) {
+        try {
+            messagingTemplate.convertAndSendToUser(userId, USER_QUEUE, notification);
+        } catch (Exception e) {
+            logger.warn("Failed to push notification to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Messages about the same order replace each other; everything else is delivered as is
+     */
+    private String coalesceKey(Map<String, Object> notification) {
+        Object orderNumber = notification.get("orderNumber");
+        if (orderNumber != null) {
+            return notification.get("type") + ":" + orderNumber;
+        }
+        return "#" + sequence.incrementAndGet();
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
     }
 
     /**
@@ -0,0 +1,78 @@
+package com.example.notification.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Consumes product price and stock change events for wishlist notifications
+ */
+@Service
+public class WishlistEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WishlistEventConsumer.class);
+
+    private static final String PRODUCT_PRICE_CHANGED_TOPIC = "product-price-changed";
+    private static final String PRODUCT_STOCK_CHANGED_TOPIC = "product-stock-changed";
+
+    @Autowired
+    private WishlistNotificationService wishlistNotificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Consume price changed events from product-service
+     */
+    @KafkaListener(topics = PRODUCT_PRICE_CHANGED_TOPIC, groupId = "notification-service-wishlist-group", autoStartup = "${kafka.enabled:true}")
+    public void consumePriceChangedEvent(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            String productId = text(event, "productId");
+            BigDecimal newPrice = decimal(event, "newPrice");
+            if (productId == null || newPrice == null) {
+                logger.warn("Ignoring malformed {} event: {}", PRODUCT_PRICE_CHANGED_TOPIC, message);
+                return;
+            }
+            wishlistNotificationService.handlePriceChanged(productId, text(event, "productName"),
+                decimal(event, "oldPrice"), newPrice);
+        } catch (Exception e) {
+            logger.error("Error processing {} event: {}", PRODUCT_PRICE_CHANGED_TOPIC, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Consume stock changed events from inventory-service
+     */
+    @KafkaListener(topics = PRODUCT_STOCK_CHANGED_TOPIC, groupId = "notification-service-wishlist-group", autoStartup = "${kafka.enabled:true}")
+    public void consumeStockChangedEvent(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            String productId = text(event, "productId");
+            if (productId == null || !event.hasNonNull("availableQuantity")) {
+                logger.warn("Ignoring malformed {} event: {}", PRODUCT_STOCK_CHANGED_TOPIC, message);
+                return;
+            }
+            Boolean wasInStock = event.hasNonNull("wasInStock") ? event.get("wasInStock").asBoolean() : null;
+            wishlistNotificationService.handleStockChanged(productId, event.get("availableQuantity").asInt(), wasInStock);
+        } catch (Exception e) {
+            logger.error("Error processing {} event: {}", PRODUCT_STOCK_CHANGED_TOPIC, e.getMessage(), e);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static BigDecimal decimal(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() || !value.isNumber() ? null : value.decimalValue();
+    }
+}
@@ -2,316 +2,374 @@ package com.example.notification.service;
 
 import com.example.notification.entity.Notification;
 import com.example.notification.entity.NotificationType;
+import com.example.notification.entity.WishlistProductState;
 import com.example.notification.repository.NotificationRepository;
+import com.example.notification.repository.WishlistProductStateRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
- * Service to check wishlist products for price drops and stock availability
+ * Wishlist price drop and back-in-stock notifications.
+ *
+ * Driven by product-price-changed / product-stock-changed events (see {@link WishlistEventConsumer}).
+ * The last known price and stock state of each product is kept in {@code wishlist_product_state},
+ * so detection survives restarts. When a change is worth notifying, the users who favorited the
+ * product are paged from favorites-service by product id, so the work per event grows with the
+ * number of interested users only.
+ *
+ * Without Kafka ({@code kafka.enabled=false}, the default) no events arrive, so a periodic scan
+ * takes their place: it pages the favorited product ids, reads each product once and feeds price
+ * or stock differences from the stored state into the same handlers.
  */
 @Service
-@Transactional
 public class WishlistNotificationService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(WishlistNotificationService.class);
-    
+
     @Autowired
     private NotificationService notificationService;
-    
+
     @Autowired
     private NotificationRepository notificationRepository;
-    
+
+    @Autowired
+    private WishlistProductStateRepository productStateRepository;
+
     @Autowired
     private RestTemplate restTemplate;
-    
+
     @Autowired
     private ObjectMapper objectMapper;
-    
+
     @Value("${services.favorites.base-url:http://localhost:8087}")
     private String favoritesServiceUrl;
-    
+
     @Value("${services.product.base-url:http://localhost:8082}")
     private String productServiceUrl;
-    
-    // Track last checked prices to avoid duplicate notifications
-    private final Map<String, BigDecimal> lastCheckedPrices = new HashMap<>();
-    private final Map<String, Integer> lastCheckedStock = new HashMap<>();
-    
+
+    @Value("${interservice.username:service}")
+    private String interserviceUsername;
+
+    @Value("${interservice.password:service123}")
+    private String interservicePassword;
+
+    @Value("${notification.wishlist.min-discount-percent:5.0}")
+    private double minDiscountPercent;
+
+    @Value("${notification.wishlist.page-size:500}")
+    private int pageSize;
+
+    @Value("${kafka.enabled:false}")
+    private boolean kafkaEnabled;
+
     /**
-     * Check wishlist products for price drops and stock availability
-     * Runs every 5 minutes
+     * Handle a selling price change. Users are notified when the price dropped by at least
+     * {@code min-discount-percent} compared to the last known price.
      */
-    @Scheduled(fixedDelay = 300000) // 5 minutes
-    public void checkWishlistProducts() {
-        try {
-            logger.info("Starting wishlist product check for price drops and stock...");
-            
-            // Get all favorites from favorites service
-            List<Map<String, Object>> allFavorites = getAllFavorites();
-            
-            if (allFavorites == null || allFavorites.isEmpty()) {
-                logger.debug("No favorites found to check");
-                return;
+    public void handlePriceChanged(String productId, String productName, BigDecimal oldPrice, BigDecimal newPrice) {
+        WishlistProductState state = productStateRepository.findById(productId)
+            .orElseGet(() -> new WishlistProductState(productId));
+
+        // First event for this product: the publisher's previous price is the baseline
+        BigDecimal lastPrice = state.getLastPrice() != null ? state.getLastPrice() : oldPrice;
+        if (productName != null) {
+            state.setProductName(productName);
+        }
+        // Always move the baseline, so a series of small drops does not add up to one notification
+        state.setLastPrice(newPrice);
+        productStateRepository.save(state);
+
+        if (lastPrice == null || lastPrice.signum() <= 0 || newPrice.compareTo(lastPrice) >= 0) {
+            return;
+        }
+        BigDecimal priceDrop = lastPrice.subtract(newPrice);
+        double discountPercent = (priceDrop.doubleValue() / lastPrice.doubleValue()) * 100;
+        if (discountPercent < minDiscountPercent) {
+            return;
+        }
+
+        String name = state.getProductName();
+        int sent = notifyInterestedUsers(productId, userId -> buildPriceDropNotification(
+            userId, productId, name, lastPrice, newPrice, discountPercent));
+        logger.info("Price drop of product {} ({} -> {}): notified {} users", productId, lastPrice, newPrice, sent);
+    }
+
+    /**
+     * Handle a stock change. Users are notified when the product comes back in stock.
+     *
+     * @param wasInStock stock state before the change as seen by the publisher; used when no state is stored yet
+     */
+    public void handleStockChanged(String productId, int availableQuantity, Boolean wasInStock) {
+        WishlistProductState state = productStateRepository.findById(productId)
+            .orElseGet(() -> new WishlistProductState(productId));
+
+        boolean previouslyInStock = state.getInStock() != null
+            ? state.getInStock()
+            : Boolean.TRUE.equals(wasInStock);
+        boolean inStock = availableQuantity > 0;
+        if (state.getProductName() == null && inStock && !previouslyInStock) {
+            state.setProductName(fetchProductName(productId));
+        }
+        state.setInStock(inStock);
+        state.setAvailableQuantity(availableQuantity);
+        productStateRepository.save(state);
+
+        if (!inStock || previouslyInStock) {
+            return;
+        }
+
+        String name = state.getProductName();
+        int sent = notifyInterestedUsers(productId, userId -> buildStockAvailableNotification(
+            userId, productId, name, availableQuantity));
+        logger.info("Product {} back in stock ({}): notified {} users", productId, availableQuantity, sent);
+    }
+
+    /**
+     * Page through the users who favorited a product and notify them, one batch insert per page
+     */
+    private int notifyInterestedUsers(String productId, Function<String, Notification> builder) {
+        int sent = 0;
+        Long afterId = 0L;
+        while (afterId != null) {
+            Map<String, Object> page = fetchInterestedUsers(productId, afterId);
+            if (page == null) {
+                break;
             }
-            
-            int priceDropCount = 0;
-            int stockAvailableCount = 0;
-            
-            for (Map<String, Object> favorite : allFavorites) {
-                String userId = (String) favorite.get("userId");
-                String productId = (String) favorite.get("productId");
-                String productName = (String) favorite.get("productName");
-                Double savedPrice = favorite.get("productPrice") != null ? 
-                    ((Number) favorite.get("productPrice")).doubleValue() : null;
-                
-                if (userId == null || productId == null) {
-                    continue;
-                }
-                
-                // Get current product details
-                Map<String, Object> product = getProductDetails(productId);
-                if (product == null) {
-                    continue;
-                }
-                
-                // Check for price drop
-                // Logic: Compare current price with last checked price (not savedPrice in favorite)
-                // This ensures we only notify when price drops from the last check, not from when user added to favorite
-                BigDecimal currentPrice = getCurrentPrice(product);
-                if (currentPrice != null) {
-                    String priceKey = userId + "_" + productId;
-                    BigDecimal lastCheckedPrice = lastCheckedPrices.get(priceKey);
-                    
-                    // If this is first check, use savedPrice from favorite as baseline
-                    if (lastCheckedPrice == null && savedPrice != null) {
-                        lastCheckedPrice = BigDecimal.valueOf(savedPrice);
-                    }
-                    
-                    // Only notify if price dropped compared to last check (with minimum 5% threshold)
-                    if (lastCheckedPrice != null && currentPrice.compareTo(lastCheckedPrice) < 0) {
-                        BigDecimal priceDrop = lastCheckedPrice.subtract(currentPrice);
-                        double discountPercent = (priceDrop.doubleValue() / lastCheckedPrice.doubleValue()) * 100;
-                        
-                        // Only notify if discount is at least 5% to avoid spam
-                        if (discountPercent >= 5.0) {
-                            sendPriceDropNotification(userId, productId, productName, lastCheckedPrice, currentPrice, discountPercent);
-                            lastCheckedPrices.put(priceKey, currentPrice);
-                            priceDropCount++;
-                        } else {
-                            // Update last checked price even if discount is too small
-                            lastCheckedPrices.put(priceKey, currentPrice);
-                        }
-                    } else {
-                        // Update last checked price even if no drop or price increased
-                        lastCheckedPrices.put(priceKey, currentPrice);
+            List<Notification> notifications = new ArrayList<>();
+            Object userIds = page.get("userIds");
+            if (userIds instanceof List) {
+                for (Object userId : (List<?>) userIds) {
+                    if (userId != null) {
+                        notifications.add(builder.apply(userId.toString()));
                     }
                 }
-                
-                // Check for stock availability
-                Integer currentStock = getCurrentStock(product);
-                String stockKey = userId + "_" + productId;
-                Integer lastStock = lastCheckedStock.get(stockKey);
-                
-                if (currentStock != null && currentStock > 0) {
-                    if (lastStock == null || lastStock == 0) {
-                        // Stock just became available!
-                        sendStockAvailableNotification(userId, productId, productName, currentStock);
-                        stockAvailableCount++;
-                    }
-                    lastCheckedStock.put(stockKey, currentStock);
-                } else {
-                    lastCheckedStock.put(stockKey, 0);
+            }
+            if (!notifications.isEmpty()) {
+                for (Notification notification : notificationRepository.saveAll(notifications)) {
+                    notificationService.sendNotification(notification);
                 }
+                sent += notifications.size();
             }
-            
-            logger.info("Wishlist check completed. Price drops: {}, Stock available: {}", 
-                priceDropCount, stockAvailableCount);
-                
-        } catch (Exception e) {
-            logger.error("Error checking wishlist products: {}", e.getMessage(), e);
+            Object next = page.get("nextAfterId");
+            afterId = next instanceof Number ? ((Number) next).longValue() : null;
         }
+        return sent;
     }
-    
+
     /**
-     * Get all favorites from favorites service
+     * One page of the users who favorited a product, from favorites-service
      */
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> getAllFavorites() {
+    private Map<String, Object> fetchInterestedUsers(String productId, long afterId) {
         try {
-            String url = favoritesServiceUrl + "/api/favorites/all";
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            
-            if (response != null && response.containsKey("data")) {
-                return (List<Map<String, Object>>) response.get("data");
-            }
-            
-            // Fallback: try to get favorites by user (would need to iterate users)
-            return List.of();
+            String url = favoritesServiceUrl + "/api/favorites/internal/products/" + productId
+                + "/users?afterId=" + afterId + "&limit=" + pageSize;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBasicAuth(interserviceUsername, interservicePassword);
+            @SuppressWarnings({"rawtypes"})
+            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = response.getBody();
+            return body;
         } catch (Exception e) {
-            logger.error("Error fetching favorites: {}", e.getMessage());
-            return List.of();
+            logger.error("Error fetching users interested in product {}: {}", productId, e.getMessage());
+            return null;
         }
     }
-    
+
     /**
-     * Get product details from product service
+     * Fallback when Kafka is disabled: check every favorited product against the stored state.
+     * The first time a product is seen its price and stock only become the baseline.
      */
+    @Scheduled(initialDelayString = "${notification.wishlist.scan-initial-delay-ms:60000}",
+               fixedDelayString = "${notification.wishlist.scan-interval-ms:300000}")
+    public void scanFavoritedProducts() {
+        if (kafkaEnabled) {
+            return; // product-price-changed / product-stock-changed events drive the notifications
+        }
+        int checked = 0;
+        String afterProductId = "";
+        while (afterProductId != null) {
+            Map<String, Object> page = fetchFavoritedProducts(afterProductId);
+            if (page == null) {
+                break;
+            }
+            Object productIds = page.get("productIds");
+            if (productIds instanceof List) {
+                for (Object productId : (List<?>) productIds) {
+                    if (productId == null) {
+                        continue;
+                    }
+                    try {
+                        checkProduct(productId.toString());
+                        checked++;
+                    } catch (Exception e) {
+                        logger.warn("Wishlist check of product {} failed: {}", productId, e.getMessage());
+                    }
+                }
+            }
+            Object next = page.get("nextAfterProductId");
+            afterProductId = next != null ? next.toString() : null;
+        }
+        logger.debug("Wishlist scan checked {} favorited products", checked);
+    }
+
     @SuppressWarnings("unchecked")
-    private Map<String, Object> getProductDetails(String productId) {
-        try {
-            String url = productServiceUrl + "/api/products/" + productId;
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            return response;
-        } catch (Exception e) {
-            logger.debug("Error fetching product {}: {}", productId, e.getMessage());
-            return null;
+    private void checkProduct(String productId) {
+        Map<String, Object> product = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, Map.class);
+        if (product == null) {
+            return;
+        }
+        WishlistProductState state = productStateRepository.findById(productId).orElse(null);
+
+        BigDecimal price = currentPrice(product);
+        if (price != null && (state == null || state.getLastPrice() == null || price.compareTo(state.getLastPrice()) != 0)) {
+            Object name = product.get("name");
+            handlePriceChanged(productId, name != null ? name.toString() : null, null, price);
+        }
+
+        Object stock = product.get("stockQuantity");
+        if (stock instanceof Number) {
+            int quantity = ((Number) stock).intValue();
+            boolean inStock = quantity > 0;
+            if (state == null || state.getInStock() == null) {
+                handleStockChanged(productId, quantity, inStock); // baseline, nothing to notify
+            } else if (state.getInStock() != inStock) {
+                handleStockChanged(productId, quantity, null);
+            }
         }
     }
-    
+
     /**
-     * Get current price (salePrice if available, otherwise price)
+     * Selling price of a product: sale price when set, otherwise the list price
      */
-    private BigDecimal getCurrentPrice(Map<String, Object> product) {
-        try {
-            Object salePrice = product.get("salePrice");
-            Object price = product.get("price");
-            
-            if (salePrice != null) {
-                if (salePrice instanceof Number) {
-                    return BigDecimal.valueOf(((Number) salePrice).doubleValue());
-                }
-            }
-            
-            if (price != null && price instanceof Number) {
-                return BigDecimal.valueOf(((Number) price).doubleValue());
-            }
-            
-            return null;
-        } catch (Exception e) {
-            logger.debug("Error extracting price: {}", e.getMessage());
-            return null;
+    private static BigDecimal currentPrice(Map<String, Object> product) {
+        Object salePrice = product.get("salePrice");
+        if (salePrice instanceof Number) {
+            return BigDecimal.valueOf(((Number) salePrice).doubleValue());
         }
+        Object price = product.get("price");
+        return price instanceof Number ? BigDecimal.valueOf(((Number) price).doubleValue()) : null;
     }
-    
+
     /**
-     * Get current stock quantity
+     * One page of the distinct favorited product ids, from favorites-service
      */
-    private Integer getCurrentStock(Map<String, Object> product) {
+    private Map<String, Object> fetchFavoritedProducts(String afterProductId) {
         try {
-            Object stock = product.get("stockQuantity");
-            if (stock != null && stock instanceof Number) {
-                return ((Number) stock).intValue();
-            }
-            return 0;
+            String url = favoritesServiceUrl + "/api/favorites/internal/products?afterProductId="
+                + java.net.URLEncoder.encode(afterProductId, java.nio.charset.StandardCharsets.UTF_8) + "&limit=" + pageSize;
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBasicAuth(interserviceUsername, interservicePassword);
+            @SuppressWarnings({"rawtypes"})
+            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = response.getBody();
+            return body;
         } catch (Exception e) {
-            logger.debug("Error extracting stock: {}", e.getMessage());
-            return 0;
+            logger.error("Error fetching favorited products: {}", e.getMessage());
+            return null;
         }
     }
-    
+
     /**
-     * Send price drop notification
+     * Product name from product service; stock events do not carry it
      */
-    private void sendPriceDropNotification(String userId, String productId, String productName, 
-                                          BigDecimal oldPrice, BigDecimal newPrice, double discountPercent) {
+    @SuppressWarnings("unchecked")
+    private String fetchProductName(String productId) {
         try {
-            String title = "🎉 Sản phẩm yêu thích đang giảm giá!";
-            String message = String.format(
-                "Sản phẩm \"%s\" trong danh sách yêu thích của bạn đang giảm giá %.0f%%!\n\n" +
-                "💰 Giá cũ: %,.0f VNĐ\n" +
-                "💰 Giá mới: %,.0f VNĐ\n" +
-                "💵 Tiết kiệm: %,.0f VNĐ\n\n" +
-                "Nhanh tay mua ngay để không bỏ lỡ ưu đãi!",
-                productName,
-                discountPercent,
-                oldPrice.doubleValue(),
-                newPrice.doubleValue(),
-                oldPrice.subtract(newPrice).doubleValue()
-            );
-            
-            Map<String, Object> data = new HashMap<>();
-            data.put("productId", productId);
-            data.put("productName", productName);
-            data.put("oldPrice", oldPrice.doubleValue());
-            data.put("newPrice", newPrice.doubleValue());
-            data.put("discountPercent", discountPercent);
-            data.put("discountAmount", oldPrice.subtract(newPrice).doubleValue());
-            
-            Notification notification = notificationService.createNotification(
-                userId,
-                NotificationType.PRICE_DROP,
-                title,
-                message,
-                "websocket",
-                3 // High priority
-            );
-            
-            try {
-                notification.setData(objectMapper.writeValueAsString(data));
-            } catch (Exception e) {
-                logger.error("Error serializing notification data: {}", e.getMessage());
-            }
-            notificationRepository.save(notification);
-            notificationService.sendNotification(notification);
-            
-            logger.info("Price drop notification sent to user {} for product {}", userId, productId);
+            Map<String, Object> product = restTemplate.getForObject(productServiceUrl + "/api/products/" + productId, Map.class);
+            Object name = product != null ? product.get("name") : null;
+            return name != null ? name.toString() : null;
         } catch (Exception e) {
-            logger.error("Error sending price drop notification: {}", e.getMessage(), e);
+            logger.debug("Error fetching product {}: {}", productId, e.getMessage());
+            return null;
         }
     }
-    
+
     /**
-     * Send stock available notification
+     * Build price drop notification
      */
-    private void sendStockAvailableNotification(String userId, String productId, String productName, Integer stock) {
+    private Notification buildPriceDropNotification(String userId, String productId, String productName,
+                                                    BigDecimal oldPrice, BigDecimal newPrice, double discountPercent) {
+        String title = "🎉 Sản phẩm yêu thích đang giảm giá!";
+        String message = String.format(
+            "Sản phẩm \"%s\" trong danh sách yêu thích của bạn đang giảm giá %.0f%%!\n\n" +
+            "💰 Giá cũ: %,.0f VNĐ\n" +
+            "💰 Giá mới: %,.0f VNĐ\n" +
+            "💵 Tiết kiệm: %,.0f VNĐ\n\n" +
+            "Nhanh tay mua ngay để không bỏ lỡ ưu đãi!",
+            productName,
+            discountPercent,
+            oldPrice.doubleValue(),
+            newPrice.doubleValue(),
+            oldPrice.subtract(newPrice).doubleValue()
+        );
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("productId", productId);
+        data.put("productName", productName);
+        data.put("oldPrice", oldPrice.doubleValue());
+        data.put("newPrice", newPrice.doubleValue());
+        data.put("discountPercent", discountPercent);
+        data.put("discountAmount", oldPrice.subtract(newPrice).doubleValue());
+
+        return buildNotification(userId, NotificationType.PRICE_DROP, title, message, 3, data); // High priority
+    }
+
+    /**
+     * Build stock available notification
+     */
+    private Notification buildStockAvailableNotification(String userId, String productId, String productName, Integer stock) {
+        String title = "✅ Sản phẩm yêu thích đã có hàng!";
+        String message = String.format(
+            "Sản phẩm \"%s\" trong danh sách yêu thích của bạn đã có hàng trở lại!\n\n" +
+            "📦 Số lượng còn lại: %d sản phẩm\n\n" +
+            "Nhanh tay đặt hàng ngay để không bỏ lỡ!",
+            productName,
+            stock
+        );
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("productId", productId);
+        data.put("productName", productName);
+        data.put("stockQuantity", stock);
+
+        return buildNotification(userId, NotificationType.PRODUCT_IN_STOCK, title, message, 2, data); // Medium priority
+    }
+
+    private Notification buildNotification(String userId, NotificationType type, String title, String message,
+                                           int priority, Map<String, Object> data) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setType(type);
+        notification.setTitle(title);
+        notification.setMessage(message);
+        notification.setChannel("websocket");
+        notification.setPriority(priority);
+        notification.setScheduledAt(LocalDateTime.now());
         try {
-            String title = "✅ Sản phẩm yêu thích đã có hàng!";
-            String message = String.format(
-                "Sản phẩm \"%s\" trong danh sách yêu thích của bạn đã có hàng trở lại!\n\n" +
-                "📦 Số lượng còn lại: %d sản phẩm\n\n" +
-                "Nhanh tay đặt hàng ngay để không bỏ lỡ!",
-                productName,
-                stock
-            );
-            
-            Map<String, Object> data = new HashMap<>();
-            data.put("productId", productId);
-            data.put("productName", productName);
-            data.put("stockQuantity", stock);
-            
-            Notification notification = notificationService.createNotification(
-                userId,
-                NotificationType.PRODUCT_IN_STOCK,
-                title,
-                message,
-                "websocket",
-                2 // Medium priority
-            );
-            
-            try {
-                notification.setData(objectMapper.writeValueAsString(data));
-            } catch (Exception e) {
-                logger.error("Error serializing notification data: {}", e.getMessage());
-            }
-            notificationRepository.save(notification);
-            notificationService.sendNotification(notification);
-            
-            logger.info("Stock available notification sent to user {} for product {}", userId, productId);
+            notification.setData(objectMapper.writeValueAsString(data));
         } catch (Exception e) {
-            logger.error("Error sending stock available notification: {}", e.getMessage(), e);
+            logger.error("Error serializing notification data: {}", e.getMessage());
         }
+        return notification;
     }
 }
-
@@ -0,0 +1,193 @@
+package com.example.notification.service;
+
+import com.example.notification.entity.Campaign;
+import com.example.notification.entity.CampaignRecipient;
+import com.example.notification.entity.CampaignStatus;
+import com.example.notification.repository.CampaignRecipientRepository;
+import com.example.notification.repository.CampaignRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Email campaigns against a local GreenMail SMTP server: per-recipient merge, chunked checkpoints,
+ * and status changes that never write the whole campaign row back
+ */
+class CampaignServiceTest {
+
+    private static final Long CAMPAIGN_ID = 7L;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private CampaignRepository campaignRepository;
+    private CampaignRecipientRepository recipientRepository;
+    private SmtpConnectionPool smtpConnectionPool;
+    private CampaignService campaignService;
+    private Campaign campaign;
+    private List<CampaignRecipient> recipients;
+
+    @BeforeEach
+    void setUp() {
+        campaignRepository = mock(CampaignRepository.class);
+        recipientRepository = mock(CampaignRecipientRepository.class);
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        smtpConnectionPool = new SmtpConnectionPool();
+        ReflectionTestUtils.setField(smtpConnectionPool, "mailSender", mailSender);
+        ReflectionTestUtils.setField(smtpConnectionPool, "poolSize", 2);
+        ReflectionTestUtils.setField(smtpConnectionPool, "messagesPerConnection", 2);
+        ReflectionTestUtils.setField(smtpConnectionPool, "borrowTimeoutMs", 5000L);
+
+        campaignService = new CampaignService();
+        ReflectionTestUtils.setField(campaignService, "campaignRepository", campaignRepository);
+        ReflectionTestUtils.setField(campaignService, "recipientRepository", recipientRepository);
+        ReflectionTestUtils.setField(campaignService, "smtpConnectionPool", smtpConnectionPool);
+        ReflectionTestUtils.setField(campaignService, "mailSender", mailSender);
+        ReflectionTestUtils.setField(campaignService, "smsService", mock(SmsService.class));
+        ReflectionTestUtils.setField(campaignService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(campaignService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(campaignService, "fromEmail", "shop@example.test");
+        ReflectionTestUtils.setField(campaignService, "enabled", true);
+        ReflectionTestUtils.setField(campaignService, "chunkSize", 2);
+        ReflectionTestUtils.setField(campaignService, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(campaignService, "maxRunning", 1);
+        ReflectionTestUtils.setField(campaignService, "smsWorkers", 1);
+        ReflectionTestUtils.setField(campaignService, "emailPerSecond", 1000.0);
+        ReflectionTestUtils.setField(campaignService, "emailBurst", 100);
+        ReflectionTestUtils.setField(campaignService, "smsPerSecond", 1000.0);
+        ReflectionTestUtils.setField(campaignService, "smsBurst", 100);
+        campaignService.init();
+
+        campaign = new Campaign();
+        campaign.setId(CAMPAIGN_ID);
+        campaign.setName("Spring sale");
+        campaign.setChannel(NotificationChannelSender.EMAIL);
+        campaign.setSubjectTemplate("Hello {{name}}");
+        campaign.setBodyTemplate("<p>Hi {{name}}, the sale starts today.</p>");
+        campaign.setStatus(CampaignStatus.RUNNING);
+
+        recipients = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            CampaignRecipient r = new CampaignRecipient();
+            r.setId(id);
+            r.setCampaignId(CAMPAIGN_ID);
+            r.setAddress("user" + id + "@example.test");
+            r.setMergeData("{\"name\":\"User " + id + "\"}");
+            recipients.add(r);
+        }
+
+        when(campaignRepository.findById(CAMPAIGN_ID)).thenReturn(Optional.of(campaign));
+        when(campaignRepository.markRunning(eq(CAMPAIGN_ID), any())).thenReturn(1);
+        when(campaignRepository.findClaimableIds(any())).thenReturn(List.of(CAMPAIGN_ID));
+        when(campaignRepository.claim(eq(CAMPAIGN_ID), anyString(), any(), any())).thenReturn(1);
+        when(campaignRepository.advance(eq(CAMPAIGN_ID), anyInt(), anyInt(), anyLong(), anyString(), any(), any()))
+            .thenReturn(1);
+        when(campaignRepository.complete(eq(CAMPAIGN_ID), anyString(), any())).thenReturn(1);
+        when(recipientRepository.findPending(eq(CAMPAIGN_ID), anyLong(), any(Pageable.class))).thenAnswer(inv -> {
+            long afterId = inv.getArgument(1);
+            Pageable page = inv.getArgument(2);
+            return recipients.stream().filter(r -> r.getId() > afterId).limit(page.getPageSize()).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        campaignService.shutdown();
+        smtpConnectionPool.shutdown();
+    }
+
+    @Test
+    void sendsMergedEmailsInCheckpointedChunks() throws Exception {
+        campaignService.start(CAMPAIGN_ID);
+
+        assertTrue(greenMail.waitForIncomingEmail(10000, 5));
+        verify(campaignRepository, timeout(5000)).complete(eq(CAMPAIGN_ID), anyString(), any());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        Set<String> subjects = new HashSet<>();
+        for (MimeMessage message : received) {
+            subjects.add(message.getSubject());
+            String to = message.getAllRecipients()[0].toString();
+            String id = to.substring("user".length(), to.indexOf('@'));
+            assertTrue(GreenMailUtil.getBody(message).contains("Hi User " + id));
+        }
+        assertEquals(Set.of("Hello User 1", "Hello User 2", "Hello User 3", "Hello User 4", "Hello User 5"), subjects);
+
+        // Chunks of two: checkpoints after recipients 2, 4 and 5
+        ArgumentCaptor<Integer> sent = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Long> checkpoints = ArgumentCaptor.forClass(Long.class);
+        verify(campaignRepository, times(3)).advance(eq(CAMPAIGN_ID), sent.capture(), eq(0), checkpoints.capture(),
+            anyString(), any(), any());
+        assertEquals(List.of(2L, 4L, 5L), checkpoints.getAllValues());
+        assertEquals(5, sent.getAllValues().stream().mapToInt(Integer::intValue).sum());
+        verify(recipientRepository, never()).markFailed(anyLong(), any());
+    }
+
+    @Test
+    void resumesAfterTheCheckpoint() throws Exception {
+        campaign.setCheckpointId(3L);
+
+        campaignService.start(CAMPAIGN_ID);
+
+        assertTrue(greenMail.waitForIncomingEmail(10000, 2));
+        verify(campaignRepository, timeout(5000)).complete(eq(CAMPAIGN_ID), anyString(), any());
+        Set<String> subjects = new HashSet<>();
+        for (MimeMessage message : greenMail.getReceivedMessages()) {
+            subjects.add(message.getSubject());
+        }
+        assertEquals(Set.of("Hello User 4", "Hello User 5"), subjects);
+    }
+
+    @Test
+    void pauseUpdatesOnlyTheStatus() {
+        campaignService.pause(CAMPAIGN_ID);
+
+        verify(campaignRepository).updateStatus(eq(CAMPAIGN_ID), eq(CampaignStatus.PAUSED), any());
+        verify(campaignRepository, never()).save(any());
+    }
+
+    @Test
+    void pausedCampaignStopsBeforeSending() throws Exception {
+        campaign.setStatus(CampaignStatus.PAUSED);
+
+        campaignService.poll();
+
+        verify(campaignRepository, timeout(5000)).release(eq(CAMPAIGN_ID), anyString());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Two notification nodes sharing an embedded Kafka: a push published on one node reaches both
+ */
+@SpringJUnitConfig(WebSocketFanoutServiceTest.Config.class)
+@EmbeddedKafka(partitions = 3, topics = WebSocketFanoutServiceTest.TOPIC)
+@TestPropertySource(properties = {
+    "notification.websocket.broker.mode=kafka",
+    "notification.websocket.fanout.topic=" + WebSocketFanoutServiceTest.TOPIC
+})
+class WebSocketFanoutServiceTest {
+
+    static final String TOPIC = "notification-websocket-fanout";
+
+    @Configuration
+    @EnableKafka
+    static class Config {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        KafkaTemplate<String, String> kafkaTemplate(EmbeddedKafkaBroker broker) {
+            Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+            props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+            return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+        }
+
+        @Bean
+        ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(EmbeddedKafkaBroker broker) {
+            Map<String, Object> props = KafkaTestUtils.consumerProps("unused", "true", broker);
+            props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+            props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+            ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+            factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+            return factory;
+        }
+
+        @Bean
+        WebSocketFanoutService nodeA() {
+            return new WebSocketFanoutService();
+        }
+
+        @Bean
+        WebSocketFanoutService nodeB() {
+            return new WebSocketFanoutService();
+        }
+    }
+
+    private record Push(String userId, Map<String, Object> notification) {
+    }
+
+    @Autowired
+    private WebSocketFanoutService nodeA;
+
+    @Autowired
+    private WebSocketFanoutService nodeB;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    private final BlockingQueue<Push> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Push> receivedByB = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        nodeA.setReceiver((userId, notification) -> receivedByA.add(new Push(userId, notification)));
+        nodeB.setReceiver((userId, notification) -> receivedByB.add(new Push(userId, notification)));
+        // Groups start at the latest offset, so wait until both nodes own their partitions
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, broker.getPartitionsPerTopic());
+        }
+    }
+
+    @Test
+    void userPushReachesEveryNode() throws InterruptedException {
+        nodeA.publish("42", Map.of("type", "ORDER_UPDATE", "orderNumber", "ORD-1"));
+
+        for (BlockingQueue<Push> received : List.of(receivedByA, receivedByB)) {
+            Push push = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(push);
+            assertEquals("42", push.userId());
+            assertEquals("ORD-1", push.notification().get("orderNumber"));
+        }
+    }
+
+    @Test
+    void broadcastReachesEveryNodeWithoutUser() throws InterruptedException {
+        nodeB.publish(null, Map.of("type", "SYSTEM_NOTIFICATION", "message", "maintenance"));
+
+        for (BlockingQueue<Push> received : List.of(receivedByA, receivedByB)) {
+            Push push = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(push);
+            assertNull(push.userId());
+            assertEquals("maintenance", push.notification().get("message"));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.order.config;
+
+import net.javacrumbs.shedlock.core.LockProvider;
+import net.javacrumbs.shedlock.provider.jdbctemplate.JdbcTemplateLockProvider;
+import net.javacrumbs.shedlock.spring.annotation.EnableSchedulerLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+
+/**
+ * Scheduling support shared by the order-service background tasks.
+ *
+ * Scheduled jobs are guarded by a ShedLock lock stored in the {@code shedlock} table
+ * (see {@link com.example.order.entity.SchedulerLock}) so that only one replica runs them.
+ */
+@Configuration
+@EnableSchedulerLock(defaultLockAtMostFor = "PT10M")
+public class SchedulingConfig {
+
+    @Value("${order.cleanup.rollback-parallelism:4}")
+    private int rollbackParallelism;
+
+    @Value("${shipping.quote-cache.max-concurrent-fetches:8}")
+    private int quoteFetchParallelism;
+
+    @Bean
+    public LockProvider lockProvider(DataSource dataSource) {
+        return new JdbcTemplateLockProvider(
+            JdbcTemplateLockProvider.Configuration.builder()
+                .withJdbcTemplate(new JdbcTemplate(dataSource))
+                .usingDbTime() // avoid clock skew between replicas
+                .build()
+        );
+    }
+
+    /**
+     * Bounded pool for inventory rollback calls issued by the payment timeout sweep
+     */
+    @Bean(name = "inventoryRollbackExecutor")
+    public ThreadPoolTaskExecutor inventoryRollbackExecutor() {
+        int poolSize = Math.max(1, rollbackParallelism);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("inventory-rollback-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool for GHN fee quote fetches issued by {@link com.example.order.service.ShippingQuoteCache}
+     */
+    @Bean(name = "shippingQuoteExecutor")
+    public ThreadPoolTaskExecutor shippingQuoteExecutor() {
+        int poolSize = Math.max(1, quoteFetchParallelism);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("shipping-quote-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single background thread for {@link com.example.order.service.GeographyService} refreshes,
+     * so the GHN download never occupies the shared scheduler thread
+     */
+    @Bean(name = "geographyRefreshExecutor")
+    public ThreadPoolTaskExecutor geographyRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("geography-refresh-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -97,6 +97,21 @@ public class OrderController {
         }
     }
 
+    /**
+     * Point lookup: has the user purchased this product (for review verification)
+     */
+    @GetMapping("/purchased/{userId}/{productId}")
+    public ResponseEntity<Map<String, Object>> hasPurchasedProduct(
+            @PathVariable String userId,
+            @PathVariable String productId) {
+        try {
+            boolean purchased = orderService.hasPurchasedProduct(userId, productId);
+            return ResponseEntity.ok(Map.of("userId", userId, "productId", productId, "purchased", purchased));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("")
     @Transactional
     public ResponseEntity<OrderDTO> create(@RequestBody OrderDTO payload, @RequestHeader(value = "X-User-Id", required = false) String userIdFromHeader) {
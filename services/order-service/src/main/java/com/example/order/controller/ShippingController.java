@@ -1,8 +1,10 @@
 package com.example.order.controller;
 
+import com.example.order.service.GeographyService;
 import com.example.order.service.ShippingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,13 +13,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/shipping")
@@ -26,13 +31,17 @@ public class ShippingController {
     @Autowired
     private ShippingService shippingService;
 
+    @Autowired
+    private GeographyService geographyService;
+
     @Value("${GHN_API_TOKEN:}")
     private String ghnToken;
     @Value("${GHN_SHOP_ID:}")
     private String ghnShopId;
 
     private static final String GHN_MASTER_DATA_BASE_URL = "https://online-gateway.ghn.vn/shiip/public-api/master-data";
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -81,6 +90,24 @@ public class ShippingController {
         }
     }
 
+    /**
+     * Serve geography data from the local dataset with an ETag, or proxy to GHN when it is not known locally
+     */
+    private ResponseEntity<?> localOrGhn(WebRequest webRequest, List<Map<String, Object>> data,
+                                         String endpoint, HttpMethod method, String body) {
+        if (data == null) {
+            return callGhnApi(endpoint, method, body);
+        }
+        String etag = geographyService.getEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 already written
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .body(Map.of("code", 200, "message", "Success", "data", data));
+    }
+
     /**
      * Health check
      */
@@ -125,32 +152,41 @@ public class ShippingController {
         }
     }
 
-    // GHN API endpoints (original implementation)
+    // GHN master-data endpoints, served from the local geography dataset
     @GetMapping("/ghn/provinces")
-    public ResponseEntity<?> getGhnProvinces() {
-        return callGhnApi("/province", HttpMethod.GET, null);
+    public ResponseEntity<?> getGhnProvinces(WebRequest webRequest) {
+        return localOrGhn(webRequest, geographyService.findProvinces(), "/province", HttpMethod.GET, null);
     }
 
     @GetMapping("/ghn/districts")
-    public ResponseEntity<?> getGhnDistricts(@RequestParam("province_id") Integer provinceId) {
-            String body = "{\"province_id\": " + provinceId + "}";
-        return callGhnApi("/district", HttpMethod.POST, body);
+    public ResponseEntity<?> getGhnDistricts(@RequestParam("province_id") Integer provinceId, WebRequest webRequest) {
+        String body = "{\"province_id\": " + provinceId + "}";
+        return localOrGhn(webRequest, geographyService.findDistricts(provinceId), "/district", HttpMethod.POST, body);
     }
 
     @GetMapping("/ghn/wards")
-    public ResponseEntity<?> getGhnWards(@RequestParam("district_id") Integer districtId) {
+    public ResponseEntity<?> getGhnWards(@RequestParam("district_id") Integer districtId, WebRequest webRequest) {
         String body = "{\"district_id\": " + districtId + "}";
-        return callGhnApi("/ward", HttpMethod.POST, body);
+        return localOrGhn(webRequest, geographyService.findWards(districtId), "/ward", HttpMethod.POST, body);
+    }
+
+    /**
+     * Version and size of the local geography dataset
+     */
+    @GetMapping("/geography/status")
+    public ResponseEntity<Map<String, Object>> getGeographyStatus() {
+        return ResponseEntity.ok(geographyService.getStatus());
     }
 
     // Frontend-compatible endpoints (without /ghn prefix)
     @GetMapping("/provinces")
-    public ResponseEntity<?> getProvinces() {
-        return callGhnApi("/province", HttpMethod.GET, null);
+    public ResponseEntity<?> getProvinces(WebRequest webRequest) {
+        return localOrGhn(webRequest, geographyService.findProvinces(), "/province", HttpMethod.GET, null);
     }
 
     @GetMapping("/provinces/{provinceCode}/communes")
-    public ResponseEntity<?> getCommunesByProvince(@org.springframework.web.bind.annotation.PathVariable String provinceCode) {
+    public ResponseEntity<?> getCommunesByProvince(@org.springframework.web.bind.annotation.PathVariable String provinceCode,
+                                                   WebRequest webRequest) {
         try {
             // First convert province code to province ID if needed
             Integer provinceId = getProvinceIdFromCode(provinceCode);
@@ -159,14 +195,14 @@ public class ShippingController {
             }
 
             String body = "{\"province_id\": " + provinceId + "}";
-            return callGhnApi("/district", HttpMethod.POST, body);
+            return localOrGhn(webRequest, geographyService.findDistricts(provinceId), "/district", HttpMethod.POST, body);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
 
     @GetMapping("/districts/getByProvince")
-    public ResponseEntity<?> getDistrictsByProvince(@RequestParam("provinceCode") String provinceCode) {
+    public ResponseEntity<?> getDistrictsByProvince(@RequestParam("provinceCode") String provinceCode, WebRequest webRequest) {
         try {
             Integer provinceId = getProvinceIdFromCode(provinceCode);
             if (provinceId == null) {
@@ -174,14 +210,14 @@ public class ShippingController {
             }
 
             String body = "{\"province_id\": " + provinceId + "}";
-            return callGhnApi("/district", HttpMethod.POST, body);
+            return localOrGhn(webRequest, geographyService.findDistricts(provinceId), "/district", HttpMethod.POST, body);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
 
     @GetMapping("/wards/getByDistrict")
-    public ResponseEntity<?> getWardsByDistrict(@RequestParam("districtCode") String districtCode) {
+    public ResponseEntity<?> getWardsByDistrict(@RequestParam("districtCode") String districtCode, WebRequest webRequest) {
         try {
             Integer districtId = getDistrictIdFromCode(districtCode);
             if (districtId == null) {
@@ -189,7 +225,7 @@ public class ShippingController {
             }
 
             String body = "{\"district_id\": " + districtId + "}";
-            return callGhnApi("/ward", HttpMethod.POST, body);
+            return localOrGhn(webRequest, geographyService.findWards(districtId), "/ward", HttpMethod.POST, body);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
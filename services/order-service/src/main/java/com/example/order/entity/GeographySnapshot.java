@@ -0,0 +1,56 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last GHN geography dataset downloaded by any order-service replica.
+ * A single row; the other replicas compare its content hash with their own dataset
+ * and load the payload when it differs (see GeographyService). {@code refreshed_at} is the last
+ * successful GHN pull, changed or not, and paces the pulls across the cluster.
+ */
+@Entity
+@Table(name = "geography_snapshot")
+public class GeographySnapshot {
+
+    public static final String GHN = "ghn";
+
+    @Id
+    @Column(length = 16, nullable = false)
+    private String id;
+
+    @Column(nullable = false, length = 32)
+    private String version;
+
+    @Column(name = "content_hash", nullable = false, length = 32)
+    private String contentHash;
+
+    @Lob
+    @Column(columnDefinition = "LONGTEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getRefreshedAt() { return refreshedAt; }
+    public void setRefreshedAt(LocalDateTime refreshedAt) { this.refreshedAt = refreshedAt; }
+}
@@ -13,7 +13,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_status_payment_id", columnList = "order_status, payment_status, id")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Order implements Serializable {
 
@@ -0,0 +1,33 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mapping of the ShedLock {@code shedlock} table.
+ * Only declared so that {@code ddl-auto: update} creates the table; the lock rows
+ * themselves are managed by ShedLock's JdbcTemplateLockProvider.
+ */
+@Entity
+@Table(name = "shedlock")
+public class SchedulerLock {
+
+    @Id
+    @Column(name = "name", length = 64, nullable = false)
+    private String name;
+
+    @Column(name = "lock_until", columnDefinition = "TIMESTAMP(3) NOT NULL")
+    private LocalDateTime lockUntil;
+
+    @Column(name = "locked_at", columnDefinition = "TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    public String getName() { return name; }
+    public LocalDateTime getLockUntil() { return lockUntil; }
+    public LocalDateTime getLockedAt() { return lockedAt; }
+    public String getLockedBy() { return lockedBy; }
+}
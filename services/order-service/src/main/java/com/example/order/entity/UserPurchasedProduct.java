@@ -0,0 +1,45 @@
+package com.example.order.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of (user, product) pairs from delivered/completed orders.
+ * Maintained when an order reaches DELIVERED or COMPLETED so purchase
+ * verification is a single indexed probe instead of loading order history.
+ */
+@Entity
+@Table(name = "user_purchased_products", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_purchased_product", columnNames = {"user_id", "product_id"})
+})
+public class UserPurchasedProduct implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 36)
+    private String userId;
+
+    @Column(name = "product_id", nullable = false, length = 36)
+    private String productId;
+
+    @Column(name = "first_purchased_at", nullable = false)
+    private LocalDateTime firstPurchasedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
+    public LocalDateTime getFirstPurchasedAt() { return firstPurchasedAt; }
+    public void setFirstPurchasedAt(LocalDateTime firstPurchasedAt) { this.firstPurchasedAt = firstPurchasedAt; }
+}
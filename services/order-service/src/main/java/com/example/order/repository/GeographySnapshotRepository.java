@@ -0,0 +1,35 @@
+package com.example.order.repository;
+
+import com.example.order.entity.GeographySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface GeographySnapshotRepository extends JpaRepository<GeographySnapshot, String> {
+
+    /**
+     * Content hash only, so the periodic check does not read the payload
+     */
+    @Query("SELECT s.contentHash FROM GeographySnapshot s WHERE s.id = :id")
+    String findContentHash(@Param("id") String id);
+
+    /**
+     * Time of the last successful GHN pull, null when none is recorded
+     */
+    @Query("SELECT s.refreshedAt FROM GeographySnapshot s WHERE s.id = :id")
+    LocalDateTime findRefreshedAt(@Param("id") String id);
+
+    /**
+     * Record a successful pull that found no changes, without rewriting the payload
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE GeographySnapshot s SET s.refreshedAt = :refreshedAt WHERE s.id = :id")
+    int markRefreshed(@Param("id") String id, @Param("refreshedAt") LocalDateTime refreshedAt);
+}
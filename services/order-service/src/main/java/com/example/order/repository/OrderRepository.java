@@ -59,6 +59,24 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
         PaymentStatus paymentStatus, 
         LocalDateTime createdAt
     );
+
+    /**
+     * Keyset page of timed-out order ids (id > afterId, ascending).
+     * Used by the payment timeout sweep so each chunk is an index range scan.
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.paymentStatus = :paymentStatus " +
+           "AND o.createdAt < :createdBefore AND o.id > :afterId ORDER BY o.id ASC")
+    List<Long> findTimeoutOrderIdsAfter(OrderStatus status, PaymentStatus paymentStatus,
+                                        LocalDateTime createdBefore, Long afterId, Pageable pageable);
+
+    /**
+     * Load a chunk of orders with their items in one query, re-checking the timeout
+     * condition so orders paid after the id page was read are left untouched.
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id IN :ids " +
+           "AND o.status = :status AND o.paymentStatus = :paymentStatus AND o.createdAt < :createdBefore")
+    List<Order> findTimeoutOrdersWithOrderItems(List<Long> ids, OrderStatus status, PaymentStatus paymentStatus,
+                                                LocalDateTime createdBefore);
 }
 
 
@@ -0,0 +1,40 @@
+package com.example.order.repository;
+
+import com.example.order.entity.UserPurchasedProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserPurchasedProductRepository extends JpaRepository<UserPurchasedProduct, Long> {
+
+    boolean existsByUserIdAndProductId(String userId, String productId);
+
+    @Query("SELECT p.productId FROM UserPurchasedProduct p WHERE p.userId = :userId")
+    List<String> findProductIdsByUserId(String userId);
+
+    /**
+     * Idempotent insert - keeps the earliest purchase time when the pair already exists
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_purchased_products (user_id, product_id, first_purchased_at) " +
+                   "VALUES (:userId, :productId, :purchasedAt)", nativeQuery = true)
+    int insertIfAbsent(String userId, String productId, LocalDateTime purchasedAt);
+
+    /**
+     * Rebuild missing rows from order history (delivered/completed orders) in one statement
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_purchased_products (user_id, product_id, first_purchased_at) " +
+                   "SELECT o.user_id, oi.product_id, MIN(COALESCE(o.delivered_date, o.updated_at, o.created_at)) " +
+                   "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+                   "WHERE o.order_status IN ('DELIVERED', 'COMPLETED') " +
+                   "GROUP BY o.user_id, oi.product_id", nativeQuery = true)
+    int backfillFromOrders();
+}
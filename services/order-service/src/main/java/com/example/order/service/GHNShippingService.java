@@ -5,9 +5,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -24,10 +26,18 @@ public class GHNShippingService {
     @Value("${ghn.api.base-url:https://dev-online-gateway.ghn.vn/shiip/public-api}")
     private String ghnBaseUrl;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private GeographyService geographyService;
+
+    @Autowired
+    private ShippingQuoteCache shippingQuoteCache;
     
     /**
-     * Calculate shipping fee using GHN API
+     * Calculate shipping fee using GHN API, served from the quote cache
+     * (keyed on the exact weight, default fees are never cached)
      */
     public Map<String, Object> calculateShippingFee(
             Integer fromDistrictId,
@@ -36,6 +46,22 @@ public class GHNShippingService {
             String toWardCode,
             Integer weight,
             Integer insuranceValue
+    ) {
+        int quoteWeight = shippingQuoteCache.quoteWeight(weight != null ? weight : 1000); // Default 1kg
+        String key = shippingQuoteCache.key("ghn-fee", fromDistrictId, fromWardCode, toDistrictId, toWardCode,
+                quoteWeight, insuranceValue);
+        return shippingQuoteCache.get(key,
+                () -> fetchShippingFee(fromDistrictId, fromWardCode, toDistrictId, toWardCode, quoteWeight, insuranceValue),
+                result -> !Boolean.TRUE.equals(result.get("usingDefault")));
+    }
+
+    private Map<String, Object> fetchShippingFee(
+            Integer fromDistrictId,
+            String fromWardCode,
+            Integer toDistrictId,
+            String toWardCode,
+            Integer weight,
+            Integer insuranceValue
     ) {
         // Validate configuration
         if (isBlank(ghnToken) || isBlank(ghnShopId) || ghnToken.equals("YOUR_TOKEN_HERE")) {
@@ -106,6 +132,10 @@ public class GHNShippingService {
      * Get list of provinces from GHN
      */
     public Map<String, Object> getProvinces() {
+        List<Map<String, Object>> local = geographyService.findProvinces();
+        if (local != null) {
+            return localResult(local);
+        }
         if (isBlank(ghnToken) || ghnToken.equals("YOUR_TOKEN_HERE")) {
             return Map.of("success", false, "error", "GHN API not configured - please set GHN_API_TOKEN in environment variables");
         }
@@ -138,6 +168,10 @@ public class GHNShippingService {
      * Get list of districts by province ID from GHN
      */
     public Map<String, Object> getDistricts(Integer provinceId) {
+        List<Map<String, Object>> local = geographyService.findDistricts(provinceId);
+        if (local != null) {
+            return localResult(local);
+        }
         if (isBlank(ghnToken) || ghnToken.equals("YOUR_TOKEN_HERE")) {
             return Map.of("success", false, "error", "GHN API not configured - please set GHN_API_TOKEN in environment variables");
         }
@@ -170,6 +204,10 @@ public class GHNShippingService {
      * Get list of wards by district ID from GHN
      */
     public Map<String, Object> getWards(Integer districtId) {
+        List<Map<String, Object>> local = geographyService.findWards(districtId);
+        if (local != null) {
+            return localResult(local);
+        }
         if (isBlank(ghnToken) || ghnToken.equals("YOUR_TOKEN_HERE")) {
             return Map.of("success", false, "error", "GHN API not configured - please set GHN_API_TOKEN in environment variables");
         }
@@ -236,6 +274,13 @@ public class GHNShippingService {
         }
     }
     
+    /**
+     * Local geography data wrapped like a GHN master-data response
+     */
+    private Map<String, Object> localResult(List<Map<String, Object>> data) {
+        return Map.of("code", 200, "message", "Success", "data", data);
+    }
+
     private Map<String, Object> getDefaultShippingFee() {
         return Map.of(
             "success", true,
@@ -0,0 +1,398 @@
+package com.example.order.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable GHN province / district / ward dataset held in flat arrays.
+ *
+ * Districts are grouped by province and wards by district, so listing children is an
+ * offset range and lookups by id or ward code are binary searches. The content hash is
+ * used as ETag and to detect whether a refresh actually changed anything.
+ */
+final class GeographyDataset {
+
+    static final GeographyDataset EMPTY = build("empty", List.of(), List.of(), List.of());
+
+    final String version;
+    final String contentHash;
+
+    // Provinces, sorted by id
+    private final int[] provinceIds;
+    private final String[] provinceNames;
+    private final String[] provinceCodes;
+    private final int[] provinceDistrictStart;
+
+    // Districts, grouped by province then sorted by id
+    private final int[] districtIds;
+    private final int[] districtProvinceIds;
+    private final String[] districtNames;
+    private final String[] districtCodes;
+    private final int[] districtWardStart;
+    private final int[] districtIdsSorted;
+    private final int[] districtIndexById;
+
+    // Wards, grouped by district then sorted by code
+    private final String[] wardCodes;
+    private final int[] wardDistrictIds;
+    private final String[] wardNames;
+    private final String[] wardCodesSorted;
+    private final int[] wardIndexByCode;
+
+    static class ProvinceRow {
+        final int id;
+        final String name;
+        final String code;
+
+        ProvinceRow(int id, String name, String code) {
+            this.id = id;
+            this.name = name;
+            this.code = code;
+        }
+    }
+
+    static class DistrictRow {
+        final int id;
+        final int provinceId;
+        final String name;
+        final String code;
+
+        DistrictRow(int id, int provinceId, String name, String code) {
+            this.id = id;
+            this.provinceId = provinceId;
+            this.name = name;
+            this.code = code;
+        }
+    }
+
+    static class WardRow {
+        final String code;
+        final int districtId;
+        final String name;
+
+        WardRow(String code, int districtId, String name) {
+            this.code = code;
+            this.districtId = districtId;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Build a dataset; rows whose parent is unknown are dropped, duplicates keep the first row
+     */
+    static GeographyDataset build(String version, List<ProvinceRow> provinceRows,
+                                  List<DistrictRow> districtRows, List<WardRow> wardRows) {
+        List<ProvinceRow> provinces = new ArrayList<>(provinceRows);
+        provinces.sort(Comparator.comparingInt(p -> p.id));
+        provinces = dedupe(provinces, p -> String.valueOf(p.id));
+        Set<Integer> provinceIdSet = new HashSet<>();
+        provinces.forEach(p -> provinceIdSet.add(p.id));
+
+        List<DistrictRow> districts = new ArrayList<>();
+        for (DistrictRow d : districtRows) {
+            if (provinceIdSet.contains(d.provinceId)) {
+                districts.add(d);
+            }
+        }
+        districts.sort(Comparator.<DistrictRow>comparingInt(d -> d.provinceId).thenComparingInt(d -> d.id));
+        districts = dedupe(districts, d -> String.valueOf(d.id));
+        // Wards follow the district order above so each district owns one contiguous range
+        Map<Integer, Integer> districtPosition = new HashMap<>();
+        for (int i = 0; i < districts.size(); i++) {
+            districtPosition.put(districts.get(i).id, i);
+        }
+
+        List<WardRow> wards = new ArrayList<>();
+        for (WardRow w : wardRows) {
+            if (w.code != null && districtPosition.containsKey(w.districtId)) {
+                wards.add(w);
+            }
+        }
+        wards.sort(Comparator.<WardRow>comparingInt(w -> districtPosition.get(w.districtId)).thenComparing(w -> w.code));
+        wards = dedupe(wards, w -> w.code);
+
+        return new GeographyDataset(version, provinces, districts, wards);
+    }
+
+    private GeographyDataset(String version, List<ProvinceRow> provinces,
+                             List<DistrictRow> districts, List<WardRow> wards) {
+        this.version = version;
+
+        int p = provinces.size();
+        provinceIds = new int[p];
+        provinceNames = new String[p];
+        provinceCodes = new String[p];
+        for (int i = 0; i < p; i++) {
+            ProvinceRow row = provinces.get(i);
+            provinceIds[i] = row.id;
+            provinceNames[i] = row.name;
+            provinceCodes[i] = row.code;
+        }
+
+        int d = districts.size();
+        districtIds = new int[d];
+        districtProvinceIds = new int[d];
+        districtNames = new String[d];
+        districtCodes = new String[d];
+        provinceDistrictStart = new int[p + 1];
+        int pi = 0;
+        for (int i = 0; i < d; i++) {
+            DistrictRow row = districts.get(i);
+            districtIds[i] = row.id;
+            districtProvinceIds[i] = row.provinceId;
+            districtNames[i] = row.name;
+            districtCodes[i] = row.code;
+            while (provinceIds[pi] != row.provinceId) {
+                provinceDistrictStart[++pi] = i;
+            }
+        }
+        while (pi < p) {
+            provinceDistrictStart[++pi] = d;
+        }
+
+        Integer[] byId = new Integer[d];
+        for (int i = 0; i < d; i++) {
+            byId[i] = i;
+        }
+        Arrays.sort(byId, Comparator.comparingInt(i -> districtIds[i]));
+        districtIdsSorted = new int[d];
+        districtIndexById = new int[d];
+        for (int i = 0; i < d; i++) {
+            districtIndexById[i] = byId[i];
+            districtIdsSorted[i] = districtIds[byId[i]];
+        }
+
+        int w = wards.size();
+        wardCodes = new String[w];
+        wardDistrictIds = new int[w];
+        wardNames = new String[w];
+        districtWardStart = new int[d + 1];
+        int di = 0;
+        for (int i = 0; i < w; i++) {
+            WardRow row = wards.get(i);
+            wardCodes[i] = row.code;
+            wardDistrictIds[i] = row.districtId;
+            wardNames[i] = row.name;
+            int districtIndex = districtIndexById[Arrays.binarySearch(districtIdsSorted, row.districtId)];
+            while (di < districtIndex) {
+                districtWardStart[++di] = i;
+            }
+        }
+        while (di < d) {
+            districtWardStart[++di] = w;
+        }
+
+        Integer[] byCode = new Integer[w];
+        for (int i = 0; i < w; i++) {
+            byCode[i] = i;
+        }
+        Arrays.sort(byCode, Comparator.comparing(i -> wardCodes[i]));
+        wardCodesSorted = new String[w];
+        wardIndexByCode = new int[w];
+        for (int i = 0; i < w; i++) {
+            wardIndexByCode[i] = byCode[i];
+            wardCodesSorted[i] = wardCodes[byCode[i]];
+        }
+
+        this.contentHash = hash();
+    }
+
+    boolean isEmpty() {
+        return provinceIds.length == 0;
+    }
+
+    int provinceCount() {
+        return provinceIds.length;
+    }
+
+    int districtCount() {
+        return districtIds.length;
+    }
+
+    int wardCount() {
+        return wardCodes.length;
+    }
+
+    /**
+     * Provinces in GHN master-data shape
+     */
+    List<Map<String, Object>> provinces() {
+        List<Map<String, Object>> result = new ArrayList<>(provinceIds.length);
+        for (int i = 0; i < provinceIds.length; i++) {
+            Map<String, Object> province = new LinkedHashMap<>();
+            province.put("ProvinceID", provinceIds[i]);
+            province.put("ProvinceName", provinceNames[i]);
+            province.put("Code", provinceCodes[i]);
+            result.add(province);
+        }
+        return result;
+    }
+
+    /**
+     * Districts of a province in GHN master-data shape, or null if the province is unknown
+     */
+    List<Map<String, Object>> districts(int provinceId) {
+        int p = Arrays.binarySearch(provinceIds, provinceId);
+        if (p < 0) {
+            return null;
+        }
+        int from = provinceDistrictStart[p];
+        int to = provinceDistrictStart[p + 1];
+        List<Map<String, Object>> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Map<String, Object> district = new LinkedHashMap<>();
+            district.put("DistrictID", districtIds[i]);
+            district.put("ProvinceID", districtProvinceIds[i]);
+            district.put("DistrictName", districtNames[i]);
+            district.put("Code", districtCodes[i]);
+            result.add(district);
+        }
+        return result;
+    }
+
+    /**
+     * Wards of a district in GHN master-data shape, or null if the district is unknown
+     */
+    List<Map<String, Object>> wards(int districtId) {
+        int s = Arrays.binarySearch(districtIdsSorted, districtId);
+        if (s < 0) {
+            return null;
+        }
+        int d = districtIndexById[s];
+        int from = districtWardStart[d];
+        int to = districtWardStart[d + 1];
+        List<Map<String, Object>> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Map<String, Object> ward = new LinkedHashMap<>();
+            ward.put("WardCode", wardCodes[i]);
+            ward.put("DistrictID", wardDistrictIds[i]);
+            ward.put("WardName", wardNames[i]);
+            result.add(ward);
+        }
+        return result;
+    }
+
+    Integer districtIdOfWard(String wardCode) {
+        int s = Arrays.binarySearch(wardCodesSorted, wardCode);
+        return s >= 0 ? wardDistrictIds[wardIndexByCode[s]] : null;
+    }
+
+    List<ProvinceRow> provinceRows() {
+        List<ProvinceRow> rows = new ArrayList<>(provinceIds.length);
+        for (int i = 0; i < provinceIds.length; i++) {
+            rows.add(new ProvinceRow(provinceIds[i], provinceNames[i], provinceCodes[i]));
+        }
+        return rows;
+    }
+
+    List<DistrictRow> districtRows() {
+        List<DistrictRow> rows = new ArrayList<>(districtIds.length);
+        for (int i = 0; i < districtIds.length; i++) {
+            rows.add(new DistrictRow(districtIds[i], districtProvinceIds[i], districtNames[i], districtCodes[i]));
+        }
+        return rows;
+    }
+
+    List<WardRow> wardRows() {
+        List<WardRow> rows = new ArrayList<>(wardCodes.length);
+        for (int i = 0; i < wardCodes.length; i++) {
+            rows.add(new WardRow(wardCodes[i], wardDistrictIds[i], wardNames[i]));
+        }
+        return rows;
+    }
+
+    /**
+     * Number of entries added, removed or renamed compared with another dataset
+     */
+    Map<String, Integer> diff(GeographyDataset previous) {
+        Map<String, Integer> diff = new LinkedHashMap<>();
+        diff.put("provinces", countChanges(previous.provinceLines(), provinceLines()));
+        diff.put("districts", countChanges(previous.districtLines(), districtLines()));
+        diff.put("wards", countChanges(previous.wardLines(), wardLines()));
+        return diff;
+    }
+
+    private Set<String> provinceLines() {
+        Set<String> lines = new HashSet<>();
+        for (int i = 0; i < provinceIds.length; i++) {
+            lines.add(provinceIds[i] + "|" + provinceNames[i] + "|" + provinceCodes[i]);
+        }
+        return lines;
+    }
+
+    private Set<String> districtLines() {
+        Set<String> lines = new HashSet<>();
+        for (int i = 0; i < districtIds.length; i++) {
+            lines.add(districtIds[i] + "|" + districtProvinceIds[i] + "|" + districtNames[i] + "|" + districtCodes[i]);
+        }
+        return lines;
+    }
+
+    private Set<String> wardLines() {
+        Set<String> lines = new HashSet<>();
+        for (int i = 0; i < wardCodes.length; i++) {
+            lines.add(wardCodes[i] + "|" + wardDistrictIds[i] + "|" + wardNames[i]);
+        }
+        return lines;
+    }
+
+    private static int countChanges(Set<String> before, Set<String> after) {
+        int changes = 0;
+        for (String line : after) {
+            if (!before.contains(line)) {
+                changes++;
+            }
+        }
+        for (String line : before) {
+            if (!after.contains(line)) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private String hash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < provinceIds.length; i++) {
+                update(digest, "P|" + provinceIds[i] + "|" + provinceNames[i] + "|" + provinceCodes[i]);
+            }
+            for (int i = 0; i < districtIds.length; i++) {
+                update(digest, "D|" + districtIds[i] + "|" + districtProvinceIds[i] + "|" + districtNames[i] + "|" + districtCodes[i]);
+            }
+            for (int i = 0; i < wardCodes.length; i++) {
+                update(digest, "W|" + wardCodes[i] + "|" + wardDistrictIds[i] + "|" + wardNames[i]);
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String line) {
+        digest.update(line.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static <T> List<T> dedupe(List<T> rows, java.util.function.Function<T, String> key) {
+        Set<String> seen = new HashSet<>();
+        List<T> result = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (seen.add(key.apply(row))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.order.service;
+
+import com.example.order.entity.GeographySnapshot;
+import com.example.order.repository.GeographySnapshotRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import net.javacrumbs.shedlock.core.DefaultLockingTaskExecutor;
+import net.javacrumbs.shedlock.core.LockConfiguration;
+import net.javacrumbs.shedlock.core.LockProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local GHN province / district / ward dataset for address forms and shipping lookups.
+ *
+ * On startup the dataset is loaded from the last refresh snapshot on disk, or from the
+ * versioned copy bundled in the jar ({@code geography/ghn-master-data.json}, generated with
+ * {@code tools/export_ghn_master_data.py}). Readers never call GHN while a dataset is loaded.
+ *
+ * Refreshing runs on the {@code geographyRefreshExecutor} thread, never on the shared scheduler.
+ * Each tick first loads the dataset another replica stored in {@code geography_snapshot}, if its
+ * hash differs from ours. Then, once {@code refresh-interval-ms} has passed since the last
+ * successful pull recorded in that row, one replica pulls GHN master data under the
+ * {@code geographyRefresh} ShedLock lock. The lock is only held for a few minutes
+ * ({@code refresh-lock-min-ms}), so a failed or partial pull is retried on a later tick instead of
+ * blocking the cluster for a whole interval.
+ *
+ * GHN has no "changed since" API, so the pull is incremental by re-fetching the cheap levels:
+ * provinces and districts every time (about 65 calls), wards only for districts that are new or
+ * changed, plus a rotating 1/{@code ward-refresh-days} slice of the rest, chosen by day. Every
+ * district's wards are thus re-checked within {@code ward-refresh-days} days instead of 700+ calls
+ * per run.
+ */
+@Service
+public class GeographyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeographyService.class);
+
+    private static final String BUNDLED_DATASET = "geography/ghn-master-data.json";
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${ghn.api.token:}")
+    private String ghnToken;
+
+    @Value("${ghn.api.base-url:https://online-gateway.ghn.vn/shiip/public-api/v2}")
+    private String ghnBaseUrl;
+
+    @Autowired
+    private GeographySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private LockProvider lockProvider;
+
+    @Autowired
+    @Qualifier("geographyRefreshExecutor")
+    private ThreadPoolTaskExecutor refreshExecutor;
+
+    @Value("${order.geography.snapshot-file:${user.home}/.ecommerce/order-service/ghn-master-data.json}")
+    private String snapshotFile;
+
+    @Value("${order.geography.refresh-enabled:true}")
+    private boolean refreshEnabled;
+
+    @Value("${order.geography.refresh-interval-ms:86400000}")
+    private long refreshIntervalMs;
+
+    @Value("${order.geography.refresh-lock-min-ms:300000}")
+    private long refreshLockMinMs;
+
+    @Value("${order.geography.ward-refresh-days:7}")
+    private int wardRefreshDays;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    private Path snapshotPath;
+
+    private volatile GeographyDataset dataset = GeographyDataset.EMPTY;
+    private volatile String source = "none";
+    private volatile LocalDateTime loadedAt;
+    private volatile LocalDateTime lastRefreshAt;
+
+    @PostConstruct
+    public void load() {
+        snapshotPath = Paths.get(snapshotFile).toAbsolutePath().normalize();
+        logger.info("Geography snapshot file: {}", snapshotPath);
+        if (Files.isRegularFile(snapshotPath)) {
+            try (InputStream in = Files.newInputStream(snapshotPath)) {
+                swap(read(in), "snapshot:" + snapshotPath);
+                return;
+            } catch (Exception e) {
+                logger.warn("Failed to read geography snapshot {}: {}", snapshotPath, e.getMessage());
+            }
+        }
+
+        ClassPathResource bundled = new ClassPathResource(BUNDLED_DATASET);
+        if (bundled.exists()) {
+            try (InputStream in = bundled.getInputStream()) {
+                swap(read(in), "bundled");
+            } catch (Exception e) {
+                logger.warn("Failed to read bundled geography dataset: {}", e.getMessage());
+            }
+        }
+        if (dataset.isEmpty()) {
+            logger.warn("No geography dataset loaded, lookups go to GHN until a refresh succeeds; "
+                + "bundle one with tools/export_ghn_master_data.py");
+        }
+    }
+
+    /**
+     * Without a dataset, pull GHN right away instead of after the initial refresh delay
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshIfEmpty() {
+        if (dataset.isEmpty()) {
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * True when lookups can be answered locally
+     */
+    public boolean isLoaded() {
+        return !dataset.isEmpty();
+    }
+
+    /**
+     * ETag for geography responses; changes only when the data changes
+     */
+    public String getEtag() {
+        return "\"" + dataset.contentHash + "\"";
+    }
+
+    /**
+     * Provinces in GHN master-data shape, or null when no dataset is loaded
+     */
+    public List<Map<String, Object>> findProvinces() {
+        GeographyDataset current = dataset;
+        return current.isEmpty() ? null : current.provinces();
+    }
+
+    /**
+     * Districts of a province in GHN master-data shape, or null when the province is not known locally
+     */
+    public List<Map<String, Object>> findDistricts(Integer provinceId) {
+        return provinceId != null ? dataset.districts(provinceId) : null;
+    }
+
+    /**
+     * Wards of a district in GHN master-data shape, or null when the district is not known locally
+     */
+    public List<Map<String, Object>> findWards(Integer districtId) {
+        return districtId != null ? dataset.wards(districtId) : null;
+    }
+
+    /**
+     * GHN district id of a ward code, or null when the ward is not known locally
+     */
+    public Integer findDistrictIdByWardCode(String wardCode) {
+        return wardCode != null ? dataset.districtIdOfWard(wardCode) : null;
+    }
+
+    public Map<String, Object> getStatus() {
+        GeographyDataset current = dataset;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("version", current.version);
+        status.put("etag", current.contentHash);
+        status.put("source", source);
+        status.put("snapshotFile", snapshotPath != null ? snapshotPath.toString() : null);
+        status.put("provinces", current.provinceCount());
+        status.put("districts", current.districtCount());
+        status.put("wards", current.wardCount());
+        status.put("loadedAt", loadedAt != null ? loadedAt.toString() : null);
+        status.put("lastRefreshAt", lastRefreshAt != null ? lastRefreshAt.toString() : null);
+        return status;
+    }
+
+    /**
+     * Hand a refresh to the geography thread; skipped while the previous one is still queued or running
+     */
+    @Scheduled(initialDelayString = "${order.geography.initial-refresh-delay-ms:60000}",
+               fixedDelayString = "${order.geography.sync-interval-ms:900000}")
+    public void scheduleRefresh() {
+        if (!refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshQueued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshQueued.set(false);
+        }
+    }
+
+    /**
+     * Pick up the dataset stored by another replica, then pull GHN if this replica gets the lock
+     */
+    public void refresh() {
+        try {
+            syncFromStore();
+        } catch (Exception e) {
+            logger.warn("Failed to check stored geography dataset: {}", e.getMessage());
+        }
+
+        if (!refreshEnabled || ghnToken == null || ghnToken.isBlank() || ghnToken.equals("YOUR_TOKEN_HERE")) {
+            return;
+        }
+        if (!isRefreshDue()) {
+            return;
+        }
+        // Short hold: the cadence comes from refreshed_at, so a failed pull is retried on a later tick
+        Duration atLeast = Duration.ofMillis(refreshLockMinMs);
+        Duration atMost = atLeast.compareTo(Duration.ofHours(1)) > 0 ? atLeast : Duration.ofHours(1);
+        new DefaultLockingTaskExecutor(lockProvider).executeWithLock((Runnable) () -> {
+            // Another replica may have pulled while we waited for the lock
+            if (isRefreshDue()) {
+                refreshFromGhn();
+            }
+        }, new LockConfiguration(Instant.now(), "geographyRefresh", atMost, atLeast));
+    }
+
+    private boolean isRefreshDue() {
+        if (dataset.isEmpty()) {
+            return true;
+        }
+        try {
+            LocalDateTime refreshedAt = snapshotRepository.findRefreshedAt(GeographySnapshot.GHN);
+            return refreshedAt == null
+                || refreshedAt.plus(Duration.ofMillis(refreshIntervalMs)).isBefore(LocalDateTime.now());
+        } catch (Exception e) {
+            logger.warn("Failed to read last geography refresh time: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void syncFromStore() throws IOException {
+        String storedHash = snapshotRepository.findContentHash(GeographySnapshot.GHN);
+        if (storedHash == null || storedHash.equals(dataset.contentHash)) {
+            return;
+        }
+        GeographySnapshot stored = snapshotRepository.findById(GeographySnapshot.GHN).orElse(null);
+        if (stored == null) {
+            return;
+        }
+        GeographyDataset loaded = read(new ByteArrayInputStream(stored.getPayload().getBytes(StandardCharsets.UTF_8)));
+        if (loaded.isEmpty()) {
+            return;
+        }
+        swap(loaded, "store");
+        writeSnapshot(loaded);
+    }
+
+    private void refreshFromGhn() {
+        try {
+            GeographyDataset current = dataset;
+            GeographyDataset fresh = download(current);
+            lastRefreshAt = LocalDateTime.now();
+            if (fresh.isEmpty()) {
+                logger.warn("GHN returned no provinces, keeping geography dataset {}", current.version);
+                return;
+            }
+            if (fresh.contentHash.equals(current.contentHash)) {
+                logger.debug("Geography dataset unchanged ({})", current.version);
+                if (snapshotRepository.markRefreshed(GeographySnapshot.GHN, lastRefreshAt) == 0) {
+                    store(fresh); // first pull recorded for this dataset
+                }
+                return;
+            }
+
+            logger.info("Geography dataset changed, diff vs {}: {}", current.version, fresh.diff(current));
+            swap(fresh, "ghn");
+            store(fresh);
+            writeSnapshot(fresh);
+        } catch (Exception e) {
+            // Keep serving the current dataset; a partial download is never swapped in
+            logger.warn("Geography refresh from GHN failed: {}", e.getMessage());
+        }
+    }
+
+    private void swap(GeographyDataset next, String from) {
+        dataset = next;
+        source = from;
+        loadedAt = LocalDateTime.now();
+        logger.info("Loaded geography dataset {} from {}: {} provinces, {} districts, {} wards",
+            next.version, from, next.provinceCount(), next.districtCount(), next.wardCount());
+    }
+
+    private GeographyDataset download(GeographyDataset current) {
+        String masterDataUrl = ghnBaseUrl.replace("/v2", "") + "/master-data";
+
+        List<GeographyDataset.ProvinceRow> provinces = new ArrayList<>();
+        for (Map<String, Object> p : fetchList(masterDataUrl + "/province")) {
+            Integer id = asInt(p.get("ProvinceID"));
+            if (id != null) {
+                provinces.add(new GeographyDataset.ProvinceRow(id, asString(p.get("ProvinceName")), asString(p.get("Code"))));
+            }
+        }
+
+        List<GeographyDataset.DistrictRow> districts = new ArrayList<>();
+        for (GeographyDataset.ProvinceRow province : provinces) {
+            for (Map<String, Object> d : fetchList(masterDataUrl + "/district?province_id=" + province.id)) {
+                Integer id = asInt(d.get("DistrictID"));
+                if (id != null) {
+                    districts.add(new GeographyDataset.DistrictRow(id, province.id,
+                        asString(d.get("DistrictName")), asString(d.get("Code"))));
+                }
+            }
+        }
+
+        // Wards we already have, by district; reused for districts that are unchanged and not due
+        Map<Integer, GeographyDataset.DistrictRow> knownDistricts = new HashMap<>();
+        for (GeographyDataset.DistrictRow d : current.districtRows()) {
+            knownDistricts.put(d.id, d);
+        }
+        Map<Integer, List<GeographyDataset.WardRow>> knownWards = new HashMap<>();
+        for (GeographyDataset.WardRow w : current.wardRows()) {
+            knownWards.computeIfAbsent(w.districtId, k -> new ArrayList<>()).add(w);
+        }
+        int days = Math.max(1, wardRefreshDays);
+        long slice = Math.floorMod(LocalDate.now().toEpochDay(), days);
+
+        List<GeographyDataset.WardRow> wards = new ArrayList<>();
+        int fetched = 0;
+        for (GeographyDataset.DistrictRow district : districts) {
+            GeographyDataset.DistrictRow known = knownDistricts.get(district.id);
+            boolean unchanged = known != null && known.provinceId == district.provinceId
+                && Objects.equals(known.name, district.name) && Objects.equals(known.code, district.code);
+            if (unchanged && knownWards.containsKey(district.id) && Math.floorMod(district.id, days) != slice) {
+                wards.addAll(knownWards.get(district.id));
+                continue;
+            }
+            fetched++;
+            for (Map<String, Object> w : fetchList(masterDataUrl + "/ward?district_id=" + district.id)) {
+                String code = asString(w.get("WardCode"));
+                if (code != null) {
+                    wards.add(new GeographyDataset.WardRow(code, district.id, asString(w.get("WardName"))));
+                }
+            }
+        }
+        logger.info("Fetched GHN wards of {} of {} districts", fetched, districts.size());
+
+        return GeographyDataset.build(LocalDate.now().toString(), provinces, districts, wards);
+    }
+
+    private List<Map<String, Object>> fetchList(String url) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Token", ghnToken);
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+            url, HttpMethod.GET, new HttpEntity<>(headers),
+            new ParameterizedTypeReference<Map<String, Object>>() {});
+        Map<String, Object> body = response.getBody();
+        if (body == null) {
+            throw new IllegalStateException("Empty GHN response for " + url);
+        }
+        Object data = body.get("data");
+        if (data == null) {
+            // GHN answers null data for units without children
+            return List.of();
+        }
+        if (!(data instanceof List)) {
+            throw new IllegalStateException("Unexpected GHN response for " + url);
+        }
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> list = (List<Map<String, Object>>) data;
+        return list;
+    }
+
+    private GeographyDataset read(InputStream in) throws IOException {
+        JsonNode root = objectMapper.readTree(in);
+        List<GeographyDataset.ProvinceRow> provinces = new ArrayList<>();
+        for (JsonNode p : root.path("provinces")) {
+            provinces.add(new GeographyDataset.ProvinceRow(p.path("id").asInt(), text(p, "name"), text(p, "code")));
+        }
+        List<GeographyDataset.DistrictRow> districts = new ArrayList<>();
+        for (JsonNode d : root.path("districts")) {
+            districts.add(new GeographyDataset.DistrictRow(d.path("id").asInt(), d.path("provinceId").asInt(),
+                text(d, "name"), text(d, "code")));
+        }
+        List<GeographyDataset.WardRow> wards = new ArrayList<>();
+        for (JsonNode w : root.path("wards")) {
+            wards.add(new GeographyDataset.WardRow(text(w, "code"), w.path("districtId").asInt(), text(w, "name")));
+        }
+        return GeographyDataset.build(root.path("version").asText("unknown"), provinces, districts, wards);
+    }
+
+    private void store(GeographyDataset data) {
+        try {
+            GeographySnapshot snapshot = new GeographySnapshot();
+            snapshot.setId(GeographySnapshot.GHN);
+            snapshot.setVersion(data.version);
+            snapshot.setContentHash(data.contentHash);
+            snapshot.setPayload(objectMapper.writeValueAsString(toJson(data)));
+            snapshot.setUpdatedAt(LocalDateTime.now());
+            snapshot.setRefreshedAt(lastRefreshAt);
+            snapshotRepository.save(snapshot);
+        } catch (Exception e) {
+            logger.warn("Failed to store geography dataset {}: {}", data.version, e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(GeographyDataset data) {
+        try {
+            Files.createDirectories(snapshotPath.getParent());
+            Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), toJson(data));
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            logger.warn("Failed to write geography snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private ObjectNode toJson(GeographyDataset data) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("version", data.version);
+        root.put("source", "GHN master-data");
+
+        ArrayNode provinces = root.putArray("provinces");
+        for (GeographyDataset.ProvinceRow p : data.provinceRows()) {
+            provinces.addObject().put("id", p.id).put("name", p.name).put("code", p.code);
+        }
+        ArrayNode districts = root.putArray("districts");
+        for (GeographyDataset.DistrictRow d : data.districtRows()) {
+            districts.addObject().put("id", d.id).put("provinceId", d.provinceId).put("name", d.name).put("code", d.code);
+        }
+        ArrayNode wards = root.putArray("wards");
+        for (GeographyDataset.WardRow w : data.wardRows()) {
+            wards.addObject().put("code", w.code).put("districtId", w.districtId).put("name", w.name);
+        }
+        return root;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Integer asInt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
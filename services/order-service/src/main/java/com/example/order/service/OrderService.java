@@ -36,8 +36,14 @@ public class OrderService {
     @Autowired
     private com.example.order.repository.OrderItemRepository orderItemRepository;
     
+    @Autowired
+    private com.example.order.repository.UserPurchasedProductRepository userPurchasedProductRepository;
+
     @Autowired
     private RestTemplate restTemplate;
+
+    @Autowired
+    private com.example.shared.resilience.DependencyGuard dependencyGuard;
     
     @Value("${services.notification.base-url:http://localhost:8086}")
     private String notificationServiceUrl;
@@ -101,17 +107,34 @@ public class OrderService {
     /**
      * Get purchased product IDs for user (for review validation)
      */
+    @Transactional(readOnly = true)
     public List<String> getPurchasedProductIds(String userId) {
-        List<Order> completedOrders = orderRepository.findByUserIdAndStatusInWithOrderItems(
-            userId,
-            List.of(OrderStatus.DELIVERED, OrderStatus.COMPLETED)
-        );
+        return userPurchasedProductRepository.findProductIdsByUserId(userId);
+    }
 
-        return completedOrders.stream()
-            .flatMap(order -> order.getOrderItems().stream())
+    /**
+     * Check if user has purchased a product (single indexed lookup on user_purchased_products)
+     */
+    @Transactional(readOnly = true)
+    public boolean hasPurchasedProduct(String userId, String productId) {
+        return userPurchasedProductRepository.existsByUserIdAndProductId(userId, productId);
+    }
+
+    /**
+     * Record the order's products in the user_purchased_products projection.
+     * Called when an order becomes DELIVERED or COMPLETED; existing pairs are kept as is.
+     */
+    private void recordPurchasedProducts(Order order) {
+        if (order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
+            return;
+        }
+        java.time.LocalDateTime purchasedAt = order.getDeliveredDate() != null
+            ? order.getDeliveredDate()
+            : java.time.LocalDateTime.now();
+        order.getOrderItems().stream()
             .map(item -> item.getProductId())
             .distinct()
-            .collect(java.util.stream.Collectors.toList());
+            .forEach(productId -> userPurchasedProductRepository.insertIfAbsent(order.getUserId(), productId, purchasedAt));
     }
 
     /**
@@ -136,7 +159,10 @@ public class OrderService {
                 }
             }
 
-            // Step 0: Handle voucher if provided
+            // Step 0: Re-price items from live product data (cart prices may be stale or client-supplied)
+            repriceItems(order);
+
+            // Handle voucher if provided
             if (order.getVoucherCode() != null && !order.getVoucherCode().isBlank()) {
                 processVoucher(order);
             }
@@ -170,6 +196,63 @@ public class OrderService {
         }
     }
     
+    /**
+     * Re-price order items from product-service and recompute subtotal, tax and total.
+     * 
+     * A submitted unit price is kept only if it equals a current price of the product (its price,
+     * sale price or one of its active variants' prices); otherwise the current product price is used.
+     * Only live product data is used here, never the cached fallback: if product-service cannot be
+     * reached the order is rejected rather than placed at a price that may be outdated.
+     */
+    private void repriceItems(Order order) {
+        java.math.BigDecimal subtotal = java.math.BigDecimal.ZERO;
+        for (com.example.order.entity.OrderItem item : order.getOrderItems()) {
+            String url = productServiceUrl + "/api/products/" + item.getProductId();
+            org.springframework.http.HttpEntity<String> entity = new org.springframework.http.HttpEntity<>(createServiceHeaders());
+            org.springframework.core.ParameterizedTypeReference<Map<String, Object>> typeRef =
+                new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {};
+            Map<String, Object> product = dependencyGuard.callIdempotent("product-service",
+                () -> restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, typeRef)).getBody();
+            if (product == null || product.get("price") == null) {
+                throw new RuntimeException("Product " + item.getProductId() + " is not available");
+            }
+
+            java.math.BigDecimal current = product.get("salePrice") != null
+                ? new java.math.BigDecimal(product.get("salePrice").toString())
+                : new java.math.BigDecimal(product.get("price").toString());
+            java.util.List<java.math.BigDecimal> accepted = new java.util.ArrayList<>();
+            accepted.add(current);
+            accepted.add(new java.math.BigDecimal(product.get("price").toString()));
+            if (product.get("variants") instanceof List) {
+                for (Object variant : (List<?>) product.get("variants")) {
+                    if (variant instanceof Map && ((Map<?, ?>) variant).get("price") != null
+                            && !Boolean.FALSE.equals(((Map<?, ?>) variant).get("isActive"))) {
+                        accepted.add(new java.math.BigDecimal(((Map<?, ?>) variant).get("price").toString()));
+                    }
+                }
+            }
+
+            java.math.BigDecimal submitted = item.getUnitPrice();
+            boolean matches = submitted != null && accepted.stream().anyMatch(price -> price.compareTo(submitted) == 0);
+            if (!matches) {
+                logger.warn("Re-pricing {} in order {}: submitted {}, current {}",
+                    item.getProductId(), order.getOrderNumber(), submitted, current);
+                item.setUnitPrice(current);
+            }
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            java.math.BigDecimal itemTotal = item.getUnitPrice().multiply(java.math.BigDecimal.valueOf(quantity));
+            item.setTotalPrice(itemTotal);
+            subtotal = subtotal.add(itemTotal);
+        }
+
+        java.math.BigDecimal tax = subtotal.multiply(new java.math.BigDecimal("0.1"));
+        java.math.BigDecimal shipping = order.getShippingFee() != null ? order.getShippingFee() : java.math.BigDecimal.ZERO;
+        order.setSubtotal(subtotal);
+        order.setTaxAmount(tax);
+        order.setTotalAmount(subtotal.add(tax).add(shipping)
+            .subtract(order.getDiscountAmount() != null ? order.getDiscountAmount() : java.math.BigDecimal.ZERO));
+    }
+
     /**
      * Create HTTP headers with Basic Auth for inter-service communication
      */
@@ -207,7 +290,8 @@ public class OrderService {
                     new org.springframework.http.HttpEntity<>(request, headers);
                 
                 @SuppressWarnings({"rawtypes"})
-                org.springframework.http.ResponseEntity response = restTemplate.postForEntity(url, entity, Map.class);
+                org.springframework.http.ResponseEntity response = dependencyGuard.call("inventory-service",
+                    () -> restTemplate.postForEntity(url, entity, Map.class));
                 Object responseBody = response.getBody();
                 if (!response.getStatusCode().is2xxSuccessful() || !(responseBody instanceof Map) ||
                     !Boolean.TRUE.equals(((Map<?, ?>) responseBody).get("success"))) {
@@ -230,7 +314,8 @@ public class OrderService {
                         new org.springframework.http.HttpEntity<>(request, headers);
 
                     @SuppressWarnings({"rawtypes"})
-                    org.springframework.http.ResponseEntity resp = restTemplate.postForEntity(url, entity, Map.class);
+                    org.springframework.http.ResponseEntity resp = dependencyGuard.call("inventory-service",
+                        () -> restTemplate.postForEntity(url, entity, Map.class));
                     Object respBody = resp.getBody();
                     if (!resp.getStatusCode().is2xxSuccessful() || !(respBody instanceof Map) ||
                         !Boolean.TRUE.equals(((Map<?, ?>) respBody).get("success"))) {
@@ -301,8 +386,10 @@ public class OrderService {
     
     /**
      * Rollback inventory reservation
-     * Made public so it can be called from scheduled tasks and other services
+     * Made public so it can be called from scheduled tasks and other services.
+     * Runs outside any transaction so the HTTP call does not pin a DB connection.
      */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED)
     public void rollbackInventoryForOrder(Order order) {
         rollbackInventory(order);
     }
@@ -333,7 +420,7 @@ public class OrderService {
 
                 org.springframework.http.HttpEntity<Map<String, Object>> entity = 
                     new org.springframework.http.HttpEntity<>(request, headers);
-                restTemplate.postForEntity(url, entity, Map.class);
+                dependencyGuard.call("inventory-service", () -> restTemplate.postForEntity(url, entity, Map.class));
             } else {
                 // Use single item release for single item orders
                 String url = inventoryServiceUrl + "/api/inventory/release";
@@ -346,7 +433,7 @@ public class OrderService {
 
                     org.springframework.http.HttpEntity<Map<String, Object>> entity = 
                         new org.springframework.http.HttpEntity<>(singleRequest, headers);
-                    restTemplate.postForEntity(url, entity, Map.class);
+                    dependencyGuard.call("inventory-service", () -> restTemplate.postForEntity(url, entity, Map.class));
                 }
             }
 
@@ -383,7 +470,7 @@ public class OrderService {
 
                 org.springframework.http.HttpEntity<Map<String, Object>> entity = 
                     new org.springframework.http.HttpEntity<>(request, headers);
-                restTemplate.postForEntity(url, entity, Map.class);
+                dependencyGuard.call("inventory-service", () -> restTemplate.postForEntity(url, entity, Map.class));
             } else {
                 // Use single item confirm for single item orders
                 String url = inventoryServiceUrl + "/api/inventory/confirm";
@@ -396,7 +483,7 @@ public class OrderService {
 
                     org.springframework.http.HttpEntity<Map<String, Object>> entity = 
                         new org.springframework.http.HttpEntity<>(request, headers);
-                    restTemplate.postForEntity(url, entity, Map.class);
+                    dependencyGuard.call("inventory-service", () -> restTemplate.postForEntity(url, entity, Map.class));
                 }
             }
 
@@ -424,7 +511,7 @@ public class OrderService {
             // Use async execution to avoid blocking order creation
             // Set a short timeout (2 seconds) so it doesn't block order creation
             try {
-                restTemplate.postForEntity(url, notification, Map.class);
+                dependencyGuard.call("notification-service", () -> restTemplate.postForEntity(url, notification, Map.class));
                 logger.info("Order notification sent for order: {}", order.getOrderNumber());
             } catch (org.springframework.web.client.ResourceAccessException e) {
                 // Timeout or connection error - log but don't fail
@@ -456,7 +543,7 @@ public class OrderService {
                 notification.put("trackingNumber", order.getTrackingNumber());
             }
             
-            restTemplate.postForEntity(url, notification, Map.class);
+            dependencyGuard.call("notification-service", () -> restTemplate.postForEntity(url, notification, Map.class));
             logger.info("Order status change notification sent for order: {} ({} -> {})", 
                 order.getOrderNumber(), oldStatus, newStatus);
         } catch (Exception e) {
@@ -476,6 +563,11 @@ public class OrderService {
     @CacheEvict(value = "orders", key = "#order.id")
     public Order updateStatus(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
         Order updatedOrder = orderRepository.save(order);
+
+        // Keep the purchased-products projection in sync for review verification
+        if (newStatus == OrderStatus.DELIVERED || newStatus == OrderStatus.COMPLETED) {
+            recordPurchasedProducts(updatedOrder);
+        }
         
         // Send notification if status changed
         if (!oldStatus.equals(newStatus)) {
@@ -545,10 +637,11 @@ public class OrderService {
             validationRequest.put("items", items);
 
             @SuppressWarnings({"rawtypes"})
-            org.springframework.http.ResponseEntity validateResp = restTemplate.postForEntity(
-                voucherServiceUrl + "/api/vouchers/validate",
-                validationRequest,
-                Map.class);
+            org.springframework.http.ResponseEntity validateResp = dependencyGuard.callIdempotent("voucher-service",
+                () -> restTemplate.postForEntity(
+                    voucherServiceUrl + "/api/vouchers/validate",
+                    validationRequest,
+                    Map.class));
 
             Object validateBodyObj = validateResp.getBody();
             if (!validateResp.getStatusCode().is2xxSuccessful() || !(validateBodyObj instanceof Map)) {
@@ -609,12 +702,15 @@ public class OrderService {
             usageRequest.put("originalAmount", originalAmount);
             usageRequest.put("discountAmount", discountAmount);
             usageRequest.put("finalAmount", finalAmount);
+            // Same items as validated, so scoped vouchers pass the redemption re-check
+            usageRequest.put("items", items);
 
             @SuppressWarnings({"rawtypes"})
-            org.springframework.http.ResponseEntity usageResp = restTemplate.postForEntity(
-                voucherServiceUrl + "/api/vouchers/usage",
-                usageRequest,
-                Map.class);
+            org.springframework.http.ResponseEntity usageResp = dependencyGuard.call("voucher-service",
+                () -> restTemplate.postForEntity(
+                    voucherServiceUrl + "/api/vouchers/usage",
+                    usageRequest,
+                    Map.class));
 
             if (!usageResp.getStatusCode().is2xxSuccessful()) {
                 throw new RuntimeException("Failed to record voucher usage, status: " + usageResp.getStatusCode());
@@ -645,8 +741,11 @@ public class OrderService {
             
             org.springframework.core.ParameterizedTypeReference<Map<String, Object>> typeRef =
                 new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {};
-            org.springframework.http.ResponseEntity<Map<String, Object>> resp =
-                restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, typeRef);
+            // Category/brand rarely change: serve the last known metadata while product-service is down
+            org.springframework.http.ResponseEntity<Map<String, Object>> resp = dependencyGuard.callWithCachedFallback(
+                "product-service", url,
+                () -> restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, typeRef),
+                e -> { throw e; });
             
             if (resp.getStatusCode().is2xxSuccessful()) {
                 Map<String, Object> body = resp.getBody();
@@ -690,7 +789,7 @@ public class OrderService {
 
 					@SuppressWarnings({"rawtypes"})
 					org.springframework.http.ResponseEntity<Map> resp =
-							restTemplate.postForEntity(url, request, Map.class);
+							dependencyGuard.call("payment-service", () -> restTemplate.postForEntity(url, request, Map.class));
 
 					Object responseBody = resp.getBody();
 					boolean refundSuccess = responseBody instanceof Map &&
@@ -743,6 +842,30 @@ public class OrderService {
         });
     }
 
+    /**
+     * Delete one chunk of timed-out orders in a single transaction.
+     * Orders are loaded with their items (one JOIN FETCH) and the timeout condition is
+     * re-checked, so an order whose payment completed meanwhile is not removed.
+     * Returns the deleted orders (items initialized) for inventory rollback after commit.
+     */
+    @CacheEvict(value = "orders", allEntries = true)
+    @Transactional
+    public List<Order> deleteTimeoutOrders(List<Long> orderIds, java.time.LocalDateTime createdBefore) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Order> orders = orderRepository.findTimeoutOrdersWithOrderItems(
+            orderIds,
+            OrderStatus.PROCESSING,
+            com.example.order.entity.PaymentStatus.PROCESSING,
+            createdBefore
+        );
+        if (!orders.isEmpty()) {
+            orderRepository.deleteAll(orders);
+        }
+        return orders;
+    }
+
     /**
      * Get top selling products based on completed orders
      */
@@ -791,8 +914,8 @@ public class OrderService {
                         org.springframework.http.HttpEntity<String> entity = new org.springframework.http.HttpEntity<>(headers);
                         
                         @SuppressWarnings("rawtypes")
-                        org.springframework.http.ResponseEntity<Map> response = restTemplate.exchange(
-                            url, org.springframework.http.HttpMethod.GET, entity, Map.class);
+                        org.springframework.http.ResponseEntity<Map> response = dependencyGuard.callIdempotent("product-service",
+                            () -> restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, Map.class));
                         
                         if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                             Map<?, ?> product = response.getBody();
@@ -845,8 +968,8 @@ public class OrderService {
                     org.springframework.http.HttpEntity<String> entity = new org.springframework.http.HttpEntity<>(headers);
                     
                     @SuppressWarnings("rawtypes")
-                    org.springframework.http.ResponseEntity<Map> response = restTemplate.exchange(
-                        url, org.springframework.http.HttpMethod.GET, entity, Map.class);
+                    org.springframework.http.ResponseEntity<Map> response = dependencyGuard.callIdempotent("category-service",
+                        () -> restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, Map.class));
                     
                     if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                         Map<?, ?> category = response.getBody();
@@ -0,0 +1,195 @@
+package com.example.order.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache for GHN shipping fee quotes.
+ *
+ * Quotes are keyed on the normalized route and the exact parcel weight in whole grams (the
+ * unit GHN quotes in), so a cached quote is always the fee GHN gives for that weight. A quote is fresh for
+ * {@code shipping.quote-cache.ttl-seconds}; after that it is kept as the last known quote
+ * for up to {@code stale-ttl-seconds}. Concurrent requests for the same key share one GHN
+ * call. When GHN fails, or is slower than {@code slow-call-ms} and a last known quote
+ * exists, the last known quote is returned and the call finishes in the background.
+ */
+@Component
+public class ShippingQuoteCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShippingQuoteCache.class);
+
+    @Autowired
+    @Qualifier("shippingQuoteExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${shipping.quote-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${shipping.quote-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${shipping.quote-cache.stale-ttl-seconds:86400}")
+    private long staleTtlSeconds;
+
+    @Value("${shipping.quote-cache.slow-call-ms:1500}")
+    private long slowCallMs;
+
+    @Value("${shipping.quote-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final Object quote;
+        final long storedAt;
+
+        Entry(Object quote, long storedAt) {
+            this.quote = quote;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * Weight (grams) as quoted by GHN: whole grams, at least 1; quotes are fetched and keyed on it
+     */
+    public int quoteWeight(double weightGrams) {
+        return Math.max(1, (int) Math.ceil(weightGrams));
+    }
+
+    /**
+     * Normalized cache key for a route
+     */
+    public String key(String provider, Integer fromDistrictId, String fromWardCode,
+                      Integer toDistrictId, String toWardCode, int weightGrams, Integer insuranceValue) {
+        return provider + "|" + fromDistrictId + "|" + normalize(fromWardCode)
+            + "|" + toDistrictId + "|" + normalize(toWardCode)
+            + "|" + weightGrams + "|" + (insuranceValue != null ? insuranceValue : 0);
+    }
+
+    /**
+     * Get a quote from the cache, or load it once for all concurrent callers.
+     *
+     * @param valid results failing this check (e.g. default fees) are not cached
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader, Predicate<T> valid) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        long now = System.currentTimeMillis();
+        Entry cached = lookup(key);
+        if (cached != null && now - cached.storedAt < ttlSeconds * 1000) {
+            return (T) cached.quote;
+        }
+        Entry stale = cached != null && now - cached.storedAt < staleTtlSeconds * 1000 ? cached : null;
+
+        CompletableFuture<Object> flight = inFlight.get(key);
+        if (flight == null) {
+            CompletableFuture<Object> created = new CompletableFuture<>();
+            flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                flight = created;
+                launch(key, created, loader, valid);
+            }
+        }
+        try {
+            Object result = stale != null
+                ? flight.get(slowCallMs, TimeUnit.MILLISECONDS)
+                : flight.get();
+            if (result != null && valid.test((T) result)) {
+                return (T) result;
+            }
+            if (stale != null) {
+                logger.debug("GHN quote for {} unavailable, using last known quote", key);
+                return (T) stale.quote;
+            }
+            return (T) result;
+        } catch (TimeoutException e) {
+            logger.debug("GHN quote for {} is slow, using last known quote", key);
+            return (T) stale.quote;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (stale != null) {
+                return (T) stale.quote;
+            }
+            throw new IllegalStateException("Interrupted while waiting for shipping quote", e);
+        } catch (ExecutionException e) {
+            if (stale != null) {
+                logger.debug("GHN quote for {} failed, using last known quote: {}", key, e.getCause().getMessage());
+                return (T) stale.quote;
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private <T> void launch(String key, CompletableFuture<Object> flight, Supplier<T> loader, Predicate<T> valid) {
+        Runnable task = () -> {
+            try {
+                T result = loader.get();
+                if (result != null && valid.test(result)) {
+                    store(key, result);
+                }
+                flight.complete(result);
+            } catch (Throwable t) {
+                flight.completeExceptionally(t);
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Pool saturated: run on the caller thread, the other callers still join this flight
+            task.run();
+        }
+    }
+
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void store(String key, Object quote) {
+        synchronized (entries) {
+            entries.put(key, new Entry(quote, System.currentTimeMillis()));
+            if (entries.size() > maxEntries) {
+                String eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+            }
+        }
+    }
+
+    private static String normalize(String code) {
+        return code != null ? code.trim().toUpperCase() : "";
+    }
+}
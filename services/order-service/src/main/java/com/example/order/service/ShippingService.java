@@ -7,12 +7,12 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.client.RestTemplate;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,20 +35,25 @@ public class ShippingService {
         return "2025-07-01";
     }
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private RestTemplate restTemplate;
 
     @Value("${ghn.api.mock-create-order:false}")
     private boolean mockCreateOrder;
 
-    private final Map<String, Integer> wardDistrictCache = new ConcurrentHashMap<>();
-
+    @Autowired
+    private GeographyService geographyService;
 
+    @Autowired
+    private ShippingQuoteCache shippingQuoteCache;
 
     @SuppressWarnings("unused")
     private Integer getDistrictIdByWardCode(String wardCode) {
-        if (wardDistrictCache.containsKey(wardCode)) {
-            return wardDistrictCache.get(wardCode);
+        Integer local = geographyService.findDistrictIdByWardCode(wardCode);
+        if (local != null) {
+            return local;
         }
+        // Ward not in the local dataset yet (new unit or no dataset loaded): ask GHN directly
         String ghnWardUrl = ghnBaseUrl.replace("/v2", "") + "/master-data/ward?ward_code=" + wardCode;
         HttpHeaders headers = createHeaders();
         HttpEntity<Void> request = new HttpEntity<>(headers);
@@ -58,9 +63,7 @@ public class ShippingService {
             @SuppressWarnings("unchecked")
             Map<String, Object> data = (Map<String, Object>) responseBody.get("data");
             if (data != null && data.get("DistrictID") != null) {
-                Integer districtId = ((Number) data.get("DistrictID")).intValue();
-                wardDistrictCache.put(wardCode, districtId);
-                return districtId;
+                return ((Number) data.get("DistrictID")).intValue();
             }
         }
         throw new RuntimeException("Không tìm thấy district_id cho ward_code: " + wardCode);
@@ -75,10 +78,25 @@ public class ShippingService {
         }
     }
 
+    /**
+     * GHN fee for a route, served from the quote cache
+     */
     public ShippingResult calculateGhnShippingFee(
         Integer fromDistrictId, String fromWardCode,
         Integer toDistrictId, String toWardCode,
         double weight
+    ) {
+        int quoteWeight = shippingQuoteCache.quoteWeight(weight);
+        String key = shippingQuoteCache.key("ghn-v2", fromDistrictId, fromWardCode, toDistrictId, toWardCode, quoteWeight, 0);
+        return shippingQuoteCache.get(key,
+            () -> fetchGhnShippingFee(fromDistrictId, fromWardCode, toDistrictId, toWardCode, quoteWeight),
+            result -> result.fee >= 0);
+    }
+
+    private ShippingResult fetchGhnShippingFee(
+        Integer fromDistrictId, String fromWardCode,
+        Integer toDistrictId, String toWardCode,
+        double weight
     ) {
         try {
             // Log chi tiết payload gửi sang GHN
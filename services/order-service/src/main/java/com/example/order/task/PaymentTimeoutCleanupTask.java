@@ -5,95 +5,144 @@ import com.example.order.entity.OrderStatus;
 import com.example.order.entity.PaymentStatus;
 import com.example.order.repository.OrderRepository;
 import com.example.order.service.OrderService;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Scheduled task to cleanup orders that are stuck in PROCESSING status
  * (e.g., user started payment but never completed it)
- * 
+ *
  * This task runs every 10 minutes and cancels orders that have been in PROCESSING
  * status for more than 30 minutes, releasing reserved inventory.
+ *
+ * The sweep walks the timed-out orders in keyset pages (id ascending). Each chunk is
+ * deleted in its own short transaction, then inventory is released for the deleted
+ * orders with a bounded number of parallel calls. A ShedLock lock makes sure only one
+ * order-service replica runs the sweep at a time.
  */
 @Component
 public class PaymentTimeoutCleanupTask {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentTimeoutCleanupTask.class);
-    
+
     // Timeout: 30 minutes
     private static final int PAYMENT_TIMEOUT_MINUTES = 30;
-    
+
     @Autowired
     private OrderRepository orderRepository;
-    
+
     @Autowired
     private OrderService orderService;
-    
+
+    @Autowired
+    @Qualifier("inventoryRollbackExecutor")
+    private ThreadPoolTaskExecutor rollbackExecutor;
+
+    @Value("${order.cleanup.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${order.cleanup.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
     /**
      * Cleanup orders that are stuck in PROCESSING status
      * Runs every 10 minutes
      */
     @Scheduled(fixedRate = 600000) // 10 minutes = 600000 milliseconds
-    @Transactional
+    @SchedulerLock(name = "paymentTimeoutCleanup", lockAtMostFor = "PT9M", lockAtLeastFor = "PT1M")
     public void cleanupTimeoutOrders() {
         try {
             LocalDateTime timeoutThreshold = LocalDateTime.now().minusMinutes(PAYMENT_TIMEOUT_MINUTES);
-            
-            // Find orders that are in PROCESSING status and created more than 30 minutes ago
-            // We need to load order items for inventory rollback
-            List<Order> timeoutOrders = orderRepository.findByStatusAndPaymentStatusAndCreatedAtBefore(
-                OrderStatus.PROCESSING,
-                PaymentStatus.PROCESSING,
-                timeoutThreshold
-            );
-            
-            if (timeoutOrders.isEmpty()) {
+            int pageSize = Math.max(1, chunkSize);
+
+            long lastId = 0L;
+            int chunks = 0;
+            int processed = 0;
+
+            while (chunks < maxChunksPerRun) {
+                // Keyset page: only ids, so the scan stays on the index and no rows are locked
+                List<Long> ids = orderRepository.findTimeoutOrderIdsAfter(
+                    OrderStatus.PROCESSING,
+                    PaymentStatus.PROCESSING,
+                    timeoutThreshold,
+                    lastId,
+                    PageRequest.of(0, pageSize)
+                );
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                chunks++;
+
+                processed += cleanupChunk(ids, timeoutThreshold);
+
+                if (ids.size() < pageSize) {
+                    break;
+                }
+            }
+
+            if (processed == 0) {
                 logger.debug("No timeout orders found for cleanup");
                 return;
             }
-            
-            logger.info("Found {} orders stuck in PROCESSING status, cleaning up...", timeoutOrders.size());
-            
-            for (Order order : timeoutOrders) {
-                try {
-                    logger.warn("Cleaning up timeout order: {} (created at: {})", 
-                        order.getOrderNumber(), order.getCreatedAt());
-                    
-                    // Load order items if not already loaded (for inventory rollback)
-                    if (order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
-                        // Try to load order with items
-                        orderRepository.findByIdWithOrderItems(order.getId()).ifPresent(loadedOrder -> {
-                            order.setOrderItems(loadedOrder.getOrderItems());
-                        });
-                    }
-                    
-                    // Rollback inventory reservation
-                    if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
-                        orderService.rollbackInventoryForOrder(order);
-                    }
-                    
-                    // Delete the order (since payment was never completed)
-                    orderService.deleteOrder(order.getId());
-                    
-                    logger.info("Successfully cleaned up timeout order: {}", order.getOrderNumber());
-                } catch (Exception e) {
-                    logger.error("Failed to cleanup timeout order {}: {}", 
-                        order.getOrderNumber(), e.getMessage(), e);
-                    // Continue with next order
-                }
+            if (chunks >= maxChunksPerRun) {
+                logger.warn("Payment timeout cleanup stopped after {} chunks, remaining orders will be handled next run", chunks);
             }
-            
-            logger.info("Payment timeout cleanup completed. Processed {} orders", timeoutOrders.size());
+
+            logger.info("Payment timeout cleanup completed. Processed {} orders in {} chunks", processed, chunks);
         } catch (Exception e) {
             logger.error("Error in payment timeout cleanup task: {}", e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Delete one chunk (own transaction) and release its inventory after commit.
+     * Deleting first means a late payment callback can no longer confirm an order
+     * whose reservation has already been released.
+     */
+    private int cleanupChunk(List<Long> ids, LocalDateTime timeoutThreshold) {
+        List<Order> deletedOrders;
+        try {
+            deletedOrders = orderService.deleteTimeoutOrders(ids, timeoutThreshold);
+        } catch (Exception e) {
+            logger.error("Failed to cleanup timeout order chunk {}..{}: {}",
+                ids.get(0), ids.get(ids.size() - 1), e.getMessage(), e);
+            return 0;
+        }
+
+        if (deletedOrders.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<Void>> rollbacks = deletedOrders.stream()
+            .filter(order -> order.getOrderItems() != null && !order.getOrderItems().isEmpty())
+            .map(order -> CompletableFuture.runAsync(() -> {
+                logger.warn("Cleaning up timeout order: {} (created at: {})",
+                    order.getOrderNumber(), order.getCreatedAt());
+                orderService.rollbackInventoryForOrder(order);
+            }, rollbackExecutor).exceptionally(ex -> {
+                logger.error("Failed to rollback inventory for timeout order {}: {}",
+                    order.getOrderNumber(), ex.getMessage());
+                return null;
+            }))
+            .toList();
+
+        // Wait for the chunk so the number of in-flight calls stays bounded by the pool size
+        CompletableFuture.allOf(rollbacks.toArray(new CompletableFuture[0])).join();
+
+        logger.info("Cleaned up {} timeout orders", deletedOrders.size());
+        return deletedOrders.size();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.order.task;
+
+import com.example.order.repository.UserPurchasedProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills user_purchased_products from existing delivered/completed orders on startup,
+ * so purchases made before the projection existed are still verified.
+ * The insert is idempotent (INSERT IGNORE), so running it on every startup is safe.
+ */
+@Component
+public class PurchasedProductsBackfillTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(PurchasedProductsBackfillTask.class);
+
+    @Autowired
+    private UserPurchasedProductRepository userPurchasedProductRepository;
+
+    @Value("${order.purchased-products.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            int inserted = userPurchasedProductRepository.backfillFromOrders();
+            logger.info("Purchased products backfill completed, {} new rows", inserted);
+        } catch (Exception e) {
+            logger.error("Purchased products backfill failed: {}", e.getMessage(), e);
+        }
+    }
+}
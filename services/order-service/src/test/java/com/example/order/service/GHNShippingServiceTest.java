@@ -0,0 +1,127 @@
+package com.example.order.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Fee quotes against a mock GHN: exact weights, cache hits and last-known-quote fallback
+ */
+class GHNShippingServiceTest {
+
+    private static final String BASE_URL = "http://ghn.test/shiip/public-api";
+    private static final String FEE_URL = BASE_URL + "/v2/shipping-order/fee";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer ghn;
+    private ThreadPoolTaskExecutor executor;
+    private ShippingQuoteCache quoteCache;
+    private GHNShippingService shippingService;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        ghn = MockRestServiceServer.bindTo(restTemplate).build();
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+
+        quoteCache = new ShippingQuoteCache();
+        ReflectionTestUtils.setField(quoteCache, "executor", executor);
+        ReflectionTestUtils.setField(quoteCache, "enabled", true);
+        ReflectionTestUtils.setField(quoteCache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(quoteCache, "staleTtlSeconds", 86400L);
+        ReflectionTestUtils.setField(quoteCache, "slowCallMs", 1500L);
+        ReflectionTestUtils.setField(quoteCache, "maxEntries", 100);
+
+        shippingService = new GHNShippingService();
+        ReflectionTestUtils.setField(shippingService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(shippingService, "shippingQuoteCache", quoteCache);
+        ReflectionTestUtils.setField(shippingService, "ghnToken", "test-token");
+        ReflectionTestUtils.setField(shippingService, "ghnShopId", "1001");
+        ReflectionTestUtils.setField(shippingService, "ghnBaseUrl", BASE_URL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void quotesTheExactWeightAndCachesPerWeight() {
+        expectFee(1234, 32000);
+        expectFee(1300, 33000);
+
+        assertEquals(32000, fee(1234));
+        assertEquals(32000, fee(1234)); // cached, no second GHN call
+        assertEquals(33000, fee(1300)); // different weight, quoted separately
+
+        ghn.verify();
+        assertEquals(2, quoteCache.size());
+    }
+
+    @Test
+    void fractionalWeightsAreQuotedInWholeGrams() {
+        assertEquals(501, quoteCache.quoteWeight(500.2));
+        assertEquals(500, quoteCache.quoteWeight(500));
+        assertEquals(1, quoteCache.quoteWeight(0));
+    }
+
+    @Test
+    void ghnFailureFallsBackToLastKnownQuote() {
+        ReflectionTestUtils.setField(quoteCache, "ttlSeconds", 0L); // every entry is stale at once
+        expectFee(800, 31000);
+        ghn.expect(ExpectedCount.once(), requestTo(FEE_URL)).andRespond(withServerError());
+
+        assertEquals(31000, fee(800));
+        Map<String, Object> fallback = shippingService.calculateShippingFee(1442, "20109", 1443, "20211", 800, 0);
+
+        assertEquals(31000, fallback.get("fee"));
+        assertEquals(false, fallback.get("usingDefault"));
+        ghn.verify();
+    }
+
+    @Test
+    void defaultFeeIsNotCached() {
+        ghn.expect(ExpectedCount.once(), requestTo(FEE_URL)).andRespond(withServerError());
+        expectFee(900, 31500);
+
+        Map<String, Object> first = shippingService.calculateShippingFee(1442, "20109", 1443, "20211", 900, 0);
+        assertEquals(true, first.get("usingDefault"));
+        assertEquals(31500, fee(900)); // asks GHN again instead of serving the default
+
+        ghn.verify();
+    }
+
+    private void expectFee(int weight, int total) {
+        ghn.expect(ExpectedCount.once(), requestTo(FEE_URL))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(header("Token", "test-token"))
+            .andExpect(jsonPath("$.weight").value(weight))
+            .andRespond(withSuccess("{\"code\":200,\"message\":\"Success\",\"data\":{\"total\":" + total + "}}",
+                MediaType.APPLICATION_JSON));
+    }
+
+    private Object fee(int weight) {
+        Map<String, Object> result = shippingService.calculateShippingFee(1442, "20109", 1443, "20211", weight, 0);
+        return result.get("fee");
+    }
+}
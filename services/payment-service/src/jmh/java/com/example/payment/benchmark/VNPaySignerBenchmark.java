@@ -0,0 +1,141 @@
+package com.example.payment.benchmark;
+
+import com.example.payment.service.VNPaySigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature paths of VNPayService: signing a payment URL (createPaymentUrl) and verifying
+ * a callback (processCallback), against the previous per-call Mac / URLEncoder implementation.
+ *
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class VNPaySignerBenchmark {
+
+    private static final String SECRET = "BENCHMARKSECRETKEY0123456789ABCD";
+
+    private final VNPaySigner signer = new VNPaySigner();
+
+    private Map<String, String> paymentParams;
+    private Map<String, String> callbackParams;
+    private String callbackHash;
+
+    @Setup
+    public void setup() {
+        paymentParams = new TreeMap<>();
+        paymentParams.put("vnp_Version", "2.1.0");
+        paymentParams.put("vnp_Command", "pay");
+        paymentParams.put("vnp_TmnCode", "DEMOTMN1");
+        paymentParams.put("vnp_Amount", "125000000");
+        paymentParams.put("vnp_CurrCode", "VND");
+        paymentParams.put("vnp_TxnRef", "ORD-20241018-000123");
+        paymentParams.put("vnp_OrderInfo", "Payment for order ORD-20241018-000123");
+        paymentParams.put("vnp_OrderType", "other");
+        paymentParams.put("vnp_Locale", "vn");
+        paymentParams.put("vnp_IpAddr", "203.113.10.25");
+        paymentParams.put("vnp_ReturnUrl", "http://localhost:8085/api/payments/vnpay/return");
+        paymentParams.put("vnp_CreateDate", "20241018103000");
+
+        // Callbacks arrive as an unsorted request parameter map
+        callbackParams = new HashMap<>();
+        callbackParams.put("vnp_Amount", "125000000");
+        callbackParams.put("vnp_BankCode", "NCB");
+        callbackParams.put("vnp_BankTranNo", "VNP14612345");
+        callbackParams.put("vnp_CardType", "ATM");
+        callbackParams.put("vnp_OrderInfo", "Payment for order ORD-20241018-000123");
+        callbackParams.put("vnp_PayDate", "20241018103512");
+        callbackParams.put("vnp_ResponseCode", "00");
+        callbackParams.put("vnp_TmnCode", "DEMOTMN1");
+        callbackParams.put("vnp_TransactionNo", "14612345");
+        callbackParams.put("vnp_TransactionStatus", "00");
+        callbackParams.put("vnp_TxnRef", "ORD-20241018-000123");
+        callbackHash = legacySign(callbackParams);
+        callbackParams.put("vnp_SecureHashType", "HmacSHA512");
+        callbackParams.put("vnp_SecureHash", callbackHash);
+
+        if (!signer.sign(SECRET, paymentParams).secureHash.equals(legacySign(paymentParams))) {
+            throw new IllegalStateException("Signer output differs from the legacy implementation");
+        }
+    }
+
+    @Benchmark
+    public String createPaymentUrlSign() {
+        return signer.sign(SECRET, paymentParams).secureHash;
+    }
+
+    @Benchmark
+    public boolean processCallbackVerify() {
+        return signer.verify(SECRET, callbackParams, callbackParams.get("vnp_SecureHash"));
+    }
+
+    @Benchmark
+    public String legacyCreatePaymentUrlSign() {
+        return legacySign(paymentParams);
+    }
+
+    @Benchmark
+    public boolean legacyProcessCallbackVerify() {
+        Map<String, String> params = new TreeMap<>(callbackParams);
+        String received = params.remove("vnp_SecureHash");
+        params.remove("vnp_SecureHashType");
+        return received != null && received.equalsIgnoreCase(legacySign(params));
+    }
+
+    /**
+     * The implementation VNPayService used before VNPaySigner
+     */
+    private static String legacySign(Map<String, String> unsorted) {
+        Map<String, String> params = new TreeMap<>(unsorted);
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            if (e.getValue() == null || "vnp_SecureHash".equals(e.getKey()) || "vnp_SecureHashType".equals(e.getKey())) {
+                continue;
+            }
+            if (!first) sb.append("&");
+            first = false;
+            sb.append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8))
+              .append("=")
+              .append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.ISO_8859_1), "HmacSHA512"));
+            byte[] bytes = mac.doFinal(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hash.append('0');
+                hash.append(hex);
+            }
+            return hash.toString();
+        } catch (Exception ex) {
+            throw new RuntimeException("Failed to compute HMAC SHA512", ex);
+        }
+    }
+}
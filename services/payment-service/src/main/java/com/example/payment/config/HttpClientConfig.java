@@ -3,25 +3,14 @@ package com.example.payment.config;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
-
 @Configuration
 public class HttpClientConfig {
 
     @Bean
     public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder
-            .setConnectTimeout(Duration.ofSeconds(5))
-            .setReadTimeout(Duration.ofSeconds(10))
-            .requestFactory(() -> {
-                SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-                factory.setConnectTimeout(5000);
-                factory.setReadTimeout(10000);
-                return factory;
-            })
-            .build();
+        // Pooled client and timeouts (connect 5s, read 10s) come from the shared HttpClientAutoConfiguration
+        return builder.build();
     }
 }
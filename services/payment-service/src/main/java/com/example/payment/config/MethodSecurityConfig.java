@@ -42,7 +42,7 @@ public class MethodSecurityConfig {
                 // Require authentication for payment creation endpoints
                 .requestMatchers("/api/payments/create", "/api/payments/momo/create", "/api/payments/banks").authenticated()
                 // Require authentication for admin endpoints
-                .requestMatchers("/api/payments/failed", "/api/payments/high-risk", "/api/payments/stats", "/api/payments/*/refund").hasRole("ADMIN")
+                .requestMatchers("/api/payments/failed", "/api/payments/failed/**", "/api/payments/high-risk", "/api/payments/high-risk/**", "/api/payments/stats", "/api/payments/*/refund").hasRole("ADMIN")
                 .requestMatchers("/api/payments/user/**", "/api/payments/order/**", "/api/payments/status/**").hasRole("ADMIN")
                 // Allow all other endpoints for inter-service communication
                 .anyRequest().permitAll()
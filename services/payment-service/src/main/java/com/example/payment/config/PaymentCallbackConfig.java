@@ -0,0 +1,31 @@
+package com.example.payment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PaymentCallbackConfig {
+
+    @Value("${payment.callbacks.workers:4}")
+    private int workers;
+
+    /**
+     * Worker pool for queued gateway callbacks (see PaymentCallbackProcessor)
+     */
+    @Bean(name = "paymentCallbackExecutor")
+    public ThreadPoolTaskExecutor paymentCallbackExecutor() {
+        int poolSize = Math.max(1, workers);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        // The processor never hands out more work than it can run, rows wait in the table
+        executor.setQueueCapacity(poolSize * 2);
+        executor.setThreadNamePrefix("payment-callback-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
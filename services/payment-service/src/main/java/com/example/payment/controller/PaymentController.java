@@ -5,6 +5,8 @@ import com.example.payment.entity.PaymentMethod;
 import com.example.payment.entity.PaymentStatus;
 import com.example.payment.service.BankTransferService;
 import com.example.payment.service.OrderServiceClient;
+import com.example.payment.service.PaymentCallbackService;
+import com.example.payment.service.PaymentReportService;
 import com.example.payment.service.PaymentService;
 import com.example.payment.service.StripeService;
 import com.example.payment.service.VNPayService;
@@ -16,13 +18,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
@@ -51,6 +57,15 @@ public class PaymentController {
     @Autowired
     private OrderServiceClient orderServiceClient;
 
+    @Autowired
+    private PaymentCallbackService paymentCallbackService;
+
+    @Autowired
+    private PaymentReportService paymentReportService;
+
+    @Autowired
+    private RestTemplate rest;
+
     @GetMapping("/health")
     @PermitAll
     public ResponseEntity<Map<String, String>> health() {
@@ -138,17 +153,18 @@ public class PaymentController {
     }
 
     /**
-     * VNPay callback
+     * VNPay callback (IPN)
+     * The callback is verified and stored, then acknowledged right away; processing is asynchronous.
      */
     @GetMapping("/vnpay/callback")
     @PermitAll
     public ResponseEntity<Map<String, Object>> vnpayCallback(
             @RequestParam Map<String, String> callbackParams) {
         try {
-            Map<String, Object> result = paymentService.processVNPayCallback(callbackParams);
-            return ResponseEntity.ok(result);
+            // RspCode/Message are set by the intake (00, 01, 02, 04 or 97)
+            return ResponseEntity.ok(paymentCallbackService.enqueueVNPay(callbackParams));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+            return ResponseEntity.ok(Map.of("success", false, "RspCode", "99", "Message", "Unknown error"));
         }
     }
 
@@ -162,8 +178,8 @@ public class PaymentController {
             @RequestParam Map<String, String> returnParams,
             jakarta.servlet.http.HttpServletResponse response) throws java.io.IOException {
         try {
-            // Process VNPay callback (validate signature, update payment status)
-            paymentService.processVNPayCallback(returnParams);
+            // Validate signature and queue the callback (payment status is updated asynchronously)
+            paymentCallbackService.enqueueVNPay(returnParams);
             
             // Extract order number from transaction reference
             String orderNumber = returnParams.get("vnp_TxnRef");
@@ -257,7 +273,7 @@ public class PaymentController {
     public ResponseEntity<Map<String, Object>> processVNPayReturn(
             @RequestBody Map<String, String> returnParams) {
         try {
-            Map<String, Object> result = paymentService.processVNPayCallback(returnParams);
+            Map<String, Object> result = paymentCallbackService.enqueueVNPay(returnParams);
 
             // Add orderNumber for frontend redirect
             if ((Boolean) result.get("success")) {
@@ -375,7 +391,6 @@ public class PaymentController {
             // Fetch order details from order service to get the real orderNumber
             String orderNumber = null;
             try {
-                RestTemplate rest = new RestTemplate();
                 String url = "http://localhost:8084/api/orders/" + orderId;
 
                 HttpHeaders headers = new HttpHeaders();
@@ -424,7 +439,6 @@ public class PaymentController {
             // Fetch order details from order service to get the real orderNumber
             String orderNumber = null;
             try {
-                RestTemplate rest = new RestTemplate();
                 String url = "http://localhost:8084/api/orders/" + orderId;
 
                 HttpHeaders headers = new HttpHeaders();
@@ -672,12 +686,12 @@ public class PaymentController {
     }
 
     /**
-     * Get payment statistics
+     * Get payment statistics (cached snapshot, refreshed every few seconds)
      */
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getPaymentStatistics() {
         try {
-            Map<String, Object> stats = paymentService.getPaymentStatistics();
+            Map<String, Object> stats = paymentReportService.getStatistics();
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -685,37 +699,58 @@ public class PaymentController {
     }
 
     /**
-     * Get high risk payments
+     * Get high risk payments (paged, newest first by default)
      */
     @GetMapping("/high-risk")
-    public ResponseEntity<List<Map<String, Object>>> getHighRiskPayments() {
+    public ResponseEntity<Page<Map<String, Object>>> getHighRiskPayments(
+            @PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Payment> payments = paymentService.getHighRiskPayments();
-            List<Map<String, Object>> responses = payments.stream()
-                .map(this::createPaymentResponse)
-                .toList();
-            return ResponseEntity.ok(responses);
+            Page<Payment> payments = paymentReportService.getHighRiskPayments(pageable);
+            return ResponseEntity.ok(payments.map(this::createPaymentResponse));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     /**
-     * Get failed payments
+     * Export all high risk payments as CSV
+     */
+    @GetMapping(value = "/high-risk/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportHighRiskPayments() {
+        StreamingResponseBody body = out -> paymentReportService.exportHighRiskPayments(out);
+        return csvAttachment("high-risk-payments.csv", body);
+    }
+
+    /**
+     * Get failed payments of the last days (paged, newest first by default)
      */
     @GetMapping("/failed")
-    public ResponseEntity<List<Map<String, Object>>> getFailedPayments() {
+    public ResponseEntity<Page<Map<String, Object>>> getFailedPayments(
+            @PageableDefault(size = 50, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
         try {
-            List<Payment> payments = paymentService.getFailedPayments();
-            List<Map<String, Object>> responses = payments.stream()
-                .map(this::createPaymentResponse)
-                .toList();
-            return ResponseEntity.ok(responses);
+            Page<Payment> payments = paymentReportService.getFailedPayments(pageable);
+            return ResponseEntity.ok(payments.map(this::createPaymentResponse));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Export failed payments of the last days as CSV
+     */
+    @GetMapping(value = "/failed/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportFailedPayments() {
+        StreamingResponseBody body = out -> paymentReportService.exportFailedPayments(out);
+        return csvAttachment("failed-payments.csv", body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> csvAttachment(String filename, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+            .body(body);
+    }
+
     /**
      * Analyze fraud risk
      */
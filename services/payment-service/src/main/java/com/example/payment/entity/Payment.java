@@ -8,7 +8,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+    @Index(name = "idx_payments_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_payments_user_status", columnList = "user_id, status"),
+    @Index(name = "idx_payments_status_risk", columnList = "status, risk_level, amount"),
+    @Index(name = "idx_payments_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_payments_risk_created", columnList = "risk_level, created_at")
+})
 public class Payment {
 
     @Id
@@ -0,0 +1,117 @@
+package com.example.payment.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Gateway callback (IPN / return) stored before it is acknowledged, then processed by
+ * PaymentCallbackProcessor. Callbacks of one order are processed in id order.
+ */
+@Entity
+@Table(name = "payment_callbacks",
+    uniqueConstraints = @UniqueConstraint(name = "uk_payment_callbacks_key", columnNames = {"provider", "callback_key"}),
+    indexes = {
+        @Index(name = "idx_payment_callbacks_status_next", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_payment_callbacks_order", columnList = "order_number, id")
+    })
+public class PaymentCallback {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "provider", nullable = false, length = 20)
+    private String provider;
+
+    // Hash of the callback parameters, so gateway retries of the same callback are stored once
+    @Column(name = "callback_key", nullable = false, length = 64)
+    private String callbackKey;
+
+    @Column(name = "order_number")
+    private String orderNumber;
+
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "signature_valid")
+    private boolean signatureValid;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private PaymentCallbackStatus status = PaymentCallbackStatus.PENDING;
+
+    // Payment record already updated; only the order-service follow-up is left
+    @Column(name = "applied")
+    private boolean applied;
+
+    @Column(name = "cancel_reason", columnDefinition = "TEXT")
+    private String cancelReason;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "received_at", updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public PaymentCallback() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getProvider() { return provider; }
+    public void setProvider(String provider) { this.provider = provider; }
+
+    public String getCallbackKey() { return callbackKey; }
+    public void setCallbackKey(String callbackKey) { this.callbackKey = callbackKey; }
+
+    public String getOrderNumber() { return orderNumber; }
+    public void setOrderNumber(String orderNumber) { this.orderNumber = orderNumber; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public boolean isSignatureValid() { return signatureValid; }
+    public void setSignatureValid(boolean signatureValid) { this.signatureValid = signatureValid; }
+
+    public PaymentCallbackStatus getStatus() { return status; }
+    public void setStatus(PaymentCallbackStatus status) { this.status = status; }
+
+    public boolean isApplied() { return applied; }
+    public void setApplied(boolean applied) { this.applied = applied; }
+
+    public String getCancelReason() { return cancelReason; }
+    public void setCancelReason(String cancelReason) { this.cancelReason = cancelReason; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+    public void setReceivedAt(LocalDateTime receivedAt) { this.receivedAt = receivedAt; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+}
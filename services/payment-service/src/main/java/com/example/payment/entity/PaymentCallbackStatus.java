@@ -0,0 +1,8 @@
+package com.example.payment.entity;
+
+public enum PaymentCallbackStatus {
+    PENDING,        // Stored, waiting for a worker (or for the next retry)
+    PROCESSING,     // Claimed by a worker until locked_until
+    DONE,
+    FAILED          // Gave up after the maximum number of attempts
+}
@@ -0,0 +1,50 @@
+package com.example.payment.repository;
+
+import com.example.payment.entity.PaymentCallback;
+import com.example.payment.entity.PaymentCallbackStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentCallbackRepository extends JpaRepository<PaymentCallback, Long> {
+
+    /**
+     * Due callbacks that are the oldest unfinished one of their order (per-order FIFO).
+     * PROCESSING rows whose lock expired (worker died) are picked up again.
+     */
+    @Query("SELECT c FROM PaymentCallback c " +
+           "WHERE ((c.status = com.example.payment.entity.PaymentCallbackStatus.PENDING AND c.nextAttemptAt <= :now) " +
+           "    OR (c.status = com.example.payment.entity.PaymentCallbackStatus.PROCESSING AND c.lockedUntil < :now)) " +
+           "AND NOT EXISTS (SELECT p.id FROM PaymentCallback p WHERE p.orderNumber = c.orderNumber AND p.id < c.id " +
+           "    AND p.status IN (com.example.payment.entity.PaymentCallbackStatus.PENDING, com.example.payment.entity.PaymentCallbackStatus.PROCESSING)) " +
+           "ORDER BY c.id")
+    List<PaymentCallback> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claim a callback for this worker; returns 0 when another worker got it first
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentCallback c SET c.status = com.example.payment.entity.PaymentCallbackStatus.PROCESSING, c.lockedUntil = :lockedUntil " +
+           "WHERE c.id = :id AND (c.status = com.example.payment.entity.PaymentCallbackStatus.PENDING " +
+           "    OR (c.status = com.example.payment.entity.PaymentCallbackStatus.PROCESSING AND c.lockedUntil < :now))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    long countByStatusIn(List<PaymentCallbackStatus> statuses);
+
+    @Query("SELECT MIN(c.receivedAt) FROM PaymentCallback c WHERE c.status IN :statuses")
+    LocalDateTime findOldestReceivedAt(@Param("statuses") List<PaymentCallbackStatus> statuses);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PaymentCallback c WHERE c.status = com.example.payment.entity.PaymentCallbackStatus.DONE AND c.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
@@ -3,6 +3,9 @@ package com.example.payment.repository;
 import com.example.payment.entity.Payment;
 import com.example.payment.entity.PaymentMethod;
 import com.example.payment.entity.PaymentStatus;
+import com.example.payment.entity.RiskLevel;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -41,15 +44,42 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.userId = :userId AND p.status = :status ORDER BY p.createdAt DESC")
     List<Payment> findUserPaymentsByStatus(@Param("userId") String userId, @Param("status") PaymentStatus status);
     
+    /**
+     * Lightweight rows (createdAt, amount, ipAddress) used to seed the fraud feature store
+     */
+    @Query("SELECT p.createdAt, p.amount, p.ipAddress FROM Payment p WHERE p.userId = :userId AND p.createdAt >= :since")
+    List<Object[]> findFraudFeatureRows(@Param("userId") String userId, @Param("since") LocalDateTime since);
+    
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.userId = :userId AND p.status = :status")
     Long countByUserIdAndStatus(@Param("userId") String userId, @Param("status") PaymentStatus status);
     
     @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.userId = :userId AND p.status = :status")
     Double sumAmountByUserIdAndStatus(@Param("userId") String userId, @Param("status") PaymentStatus status);
     
-    @Query("SELECT p FROM Payment p WHERE p.riskLevel = :riskLevel ORDER BY p.createdAt DESC")
-    List<Payment> findHighRiskPayments(@Param("riskLevel") com.example.payment.entity.RiskLevel riskLevel);
-    
-    @Query("SELECT p FROM Payment p WHERE p.status = 'FAILED' AND p.createdAt >= :startDate ORDER BY p.createdAt DESC")
-    List<Payment> findFailedPayments(@Param("startDate") LocalDateTime startDate);
+    /**
+     * Payment count and amount per (status, riskLevel); riskLevel is null for unscored payments
+     */
+    @Query("SELECT p.status, p.riskLevel, COUNT(p), SUM(p.amount) FROM Payment p GROUP BY p.status, p.riskLevel")
+    List<Object[]> aggregateByStatusAndRiskLevel();
+    
+    @Query(value = "SELECT p FROM Payment p WHERE p.riskLevel = :riskLevel",
+           countQuery = "SELECT COUNT(p) FROM Payment p WHERE p.riskLevel = :riskLevel")
+    Page<Payment> findHighRiskPayments(@Param("riskLevel") RiskLevel riskLevel, Pageable pageable);
+    
+    @Query(value = "SELECT p FROM Payment p WHERE p.status = :status AND p.createdAt >= :startDate",
+           countQuery = "SELECT COUNT(p) FROM Payment p WHERE p.status = :status AND p.createdAt >= :startDate")
+    Page<Payment> findFailedPayments(@Param("status") PaymentStatus status, @Param("startDate") LocalDateTime startDate, Pageable pageable);
+    
+    /**
+     * Keyset page (id descending) for exports
+     */
+    @Query("SELECT p FROM Payment p WHERE p.riskLevel = :riskLevel AND p.id < :beforeId ORDER BY p.id DESC")
+    List<Payment> findHighRiskPaymentsBefore(@Param("riskLevel") RiskLevel riskLevel, @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    /**
+     * Keyset page (id descending) for exports
+     */
+    @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.createdAt >= :startDate AND p.id < :beforeId ORDER BY p.id DESC")
+    List<Payment> findFailedPaymentsBefore(@Param("status") PaymentStatus status, @Param("startDate") LocalDateTime startDate,
+                                           @Param("beforeId") Long beforeId, Pageable pageable);
 }
@@ -0,0 +1,293 @@
+package com.example.payment.service;
+
+import com.example.payment.entity.PaymentStatus;
+import com.example.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user rolling features for fraud scoring, kept in memory and updated on each payment event.
+ *
+ * Each user has 60 one-minute buckets (1h window) and 24 one-hour buckets (24h window) for payment
+ * count and amount, a lifetime failure count, and distinct IP / payment instrument sets for the last
+ * 24 hours. Reading the features is a fixed amount of work regardless of the user's history.
+ *
+ * A user is seeded from the database the first time it is seen by this instance (one projection
+ * query over the last 24h plus one failure count). Idle users are evicted when the store grows past
+ * {@code payment.fraud.features.max-users}; an evicted user is simply seeded again on next access.
+ */
+@Component
+public class FraudFeatureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FraudFeatureStore.class);
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Value("${payment.fraud.features.max-users:100000}")
+    private int maxUsers;
+
+    @Value("${payment.fraud.features.max-distinct-values:50}")
+    private int maxDistinctValues;
+
+    private final ConcurrentHashMap<String, UserFeatures> users = new ConcurrentHashMap<>();
+
+    /**
+     * Record a new payment attempt. Call before the payment row is saved so seeding does not count it twice.
+     */
+    public void recordAttempt(String userId, BigDecimal amount, String ipAddress) {
+        if (userId == null) {
+            return;
+        }
+        UserFeatures features = featuresFor(userId);
+        long now = System.currentTimeMillis();
+        synchronized (features) {
+            features.addPayment(now, amount != null ? amount.doubleValue() : 0.0);
+            features.addDistinct(features.ipAddresses, ipAddress, now, maxDistinctValues);
+        }
+    }
+
+    /**
+     * Record a payment moving to FAILED. Call before the new status is saved.
+     */
+    public void recordFailure(String userId) {
+        if (userId == null) {
+            return;
+        }
+        UserFeatures features = featuresFor(userId);
+        synchronized (features) {
+            features.failedTotal++;
+            features.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Record the card / bank instrument reported by the payment gateway
+     */
+    public void recordInstrument(String userId, String instrument) {
+        if (userId == null || instrument == null || instrument.isBlank()) {
+            return;
+        }
+        UserFeatures features = featuresFor(userId);
+        long now = System.currentTimeMillis();
+        synchronized (features) {
+            features.addDistinct(features.instruments, instrument, now, maxDistinctValues);
+        }
+    }
+
+    /**
+     * Current features for a user
+     */
+    public Snapshot snapshot(String userId) {
+        if (userId == null) {
+            return new Snapshot(0, 0.0, 0, 0.0, 0, 0, 0);
+        }
+        UserFeatures features = featuresFor(userId);
+        long now = System.currentTimeMillis();
+        synchronized (features) {
+            return features.snapshot(now);
+        }
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    private UserFeatures featuresFor(String userId) {
+        UserFeatures features = users.get(userId);
+        if (features == null) {
+            UserFeatures created = new UserFeatures();
+            features = users.putIfAbsent(userId, created);
+            if (features == null) {
+                features = created;
+                evictIfNeeded(userId);
+            }
+        }
+        // Seed outside the map so a slow query never blocks other users
+        synchronized (features) {
+            if (!features.seeded) {
+                seed(userId, features);
+                features.seeded = true;
+            }
+        }
+        return features;
+    }
+
+    private void seed(String userId, UserFeatures features) {
+        long now = System.currentTimeMillis();
+        features.lastSeen = now;
+        try {
+            LocalDateTime since = LocalDateTime.now().minusHours(24);
+            List<Object[]> rows = paymentRepository.findFraudFeatureRows(userId, since);
+            for (Object[] row : rows) {
+                long at = toEpochMillis(row[0], now);
+                double amount = row[1] instanceof BigDecimal ? ((BigDecimal) row[1]).doubleValue() : 0.0;
+                features.addPayment(at, amount);
+                features.addDistinct(features.ipAddresses, (String) row[2], at, maxDistinctValues);
+            }
+            Long failed = paymentRepository.countByUserIdAndStatus(userId, PaymentStatus.FAILED);
+            features.failedTotal = failed != null ? failed : 0L;
+        } catch (Exception e) {
+            // Start empty rather than fail the payment; counters fill up from live events
+            logger.warn("Failed to seed fraud features for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void evictIfNeeded(String keep) {
+        if (users.size() <= maxUsers) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - DAY_MS;
+        users.entrySet().removeIf(entry -> entry.getValue().lastSeen < idleBefore && !entry.getKey().equals(keep));
+
+        // Still too large: trim to 90% so the scan is not repeated for every new user.
+        // Dropped entries are re-seeded from the database on demand.
+        int target = maxUsers - maxUsers / 10;
+        Iterator<String> it = users.keySet().iterator();
+        while (users.size() > target && it.hasNext()) {
+            if (!it.next().equals(keep)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static long toEpochMillis(Object value, long fallback) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).getTime();
+        }
+        return fallback;
+    }
+
+    /**
+     * Immutable view of a user's features at one point in time
+     */
+    public static class Snapshot {
+        public final long paymentCount1h;
+        public final double paymentAmount1h;
+        public final long paymentCount24h;
+        public final double paymentAmount24h;
+        public final long failedTotal;
+        public final int distinctIps24h;
+        public final int distinctInstruments24h;
+
+        public Snapshot(long paymentCount1h, double paymentAmount1h, long paymentCount24h, double paymentAmount24h,
+                        long failedTotal, int distinctIps24h, int distinctInstruments24h) {
+            this.paymentCount1h = paymentCount1h;
+            this.paymentAmount1h = paymentAmount1h;
+            this.paymentCount24h = paymentCount24h;
+            this.paymentAmount24h = paymentAmount24h;
+            this.failedTotal = failedTotal;
+            this.distinctIps24h = distinctIps24h;
+            this.distinctInstruments24h = distinctInstruments24h;
+        }
+    }
+
+    /**
+     * Mutable per-user state, guarded by its own monitor
+     */
+    private static class UserFeatures {
+        private final long[] minuteStamp = new long[60];
+        private final long[] minuteCount = new long[60];
+        private final double[] minuteAmount = new double[60];
+
+        private final long[] hourStamp = new long[24];
+        private final long[] hourCount = new long[24];
+        private final double[] hourAmount = new double[24];
+
+        // value -> last seen (epoch millis), oldest first
+        private final LinkedHashMap<String, Long> ipAddresses = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Long> instruments = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long failedTotal;
+        private long lastSeen;
+        private boolean seeded;
+
+        void addPayment(long at, double amount) {
+            long minute = at / MINUTE_MS;
+            int m = (int) (minute % minuteStamp.length);
+            if (minuteStamp[m] != minute) {
+                minuteStamp[m] = minute;
+                minuteCount[m] = 0;
+                minuteAmount[m] = 0.0;
+            }
+            minuteCount[m]++;
+            minuteAmount[m] += amount;
+
+            long hour = at / HOUR_MS;
+            int h = (int) (hour % hourStamp.length);
+            if (hourStamp[h] != hour) {
+                hourStamp[h] = hour;
+                hourCount[h] = 0;
+                hourAmount[h] = 0.0;
+            }
+            hourCount[h]++;
+            hourAmount[h] += amount;
+
+            lastSeen = Math.max(lastSeen, at);
+        }
+
+        void addDistinct(LinkedHashMap<String, Long> values, String value, long at, int maxValues) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            Long previous = values.get(value);
+            values.put(value, previous != null ? Math.max(previous, at) : at);
+            while (values.size() > maxValues) {
+                Iterator<String> it = values.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+            lastSeen = Math.max(lastSeen, at);
+        }
+
+        Snapshot snapshot(long now) {
+            long currentMinute = now / MINUTE_MS;
+            long count1h = 0;
+            double amount1h = 0.0;
+            for (int i = 0; i < minuteStamp.length; i++) {
+                if (currentMinute - minuteStamp[i] < minuteStamp.length) {
+                    count1h += minuteCount[i];
+                    amount1h += minuteAmount[i];
+                }
+            }
+
+            long currentHour = now / HOUR_MS;
+            long count24h = 0;
+            double amount24h = 0.0;
+            for (int i = 0; i < hourStamp.length; i++) {
+                if (currentHour - hourStamp[i] < hourStamp.length) {
+                    count24h += hourCount[i];
+                    amount24h += hourAmount[i];
+                }
+            }
+
+            return new Snapshot(count1h, amount1h, count24h, amount24h, failedTotal,
+                countRecent(ipAddresses, now), countRecent(instruments, now));
+        }
+
+        private static int countRecent(Map<String, Long> values, long now) {
+            values.values().removeIf(seenAt -> now - seenAt > DAY_MS);
+            return values.size();
+        }
+    }
+}
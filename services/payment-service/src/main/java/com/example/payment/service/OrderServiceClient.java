@@ -110,4 +110,32 @@ public class OrderServiceClient {
             }
         );
     }
+
+    /**
+     * Cancel an order, failing instead of falling back so the caller can retry later
+     */
+    public Map<String, Object> cancelOrderByNumberOrThrow(String orderNumber, String reason) {
+        @SuppressWarnings("rawtypes")
+        CircuitBreaker circuitBreaker = circuitBreakerFactory.create("order-service");
+
+        return circuitBreaker.run(
+            () -> {
+                HttpEntity<Map<String, String>> entity = new HttpEntity<>(
+                    Map.of("reason", reason),
+                    createAuthHeaders()
+                );
+                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                    orderServiceUrl + "/api/orders/by-number/" + orderNumber + "/cancel",
+                    HttpMethod.POST,
+                    entity,
+                    MAP_TYPE_REF
+                );
+                return response.getBody();
+            },
+            throwable -> {
+                throw new IllegalStateException("Order cancellation failed for " + orderNumber + ": "
+                    + throwable.getMessage(), throwable);
+            }
+        );
+    }
 }
@@ -0,0 +1,269 @@
+package com.example.payment.service;
+
+import com.example.payment.entity.PaymentCallback;
+import com.example.payment.entity.PaymentCallbackStatus;
+import com.example.payment.repository.PaymentCallbackRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Worker side of the gateway callback queue (payment_callbacks table).
+ *
+ * Each poll claims the oldest unfinished callback of every order that has one due, so callbacks
+ * of the same order run one at a time and in arrival order, also across replicas. A callback is
+ * first applied to the payment record, then the order-service follow-up (cancel on failure) runs;
+ * failures are retried with exponential backoff up to {@code payment.callbacks.max-attempts}.
+ */
+@Component
+public class PaymentCallbackProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCallbackProcessor.class);
+
+    private static final List<PaymentCallbackStatus> OPEN = List.of(PaymentCallbackStatus.PENDING, PaymentCallbackStatus.PROCESSING);
+
+    @Autowired
+    private PaymentCallbackRepository callbackRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderServiceClient orderServiceClient;
+
+    @Autowired
+    @Qualifier("paymentCallbackExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${payment.callbacks.workers:4}")
+    private int workers;
+
+    @Value("${payment.callbacks.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${payment.callbacks.initial-backoff-ms:2000}")
+    private long initialBackoffMs;
+
+    @Value("${payment.callbacks.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${payment.callbacks.lock-timeout-ms:120000}")
+    private long lockTimeoutMs;
+
+    @Value("${payment.callbacks.retention-days:7}")
+    private int retentionDays;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicBoolean triggered = new AtomicBoolean();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong oldestAgeSeconds = new AtomicLong();
+
+    private Timer lagTimer;
+    private Counter doneCounter;
+    private Counter retryCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("payment.callbacks.queue.depth", queueDepth, AtomicLong::get)
+            .description("Gateway callbacks stored but not processed yet")
+            .register(meterRegistry);
+        Gauge.builder("payment.callbacks.queue.oldest.age", oldestAgeSeconds, AtomicLong::get)
+            .description("Age in seconds of the oldest unprocessed gateway callback")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("payment.callbacks.workers.busy", running, AtomicInteger::get)
+            .register(meterRegistry);
+        lagTimer = Timer.builder("payment.callbacks.lag")
+            .description("Time from callback receipt to successful processing")
+            .register(meterRegistry);
+        doneCounter = meterRegistry.counter("payment.callbacks.processed", "outcome", "done");
+        retryCounter = meterRegistry.counter("payment.callbacks.processed", "outcome", "retry");
+        failedCounter = meterRegistry.counter("payment.callbacks.processed", "outcome", "failed");
+    }
+
+    /**
+     * Ask for a poll as soon as a worker is free (coalesced)
+     */
+    public void trigger() {
+        if (!triggered.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                triggered.set(false);
+                poll();
+            });
+        } catch (TaskRejectedException e) {
+            // Pool busy; the scheduled poll picks the callback up
+            triggered.set(false);
+        }
+    }
+
+    /**
+     * Safety net for callbacks not triggered directly: retries, expired locks, restarts
+     */
+    @Scheduled(fixedDelayString = "${payment.callbacks.poll-interval-ms:1000}")
+    public void scheduledPoll() {
+        poll();
+        refreshQueueStats();
+    }
+
+    private synchronized void poll() {
+        int free = Math.max(1, workers) - running.get();
+        if (free <= 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentCallback> due = callbackRepository.findDue(now, PageRequest.of(0, free));
+        for (PaymentCallback callback : due) {
+            LocalDateTime lockedUntil = now.plus(Duration.ofMillis(lockTimeoutMs));
+            if (callbackRepository.claim(callback.getId(), now, lockedUntil) == 0) {
+                continue; // claimed by another replica
+            }
+            running.incrementAndGet();
+            Long id = callback.getId();
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(id);
+                    } finally {
+                        running.decrementAndGet();
+                        trigger();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // Leave it claimed; the lock expires and the row is picked up again
+                running.decrementAndGet();
+                break;
+            }
+        }
+    }
+
+    private void process(Long id) {
+        Optional<PaymentCallback> loaded = callbackRepository.findById(id);
+        if (loaded.isEmpty()) {
+            return;
+        }
+        PaymentCallback callback = loaded.get();
+        try {
+            Map<String, String> params = readPayload(callback);
+
+            if (!callback.isApplied()) {
+                Map<String, Object> result = paymentService.applyVNPayCallback(params);
+                callback.setApplied(true);
+                callback.setCancelReason((String) result.get("cancelReason"));
+                callbackRepository.save(callback);
+            }
+
+            if (callback.getCancelReason() != null && callback.getOrderNumber() != null) {
+                Map<String, Object> cancelResult =
+                    orderServiceClient.cancelOrderByNumberOrThrow(callback.getOrderNumber(), callback.getCancelReason());
+                logger.info("Cancelled order {} after failed VNPay payment: {}", callback.getOrderNumber(), cancelResult);
+            }
+
+            LocalDateTime processedAt = LocalDateTime.now();
+            callback.setStatus(PaymentCallbackStatus.DONE);
+            callback.setProcessedAt(processedAt);
+            callback.setLockedUntil(null);
+            callback.setLastError(null);
+            callbackRepository.save(callback);
+
+            if (lagTimer != null && callback.getReceivedAt() != null) {
+                lagTimer.record(Duration.between(callback.getReceivedAt(), processedAt));
+                doneCounter.increment();
+            }
+        } catch (Exception e) {
+            onFailure(callback, e);
+        }
+    }
+
+    private void onFailure(PaymentCallback callback, Exception e) {
+        int attempts = callback.getAttempts() + 1;
+        callback.setAttempts(attempts);
+        callback.setLastError(e.getMessage());
+        callback.setLockedUntil(null);
+
+        if (attempts >= maxAttempts) {
+            callback.setStatus(PaymentCallbackStatus.FAILED);
+            logger.error("Giving up on payment callback {} for order {} after {} attempts: {}",
+                callback.getId(), callback.getOrderNumber(), attempts, e.getMessage(), e);
+            if (failedCounter != null) {
+                failedCounter.increment();
+            }
+        } else {
+            long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+            callback.setStatus(PaymentCallbackStatus.PENDING);
+            callback.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+            logger.warn("Payment callback {} for order {} failed (attempt {}), retrying in {} ms: {}",
+                callback.getId(), callback.getOrderNumber(), attempts, backoff, e.getMessage());
+            if (retryCounter != null) {
+                retryCounter.increment();
+            }
+        }
+
+        try {
+            callbackRepository.save(callback);
+        } catch (Exception saveEx) {
+            // Row stays PROCESSING; it is retried once its lock expires
+            logger.error("Failed to record failure of payment callback {}: {}", callback.getId(), saveEx.getMessage());
+        }
+    }
+
+    private void refreshQueueStats() {
+        try {
+            queueDepth.set(callbackRepository.countByStatusIn(OPEN));
+            LocalDateTime oldest = callbackRepository.findOldestReceivedAt(OPEN);
+            oldestAgeSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).getSeconds()) : 0);
+        } catch (Exception e) {
+            logger.debug("Failed to refresh payment callback queue stats: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop processed callbacks after the retention period
+     */
+    @Scheduled(cron = "${payment.callbacks.cleanup-cron:0 30 3 * * *}")
+    public void cleanup() {
+        int deleted = callbackRepository.deleteDoneBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Deleted {} processed payment callbacks", deleted);
+        }
+    }
+
+    private Map<String, String> readPayload(PaymentCallback callback) throws java.io.IOException {
+        return objectMapper.readValue(callback.getPayload(),
+            objectMapper.getTypeFactory().constructMapType(HashMap.class, String.class, String.class));
+    }
+}
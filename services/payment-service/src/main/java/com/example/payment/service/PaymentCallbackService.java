@@ -0,0 +1,148 @@
+package com.example.payment.service;
+
+import com.example.payment.entity.Payment;
+import com.example.payment.entity.PaymentCallback;
+import com.example.payment.entity.PaymentStatus;
+import com.example.payment.repository.PaymentCallbackRepository;
+import com.example.payment.repository.PaymentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Intake for gateway callbacks: verify the signature, store the callback and return at once.
+ * The payment update and order-service follow-up run later in PaymentCallbackProcessor,
+ * so a slow order-service no longer makes the gateway time out and resend the IPN.
+ *
+ * Only callbacks VNPay would expect us to confirm are stored: the signature must be valid, the
+ * order must have a payment with the same amount, and that payment must not be settled yet.
+ * Anything else is answered with the matching IPN code and nothing is written, so the public
+ * endpoints cannot be used to fill the queue.
+ */
+@Service
+public class PaymentCallbackService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCallbackService.class);
+
+    public static final String PROVIDER_VNPAY = "VNPAY";
+
+    @Autowired
+    private PaymentCallbackRepository callbackRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private VNPayService vnPayService;
+
+    @Autowired
+    private PaymentCallbackProcessor callbackProcessor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Verify and queue a VNPay callback.
+     * Returns the signature check result ("success", "data"), "queued", and the IPN answer
+     * ("RspCode", "Message"): 00 queued, 01 unknown order, 02 already confirmed,
+     * 04 wrong amount, 97 invalid signature.
+     */
+    public Map<String, Object> enqueueVNPay(Map<String, String> callbackParams) {
+        Map<String, Object> result = new HashMap<>(vnPayService.processCallback(callbackParams));
+        result.put("queued", false);
+        String orderNumber = callbackParams.get("vnp_TxnRef");
+
+        if (!Boolean.TRUE.equals(result.get("success"))) {
+            logger.warn("Rejected VNPay callback with invalid signature for order {}", orderNumber);
+            return answer(result, "97", "Invalid Checksum");
+        }
+
+        List<Payment> payments = orderNumber != null ? paymentRepository.findByOrderNumber(orderNumber) : List.of();
+        if (payments.isEmpty()) {
+            logger.warn("VNPay callback for unknown order {}", orderNumber);
+            return answer(result, "01", "Order not Found");
+        }
+        Payment payment = payments.get(0);
+        if (!amountMatches(payment, callbackParams.get("vnp_Amount"))) {
+            logger.warn("VNPay callback for order {} has amount {}, expected {}",
+                orderNumber, callbackParams.get("vnp_Amount"), payment.getAmount());
+            return answer(result, "04", "Invalid Amount");
+        }
+        PaymentStatus status = payment.getStatus();
+        if (status != null && status != PaymentStatus.PENDING && status != PaymentStatus.PROCESSING) {
+            logger.info("VNPay callback for already settled payment of order {} ({})", orderNumber, status);
+            return answer(result, "02", "Order already confirmed");
+        }
+
+        // Sorted so the same callback always produces the same payload and key
+        Map<String, String> sorted = new TreeMap<>(callbackParams);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(sorted);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize VNPay callback", e);
+        }
+
+        PaymentCallback callback = new PaymentCallback();
+        callback.setProvider(PROVIDER_VNPAY);
+        callback.setCallbackKey(sha256(payload));
+        callback.setOrderNumber(callbackParams.get("vnp_TxnRef"));
+        callback.setPayload(payload);
+        callback.setSignatureValid(true);
+        callback.setNextAttemptAt(LocalDateTime.now());
+
+        try {
+            callbackRepository.save(callback);
+            result.put("queued", true);
+        } catch (DataIntegrityViolationException e) {
+            // Gateway retry or IPN + return with identical parameters: already stored
+            logger.info("Duplicate VNPay callback for order {} ignored", callback.getOrderNumber());
+            result.put("duplicate", true);
+        }
+
+        callbackProcessor.trigger();
+        return answer(result, "00", "Confirm Success");
+    }
+
+    private static Map<String, Object> answer(Map<String, Object> result, String rspCode, String message) {
+        result.put("RspCode", rspCode);
+        result.put("Message", message);
+        return result;
+    }
+
+    /**
+     * vnp_Amount is the amount in VND times 100, as sent in the payment URL
+     */
+    private static boolean amountMatches(Payment payment, String vnpAmount) {
+        if (payment.getAmount() == null || vnpAmount == null) {
+            return false;
+        }
+        try {
+            return new BigDecimal(vnpAmount).movePointLeft(2).compareTo(payment.getAmount()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.payment.service;
+
+import com.example.payment.entity.Payment;
+import com.example.payment.entity.PaymentStatus;
+import com.example.payment.entity.RiskLevel;
+import com.example.payment.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Admin payment reports: dashboard statistics, paged high-risk / failed listings and CSV exports.
+ *
+ * Statistics come from one {@code GROUP BY status, risk_level} query and are cached as an immutable
+ * snapshot for {@code payment.reports.stats-ttl-seconds}. When the snapshot expires one caller reloads
+ * it while concurrent callers keep getting the previous snapshot.
+ *
+ * Exports walk the result in keyset pages (id descending) and write each page to the response as
+ * it is read, so memory use does not grow with the table.
+ */
+@Service
+public class PaymentReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReportService.class);
+
+    private static final String UNSCORED = "UNSCORED";
+
+    private static final String[] EXPORT_COLUMNS = {
+        "id", "orderId", "orderNumber", "userId", "paymentMethod", "status", "amount", "currency",
+        "transactionId", "riskScore", "riskLevel", "failureReason", "ipAddress", "createdAt"
+    };
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Value("${payment.reports.stats-ttl-seconds:30}")
+    private long statsTtlSeconds;
+
+    @Value("${payment.reports.failed-window-days:7}")
+    private int failedWindowDays;
+
+    @Value("${payment.reports.export-page-size:500}")
+    private int exportPageSize;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile StatsSnapshot snapshot;
+
+    /**
+     * Immutable statistics snapshot
+     */
+    private static class StatsSnapshot {
+        final Map<String, Object> stats;
+        final long loadedAt;
+
+        StatsSnapshot(Map<String, Object> stats, long loadedAt) {
+            this.stats = stats;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Dashboard statistics, at most {@code stats-ttl-seconds} old
+     */
+    public Map<String, Object> getStatistics() {
+        StatsSnapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.loadedAt < statsTtlSeconds * 1000) {
+            return current.stats;
+        }
+
+        if (current != null) {
+            // Someone is already reloading: serve the previous snapshot instead of queueing up
+            if (!reloadLock.tryLock()) {
+                return current.stats;
+            }
+        } else {
+            reloadLock.lock();
+        }
+        try {
+            StatsSnapshot latest = snapshot;
+            if (latest != null && latest != current && System.currentTimeMillis() - latest.loadedAt < statsTtlSeconds * 1000) {
+                return latest.stats;
+            }
+            StatsSnapshot loaded = new StatsSnapshot(loadStatistics(), System.currentTimeMillis());
+            snapshot = loaded;
+            return loaded.stats;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the cached snapshot so the next read reloads it
+     */
+    public void invalidateStatistics() {
+        snapshot = null;
+    }
+
+    public Page<Payment> getHighRiskPayments(Pageable pageable) {
+        return paymentRepository.findHighRiskPayments(RiskLevel.HIGH, pageable);
+    }
+
+    public Page<Payment> getFailedPayments(Pageable pageable) {
+        return paymentRepository.findFailedPayments(PaymentStatus.FAILED, failedSince(), pageable);
+    }
+
+    /**
+     * Write all high-risk payments as CSV, newest first
+     */
+    public int exportHighRiskPayments(OutputStream out) throws IOException {
+        return export(out, (beforeId) -> paymentRepository.findHighRiskPaymentsBefore(
+            RiskLevel.HIGH, beforeId, PageRequest.of(0, Math.max(1, exportPageSize))));
+    }
+
+    /**
+     * Write failed payments of the reporting window as CSV, newest first
+     */
+    public int exportFailedPayments(OutputStream out) throws IOException {
+        LocalDateTime since = failedSince();
+        return export(out, (beforeId) -> paymentRepository.findFailedPaymentsBefore(
+            PaymentStatus.FAILED, since, beforeId, PageRequest.of(0, Math.max(1, exportPageSize))));
+    }
+
+    private LocalDateTime failedSince() {
+        return LocalDateTime.now().minusDays(failedWindowDays);
+    }
+
+    private Map<String, Object> loadStatistics() {
+        long started = System.currentTimeMillis();
+        List<Object[]> rows = paymentRepository.aggregateByStatusAndRiskLevel();
+
+        Map<PaymentStatus, Long> countByStatus = new EnumMap<>(PaymentStatus.class);
+        Map<PaymentStatus, BigDecimal> amountByStatus = new EnumMap<>(PaymentStatus.class);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            countByStatus.put(status, 0L);
+            amountByStatus.put(status, BigDecimal.ZERO);
+        }
+        Map<String, Long> countByRisk = new LinkedHashMap<>();
+        for (RiskLevel level : RiskLevel.values()) {
+            countByRisk.put(level.name(), 0L);
+        }
+        countByRisk.put(UNSCORED, 0L);
+        Map<String, Map<String, Long>> countByStatusAndRisk = new LinkedHashMap<>();
+
+        long total = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (Object[] row : rows) {
+            PaymentStatus status = (PaymentStatus) row[0];
+            String risk = row[1] != null ? ((RiskLevel) row[1]).name() : UNSCORED;
+            long count = row[2] != null ? ((Number) row[2]).longValue() : 0L;
+            BigDecimal amount = row[3] instanceof BigDecimal ? (BigDecimal) row[3] : BigDecimal.ZERO;
+
+            total += count;
+            totalAmount = totalAmount.add(amount);
+            countByStatus.merge(status, count, Long::sum);
+            amountByStatus.merge(status, amount, BigDecimal::add);
+            countByRisk.merge(risk, count, Long::sum);
+            countByStatusAndRisk.computeIfAbsent(status.name(), k -> new LinkedHashMap<>()).put(risk, count);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalPayments", total);
+        stats.put("completedPayments", countByStatus.get(PaymentStatus.COMPLETED));
+        stats.put("failedPayments", countByStatus.get(PaymentStatus.FAILED));
+        stats.put("pendingPayments", countByStatus.get(PaymentStatus.PENDING));
+        stats.put("totalAmount", totalAmount);
+        stats.put("byStatus", toNameMap(countByStatus));
+        stats.put("amountByStatus", toNameMap(amountByStatus));
+        stats.put("byRiskLevel", countByRisk);
+        stats.put("byStatusAndRiskLevel", countByStatusAndRisk);
+        stats.put("generatedAt", LocalDateTime.now().toString());
+
+        logger.debug("Payment statistics reloaded in {} ms ({} groups)", System.currentTimeMillis() - started, rows.size());
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private static <V> Map<String, V> toNameMap(Map<PaymentStatus, V> values) {
+        Map<String, V> result = new LinkedHashMap<>();
+        values.forEach((status, value) -> result.put(status.name(), value));
+        return result;
+    }
+
+    private int export(OutputStream out, Function<Long, List<Payment>> pageBefore) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", EXPORT_COLUMNS));
+        writer.write('\n');
+
+        int written = 0;
+        long beforeId = Long.MAX_VALUE;
+        while (true) {
+            List<Payment> page = pageBefore.apply(beforeId);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (Payment payment : page) {
+                writeRow(writer, payment);
+                written++;
+            }
+            beforeId = page.get(page.size() - 1).getId();
+            // Push each page to the client instead of buffering the whole export
+            writer.flush();
+            if (page.size() < exportPageSize) {
+                break;
+            }
+        }
+        writer.flush();
+        return written;
+    }
+
+    private static void writeRow(Writer writer, Payment p) throws IOException {
+        Object[] values = {
+            p.getId(), p.getOrderId(), p.getOrderNumber(), p.getUserId(),
+            p.getPaymentMethod() != null ? p.getPaymentMethod().name() : null,
+            p.getStatus() != null ? p.getStatus().name() : null,
+            p.getAmount() != null ? p.getAmount().toPlainString() : null,
+            p.getCurrency(), p.getTransactionId(), p.getRiskScore(),
+            p.getRiskLevel() != null ? p.getRiskLevel().name() : null,
+            p.getFailureReason(), p.getIpAddress(), p.getCreatedAt()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csv(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
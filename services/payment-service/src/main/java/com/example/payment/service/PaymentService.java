@@ -51,6 +51,9 @@ public class PaymentService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private FraudFeatureStore fraudFeatureStore;
+
     @Value("${services.order.base-url:http://localhost:8084}")
     private String orderServiceUrl;
 
@@ -146,7 +149,7 @@ public class PaymentService {
     public void rollbackPayment(Payment payment, String reason) {
         try {
             // Mark payment as failed
-            payment.setStatus(PaymentStatus.FAILED);
+            markFailed(payment);
             payment.setFailureReason(reason);
             paymentRepository.save(payment);
 
@@ -185,6 +188,8 @@ public class PaymentService {
         payment.setIpAddress(ipAddress);
         payment.setUserAgent(userAgent);
 
+        fraudFeatureStore.recordAttempt(userId, amount, ipAddress);
+
         return paymentRepository.save(payment);
     }
 
@@ -254,7 +259,7 @@ public class PaymentService {
                         "paymentIntentId", stripeResult.get("id")
                 );
             } else {
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason("Stripe payment creation failed");
                 paymentRepository.save(payment);
 
@@ -264,7 +269,7 @@ public class PaymentService {
                 return Map.of("success", false, "error", "Payment creation failed");
             }
         } catch (Exception e) {
-            payment.setStatus(PaymentStatus.FAILED);
+            markFailed(payment);
             payment.setFailureReason(e.getMessage());
             paymentRepository.save(payment);
 
@@ -295,7 +300,7 @@ public class PaymentService {
                 String errorMsg = (String) configValidation.getOrDefault("error", "VNPay configuration is invalid");
                 logger.error("VNPay configuration validation failed: {}", errorMsg);
 
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason("VNPay configuration error: " + errorMsg);
                 paymentRepository.save(payment);
 
@@ -333,7 +338,7 @@ public class PaymentService {
                         "orderNumber", vnpayResult.get("orderNumber")
                 );
             } else {
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason((String) vnpayResult.get("error"));
                 paymentRepository.save(payment);
 
@@ -358,7 +363,7 @@ public class PaymentService {
             logger.error("Error processing VNPay payment: {}", e.getMessage(), e);
 
             if (payment != null) {
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason(e.getMessage());
                 try {
                     paymentRepository.save(payment);
@@ -414,7 +419,7 @@ public class PaymentService {
             logger.error("Error processing MoMo payment: {}", e.getMessage(), e);
 
             if (payment != null) {
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason(e.getMessage());
                 try {
                     paymentRepository.save(payment);
@@ -447,7 +452,7 @@ public class PaymentService {
                         "qrCode", bankResult.get("qrCode")
                 );
             } else {
-                payment.setStatus(PaymentStatus.FAILED);
+                markFailed(payment);
                 payment.setFailureReason((String) bankResult.get("error"));
                 paymentRepository.save(payment);
 
@@ -457,7 +462,7 @@ public class PaymentService {
                 return Map.of("success", false, "error", bankResult.get("error"));
             }
         } catch (Exception e) {
-            payment.setStatus(PaymentStatus.FAILED);
+            markFailed(payment);
             payment.setFailureReason(e.getMessage());
             paymentRepository.save(payment);
 
@@ -495,7 +500,7 @@ public class PaymentService {
                     "message", "Order confirmed for cash on delivery"
             );
         } catch (Exception e) {
-            payment.setStatus(PaymentStatus.FAILED);
+            markFailed(payment);
             payment.setFailureReason(e.getMessage());
             paymentRepository.save(payment);
 
@@ -546,132 +551,29 @@ public class PaymentService {
     }
 
     /**
-     * Process VNPay callback
+     * Process VNPay callback synchronously (verify, update payment, cancel order on failure).
+     * Gateway callbacks normally go through PaymentCallbackService, which queues them.
      */
     public Map<String, Object> processVNPayCallback(Map<String, String> callbackParams) {
+        String orderNumber = callbackParams.get("vnp_TxnRef");
         try {
-            String orderNumber = callbackParams.get("vnp_TxnRef");
-            String responseCode = callbackParams.get("vnp_ResponseCode");
-            String transactionId = callbackParams.get("vnp_TransactionNo");
-
-            // Validate signature first
-            Map<String, Object> vnpayResult = vnPayService.processCallback(callbackParams);
-            boolean signatureValid = (Boolean) vnpayResult.get("success");
-
-            // Process payment even if signature validation fails (for error cases like code=71)
-            // We still need to update payment status and cancel order
-            if (orderNumber != null && !orderNumber.isEmpty()) {
-                List<Payment> payments = paymentRepository.findByOrderNumber(orderNumber);
-                if (!payments.isEmpty()) {
-                    Payment payment = payments.get(0);
-
-                    if (transactionId != null) {
-                        payment.setTransactionId(transactionId);
-                    }
-                    payment.setPaymentDate(LocalDateTime.now());
-                    payment.setGatewayResponse(callbackParams.toString());
-
-                    if (signatureValid && "00".equals(responseCode)) {
-                        // Thanh toán thành công (signature valid + responseCode = 00)
-                        payment.setStatus(PaymentStatus.COMPLETED);
-                        paymentRepository.save(payment);
-
-                        // Phân tích fraud và gửi thông báo thành công
-                        performFraudAnalysis(payment);
-                        sendPaymentNotification(payment, "SUCCESS");
-
-                        // Order status sẽ được Order Service cập nhật
-                    } else {
-                        // Thanh toán thất bại từ VNPay (kể cả code=71, 24, ...)
-                        // Hoặc signature validation failed
-                        String reason;
-                        if (responseCode != null) {
-                            // Map error codes to descriptive messages
-                            switch (responseCode) {
-                                case "03":
-                                    reason = "VNPay Error Code 03: Invalid data format. Check payment parameters (vnp_TxnRef, vnp_OrderInfo, vnp_Amount, etc.)";
-                                    logger.error("VNPay Error Code 03 for order {}: Invalid data format. Check all payment parameters.", orderNumber);
-                                    break;
-                                case "71":
-                                    reason = "VNPay Error Code 71: Website/Application chưa được VNPAY phê duyệt. Cần đăng ký domain/IP trong merchant account.";
-                                    logger.error("VNPay Error Code 71 for order {}: Website not approved. Please register domain/IP in VNPay merchant account.", orderNumber);
-                                    break;
-                                case "07":
-                                    reason = "VNPay Error Code 07: Giao dịch bị nghi ngờ (liên quan tới lừa đảo, giao dịch bất thường)";
-                                    break;
-                                case "09":
-                                    reason = "VNPay Error Code 09: Thẻ/Tài khoản chưa đăng ký dịch vụ InternetBanking";
-                                    break;
-                                case "10":
-                                    reason = "VNPay Error Code 10: Xác thực thông tin thẻ/tài khoản không đúng";
-                                    break;
-                                case "11":
-                                    reason = "VNPay Error Code 11: Đã hết hạn chờ thanh toán";
-                                    break;
-                                case "12":
-                                    reason = "VNPay Error Code 12: Thẻ/Tài khoản bị khóa";
-                                    break;
-                                case "13":
-                                    reason = "VNPay Error Code 13: Nhập sai mật khẩu xác thực giao dịch (OTP)";
-                                    break;
-                                case "51":
-                                    reason = "VNPay Error Code 51: Tài khoản không đủ số dư để thực hiện giao dịch";
-                                    break;
-                                case "65":
-                                    reason = "VNPay Error Code 65: Tài khoản đã vượt quá hạn mức giao dịch trong ngày";
-                                    break;
-                                case "75":
-                                    reason = "VNPay Error Code 75: Ngân hàng thanh toán đang bảo trì";
-                                    break;
-                                case "79":
-                                    reason = "VNPay Error Code 79: Nhập sai mật khẩu thanh toán quá số lần quy định";
-                                    break;
-                                case "99":
-                                    reason = "VNPay Error Code 99: Lỗi không xác định từ ngân hàng";
-                                    break;
-                                default:
-                                    reason = "VNPay response code: " + responseCode;
-                                    break;
-                            }
-                        } else if (!signatureValid) {
-                            reason = "VNPay signature validation failed - possible configuration error (check Merchant ID and Secret Key)";
-                            logger.error("VNPay signature validation failed for order {}: Possible configuration error", orderNumber);
-                        } else {
-                            reason = "VNPay signature validation failed or missing response code";
-                        }
-
-                        payment.setStatus(PaymentStatus.FAILED);
-                        payment.setFailureReason(reason);
-                        paymentRepository.save(payment);
-
-                        // Gửi thông báo thất bại
-                        sendPaymentNotification(payment, "FAILED");
-
-                        // Tự động hủy đơn hàng tương ứng để "rollback" luồng mua hàng
-                        try {
-                            Map<String, Object> cancelResult =
-                                    orderServiceClient.cancelOrderByNumber(orderNumber, reason);
-                            logger.info("Cancelled order {} due to VNPay failure (code={}, signatureValid={}): {}",
-                                    orderNumber, responseCode, signatureValid, cancelResult);
-                        } catch (Exception cancelEx) {
-                            logger.error("Failed to cancel order {} after VNPay failure (code={}): {}",
-                                    orderNumber, responseCode, cancelEx.getMessage(), cancelEx);
-                        }
-                    }
-                } else {
-                    logger.warn("Payment not found for orderNumber: {}", orderNumber);
+            Map<String, Object> result = applyVNPayCallback(callbackParams);
+            String cancelReason = (String) result.remove("cancelReason");
+            if (cancelReason != null) {
+                // Tự động hủy đơn hàng tương ứng để "rollback" luồng mua hàng
+                try {
+                    Map<String, Object> cancelResult = orderServiceClient.cancelOrderByNumber(orderNumber, cancelReason);
+                    logger.info("Cancelled order {} due to VNPay failure: {}", orderNumber, cancelResult);
+                } catch (Exception cancelEx) {
+                    logger.error("Failed to cancel order {} after VNPay failure: {}",
+                            orderNumber, cancelEx.getMessage(), cancelEx);
                 }
-            } else {
-                logger.warn("Order number not found in VNPay callback params: {}", callbackParams);
             }
-
-            // Return result with signature validation status
-            return vnpayResult;
+            return result;
         } catch (Exception e) {
             logger.error("Error processing VNPay callback: {}", e.getMessage(), e);
 
             // Try to cancel order even if callback processing fails
-            String orderNumber = callbackParams.get("vnp_TxnRef");
             if (orderNumber != null && !orderNumber.isEmpty()) {
                 try {
                     orderServiceClient.cancelOrderByNumber(orderNumber,
@@ -687,6 +589,139 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Apply a VNPay callback to the payment record (signature check, status update, notification).
+     * Does not call order-service: when the order must be cancelled the reason is returned under
+     * "cancelReason" so the caller can do it (and retry it) outside this transaction.
+     * Safe to repeat: a completed payment is never changed by a later callback.
+     */
+    public Map<String, Object> applyVNPayCallback(Map<String, String> callbackParams) {
+        String orderNumber = callbackParams.get("vnp_TxnRef");
+        String responseCode = callbackParams.get("vnp_ResponseCode");
+        String transactionId = callbackParams.get("vnp_TransactionNo");
+
+        // Validate signature first
+        Map<String, Object> vnpayResult = new HashMap<>(vnPayService.processCallback(callbackParams));
+        boolean signatureValid = (Boolean) vnpayResult.get("success");
+
+        // Process payment even if signature validation fails (for error cases like code=71)
+        // We still need to update payment status and cancel order
+        if (orderNumber == null || orderNumber.isEmpty()) {
+            logger.warn("Order number not found in VNPay callback params: {}", callbackParams);
+            return vnpayResult;
+        }
+
+        List<Payment> payments = paymentRepository.findByOrderNumber(orderNumber);
+        if (payments.isEmpty()) {
+            logger.warn("Payment not found for orderNumber: {}", orderNumber);
+            return vnpayResult;
+        }
+        Payment payment = payments.get(0);
+
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            // Duplicate IPN / return for an already confirmed payment
+            logger.info("Ignoring VNPay callback for already completed payment of order {} (code={})",
+                    orderNumber, responseCode);
+            return vnpayResult;
+        }
+
+        if (transactionId != null) {
+            payment.setTransactionId(transactionId);
+        }
+        payment.setPaymentDate(LocalDateTime.now());
+        payment.setGatewayResponse(callbackParams.toString());
+
+        if (signatureValid && "00".equals(responseCode)) {
+            // Thanh toán thành công (signature valid + responseCode = 00)
+            payment.setStatus(PaymentStatus.COMPLETED);
+            paymentRepository.save(payment);
+
+            String bankCode = callbackParams.get("vnp_BankCode");
+            if (bankCode != null) {
+                String cardType = callbackParams.get("vnp_CardType");
+                fraudFeatureStore.recordInstrument(payment.getUserId(),
+                        cardType != null ? bankCode + ":" + cardType : bankCode);
+            }
+
+            // Phân tích fraud và gửi thông báo thành công
+            performFraudAnalysis(payment);
+            sendPaymentNotification(payment, "SUCCESS");
+
+            // Order status sẽ được Order Service cập nhật
+            return vnpayResult;
+        }
+
+        // Thanh toán thất bại từ VNPay (kể cả code=71, 24, ...)
+        // Hoặc signature validation failed
+        String reason;
+        if (responseCode != null) {
+            // Map error codes to descriptive messages
+            switch (responseCode) {
+                case "03":
+                    reason = "VNPay Error Code 03: Invalid data format. Check payment parameters (vnp_TxnRef, vnp_OrderInfo, vnp_Amount, etc.)";
+                    logger.error("VNPay Error Code 03 for order {}: Invalid data format. Check all payment parameters.", orderNumber);
+                    break;
+                case "71":
+                    reason = "VNPay Error Code 71: Website/Application chưa được VNPAY phê duyệt. Cần đăng ký domain/IP trong merchant account.";
+                    logger.error("VNPay Error Code 71 for order {}: Website not approved. Please register domain/IP in VNPay merchant account.", orderNumber);
+                    break;
+                case "07":
+                    reason = "VNPay Error Code 07: Giao dịch bị nghi ngờ (liên quan tới lừa đảo, giao dịch bất thường)";
+                    break;
+                case "09":
+                    reason = "VNPay Error Code 09: Thẻ/Tài khoản chưa đăng ký dịch vụ InternetBanking";
+                    break;
+                case "10":
+                    reason = "VNPay Error Code 10: Xác thực thông tin thẻ/tài khoản không đúng";
+                    break;
+                case "11":
+                    reason = "VNPay Error Code 11: Đã hết hạn chờ thanh toán";
+                    break;
+                case "12":
+                    reason = "VNPay Error Code 12: Thẻ/Tài khoản bị khóa";
+                    break;
+                case "13":
+                    reason = "VNPay Error Code 13: Nhập sai mật khẩu xác thực giao dịch (OTP)";
+                    break;
+                case "51":
+                    reason = "VNPay Error Code 51: Tài khoản không đủ số dư để thực hiện giao dịch";
+                    break;
+                case "65":
+                    reason = "VNPay Error Code 65: Tài khoản đã vượt quá hạn mức giao dịch trong ngày";
+                    break;
+                case "75":
+                    reason = "VNPay Error Code 75: Ngân hàng thanh toán đang bảo trì";
+                    break;
+                case "79":
+                    reason = "VNPay Error Code 79: Nhập sai mật khẩu thanh toán quá số lần quy định";
+                    break;
+                case "99":
+                    reason = "VNPay Error Code 99: Lỗi không xác định từ ngân hàng";
+                    break;
+                default:
+                    reason = "VNPay response code: " + responseCode;
+                    break;
+            }
+        } else if (!signatureValid) {
+            reason = "VNPay signature validation failed - possible configuration error (check Merchant ID and Secret Key)";
+            logger.error("VNPay signature validation failed for order {}: Possible configuration error", orderNumber);
+        } else {
+            reason = "VNPay signature validation failed or missing response code";
+        }
+
+        if (payment.getStatus() != PaymentStatus.FAILED) {
+            markFailed(payment);
+            payment.setFailureReason(reason);
+            paymentRepository.save(payment);
+
+            // Gửi thông báo thất bại
+            sendPaymentNotification(payment, "FAILED");
+        }
+
+        vnpayResult.put("cancelReason", reason);
+        return vnpayResult;
+    }
+
     /**
      * Process Stripe payment confirmation
      */
@@ -746,6 +781,16 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Mark payment as failed, counting the transition once in the fraud features
+     */
+    private void markFailed(Payment payment) {
+        if (payment.getStatus() != PaymentStatus.FAILED) {
+            fraudFeatureStore.recordFailure(payment.getUserId());
+        }
+        payment.setStatus(PaymentStatus.FAILED);
+    }
+
     /**
      * Perform fraud analysis
      */
@@ -782,23 +827,30 @@ public class PaymentService {
             riskScore += 0.5; // Very high amount
         }
 
-        // Check for suspicious patterns
-        List<Payment> recentPayments = paymentRepository.findByUserIdAndCreatedAtBetween(
-                payment.getUserId(),
-                LocalDateTime.now().minusHours(24),
-                LocalDateTime.now()
-        );
+        // Check for suspicious patterns (rolling per-user features, no history queries)
+        FraudFeatureStore.Snapshot features = fraudFeatureStore.snapshot(payment.getUserId());
 
-        if (recentPayments.size() > 10) {
+        if (features.paymentCount24h > 10) {
             riskScore += 0.4; // Too many payments in 24h
         }
 
+        if (features.paymentCount1h > 5) {
+            riskScore += 0.2; // Burst of payments in the last hour
+        }
+
         // Check for failed payments
-        long failedCount = paymentRepository.countByUserIdAndStatus(payment.getUserId(), PaymentStatus.FAILED);
-        if (failedCount > 5) {
+        if (features.failedTotal > 5) {
             riskScore += 0.3; // High failure rate
         }
 
+        if (features.distinctIps24h > 3) {
+            riskScore += 0.2; // Many IP addresses in 24h
+        }
+
+        if (features.distinctInstruments24h > 3) {
+            riskScore += 0.2; // Many cards / banks in 24h
+        }
+
         // Determine risk level
         String riskLevel;
         if (riskScore >= 0.8) {
@@ -815,8 +867,12 @@ public class PaymentService {
         analysis.put("riskLevel", riskLevel);
         analysis.put("factors", List.of(
                 "Amount: " + payment.getAmount(),
-                "Recent payments: " + recentPayments.size(),
-                "Failed payments: " + failedCount
+                "Recent payments: " + features.paymentCount24h,
+                "Payments last hour: " + features.paymentCount1h,
+                "Amount last 24h: " + BigDecimal.valueOf(features.paymentAmount24h).toPlainString(),
+                "Failed payments: " + features.failedTotal,
+                "Distinct IPs 24h: " + features.distinctIps24h,
+                "Distinct cards 24h: " + features.distinctInstruments24h
         ));
 
         return analysis;
@@ -858,20 +914,6 @@ public class PaymentService {
         return paymentRepository.findAll(pageable);
     }
 
-    /**
-     * Get payment statistics
-     */
-    public Map<String, Object> getPaymentStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-
-        stats.put("totalPayments", paymentRepository.count());
-        stats.put("completedPayments", paymentRepository.countByUserIdAndStatus(null, PaymentStatus.COMPLETED));
-        stats.put("failedPayments", paymentRepository.countByUserIdAndStatus(null, PaymentStatus.FAILED));
-        stats.put("pendingPayments", paymentRepository.countByUserIdAndStatus(null, PaymentStatus.PENDING));
-
-        return stats;
-    }
-
     /**
      * Refund payment
      */
@@ -971,20 +1013,6 @@ public class PaymentService {
         }
     }
 
-    /**
-     * Get high risk payments
-     */
-    public List<Payment> getHighRiskPayments() {
-        return paymentRepository.findHighRiskPayments(RiskLevel.HIGH);
-    }
-
-    /**
-     * Get failed payments
-     */
-    public List<Payment> getFailedPayments() {
-        return paymentRepository.findFailedPayments(LocalDateTime.now().minusDays(7));
-    }
-
     /**
      * Handle critical operation failures that require manual intervention
      * This method provides a centralized way to handle failures in critical operations
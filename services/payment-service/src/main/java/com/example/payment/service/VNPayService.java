@@ -3,11 +3,10 @@ package com.example.payment.service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -42,6 +41,12 @@ public class VNPayService {
 	@Value("${interservice.password:service123}")
 	private String interServicePassword;
 
+	@Autowired
+	private RestTemplate rest;
+
+	@Autowired
+	private VNPaySigner signer;
+
 	public Map<String, Object> validateConfiguration() {
 		// Check if we're in development mode (using placeholder values or blank)
 		boolean isDevelopmentMode = "your-vnpay-merchant-id-here".equals(merchantId) ||
@@ -231,10 +236,11 @@ public class VNPayService {
 		params.remove("vnp_SecureHashType");
 		params.remove("vnp_SecureHash");
 		
-		String queryStringForHash = buildQueryForHash(params);
-		String secureHash = hmacSHA512(trimmedSecret, queryStringForHash);
-		String queryStringForUrl = buildQueryForUrl(params);
-		String paymentRedirect = paymentUrl + "?" + queryStringForUrl + "&vnp_SecureHash=" + URLEncoder.encode(secureHash, StandardCharsets.UTF_8);
+		// The signed canonical query is also the URL query (same sort order and encoding)
+		VNPaySigner.Signed signed = signer.sign(trimmedSecret, params);
+		String queryStringForHash = signed.query;
+		String secureHash = signed.secureHash;
+		String paymentRedirect = paymentUrl + "?" + queryStringForHash + "&vnp_SecureHash=" + secureHash;
 		
 		// Debug logging - CRITICAL để fix lỗi code=70
 		System.err.println("=== VNPay Hash Debug (code=70 fix) ===");
@@ -258,13 +264,8 @@ public class VNPayService {
 	}
 
 	public Map<String, Object> processCallback(Map<String, String> callbackParams) {
-		Map<String, String> params = new TreeMap<>(callbackParams);
-		String receivedHash = params.remove("vnp_SecureHash");
-		params.remove("vnp_SecureHashType");
-		String queryString = buildQueryForHash(params);
-		String trimmedSecret = getTrimmedSecretKey();
-		String computed = hmacSHA512(trimmedSecret, queryString);
-		boolean valid = receivedHash != null && receivedHash.equalsIgnoreCase(computed);
+		// Hash fields are skipped by the signer, no copy of the parameters needed
+		boolean valid = signer.verify(getTrimmedSecretKey(), callbackParams, callbackParams.get("vnp_SecureHash"));
 		return Map.of("success", valid, "data", callbackParams);
 	}
 
@@ -273,83 +274,10 @@ public class VNPayService {
 		return ip;
 	}
 
-	/**
-	 * Build query string WITH URL encoding (VNPay expects hash string identical to actual query)
-	 * Parameters must be sorted alphabetically by KEY name (TreeMap handles this)
-	 * Only include non-null and non-empty values
-	 * IMPORTANT: Do NOT include vnp_SecureHash or vnp_SecureHashType in hash calculation
-	 */
-	private static String buildQueryForHash(Map<String, String> params) {
-		StringBuilder sb = new StringBuilder();
-		boolean first = true;
-		for (Map.Entry<String, String> e : params.entrySet()) {
-			// Skip null values but keep empty strings (VNPAY requirement)
-			if (e.getValue() == null) {
-				continue;
-			}
-			String key = e.getKey();
-			if ("vnp_SecureHash".equals(key) || "vnp_SecureHashType".equals(key)) {
-				continue;
-			}
-			if (!first) sb.append("&");
-			first = false;
-			sb.append(encodeForVnPay(key))
-			  .append("=")
-			  .append(encodeForVnPay(e.getValue()));
-		}
-		return sb.toString();
-	}
-	
-	/**
-	 * Build query string WITH URL encoding (for URL construction)
-	 */
-	private static String buildQueryForUrl(Map<String, String> params) {
-		StringBuilder sb = new StringBuilder();
-		boolean first = true;
-		for (Map.Entry<String, String> e : params.entrySet()) {
-			if (!first) sb.append("&");
-			first = false;
-			sb.append(encodeForVnPay(e.getKey()))
-			  .append("=")
-			  .append(encodeForVnPay(e.getValue()));
-		}
-		return sb.toString();
-	}
-
-	private static String hmacSHA512(String key, String data) {
-		try {
-			javax.crypto.Mac mac = javax.crypto.Mac.getInstance("HmacSHA512");
-			// VNPay yêu cầu: Secret key dùng ISO-8859-1, data dùng UTF-8
-			// Đây là yêu cầu chính thức từ VNPay documentation
-			byte[] keyBytes = key.getBytes(StandardCharsets.ISO_8859_1);
-			byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-			mac.init(new javax.crypto.spec.SecretKeySpec(keyBytes, "HmacSHA512"));
-			byte[] bytes = mac.doFinal(dataBytes);
-			StringBuilder hash = new StringBuilder(bytes.length * 2);
-			for (byte b : bytes) {
-				String hex = Integer.toHexString(0xff & b);
-				if (hex.length() == 1) hash.append('0');
-				hash.append(hex);
-			}
-			return hash.toString();
-		} catch (Exception ex) {
-			throw new RuntimeException("Failed to compute HMAC SHA512", ex);
-		}
-	}
-
 	private boolean isBlank(String s) { return s == null || s.trim().isEmpty(); }
 
-	private static String encodeForVnPay(String input) {
-		// VNPay expects standard application/x-www-form-urlencoded format.
-		// Do not replace '+' with '%20' or make other custom tweaks,
-		// otherwise the hash string will differ from what VNPay reconstructs.
-		return URLEncoder.encode(input, StandardCharsets.UTF_8);
-	}
-
 	private OrderDTO fetchOrder(Long id) {
 		try {
-			RestTemplate rest = new RestTemplate();
-
 			String url = orderServiceBaseUrl + "/api/orders/" + id;
 
 			// Add authentication headers for inter-service communication
@@ -368,8 +296,6 @@ public class VNPayService {
 
 	private OrderDTO fetchOrderByNumber(String orderNumber) {
 		try {
-			RestTemplate rest = new RestTemplate();
-
 			String url = orderServiceBaseUrl + "/api/orders/number/" + orderNumber;
 
 			// Add authentication headers for inter-service communication
@@ -0,0 +1,218 @@
+package com.example.payment.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * HMAC-SHA512 signer for VNPay payment URLs and callbacks.
+ *
+ * Each thread keeps one {@link Mac} initialized with the secret key (re-initialized only when
+ * the key changes) plus reusable key, byte and digest buffers. The canonical query is written
+ * straight into the byte buffer: parameters sorted by name, {@code vnp_SecureHash} /
+ * {@code vnp_SecureHashType} and null values skipped, names and values form-encoded exactly
+ * like {@code URLEncoder.encode(s, UTF_8)}. Verifying a callback therefore allocates almost
+ * nothing and compares the digest in constant time.
+ */
+@Component
+public class VNPaySigner {
+
+    static final String ALGORITHM = "HmacSHA512";
+
+    private static final int DIGEST_LENGTH = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * Query string and signature for a payment redirect URL
+     */
+    public static class Signed {
+        public final String query;
+        public final String secureHash;
+
+        Signed(String query, String secureHash) {
+            this.query = query;
+            this.secureHash = secureHash;
+        }
+    }
+
+    /**
+     * Build the canonical query for {@code params} and sign it.
+     * The query is the exact string that was signed and can be used as the URL query.
+     */
+    public Signed sign(String secretKey, Map<String, String> params) {
+        State s = state.get();
+        Mac mac = s.mac(secretKey);
+        int length = s.writeCanonical(params);
+        mac.update(s.buffer, 0, length);
+        s.doFinal(mac);
+        String query = new String(s.buffer, 0, length, StandardCharsets.US_ASCII);
+        return new Signed(query, s.digestHex());
+    }
+
+    /**
+     * Check a callback signature. {@code params} may contain the hash fields; they are ignored.
+     */
+    public boolean verify(String secretKey, Map<String, String> params, String receivedHash) {
+        if (receivedHash == null || receivedHash.length() != DIGEST_LENGTH * 2) {
+            return false;
+        }
+        State s = state.get();
+        Mac mac = s.mac(secretKey);
+        int length = s.writeCanonical(params);
+        mac.update(s.buffer, 0, length);
+        s.doFinal(mac);
+        if (!s.decodeHex(receivedHash)) {
+            return false;
+        }
+        return MessageDigest.isEqual(s.digest, s.received);
+    }
+
+    private static boolean excluded(String key) {
+        return "vnp_SecureHash".equals(key) || "vnp_SecureHashType".equals(key);
+    }
+
+    /**
+     * Per-thread signing state
+     */
+    private static class State {
+        private Mac mac;
+        private String macKey;
+
+        private byte[] buffer = new byte[1024];
+        private String[] keys = new String[32];
+        private final byte[] digest = new byte[DIGEST_LENGTH];
+        private final byte[] received = new byte[DIGEST_LENGTH];
+        private final byte[] hex = new byte[DIGEST_LENGTH * 2];
+
+        Mac mac(String secretKey) {
+            String key = secretKey != null ? secretKey : "";
+            if (mac == null || !key.equals(macKey)) {
+                try {
+                    Mac created = Mac.getInstance(ALGORITHM);
+                    // VNPay: secret key is ISO-8859-1, data is UTF-8
+                    created.init(new SecretKeySpec(key.getBytes(StandardCharsets.ISO_8859_1), ALGORITHM));
+                    mac = created;
+                    macKey = key;
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    throw new IllegalStateException("Failed to initialize " + ALGORITHM, e);
+                }
+            }
+            return mac;
+        }
+
+        void doFinal(Mac mac) {
+            try {
+                mac.doFinal(digest, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException("Failed to compute " + ALGORITHM, e);
+            }
+        }
+
+        String digestHex() {
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX[digest[i] & 0x0f];
+            }
+            return new String(hex, StandardCharsets.US_ASCII);
+        }
+
+        boolean decodeHex(String value) {
+            for (int i = 0; i < DIGEST_LENGTH; i++) {
+                int hi = Character.digit(value.charAt(i * 2), 16);
+                int lo = Character.digit(value.charAt(i * 2 + 1), 16);
+                if (hi < 0 || lo < 0) {
+                    return false;
+                }
+                received[i] = (byte) ((hi << 4) | lo);
+            }
+            return true;
+        }
+
+        /**
+         * Write the sorted, encoded query into {@link #buffer} and return its length
+         */
+        int writeCanonical(Map<String, String> params) {
+            int count = 0;
+            if (keys.length < params.size()) {
+                keys = new String[Math.max(params.size(), keys.length * 2)];
+            }
+            for (Map.Entry<String, String> e : params.entrySet()) {
+                if (e.getKey() != null && e.getValue() != null && !excluded(e.getKey())) {
+                    keys[count++] = e.getKey();
+                }
+            }
+            Arrays.sort(keys, 0, count);
+
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    pos = put(pos, (byte) '&');
+                }
+                pos = encode(pos, keys[i]);
+                pos = put(pos, (byte) '=');
+                pos = encode(pos, params.get(keys[i]));
+            }
+            Arrays.fill(keys, 0, count, null);
+            return pos;
+        }
+
+        /**
+         * application/x-www-form-urlencoded, same output as URLEncoder.encode(s, UTF_8)
+         */
+        private int encode(int pos, String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                        || c == '.' || c == '-' || c == '*' || c == '_') {
+                    pos = put(pos, (byte) c);
+                } else if (c == ' ') {
+                    pos = put(pos, (byte) '+');
+                } else if (c < 0x80) {
+                    pos = escape(pos, c);
+                } else if (c < 0x800) {
+                    pos = escape(pos, 0xc0 | (c >> 6));
+                    pos = escape(pos, 0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    pos = escape(pos, 0xf0 | (cp >> 18));
+                    pos = escape(pos, 0x80 | ((cp >> 12) & 0x3f));
+                    pos = escape(pos, 0x80 | ((cp >> 6) & 0x3f));
+                    pos = escape(pos, 0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate: the UTF-8 encoder substitutes '?'
+                    pos = escape(pos, '?');
+                } else {
+                    pos = escape(pos, 0xe0 | (c >> 12));
+                    pos = escape(pos, 0x80 | ((c >> 6) & 0x3f));
+                    pos = escape(pos, 0x80 | (c & 0x3f));
+                }
+            }
+            return pos;
+        }
+
+        private int escape(int pos, int b) {
+            pos = put(pos, (byte) '%');
+            pos = put(pos, HEX_UPPER[(b >> 4) & 0x0f]);
+            return put(pos, HEX_UPPER[b & 0x0f]);
+        }
+
+        private int put(int pos, byte b) {
+            if (pos == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[pos] = b;
+            return pos + 1;
+        }
+    }
+}
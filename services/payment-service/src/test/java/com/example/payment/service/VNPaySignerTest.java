@@ -0,0 +1,179 @@
+package com.example.payment.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link VNPaySigner} must produce byte-for-byte the query and hash of the previous
+ * TreeMap + URLEncoder + Mac implementation, or VNPay rejects payments (code 70) and callbacks
+ * fail verification.
+ */
+class VNPaySignerTest {
+
+    private static final String SECRET = "TESTSECRETKEY0123456789ABCDEFGHIJ";
+    private static final String DIACRITICS =
+        "àáảãạăắằẳẵặâấầẩẫậđèéẻẽẹêếềểễệìíỉĩịòóỏõọôốồổỗộơớờởỡợùúủũụưứừửữựỳýỷỹỵĐ";
+
+    private final VNPaySigner signer = new VNPaySigner();
+
+    @Test
+    void signsLikeUrlEncoderForSpecialCharacters() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Version", "2.1.0");
+        params.put("vnp_Command", "pay");
+        params.put("vnp_Amount", "15000000");
+        params.put("vnp_OrderInfo", "Thanh toán đơn hàng ORD-2024 cho Nguyễn Văn Ấn");
+        params.put("vnp_ReturnUrl", "http://localhost:8085/api/payments/vnpay/return?a=1&b=2");
+        params.put("vnp_Tilde", "a~b+c d*e.f-g_h");
+        params.put("vnp_Symbols", "!\"#$%&'()+,/:;<=>?@[\\]^`{|}");
+        params.put("vnp_Emoji", "Quà 🎁 tặng 𝄞");
+        params.put("vnp_Empty", "");
+        params.put("vnp_Null", null);
+        params.put("vnp_Key With Space", "value with  two spaces");
+
+        assertMatchesReference(params);
+    }
+
+    @Test
+    void signsLikeUrlEncoderForUnpairedSurrogates() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_High", "a\uD83Db");
+        params.put("vnp_Low", "\uDE00z");
+        params.put("vnp_Trailing", "end\uD83D");
+
+        assertMatchesReference(params);
+    }
+
+    @Test
+    void ignoresHashFields() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_TxnRef", "ORD-1");
+        params.put("vnp_SecureHash", "abc");
+        params.put("vnp_SecureHashType", "HmacSHA512");
+
+        assertMatchesReference(params);
+        assertEquals("vnp_TxnRef=ORD-1", signer.sign(SECRET, params).query);
+    }
+
+    @Test
+    void signsLikeUrlEncoderForRandomInput() {
+        Random random = new Random(20240517L);
+        for (int round = 0; round < 500; round++) {
+            Map<String, String> params = new HashMap<>();
+            int count = 1 + random.nextInt(40);
+            for (int i = 0; i < count; i++) {
+                params.put("vnp_" + randomText(random, 1 + random.nextInt(8)), randomText(random, random.nextInt(60)));
+            }
+            assertMatchesReference(params);
+        }
+    }
+
+    @Test
+    void verifiesReferenceHashInAnyCase() {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("vnp_ResponseCode", "00");
+        params.put("vnp_OrderInfo", "Thanh toán ~ đơn hàng");
+        params.put("vnp_Empty", "");
+        String hash = referenceHash(SECRET, params);
+        params.put("vnp_SecureHash", hash);
+        params.put("vnp_SecureHashType", "HmacSHA512");
+
+        assertTrue(signer.verify(SECRET, params, hash));
+        assertTrue(signer.verify(SECRET, params, hash.toUpperCase(Locale.ROOT)));
+        assertFalse(signer.verify("OTHERSECRET", params, hash));
+        assertFalse(signer.verify(SECRET, params, hash.substring(1)));
+        assertFalse(signer.verify(SECRET, params, null));
+
+        params.put("vnp_ResponseCode", "24");
+        assertFalse(signer.verify(SECRET, params, hash));
+    }
+
+    @Test
+    void reusesStateAcrossKeysAndLargeQueries() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_OrderInfo", "Đơn hàng ".repeat(500));
+        for (String secret : new String[] {SECRET, "khóa-bí-mật", SECRET}) {
+            assertEquals(referenceHash(secret, params), signer.sign(secret, params).secureHash);
+            assertTrue(signer.verify(secret, params, referenceHash(secret, params)));
+        }
+    }
+
+    private void assertMatchesReference(Map<String, String> params) {
+        String expectedQuery = referenceQuery(params);
+        String expectedHash = referenceHash(SECRET, params);
+
+        VNPaySigner.Signed signed = signer.sign(SECRET, params);
+        assertEquals(expectedQuery, signed.query);
+        assertEquals(expectedHash, signed.secureHash);
+        assertTrue(signer.verify(SECRET, params, expectedHash));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            switch (random.nextInt(6)) {
+                case 0 -> sb.append((char) (0x20 + random.nextInt(0x5f)));  // printable ASCII
+                case 1 -> sb.append((char) random.nextInt(0x80));           // any ASCII, controls too
+                case 2 -> sb.append(DIACRITICS.charAt(random.nextInt(DIACRITICS.length())));
+                case 3 -> sb.append((char) (0x80 + random.nextInt(0x780)));  // two-byte UTF-8
+                case 4 -> sb.appendCodePoint(0x10000 + random.nextInt(0x100000)); // surrogate pair
+                default -> sb.append(" ~+*._-".charAt(random.nextInt(7)));
+            }
+        }
+        return sb.toString();
+    }
+
+    // Previous implementation: TreeMap order, URLEncoder (UTF-8), ISO-8859-1 key, lowercase hex
+
+    private static String referenceQuery(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (Map.Entry<String, String> e : new TreeMap<>(params).entrySet()) {
+            String key = e.getKey();
+            if (e.getValue() == null || "vnp_SecureHash".equals(key) || "vnp_SecureHashType".equals(key)) {
+                continue;
+            }
+            if (!first) {
+                sb.append('&');
+            }
+            first = false;
+            sb.append(URLEncoder.encode(key, StandardCharsets.UTF_8))
+              .append('=')
+              .append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    private static String referenceHash(String secret, Map<String, String> params) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.ISO_8859_1), "HmacSHA512"));
+            byte[] bytes = mac.doFinal(referenceQuery(params).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) {
+                    hash.append('0');
+                }
+                hash.append(hex);
+            }
+            return hash.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
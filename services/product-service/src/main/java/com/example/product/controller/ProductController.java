@@ -34,6 +34,8 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    private static final int MAX_BATCH_IDS = 100;
+
     @Autowired
     private ProductService productService;
 
@@ -83,7 +85,13 @@ public class ProductController {
         if (content == null || content.isEmpty()) {
             return products.map(ProductDTO::from);
         }
+        return new org.springframework.data.domain.PageImpl<>(toListDtos(content), products.getPageable(), products.getTotalElements());
+    }
 
+    /**
+     * DTOs with brand/category names, two lookups for the whole list
+     */
+    private List<ProductDTO> toListDtos(List<Product> content) {
         Set<Long> brandIds = new HashSet<>();
         Set<Long> categoryIds = new HashSet<>();
         for (Product p : content) {
@@ -105,8 +113,21 @@ public class ProductController {
             if (p.getCategoryId() != null) dto.setCategory(categoryNames.get(p.getCategoryId()));
             dtos.add(dto);
         }
+        return dtos;
+    }
 
-        return new org.springframework.data.domain.PageImpl<>(dtos, products.getPageable(), products.getTotalElements());
+    /**
+     * Several products in one call, in the order of the ids; unknown and deleted ids are left out.
+     * For service-to-service enrichment (recommendations, carts): no view counting and no
+     * per-product calls to category/brand services.
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<List<ProductDTO>> getBatch(@RequestParam List<String> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Product> products = productService.findByIds(ids);
+        return ResponseEntity.ok(products.isEmpty() ? List.of() : toListDtos(products));
     }
 
     @GetMapping("/{id}")
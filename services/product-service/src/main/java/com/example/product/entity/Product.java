@@ -20,7 +20,7 @@ import java.util.UUID;
     @Index(name = "idx_product_active", columnList = "is_active"),
     @Index(name = "idx_product_sku", columnList = "sku")
 })
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, com.example.product.event.ProductPriceChangeListener.class})
 public class Product {
 
     @Id
@@ -118,6 +118,10 @@ public class Product {
     @Column(name = "tags", columnDefinition = "LONGTEXT")
     private String tags;
 
+    // Selling price as loaded from the database, used to detect price changes on update
+    @Transient
+    private BigDecimal loadedSellingPrice;
+
     @Column(name = "category_id")
     private Long categoryId;
 
@@ -213,6 +217,16 @@ public class Product {
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     public java.util.List<ProductVariant> getVariants() { return variants; }
     public void setVariants(java.util.List<ProductVariant> variants) { this.variants = variants; }
+
+    /**
+     * Price the customer pays: the sale price while a sale is active, otherwise the list price
+     */
+    public BigDecimal currentSellingPrice() {
+        return Boolean.TRUE.equals(isOnSale) && salePrice != null ? salePrice : price;
+    }
+
+    public BigDecimal loadedSellingPrice() { return loadedSellingPrice; }
+    public void rememberSellingPrice() { this.loadedSellingPrice = currentSellingPrice(); }
 }
 
 
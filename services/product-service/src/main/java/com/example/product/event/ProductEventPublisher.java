@@ -0,0 +1,76 @@
+package com.example.product.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publishes product change events for other services (wishlist notifications).
+ *
+ * Events are sent after the surrounding transaction commits, so a rolled back change is never
+ * announced. Messages are keyed by product id to keep the events of one product in order.
+ */
+@Service
+public class ProductEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductEventPublisher.class);
+
+    public static final String PRODUCT_PRICE_CHANGED_TOPIC = "product-price-changed";
+
+    @Autowired(required = false)
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kafka.enabled:false}")
+    private boolean kafkaEnabled;
+
+    /**
+     * Publish a selling price change
+     */
+    public void publishPriceChanged(String productId, String productName, BigDecimal oldPrice, BigDecimal newPrice) {
+        if (!kafkaEnabled || kafkaTemplate == null) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("productId", productId);
+        event.put("productName", productName);
+        event.put("oldPrice", oldPrice);
+        event.put("newPrice", newPrice);
+        event.put("changedAt", System.currentTimeMillis());
+        afterCommit(() -> send(PRODUCT_PRICE_CHANGED_TOPIC, productId, event));
+    }
+
+    private void send(String topic, String key, Map<String, Object> event) {
+        try {
+            kafkaTemplate.send(topic, key, objectMapper.writeValueAsString(event));
+            logger.debug("Published {} event for product {}", topic, key);
+        } catch (Exception e) {
+            logger.warn("Failed to publish {} event for product {}: {}", topic, key, e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
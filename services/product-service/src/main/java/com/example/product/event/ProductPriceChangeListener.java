@@ -0,0 +1,36 @@
+package com.example.product.event;
+
+import com.example.product.entity.Product;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA listener that detects selling price changes on {@link Product}.
+ *
+ * Hooking the entity instead of the services catches every write path: admin edits,
+ * the sale activation / expiration scheduler and review updates alike.
+ */
+public class ProductPriceChangeListener {
+
+    @Autowired
+    private ProductEventPublisher productEventPublisher;
+
+    @PostLoad
+    @PostPersist
+    public void remember(Product product) {
+        product.rememberSellingPrice();
+    }
+
+    @PostUpdate
+    public void afterUpdate(Product product) {
+        java.math.BigDecimal oldPrice = product.loadedSellingPrice();
+        java.math.BigDecimal newPrice = product.currentSellingPrice();
+        product.rememberSellingPrice();
+        if (oldPrice == null || newPrice == null || oldPrice.compareTo(newPrice) == 0) {
+            return;
+        }
+        productEventPublisher.publishPriceChanged(product.getId(), product.getName(), oldPrice, newPrice);
+    }
+}
@@ -89,6 +89,28 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
+    /**
+     * Products by id in one query, in the order of the ids; unknown and deleted products are skipped
+     */
+    public List<Product> findByIds(List<String> ids) {
+        List<String> distinct = ids.stream().filter(java.util.Objects::nonNull).map(String::trim)
+            .filter(id -> !id.isEmpty()).distinct().toList();
+        if (distinct.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> productMap = productRepository.findAllById(distinct).stream()
+            .filter(p -> !Boolean.TRUE.equals(p.getIsDeleted()))
+            .collect(java.util.stream.Collectors.toMap(Product::getId, p -> p));
+        List<Product> ordered = new java.util.ArrayList<>(productMap.size());
+        for (String id : distinct) {
+            Product p = productMap.get(id);
+            if (p != null) {
+                ordered.add(p);
+            }
+        }
+        return ordered;
+    }
+
     public Page<Product> findAllActiveWithFilters(int page, int size, String search, String category, String brand, java.math.BigDecimal minPrice, java.math.BigDecimal maxPrice, String sort) {
         Pageable pageable = createPageable(page, size, sort);
 
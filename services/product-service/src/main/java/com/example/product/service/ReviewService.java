@@ -148,7 +148,7 @@ public class ReviewService {
      */
     public boolean checkIfUserPurchasedProduct(String userId, String productId) {
         try {
-            String url = orderServiceUrl + "/api/orders/user/" + userId + "/purchased-products";
+            String url = orderServiceUrl + "/api/orders/purchased/" + userId + "/" + productId;
             
             // Call Order Service with internal request header
             org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
@@ -163,18 +163,9 @@ public class ReviewService {
             );
             
             Map<String, Object> responseBody = response.getBody();
-            if (response.getStatusCode().is2xxSuccessful() && responseBody != null) {
-                Object productsObj = responseBody.get("products");
-                if (productsObj instanceof List) {
-                    List<?> purchasedProductIds = (List<?>) productsObj;
-                    // Convert all items to String for comparison
-                    return purchasedProductIds.stream()
-                            .map(id -> id.toString())
-                            .anyMatch(id -> id.equals(productId));
-                }
-            }
-            
-            return false;
+            return response.getStatusCode().is2xxSuccessful()
+                    && responseBody != null
+                    && Boolean.TRUE.equals(responseBody.get("purchased"));
         } catch (Exception e) {
             System.err.println("Error checking purchase status: " + e.getMessage());
             // If Order Service is down, allow review anyway (graceful degradation)
@@ -1,17 +1,38 @@
 package com.example.recommendation;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 @SpringBootApplication
+@EnableScheduling
 public class RecommendationServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(RecommendationServiceApplication.class, args);
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+        // Pooled client, timeouts and lb:// support come from the shared HttpClientAutoConfiguration
+        return builder.build();
+    }
+
+    /**
+     * Background refreshes of cached personalized recommendations (PersonalizedRecommendationCache)
+     */
+    @Bean(name = "recommendationRefreshExecutor")
+    public ThreadPoolTaskExecutor recommendationRefreshExecutor(
+            @Value("${recommendation.personalized-cache.refresh-threads:4}") int refreshThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(refreshThreads);
+        executor.setMaxPoolSize(refreshThreads);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("reco-refresh-");
+        executor.initialize();
+        return executor;
     }
 }
@@ -0,0 +1,96 @@
+package com.example.recommendation.event;
+
+import com.example.recommendation.service.PersonalizedRecommendationCache;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Spreads invalidations of {@link PersonalizedRecommendationCache} to every instance.
+ *
+ * Users invalidated by a behavior flush on this instance are published to the invalidation topic;
+ * every instance consumes it with a group id of its own (a broadcast), starting from the latest
+ * offset: older invalidations are covered by the cache expiry. Without Kafka
+ * ({@code kafka.enabled=false}, the default) invalidation stays local to the instance.
+ */
+@Component
+public class PersonalizedCacheInvalidationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonalizedCacheInvalidationBroadcaster.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD = new TypeReference<>() {};
+
+    @Autowired(required = false)
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PersonalizedRecommendationCache personalizedRecommendationCache;
+
+    @Value("${kafka.enabled:false}")
+    private boolean kafkaEnabled;
+
+    @Value("${recommendation.personalized-cache.invalidation-topic:recommendation-cache-invalidation}")
+    private String topic;
+
+    // Own messages come back through the topic and are skipped
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @PostConstruct
+    public void init() {
+        if (kafkaEnabled && kafkaTemplate != null) {
+            personalizedRecommendationCache.addInvalidationListener(this::publish);
+        }
+    }
+
+    private void publish(Set<String> userIds) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("origin", instanceId);
+        message.put("userIds", new ArrayList<>(userIds));
+        try {
+            kafkaTemplate.send(topic, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            logger.warn("Failed to publish cache invalidation for {} users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    @KafkaListener(topics = "${recommendation.personalized-cache.invalidation-topic:recommendation-cache-invalidation}",
+                   groupId = "recommendation-cache-#{T(java.util.UUID).randomUUID().toString()}",
+                   autoStartup = "${kafka.enabled:false}",
+                   properties = {"auto.offset.reset=latest"})
+    public void onInvalidation(String payload) {
+        try {
+            Map<String, Object> message = objectMapper.readValue(payload, PAYLOAD);
+            if (instanceId.equals(message.get("origin"))) {
+                return;
+            }
+            Object userIds = message.get("userIds");
+            if (userIds instanceof List<?> users) {
+                for (Object userId : users) {
+                    if (userId != null) {
+                        personalizedRecommendationCache.invalidate(userId.toString());
+                    }
+                }
+                logger.debug("Invalidated cached recommendations of {} users from another instance", users.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Dropping unreadable cache invalidation: {}", e.getMessage());
+        }
+    }
+}
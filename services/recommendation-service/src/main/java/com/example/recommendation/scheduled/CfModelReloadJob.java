@@ -0,0 +1,31 @@
+package com.example.recommendation.scheduled;
+
+import com.example.recommendation.service.CfModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the CF model factors at startup and picks up newly exported files,
+ * so retraining takes effect within one interval without a restart.
+ */
+@Component
+public class CfModelReloadJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CfModelReloadJob.class);
+
+    @Autowired
+    private CfModelService cfModelService;
+
+    @Scheduled(initialDelayString = "${recommendation.cf.initial-delay-ms:0}",
+               fixedDelayString = "${recommendation.cf.reload-interval-ms:60000}")
+    public void reloadModel() {
+        try {
+            cfModelService.reloadIfChanged();
+        } catch (Exception e) {
+            logger.error("Error reloading CF model: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.recommendation.scheduled;
+
+import com.example.recommendation.service.ItemSimilarityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the item similarity index shortly after startup and then periodically,
+ * so catalog changes (new products, price and category edits) show up within one interval.
+ */
+@Component
+public class ItemSimilarityRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemSimilarityRebuildJob.class);
+
+    @Autowired
+    private ItemSimilarityService itemSimilarityService;
+
+    @Scheduled(initialDelayString = "${recommendation.similarity.initial-delay-ms:15000}",
+               fixedDelayString = "${recommendation.similarity.rebuild-interval-ms:3600000}")
+    public void rebuildIndex() {
+        try {
+            itemSimilarityService.rebuild();
+        } catch (Exception e) {
+            logger.error("Error rebuilding item similarity index: {}", e.getMessage(), e);
+        }
+    }
+}
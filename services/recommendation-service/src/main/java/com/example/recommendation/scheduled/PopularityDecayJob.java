@@ -0,0 +1,47 @@
+package com.example.recommendation.scheduled;
+
+import com.example.recommendation.service.BehaviorEventBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Exponential decay of the product popularity sorted set.
+ *
+ * Every interval all scores are multiplied by 0.5^(interval / half-life), so a view today counts
+ * twice as much as a view one half-life ago. Products whose score decayed below min-score are
+ * removed. Only one instance decays per interval.
+ */
+@Component
+public class PopularityDecayJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityDecayJob.class);
+
+    @Autowired
+    private BehaviorEventBuffer behaviorEventBuffer;
+
+    @Value("${recommendation.popularity.decay-interval-ms:3600000}")
+    private long decayIntervalMs;
+
+    @Value("${recommendation.popularity.half-life-hours:168}")
+    private double halfLifeHours;
+
+    @Value("${recommendation.popularity.min-score:0.05}")
+    private double minScore;
+
+    @Scheduled(initialDelayString = "${recommendation.popularity.decay-interval-ms:3600000}",
+               fixedDelayString = "${recommendation.popularity.decay-interval-ms:3600000}")
+    public void decay() {
+        try {
+            double factor = Math.pow(0.5, decayIntervalMs / (halfLifeHours * 3_600_000d));
+            behaviorEventBuffer.decayPopularity(factor, minScore, Duration.ofMillis(decayIntervalMs));
+        } catch (Exception e) {
+            logger.error("Error decaying product popularity: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.recommendation.scheduled;
+
+import com.example.recommendation.service.UserItemIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the inverted user-item index from behavior recorded before the index existed.
+ * Runs once per Redis; later runs see the marker key and return immediately.
+ */
+@Component
+public class UserItemIndexBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserItemIndexBackfillJob.class);
+
+    @Autowired
+    private UserItemIndex userItemIndex;
+
+    @Scheduled(initialDelayString = "${recommendation.similar-users.backfill-delay-ms:20000}",
+               fixedDelayString = "${recommendation.similar-users.backfill-interval-ms:86400000}")
+    public void backfill() {
+        try {
+            userItemIndex.backfillIfNeeded();
+        } catch (Exception e) {
+            logger.error("Error backfilling user-item index: {}", e.getMessage(), e);
+        }
+    }
+}
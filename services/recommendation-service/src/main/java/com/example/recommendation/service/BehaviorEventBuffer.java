@@ -0,0 +1,255 @@
+package com.example.recommendation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.connection.zset.Weights;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory buffer for tracked user behavior, written to Redis in pipelined batches.
+ *
+ * {@link #offer} only enqueues, so tracking costs no Redis round trip on the request path. A
+ * scheduled flush drains the queue and writes the whole batch in one pipeline:
+ * - SADD user:behavior:{userId} and user:behavior:{userId}:{type}
+ * - SADD product:users:{productId} (the {@link UserItemIndex})
+ * - ZINCRBY product:popularity, weighted by behavior type (the popular-products list)
+ * The 90-day EXPIREs are sent at most once per key per {@code expire-window-ms}, not per event.
+ *
+ * When the queue is full new events are dropped and counted; tracking is best effort, and events
+ * still buffered when an instance dies are lost.
+ *
+ * Flush listeners are told which users' behavior was written (and of which types) once the batch
+ * is in Redis, so caches derived from it are only dropped after a recompute can see the new data.
+ */
+@Component
+public class BehaviorEventBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BehaviorEventBuffer.class);
+
+    static final String POPULARITY_KEY = "product:popularity";
+    private static final long TTL_DAYS = 90;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${recommendation.tracking.buffer-capacity:100000}")
+    private int capacity;
+
+    @Value("${recommendation.tracking.max-batch-size:5000}")
+    private int maxBatchSize;
+
+    @Value("${recommendation.tracking.expire-window-ms:3600000}")
+    private long expireWindowMs;
+
+    @Value("${recommendation.tracking.expire-cache-size:200000}")
+    private int expireCacheSize;
+
+    private BlockingQueue<BehaviorEvent> queue;
+    private Map<String, Long> lastExpire;
+    private Counter dropped;
+    private final List<Consumer<Map<String, Set<String>>>> flushListeners = new CopyOnWriteArrayList<>();
+
+    private static final class BehaviorEvent {
+        final String userId;
+        final String productId;
+        final String behaviorType;
+
+        BehaviorEvent(String userId, String productId, String behaviorType) {
+            this.userId = userId;
+            this.productId = productId;
+            this.behaviorType = behaviorType;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        // Only touched by the flushing thread; access order makes it an LRU
+        lastExpire = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > expireCacheSize;
+            }
+        };
+        if (meterRegistry != null) {
+            dropped = meterRegistry.counter("recommendation.tracking.dropped");
+            Gauge.builder("recommendation.tracking.buffered", queue, BlockingQueue::size).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Enqueue one behavior event; never blocks
+     */
+    public boolean offer(String userId, String productId, String behaviorType) {
+        if (redisTemplate == null) {
+            return false;
+        }
+        boolean accepted = queue.offer(new BehaviorEvent(userId, productId, behaviorType));
+        if (!accepted && dropped != null) {
+            dropped.increment();
+        }
+        return accepted;
+    }
+
+    /**
+     * Register a callback receiving userId -> behavior types after each written batch
+     */
+    public void addFlushListener(Consumer<Map<String, Set<String>>> listener) {
+        flushListeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.tracking.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (redisTemplate == null) {
+            return;
+        }
+        List<BehaviorEvent> batch = new ArrayList<>();
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            try {
+                write(batch);
+            } catch (Exception e) {
+                logger.warn("Failed to write {} behavior events to Redis: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<BehaviorEvent> batch) {
+        long now = System.currentTimeMillis();
+        Set<String> expireKeys = new LinkedHashSet<>();
+        for (BehaviorEvent event : batch) {
+            String userKey = UserItemIndex.USER_BEHAVIOR_PREFIX + event.userId;
+            expireKeys.add(userKey);
+            if (event.behaviorType != null) {
+                expireKeys.add(userKey + ":" + event.behaviorType);
+            }
+            expireKeys.add(UserItemIndex.PRODUCT_USERS_PREFIX + event.productId);
+        }
+        expireKeys.removeIf(key -> {
+            Long last = lastExpire.get(key);
+            return last != null && now - last < expireWindowMs;
+        });
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (BehaviorEvent event : batch) {
+                    String userKey = UserItemIndex.USER_BEHAVIOR_PREFIX + event.userId;
+                    ops.opsForSet().add(userKey, event.productId);
+                    if (event.behaviorType != null) {
+                        ops.opsForSet().add(userKey + ":" + event.behaviorType, event.productId);
+                    }
+                    ops.opsForSet().add(UserItemIndex.PRODUCT_USERS_PREFIX + event.productId, event.userId);
+                    ops.opsForZSet().incrementScore(POPULARITY_KEY, event.productId, weightOf(event.behaviorType));
+                }
+                for (String key : expireKeys) {
+                    ops.expire(key, TTL_DAYS, TimeUnit.DAYS);
+                }
+                return null;
+            }
+        });
+
+        for (String key : expireKeys) {
+            lastExpire.put(key, now);
+        }
+        logger.debug("Flushed {} behavior events ({} expires)", batch.size(), expireKeys.size());
+        notifyFlushed(batch);
+    }
+
+    private void notifyFlushed(List<BehaviorEvent> batch) {
+        if (flushListeners.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> typesByUser = new LinkedHashMap<>();
+        for (BehaviorEvent event : batch) {
+            Set<String> types = typesByUser.computeIfAbsent(event.userId, userId -> new HashSet<>());
+            if (event.behaviorType != null) {
+                types.add(event.behaviorType.toLowerCase(Locale.ROOT));
+            }
+        }
+        for (Consumer<Map<String, Set<String>>> listener : flushListeners) {
+            try {
+                listener.accept(typesByUser);
+            } catch (Exception e) {
+                logger.warn("Behavior flush listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Popularity weight of a behavior: stronger intent counts more
+     */
+    static double weightOf(String behaviorType) {
+        if (behaviorType == null) {
+            return 1.0;
+        }
+        switch (behaviorType.toLowerCase(Locale.ROOT)) {
+            case "purchase":
+                return 5.0;
+            case "add_to_cart":
+                return 3.0;
+            case "favorite":
+            case "wishlist":
+                return 2.0;
+            default:
+                return 1.0;
+        }
+    }
+
+    /**
+     * Multiply all popularity scores by factor and drop the ones that decayed below minScore.
+     * Runs on one instance per interval (guarded by a lock key), see PopularityDecayJob.
+     */
+    public boolean decayPopularity(double factor, double minScore, Duration interval) {
+        if (redisTemplate == null) {
+            return false;
+        }
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(POPULARITY_KEY + ":decay-lock", "1", interval);
+        if (!Boolean.TRUE.equals(acquired)) {
+            return false;
+        }
+        // ZUNIONSTORE of the key with itself and one weight rescales every score in place
+        redisTemplate.opsForZSet().unionAndStore(POPULARITY_KEY, List.of(), POPULARITY_KEY, Aggregate.SUM, Weights.of(factor));
+        Long removed = redisTemplate.opsForZSet().removeRangeByScore(POPULARITY_KEY, Double.NEGATIVE_INFINITY, minScore);
+        logger.debug("Decayed product popularity by {} ({} products dropped)", factor, removed);
+        return true;
+    }
+}
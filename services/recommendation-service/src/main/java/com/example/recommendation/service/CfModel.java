@@ -0,0 +1,218 @@
+package com.example.recommendation.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Collaborative Filtering model factors, scored in-process.
+ *
+ * Loaded from the flat binary file written by services/ml-training/export_model_factors.py:
+ * global mean, user/item biases and (for SVD) user/item latent vectors. Predicted rating is
+ * globalMean + userBias + itemBias + dot(userFactors, itemFactors), clamped to the rating scale,
+ * the same formula the Python reco_service uses for both model types.
+ *
+ * The whole file is copied once into a direct (off-heap) buffer; biases and factors are read
+ * from float views of it, so a large model adds no heap or GC pressure. Item factors are
+ * row-major, and the dot product walks each row sequentially with independent accumulators so
+ * the JIT can keep several multiply-adds in flight. Immutable; a reload builds a new instance.
+ */
+public final class CfModel {
+
+    private static final int MAGIC = 0x31464352; // "RCF1" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final float globalMean;
+    private final float minRating;
+    private final float maxRating;
+    private final int rank;
+    private final Map<String, Integer> userRows;
+    private final String[] itemIds;
+    private final FloatBuffer userBias;
+    private final FloatBuffer itemBias;
+    private final FloatBuffer userFactors;
+    private final FloatBuffer itemFactors;
+
+    private CfModel(float globalMean, float minRating, float maxRating, int rank, Map<String, Integer> userRows,
+                    String[] itemIds, FloatBuffer userBias, FloatBuffer itemBias,
+                    FloatBuffer userFactors, FloatBuffer itemFactors) {
+        this.globalMean = globalMean;
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.rank = rank;
+        this.userRows = userRows;
+        this.itemIds = itemIds;
+        this.userBias = userBias;
+        this.itemBias = itemBias;
+        this.userFactors = userFactors;
+        this.itemFactors = itemFactors;
+    }
+
+    /**
+     * Read and validate a factors file; throws IOException if it is truncated or not a factors file
+     */
+    public static CfModel load(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected model file size " + size + ": " + path);
+            }
+            data = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Model file truncated while reading: " + path);
+                }
+            }
+            data.flip();
+        }
+
+        if (data.getInt() != MAGIC) {
+            throw new IOException("Not a CF factors file: " + path);
+        }
+        int version = data.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported CF factors version " + version + ": " + path);
+        }
+        int users = data.getInt();
+        int items = data.getInt();
+        int rank = data.getInt();
+        float globalMean = data.getFloat();
+        float minRating = data.getFloat();
+        float maxRating = data.getFloat();
+        if (users < 0 || items < 0 || rank < 0) {
+            throw new IOException("Corrupt CF factors header: " + path);
+        }
+
+        Map<String, Integer> userRows = new HashMap<>(users * 2);
+        for (int i = 0; i < users; i++) {
+            userRows.put(readId(data, path), i);
+        }
+        String[] itemIds = new String[items];
+        for (int i = 0; i < items; i++) {
+            itemIds[i] = readId(data, path);
+        }
+
+        long floats = (long) users + items + ((long) users + items) * rank;
+        if (data.remaining() != floats * Float.BYTES) {
+            throw new IOException("CF factors size mismatch (expected " + floats * Float.BYTES
+                + " bytes of factors, found " + data.remaining() + "): " + path);
+        }
+        FloatBuffer userBias = floatSection(data, users);
+        FloatBuffer itemBias = floatSection(data, items);
+        FloatBuffer userFactors = floatSection(data, users * rank);
+        FloatBuffer itemFactors = floatSection(data, items * rank);
+
+        return new CfModel(globalMean, minRating, maxRating, rank, userRows, itemIds,
+            userBias, itemBias, userFactors, itemFactors);
+    }
+
+    private static String readId(ByteBuffer data, Path path) throws IOException {
+        int length = data.remaining() >= Integer.BYTES ? data.getInt() : -1;
+        if (length < 0 || length > data.remaining()) {
+            throw new IOException("Corrupt id table in CF factors file: " + path);
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static FloatBuffer floatSection(ByteBuffer data, int count) {
+        ByteBuffer section = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        section.limit(count * Float.BYTES);
+        data.position(data.position() + count * Float.BYTES);
+        return section.asFloatBuffer();
+    }
+
+    public boolean hasUser(String userId) {
+        return userRows.containsKey(userId);
+    }
+
+    public int userCount() {
+        return userRows.size();
+    }
+
+    public int itemCount() {
+        return itemIds.length;
+    }
+
+    public int rank() {
+        return rank;
+    }
+
+    public float maxRating() {
+        return maxRating;
+    }
+
+    /**
+     * Highest predicted ratings for a user, best first, skipping excluded products.
+     * Returns an empty map if the user is not in the model (cold start).
+     */
+    public Map<String, Double> recommend(String userId, Set<String> exclude, int limit) {
+        Integer row = userRows.get(userId);
+        if (row == null || limit <= 0) {
+            return Collections.emptyMap();
+        }
+        // The user's vector is read once onto the heap; item rows are streamed from off-heap memory
+        float[] user = new float[rank];
+        userFactors.get(row * rank, user);
+        float base = globalMean + userBias.get(row);
+
+        // Min-heap of the best `limit` item rows seen so far
+        float[] scores = new float[itemIds.length];
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int item = 0; item < itemIds.length; item++) {
+            if (exclude.contains(itemIds[item])) {
+                continue;
+            }
+            scores[item] = base + itemBias.get(item) + dot(user, itemFactors, item * rank);
+            if (top.size() < limit) {
+                top.add(item);
+            } else if (scores[item] > scores[top.peek()]) {
+                top.poll();
+                top.add(item);
+            }
+        }
+
+        Integer[] best = top.toArray(new Integer[0]);
+        Arrays.sort(best, (a, b) -> Float.compare(scores[b], scores[a]));
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int item : best) {
+            result.put(itemIds[item], (double) Math.max(minRating, Math.min(maxRating, scores[item])));
+        }
+        return result;
+    }
+
+    /**
+     * Dot product of the user vector with one item row. Four independent accumulators break the
+     * add dependency chain (a single float sum cannot be reordered, so it would run one add at a time).
+     */
+    private static float dot(float[] user, FloatBuffer items, int offset) {
+        int n = user.length;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int f = 0;
+        for (; f + 3 < n; f += 4) {
+            s0 += user[f] * items.get(offset + f);
+            s1 += user[f + 1] * items.get(offset + f + 1);
+            s2 += user[f + 2] * items.get(offset + f + 2);
+            s3 += user[f + 3] * items.get(offset + f + 3);
+        }
+        for (; f < n; f++) {
+            s0 += user[f] * items.get(offset + f);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.recommendation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the current {@link CfModel} and hot-reloads it when the factors file changes.
+ *
+ * The file is checked periodically (see CfModelReloadJob); when its modification time or size
+ * changed, a new model is loaded off to the side and swapped in, and requests keep scoring with
+ * the previous one meanwhile. A file that fails to load is logged and skipped until it changes
+ * again; the previous model stays in place.
+ */
+@Service
+public class CfModelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CfModelService.class);
+
+    @Value("${recommendation.cf.model-path:recommendation_factors.bin}")
+    private String modelPath;
+
+    private volatile CfModel model;
+    private long loadedModifiedTime = -1;
+    private long loadedSize = -1;
+
+    /**
+     * Top predicted products for the user, or null if no model is loaded or the user is not in it
+     */
+    public Map<String, Double> recommend(String userId, Set<String> exclude, int limit) {
+        CfModel current = model;
+        if (current == null || !current.hasUser(userId)) {
+            return null;
+        }
+        return current.recommend(userId, exclude, limit);
+    }
+
+    /**
+     * Predicted ratings are on this scale (1-5); callers normalize scores by it
+     */
+    public double maxRating() {
+        CfModel current = model;
+        return current != null ? current.maxRating() : 5.0;
+    }
+
+    public boolean isReady() {
+        return model != null;
+    }
+
+    /**
+     * Load the factors file if it changed since the last attempt
+     */
+    public synchronized boolean reloadIfChanged() {
+        Path path = Paths.get(modelPath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            if (loadedModifiedTime != 0) {
+                logger.info("CF model file {} not found, {}", path.toAbsolutePath(),
+                    model != null ? "keeping the loaded model" : "personalized CF falls back to the ML service");
+                loadedModifiedTime = 0;
+            }
+            return false;
+        }
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        if (modifiedTime == loadedModifiedTime && attributes.size() == loadedSize) {
+            return false;
+        }
+        // Remember the attempt either way, so a broken file is not re-read every interval
+        loadedModifiedTime = modifiedTime;
+        loadedSize = attributes.size();
+
+        long start = System.currentTimeMillis();
+        try {
+            CfModel loaded = CfModel.load(path);
+            model = loaded;
+            logger.info("Loaded CF model {}: {} users, {} products, rank {}, {} ms",
+                path.toAbsolutePath(), loaded.userCount(), loaded.itemCount(), loaded.rank(),
+                System.currentTimeMillis() - start);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to load CF model {}, keeping the current one: {}", path.toAbsolutePath(), e.getMessage());
+            return false;
+        }
+    }
+}
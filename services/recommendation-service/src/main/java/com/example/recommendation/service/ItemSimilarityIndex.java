@@ -0,0 +1,389 @@
+package com.example.recommendation.service;
+
+import com.example.recommendation.dto.ProductRecommendation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Precomputed top-K similar products for the whole catalog.
+ *
+ * Built in one batch from the product list (see {@link ItemSimilarityService}). Similarity uses the
+ * same weights as the live content-based scoring:
+ * - Category match: 40%
+ * - Brand match: 30%
+ * - Price within 30%: 20%, linear decay
+ * - Description: 10%, cosine of TF-IDF vectors over name + description
+ *
+ * The result is stored as primitive arrays: product ids sorted for binary search, and for row i the
+ * neighbours {@code neighbours[i*k .. i*k+k)} with their {@code scores}, best first, -1 padded.
+ * Serving a lookup is one binary search and copying at most k cards; no product-service calls.
+ * Immutable once built; a rebuild replaces the whole index.
+ */
+public final class ItemSimilarityIndex {
+
+    private static final double CATEGORY_WEIGHT = 0.4;
+    private static final double BRAND_WEIGHT = 0.3;
+    private static final double PRICE_WEIGHT = 0.2;
+    private static final double TEXT_WEIGHT = 0.1;
+    private static final double PRICE_WINDOW = 0.3;
+
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Catalog data needed to score and to render a recommendation card
+     */
+    public static final class Item {
+        final String id;
+        final String name;
+        final String image;
+        final BigDecimal price;
+        final Long categoryId;
+        final Long brandId;
+        final String text;
+
+        public Item(String id, String name, String image, BigDecimal price, Long categoryId, Long brandId, String text) {
+            this.id = id;
+            this.name = name;
+            this.image = image;
+            this.price = price;
+            this.categoryId = categoryId;
+            this.brandId = brandId;
+            this.text = text;
+        }
+    }
+
+    private final String[] productIds;
+    private final String[] names;
+    private final String[] images;
+    private final BigDecimal[] prices;
+    private final int k;
+    private final int[] neighbours;
+    private final float[] scores;
+
+    private ItemSimilarityIndex(String[] productIds, String[] names, String[] images, BigDecimal[] prices,
+                                int k, int[] neighbours, float[] scores) {
+        this.productIds = productIds;
+        this.names = names;
+        this.images = images;
+        this.prices = prices;
+        this.k = k;
+        this.neighbours = neighbours;
+        this.scores = scores;
+    }
+
+    public int size() {
+        return productIds.length;
+    }
+
+    public boolean contains(String productId) {
+        return productId != null && Arrays.binarySearch(productIds, productId) >= 0;
+    }
+
+    /**
+     * Up to min(limit, k) most similar products, best first; empty if the product is not indexed
+     */
+    public List<ProductRecommendation> similarTo(String productId, int limit) {
+        int row = productId != null ? Arrays.binarySearch(productIds, productId) : -1;
+        if (row < 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<ProductRecommendation> result = new ArrayList<>(Math.min(limit, k));
+        int base = row * k;
+        for (int n = 0; n < k && result.size() < limit; n++) {
+            int j = neighbours[base + n];
+            if (j < 0) {
+                break;
+            }
+            ProductRecommendation pr = new ProductRecommendation();
+            pr.setProductId(productIds[j]);
+            pr.setProductName(names[j]);
+            pr.setProductImage(images[j]);
+            pr.setPrice(prices[j]);
+            pr.setScore(Math.min(1.0, Math.max(0.0, scores[base + n])));
+            result.add(pr);
+        }
+        return result;
+    }
+
+    /**
+     * Score every product against the ones sharing a description term, category or brand, and keep
+     * the best k per product scoring above minScore
+     */
+    public static ItemSimilarityIndex build(List<Item> catalog, int k, double minScore) {
+        List<Item> items = new ArrayList<>(catalog);
+        items.sort(Comparator.comparing(item -> item.id));
+        // Drop duplicate ids (a product moving between pages while the catalog was read)
+        List<Item> unique = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (unique.isEmpty() || !unique.get(unique.size() - 1).id.equals(item.id)) {
+                unique.add(item);
+            }
+        }
+        items = unique;
+        int n = items.size();
+
+        String[] productIds = new String[n];
+        String[] names = new String[n];
+        String[] images = new String[n];
+        BigDecimal[] prices = new BigDecimal[n];
+        double[] priceValues = new double[n];
+        for (int i = 0; i < n; i++) {
+            Item item = items.get(i);
+            productIds[i] = item.id;
+            names[i] = item.name;
+            images[i] = item.image != null ? item.image : "";
+            prices[i] = item.price;
+            priceValues[i] = item.price != null ? item.price.doubleValue() : 0;
+        }
+
+        TfIdf tfIdf = TfIdf.of(items);
+        int[] categoryOf = groupIndex(items, true);
+        int[] brandOf = groupIndex(items, false);
+        int[][] categoryGroups = groups(categoryOf);
+        int[][] brandGroups = groups(brandOf);
+
+        int[] neighbours = new int[n * k];
+        float[] scores = new float[n * k];
+        Arrays.fill(neighbours, -1);
+
+        float[] cosine = new float[n];
+        boolean[] seen = new boolean[n];
+        int[] touched = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int touchedCount = 0;
+
+            int[] terms = tfIdf.docTerms[i];
+            float[] weights = tfIdf.docWeights[i];
+            for (int t = 0; t < terms.length; t++) {
+                int[] postingDocs = tfIdf.postingDocs[terms[t]];
+                float[] postingWeights = tfIdf.postingWeights[terms[t]];
+                for (int p = 0; p < postingDocs.length; p++) {
+                    int j = postingDocs[p];
+                    cosine[j] += weights[t] * postingWeights[p];
+                    if (!seen[j]) {
+                        seen[j] = true;
+                        touched[touchedCount++] = j;
+                    }
+                }
+            }
+            if (categoryOf[i] >= 0) {
+                touchedCount = touchAll(categoryGroups[categoryOf[i]], seen, touched, touchedCount);
+            }
+            if (brandOf[i] >= 0) {
+                touchedCount = touchAll(brandGroups[brandOf[i]], seen, touched, touchedCount);
+            }
+
+            int base = i * k;
+            for (int c = 0; c < touchedCount; c++) {
+                int j = touched[c];
+                if (j != i) {
+                    double score = 0.0;
+                    if (categoryOf[i] >= 0 && categoryOf[i] == categoryOf[j]) {
+                        score += CATEGORY_WEIGHT;
+                    }
+                    if (brandOf[i] >= 0 && brandOf[i] == brandOf[j]) {
+                        score += BRAND_WEIGHT;
+                    }
+                    if (priceValues[i] > 0 && prices[j] != null) {
+                        double priceDiff = Math.abs(priceValues[j] - priceValues[i]) / priceValues[i];
+                        if (priceDiff <= PRICE_WINDOW) {
+                            score += PRICE_WEIGHT * (1 - priceDiff / PRICE_WINDOW);
+                        }
+                    }
+                    score += TEXT_WEIGHT * Math.min(1.0, cosine[j]);
+                    if (score > minScore) {
+                        offer(neighbours, scores, base, k, j, (float) score);
+                    }
+                }
+                cosine[j] = 0f;
+                seen[j] = false;
+            }
+        }
+
+        return new ItemSimilarityIndex(productIds, names, images, prices, k, neighbours, scores);
+    }
+
+    private static int touchAll(int[] docs, boolean[] seen, int[] touched, int touchedCount) {
+        for (int j : docs) {
+            if (!seen[j]) {
+                seen[j] = true;
+                touched[touchedCount++] = j;
+            }
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Insert into row [base, base+k) kept sorted by score descending
+     */
+    private static void offer(int[] neighbours, float[] scores, int base, int k, int candidate, float score) {
+        int last = base + k - 1;
+        if (neighbours[last] >= 0 && scores[last] >= score) {
+            return;
+        }
+        int pos = last;
+        while (pos > base && (neighbours[pos - 1] < 0 || scores[pos - 1] < score)) {
+            neighbours[pos] = neighbours[pos - 1];
+            scores[pos] = scores[pos - 1];
+            pos--;
+        }
+        neighbours[pos] = candidate;
+        scores[pos] = score;
+    }
+
+    /**
+     * Row of each item's category (or brand) in {@link #groups}, -1 when it has none
+     */
+    private static int[] groupIndex(List<Item> items, boolean category) {
+        Map<Long, Integer> index = new HashMap<>();
+        int[] result = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Long key = category ? items.get(i).categoryId : items.get(i).brandId;
+            result[i] = key == null ? -1 : index.computeIfAbsent(key, x -> index.size());
+        }
+        return result;
+    }
+
+    /**
+     * Members of each group, from the per-item group rows
+     */
+    private static int[][] groups(int[] groupOf) {
+        int groupCount = 0;
+        for (int g : groupOf) {
+            groupCount = Math.max(groupCount, g + 1);
+        }
+        int[] sizes = new int[groupCount];
+        for (int g : groupOf) {
+            if (g >= 0) {
+                sizes[g]++;
+            }
+        }
+        int[][] groups = new int[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            groups[g] = new int[sizes[g]];
+            sizes[g] = 0;
+        }
+        for (int i = 0; i < groupOf.length; i++) {
+            int g = groupOf[i];
+            if (g >= 0) {
+                groups[g][sizes[g]++] = i;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * L2-normalised TF-IDF vectors per product and the matching inverted index.
+     * Terms found in a single product cannot link two products and are left out of the postings;
+     * terms found in more than half of the catalog are treated as stop words.
+     */
+    private static final class TfIdf {
+        final int[][] docTerms;
+        final float[][] docWeights;
+        final int[][] postingDocs;
+        final float[][] postingWeights;
+
+        private TfIdf(int[][] docTerms, float[][] docWeights, int[][] postingDocs, float[][] postingWeights) {
+            this.docTerms = docTerms;
+            this.docWeights = docWeights;
+            this.postingDocs = postingDocs;
+            this.postingWeights = postingWeights;
+        }
+
+        static TfIdf of(List<Item> items) {
+            int n = items.size();
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<Map<Integer, Integer>> termCounts = new ArrayList<>(n);
+            List<Integer> documentFrequency = new ArrayList<>();
+
+            for (Item item : items) {
+                Map<Integer, Integer> counts = new HashMap<>();
+                if (item.text != null) {
+                    for (String token : TOKEN_SPLIT.split(item.text.toLowerCase(Locale.ROOT))) {
+                        // Only meaningful words (length > 3), as in the live scoring
+                        if (token.length() > 3) {
+                            int term = dictionary.computeIfAbsent(token, x -> {
+                                documentFrequency.add(0);
+                                return dictionary.size();
+                            });
+                            counts.merge(term, 1, Integer::sum);
+                        }
+                    }
+                }
+                for (Integer term : counts.keySet()) {
+                    documentFrequency.set(term, documentFrequency.get(term) + 1);
+                }
+                termCounts.add(counts);
+            }
+
+            int termCount = dictionary.size();
+            double[] idf = new double[termCount];
+            boolean[] linking = new boolean[termCount];
+            int[] postingSizes = new int[termCount];
+            for (int t = 0; t < termCount; t++) {
+                int df = documentFrequency.get(t);
+                idf[t] = Math.log((1.0 + n) / (1.0 + df)) + 1.0;
+                linking[t] = df >= 2 && df <= Math.max(2, n / 2);
+            }
+
+            int[][] docTerms = new int[n][];
+            float[][] docWeights = new float[n][];
+            for (int i = 0; i < n; i++) {
+                Map<Integer, Integer> counts = termCounts.get(i);
+                double norm = 0;
+                for (Map.Entry<Integer, Integer> e : counts.entrySet()) {
+                    double w = e.getValue() * idf[e.getKey()];
+                    norm += w * w;
+                }
+                norm = Math.sqrt(norm);
+                int kept = 0;
+                for (Integer term : counts.keySet()) {
+                    if (linking[term]) {
+                        kept++;
+                    }
+                }
+                int[] terms = new int[kept];
+                float[] weights = new float[kept];
+                int p = 0;
+                for (Map.Entry<Integer, Integer> e : counts.entrySet()) {
+                    int term = e.getKey();
+                    if (linking[term]) {
+                        terms[p] = term;
+                        weights[p] = (float) (e.getValue() * idf[term] / norm);
+                        postingSizes[term]++;
+                        p++;
+                    }
+                }
+                docTerms[i] = terms;
+                docWeights[i] = weights;
+            }
+
+            int[][] postingDocs = new int[termCount][];
+            float[][] postingWeights = new float[termCount][];
+            for (int t = 0; t < termCount; t++) {
+                postingDocs[t] = new int[postingSizes[t]];
+                postingWeights[t] = new float[postingSizes[t]];
+                postingSizes[t] = 0;
+            }
+            for (int i = 0; i < n; i++) {
+                for (int p = 0; p < docTerms[i].length; p++) {
+                    int term = docTerms[i][p];
+                    int slot = postingSizes[term]++;
+                    postingDocs[term][slot] = i;
+                    postingWeights[term][slot] = docWeights[i][p];
+                }
+            }
+            return new TfIdf(docTerms, docWeights, postingDocs, postingWeights);
+        }
+    }
+}
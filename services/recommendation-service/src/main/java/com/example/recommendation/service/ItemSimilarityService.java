@@ -0,0 +1,138 @@
+package com.example.recommendation.service;
+
+import com.example.recommendation.dto.ProductRecommendation;
+import com.example.shared.resilience.DependencyGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the current {@link ItemSimilarityIndex} and rebuilds it from the product catalog.
+ *
+ * A rebuild pages through all active products once, builds a new index off to the side and swaps
+ * it in; lookups keep using the previous index meanwhile. If a rebuild fails the previous index
+ * stays in place. Products created after the last rebuild are not in the index, and callers fall
+ * back to live scoring for them.
+ */
+@Service
+public class ItemSimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemSimilarityService.class);
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DependencyGuard dependencyGuard;
+
+    @Value("${services.product.base-url:http://localhost:8083}")
+    private String productServiceUrl;
+
+    @Value("${recommendation.similarity.top-k:20}")
+    private int topK;
+
+    @Value("${recommendation.similarity.min-score:0.2}")
+    private double minScore;
+
+    @Value("${recommendation.similarity.page-size:200}")
+    private int pageSize;
+
+    @Value("${recommendation.similarity.max-products:50000}")
+    private int maxProducts;
+
+    private volatile ItemSimilarityIndex index;
+
+    /**
+     * Precomputed similar products, or null if the product is not indexed (or no index is built yet)
+     */
+    public List<ProductRecommendation> getSimilarProducts(String productId, int limit) {
+        ItemSimilarityIndex current = index;
+        if (current == null || !current.contains(productId)) {
+            return null;
+        }
+        return current.similarTo(productId, limit);
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Read the catalog and replace the index
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        List<ItemSimilarityIndex.Item> catalog = loadCatalog();
+        if (catalog.isEmpty()) {
+            logger.warn("Product catalog is empty or unavailable, keeping the current similarity index");
+            return;
+        }
+        ItemSimilarityIndex built = ItemSimilarityIndex.build(catalog, topK, minScore);
+        index = built;
+        logger.info("Rebuilt item similarity index: {} products, top {} neighbours, {} ms",
+            built.size(), topK, System.currentTimeMillis() - start);
+    }
+
+    private List<ItemSimilarityIndex.Item> loadCatalog() {
+        List<ItemSimilarityIndex.Item> catalog = new ArrayList<>();
+        int page = 0;
+        boolean last = false;
+        while (!last && catalog.size() < maxProducts) {
+            String url = productServiceUrl + "/api/products?page=" + page + "&size=" + pageSize + "&sort=id,asc";
+            @SuppressWarnings("unchecked")
+            Map<String, Object> response = dependencyGuard.callIdempotent("product-service",
+                () -> restTemplate.getForObject(url, Map.class));
+            if (response == null || !(response.get("content") instanceof List)) {
+                // A partial catalog would drop products from the index; keep the old one instead
+                logger.warn("Unexpected product page {} while rebuilding similarity index", page);
+                return Collections.emptyList();
+            }
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> products = (List<Map<String, Object>>) response.get("content");
+            for (Map<String, Object> product : products) {
+                ItemSimilarityIndex.Item item = toItem(product);
+                if (item != null) {
+                    catalog.add(item);
+                }
+            }
+            last = products.isEmpty() || Boolean.TRUE.equals(response.get("last"));
+            page++;
+        }
+        return catalog;
+    }
+
+    /**
+     * Products without id, name or a readable price are skipped, as the live path skips them
+     */
+    private ItemSimilarityIndex.Item toItem(Map<String, Object> product) {
+        Object id = product.get("id");
+        Object name = product.get("name");
+        Object price = product.get("price");
+        if (id == null || name == null || price == null) {
+            return null;
+        }
+        try {
+            String description = product.get("description") != null ? product.get("description").toString() : "";
+            return new ItemSimilarityIndex.Item(
+                id.toString(),
+                name.toString(),
+                product.get("imageUrl") != null ? product.get("imageUrl").toString() : "",
+                new BigDecimal(price.toString()),
+                product.get("categoryId") != null ? Long.valueOf(product.get("categoryId").toString()) : null,
+                product.get("brandId") != null ? Long.valueOf(product.get("brandId").toString()) : null,
+                name + " " + description);
+        } catch (NumberFormatException e) {
+            logger.debug("Skipping product {} with unreadable price or ids: {}", id, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.recommendation.service;
+
+import com.example.recommendation.dto.ProductRecommendation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of personalized recommendation lists.
+ *
+ * Results are keyed on user and limit and served from memory for up to {@code expire-after-minutes}.
+ * Once an entry is older than {@code refresh-after-seconds} it is still returned, and a recompute
+ * runs in the background (stale-while-revalidate), so repeat visits never wait for CF/CBF.
+ * Empty lists are not cached.
+ *
+ * Entries of a user are dropped when a meaningful behavior ({@code invalidate-on}, by default
+ * purchase and add_to_cart) has been written by {@link BehaviorEventBuffer}; views do not
+ * invalidate. A recompute that started before such an invalidation is discarded rather than stored.
+ * Behaviors are flushed by the instance that received them; the users invalidated here are handed
+ * to the invalidation listeners so the other instances drop their entries too
+ * (see {@code PersonalizedCacheInvalidationBroadcaster}).
+ */
+@Component
+public class PersonalizedRecommendationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersonalizedRecommendationCache.class);
+
+    @Autowired
+    @Qualifier("recommendationRefreshExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private BehaviorEventBuffer behaviorEventBuffer;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${recommendation.personalized-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.personalized-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${recommendation.personalized-cache.refresh-after-seconds:120}")
+    private long refreshAfterSeconds;
+
+    @Value("${recommendation.personalized-cache.expire-after-minutes:30}")
+    private long expireAfterMinutes;
+
+    @Value("${recommendation.personalized-cache.invalidate-on:purchase,add_to_cart}")
+    private String[] invalidateOn;
+
+    private Cache<String, Entry> entries;
+    private Cache<String, Long> invalidatedAt;
+    private Set<String> meaningfulBehaviors;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private final List<Consumer<Set<String>>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    private static class Entry {
+        final List<ProductRecommendation> recommendations;
+        final long storedAt;
+
+        Entry(List<ProductRecommendation> recommendations, long storedAt) {
+            this.recommendations = recommendations;
+            this.storedAt = storedAt;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        entries = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(expireAfterMinutes))
+            .recordStats()
+            .build();
+        // Only needs to outlive recomputes in flight; bounded like the entries
+        invalidatedAt = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+        meaningfulBehaviors = new HashSet<>();
+        for (String behavior : invalidateOn) {
+            meaningfulBehaviors.add(behavior.trim().toLowerCase(Locale.ROOT));
+        }
+        behaviorEventBuffer.addFlushListener(this::onBehaviorFlushed);
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, entries, "recommendation.personalized");
+        }
+    }
+
+    /**
+     * Cached recommendations for the user, computing them with the loader on a miss
+     */
+    public List<ProductRecommendation> get(String userId, int limit, Supplier<List<ProductRecommendation>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = userId + "|" + limit;
+        Entry cached = entries.getIfPresent(key);
+        if (cached == null) {
+            return load(userId, key, loader);
+        }
+        if (System.currentTimeMillis() - cached.storedAt > refreshAfterSeconds * 1000) {
+            refreshInBackground(userId, key, loader);
+        }
+        return cached.recommendations;
+    }
+
+    /**
+     * Drop all cached lists of the user
+     */
+    public void invalidate(String userId) {
+        invalidatedAt.put(userId, generation.incrementAndGet());
+        String prefix = userId + "|";
+        entries.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Called with the users invalidated by a behavior flush on this instance
+     */
+    public void addInvalidationListener(Consumer<Set<String>> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    private void onBehaviorFlushed(Map<String, Set<String>> typesByUser) {
+        Set<String> invalidated = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> user : typesByUser.entrySet()) {
+            for (String type : user.getValue()) {
+                if (meaningfulBehaviors.contains(type)) {
+                    invalidate(user.getKey());
+                    invalidated.add(user.getKey());
+                    logger.debug("Invalidated cached recommendations of user {} after {}", user.getKey(), type);
+                    break;
+                }
+            }
+        }
+        if (invalidated.isEmpty()) {
+            return;
+        }
+        for (Consumer<Set<String>> listener : invalidationListeners) {
+            try {
+                listener.accept(invalidated);
+            } catch (Exception e) {
+                logger.warn("Invalidation listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private List<ProductRecommendation> load(String userId, String key, Supplier<List<ProductRecommendation>> loader) {
+        long startedAt = generation.get();
+        List<ProductRecommendation> recommendations = loader.get();
+        if (recommendations == null || recommendations.isEmpty()) {
+            return recommendations;
+        }
+        List<ProductRecommendation> result = List.copyOf(recommendations);
+        Long invalidated = invalidatedAt.getIfPresent(userId);
+        if (invalidated == null || invalidated <= startedAt) {
+            entries.put(key, new Entry(result, System.currentTimeMillis()));
+        }
+        return result;
+    }
+
+    private void refreshInBackground(String userId, String key, Supplier<List<ProductRecommendation>> loader) {
+        if (!refreshing.add(key)) {
+            return; // already being refreshed
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    load(userId, key, loader);
+                } catch (Exception e) {
+                    logger.debug("Background refresh of recommendations for user {} failed: {}", userId, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool saturated: keep serving the stale list, a later request retries
+            refreshing.remove(key);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.recommendation.service;
+
+import com.example.shared.resilience.DependencyGuard;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Short-lived local cache of product data used to render recommendations.
+ *
+ * Misses are fetched together from product-service {@code GET /api/products/batch?ids=}, so enriching
+ * a whole recommendation list is at most one HTTP call per 100 products instead of one per product.
+ * The TTL is short because prices and images change; if product-service is down, uncached
+ * products are simply left out of the response.
+ */
+@Component
+public class ProductCardCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCardCache.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DependencyGuard dependencyGuard;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${services.product.base-url:http://localhost:8083}")
+    private String productServiceUrl;
+
+    @Value("${recommendation.product-cards.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${recommendation.product-cards.max-size:20000}")
+    private long maxSize;
+
+    private Cache<String, Map<String, Object>> cards;
+
+    @PostConstruct
+    public void init() {
+        cards = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cards, "recommendation.productCards");
+        }
+    }
+
+    /**
+     * Product data as returned by product-service, or null if unknown/unavailable
+     */
+    public Map<String, Object> getCard(String productId) {
+        return getCards(List.of(productId)).get(productId);
+    }
+
+    /**
+     * Product data for the given ids, in their order; unknown or unavailable products are missing
+     */
+    public Map<String, Map<String, Object>> getCards(Collection<String> productIds) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String productId : productIds) {
+            if (productId == null) {
+                continue;
+            }
+            Map<String, Object> card = cards.getIfPresent(productId);
+            if (card != null) {
+                result.put(productId, card);
+            } else {
+                result.put(productId, null); // keeps the requested order
+                misses.add(productId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<String> missList = new ArrayList<>(misses);
+            for (int from = 0; from < missList.size(); from += BATCH_SIZE) {
+                List<String> chunk = missList.subList(from, Math.min(from + BATCH_SIZE, missList.size()));
+                for (Map<String, Object> product : fetch(chunk)) {
+                    Object id = product.get("id");
+                    if (id != null) {
+                        cards.put(id.toString(), product);
+                        result.replace(id.toString(), product);
+                    }
+                }
+            }
+        }
+        result.values().removeIf(card -> card == null);
+        return result;
+    }
+
+    private List<Map<String, Object>> fetch(List<String> productIds) {
+        String url = productServiceUrl + "/api/products/batch?ids=" + String.join(",", productIds);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> products = dependencyGuard.callWithFallback("product-service",
+            () -> (List<Map<String, Object>>) restTemplate.getForObject(url, List.class),
+            e -> {
+                logger.debug("Failed to fetch {} product cards: {}", productIds.size(), e.getMessage());
+                return null;
+            });
+        return products != null ? products : List.of();
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.recommendation.service;
 
 import com.example.recommendation.dto.ProductRecommendation;
+import com.example.shared.resilience.DependencyGuard;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
@@ -10,8 +15,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +37,27 @@ public class RecommendationService {
     @Autowired
     private RestTemplate restTemplate;
     
+    @Autowired
+    private DependencyGuard dependencyGuard;
+    
+    @Autowired
+    private ItemSimilarityService itemSimilarityService;
+    
+    @Autowired
+    private UserItemIndex userItemIndex;
+    
+    @Autowired
+    private BehaviorEventBuffer behaviorEventBuffer;
+    
+    @Autowired
+    private ProductCardCache productCardCache;
+    
+    @Autowired
+    private CfModelService cfModelService;
+    
+    @Autowired
+    private PersonalizedRecommendationCache personalizedRecommendationCache;
+    
     @Value("${services.product.base-url:http://localhost:8083}")
     private String productServiceUrl;
     
@@ -41,29 +67,33 @@ public class RecommendationService {
     @Value("${services.review.base-url:http://localhost:8095}")
     private String reviewServiceUrl;
     
+    @Value("${recommendation.reviewed-products.ttl-minutes:10}")
+    private long reviewedProductsTtlMinutes;
+    
+    @Value("${recommendation.reviewed-products.max-size:10000}")
+    private long reviewedProductsMaxSize;
+    
+    /**
+     * Products each user has reviewed; reviews change rarely, so review-service is not called per request
+     */
+    private Cache<String, Set<String>> reviewedProducts;
+    
+    @PostConstruct
+    public void init() {
+        reviewedProducts = Caffeine.newBuilder()
+            .maximumSize(reviewedProductsMaxSize)
+            .expireAfterWrite(Duration.ofMinutes(reviewedProductsTtlMinutes))
+            .build();
+    }
+    
     /**
      * Track user behavior for Collaborative Filtering
+     * 
+     * Only buffers the event; {@link BehaviorEventBuffer} writes buffered events to Redis in pipelined batches.
      */
     public void trackUserBehavior(String userId, String productId, String behaviorType) {
-        try {
-            if (redisTemplate != null) {
-                // Store user behavior
-                String key = "user:behavior:" + userId;
-                String behaviorKey = key + ":" + behaviorType;
-                
-                redisTemplate.opsForSet().add(key, productId);
-                redisTemplate.opsForSet().add(behaviorKey, productId);
-                redisTemplate.expire(key, 90, TimeUnit.DAYS);
-                redisTemplate.expire(behaviorKey, 90, TimeUnit.DAYS);
-                
-                // Track product popularity for trending
-                String productKey = "product:popularity:" + productId;
-                redisTemplate.opsForValue().increment(productKey);
-                redisTemplate.expire(productKey, 90, TimeUnit.DAYS);
-            }
+        if (behaviorEventBuffer.offer(userId, productId, behaviorType)) {
             logger.debug("Tracked behavior: user={}, product={}, type={}", userId, productId, behaviorType);
-        } catch (Exception e) {
-            logger.error("Error tracking user behavior: {}", e.getMessage());
         }
     }
     
@@ -76,8 +106,16 @@ public class RecommendationService {
      * 1. Collaborative Filtering (ML-based) - Sử dụng SVD model để phân tích hành vi users tương tự
      * 2. Content-Based Filtering - Phân tích đặc tính sản phẩm (category, brand, price, description)
      * 3. Hybrid Approach - Kết hợp CF và CBF để tăng độ chính xác
+     * 
+     * Served from {@link PersonalizedRecommendationCache}; lists are recomputed in the background
+     * when stale and dropped after a purchase or cart add.
      */
     public List<ProductRecommendation> getPersonalizedRecommendations(String userId, int limit) {
+        return personalizedRecommendationCache.get(userId, limit,
+            () -> computePersonalizedRecommendations(userId, limit));
+    }
+    
+    private List<ProductRecommendation> computePersonalizedRecommendations(String userId, int limit) {
         List<ProductRecommendation> recommendations = new ArrayList<>();
         
         // ============================================
@@ -138,67 +176,92 @@ public class RecommendationService {
      * Sử dụng AI (SVD model) để phân tích hành vi người dùng và gợi ý sản phẩm:
      * 
      * Logic AI:
-     * 1. Gọi Python ML Service với SVD model đã train từ reviews/ratings
+     * 1. Score bằng model factors đã export từ SVD/Simple CF model (in-process, xem {@link CfModelService})
      * 2. Model phân tích patterns từ hành vi của users tương tự
      * 3. Predict rating mà user sẽ đánh giá cho mỗi product
      * 4. Rank và recommend top N products có predicted rating cao nhất
      * 
+     * The Python ML Service is only called while no model factors file is loaded.
      * Fallback: Redis-based CF (tìm similar users bằng Jaccard similarity)
      */
     private List<ProductRecommendation> getCollaborativeFilteringRecommendations(String userId, int limit) {
         List<ProductRecommendation> recommendations = new ArrayList<>();
         
-        try {
-            // Step 1: Try ML-based Collaborative Filtering (Python service)
-            // Model đã được train từ reviews/ratings thực tế
-            Map<String, Object> req = new HashMap<>();
-            req.put("userId", String.valueOf(userId));
-            req.put("limit", limit);
-            
-            String url = mlServiceUrl + "/recommend";
-            @SuppressWarnings("unchecked")
-            Map<String, Object> resp = restTemplate.postForObject(url, req, Map.class);
-            
-            if (resp != null && resp.containsKey("recommendations")) {
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> recs = (List<Map<String, Object>>) resp.get("recommendations");
-                
-                // Check if recs is not null and not empty
-                if (recs != null && !recs.isEmpty()) {
-                    for (Map<String, Object> r : recs) {
-                        if (r == null) continue;
-                        
-                        String productIdStr = String.valueOf(r.get("productId"));
-                        if (productIdStr == null || productIdStr.equals("null")) continue;
-                        
-                        // Fix: Use normalizedScore (0-1) if available, otherwise normalize score (1-5) to (0-1)
-                        Double score = null;
-                        if (r.get("normalizedScore") != null) {
-                            score = Double.valueOf(r.get("normalizedScore").toString());
-                        } else if (r.get("score") != null) {
-                            // Normalize from 1-5 scale to 0-1 scale
-                            Double rawScore = Double.valueOf(r.get("score").toString());
-                            score = rawScore / 5.0;
-                        } else {
-                            score = 0.0;
-                        }
-                        
-                        ProductRecommendation pr = enrichProductRecommendation(productIdStr, score);
-                        if (pr != null) {
-                            pr.setReason("Collaborative Filtering - Based on similar users' preferences");
-                            pr.setType("COLLABORATIVE_FILTERING");
-                            recommendations.add(pr);
-                        }
+        if (cfModelService.isReady()) {
+            // Step 1: In-process ML-based Collaborative Filtering from the exported model factors
+            // Không gọi Python service; user chưa có trong model (cold start) -> Redis-based CF
+            try {
+                Set<String> interacted = new HashSet<>(getUserInteractedProducts(userId));
+                // Extra candidates cover products deleted since the model was trained
+                Map<String, Double> predicted = cfModelService.recommend(userId, interacted, limit * 2);
+                if (predicted != null && !predicted.isEmpty()) {
+                    double maxRating = cfModelService.maxRating();
+                    Map<String, Double> scored = new LinkedHashMap<>();
+                    for (Map.Entry<String, Double> entry : predicted.entrySet()) {
+                        scored.put(entry.getKey(), entry.getValue() / maxRating);
                     }
+                    recommendations.addAll(enrichProductRecommendations(scored,
+                        "Collaborative Filtering - Based on similar users' preferences", "COLLABORATIVE_FILTERING"));
                     if (!recommendations.isEmpty()) {
-                        // Ensure deterministic order and cap to requested limit even if upstream returns extra
                         recommendations.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
                         return recommendations.stream().limit(limit).collect(Collectors.toList());
                     }
                 }
+            } catch (Exception e) {
+                logger.debug("In-process CF failed, trying Redis-based CF: {}", e.getMessage());
+            }
+        } else {
+            try {
+                // Step 1: No model factors loaded yet, use the Python ML service
+                // Model đã được train từ reviews/ratings thực tế
+                Map<String, Object> req = new HashMap<>();
+                req.put("userId", String.valueOf(userId));
+                req.put("limit", limit);
+                
+                String url = mlServiceUrl + "/recommend";
+                @SuppressWarnings("unchecked")
+                Map<String, Object> resp = dependencyGuard.callIdempotent("reco-service",
+                    () -> restTemplate.postForObject(url, req, Map.class));
+                
+                if (resp != null && resp.containsKey("recommendations")) {
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> recs = (List<Map<String, Object>>) resp.get("recommendations");
+                    
+                    // Check if recs is not null and not empty
+                    if (recs != null && !recs.isEmpty()) {
+                        Map<String, Double> scored = new LinkedHashMap<>();
+                        for (Map<String, Object> r : recs) {
+                            if (r == null) continue;
+                            
+                            String productIdStr = String.valueOf(r.get("productId"));
+                            if (productIdStr == null || productIdStr.equals("null")) continue;
+                            
+                            // Fix: Use normalizedScore (0-1) if available, otherwise normalize score (1-5) to (0-1)
+                            Double score = null;
+                            if (r.get("normalizedScore") != null) {
+                                score = Double.valueOf(r.get("normalizedScore").toString());
+                            } else if (r.get("score") != null) {
+                                // Normalize from 1-5 scale to 0-1 scale
+                                Double rawScore = Double.valueOf(r.get("score").toString());
+                                score = rawScore / 5.0;
+                            } else {
+                                score = 0.0;
+                            }
+                            
+                            scored.putIfAbsent(productIdStr, score);
+                        }
+                        recommendations.addAll(enrichProductRecommendations(scored,
+                            "Collaborative Filtering - Based on similar users' preferences", "COLLABORATIVE_FILTERING"));
+                        if (!recommendations.isEmpty()) {
+                            // Ensure deterministic order and cap to requested limit even if upstream returns extra
+                            recommendations.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+                            return recommendations.stream().limit(limit).collect(Collectors.toList());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("ML-based CF failed, trying Redis-based CF: {}", e.getMessage());
             }
-        } catch (Exception e) {
-            logger.debug("ML-based CF failed, trying Redis-based CF: {}", e.getMessage());
         }
         
         // Step 2: Redis-based Collaborative Filtering
@@ -210,11 +273,6 @@ public class RecommendationService {
                 Set<Object> userProducts = redisTemplate.opsForSet().members(userKey);
                 
                 if (userProducts != null && !userProducts.isEmpty()) {
-                    // Find similar users (users who interacted with same products)
-                    Set<String> similarUsers = findSimilarUsers(userId, userProducts);
-                    
-                    // Get products from similar users that current user hasn't seen
-                    Set<String> candidateProducts = new HashSet<>();
                     // Convert userProducts to Set<String> for proper comparison
                     Set<String> userProductIds = new HashSet<>();
                     for (Object pid : userProducts) {
@@ -223,31 +281,26 @@ public class RecommendationService {
                         }
                     }
                     
-                    for (String similarUserId : similarUsers) {
-                        String similarUserKey = "user:behavior:" + similarUserId;
-                        Set<Object> similarUserProducts = redisTemplate.opsForSet().members(similarUserKey);
-                        if (similarUserProducts != null) {
-                            for (Object productId : similarUserProducts) {
-                                if (productId != null) {
-                                    String pid = productId.toString();
-                                    // Fix: Proper comparison using String set
-                                    if (!userProductIds.contains(pid)) {
-                                        candidateProducts.add(pid);
-                                    }
-                                }
+                    // Find the 10 most similar users through the inverted user-item index
+                    Map<String, Set<String>> similarUsers = userItemIndex.findSimilarUsers(userId, userProductIds, 10);
+                    
+                    // Get products from similar users that current user hasn't seen
+                    Set<String> candidateProducts = new LinkedHashSet<>();
+                    for (Set<String> similarUserProducts : similarUsers.values()) {
+                        for (String pid : similarUserProducts) {
+                            if (!userProductIds.contains(pid)) {
+                                candidateProducts.add(pid);
                             }
                         }
                     }
                     
                     // Enrich and rank products
+                    Map<String, Double> scored = new LinkedHashMap<>();
                     for (String productId : candidateProducts.stream().limit(limit * 2).toList()) {
-                        ProductRecommendation pr = enrichProductRecommendation(productId, 0.8);
-                        if (pr != null) {
-                            pr.setReason("Collaborative Filtering - Users with similar behavior liked this");
-                            pr.setType("COLLABORATIVE_FILTERING");
-                            recommendations.add(pr);
-                        }
+                        scored.put(productId, 0.8);
                     }
+                    recommendations.addAll(enrichProductRecommendations(scored,
+                        "Collaborative Filtering - Users with similar behavior liked this", "COLLABORATIVE_FILTERING"));
                     
                     // Sort by score and return top N
                     recommendations.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
@@ -366,14 +419,12 @@ public class RecommendationService {
                 .limit(limit)
                 .collect(Collectors.toList());
             
+            Map<String, Double> scored = new LinkedHashMap<>();
             for (Map.Entry<String, Double> entry : sorted) {
-                ProductRecommendation pr = enrichProductRecommendation(entry.getKey(), entry.getValue());
-                if (pr != null) {
-                    pr.setReason("Content-Based Filtering - Similar to products you've interacted with");
-                    pr.setType("CONTENT_BASED");
-                    recommendations.add(pr);
-                }
+                scored.put(entry.getKey(), entry.getValue());
             }
+            recommendations.addAll(enrichProductRecommendations(scored,
+                "Content-Based Filtering - Similar to products you've interacted with", "CONTENT_BASED"));
             
         } catch (Exception e) {
             logger.error("Content-Based Filtering failed: {}", e.getMessage());
@@ -384,26 +435,12 @@ public class RecommendationService {
     
     /**
      * Get products user has interacted with (from reviews, orders, behaviors)
+     * 
+     * Reviews come from a short-lived local cache, behaviors straight from Redis,
+     * so new views/purchases are excluded right away.
      */
     private List<String> getUserInteractedProducts(String userId) {
-        Set<String> products = new HashSet<>();
-        
-        // From reviews
-        try {
-            String url = reviewServiceUrl + "/api/reviews/user/" + userId;
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> reviews = restTemplate.getForObject(url, List.class);
-            if (reviews != null) {
-                for (Map<String, Object> review : reviews) {
-                    Object productId = review.get("productId");
-                    if (productId != null) {
-                        products.add(productId.toString());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.debug("Failed to get user reviews: {}", e.getMessage());
-        }
+        Set<String> products = new HashSet<>(getReviewedProducts(userId));
         
         // From Redis behaviors
         if (redisTemplate != null) {
@@ -424,57 +461,35 @@ public class RecommendationService {
     }
     
     /**
-     * Find similar users based on behavior (users who interacted with similar products)
+     * Products the user has reviewed, from review-service on a cache miss
      */
-    private Set<String> findSimilarUsers(String userId, Set<Object> userProducts) {
-        Set<String> similarUsers = new HashSet<>();
-        
-        if (redisTemplate == null || userProducts == null || userProducts.isEmpty()) {
-            return similarUsers;
+    private Set<String> getReviewedProducts(String userId) {
+        Set<String> cached = reviewedProducts.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
         }
-        
+        Set<String> products = new HashSet<>();
         try {
-            // Get all user behavior keys
-            Set<String> allUserKeys = redisTemplate.keys("user:behavior:*");
-            if (allUserKeys == null || allUserKeys.isEmpty()) {
-                return similarUsers;
-            }
-            
-            // For each user, calculate similarity (Jaccard similarity)
-            for (String otherUserKey : allUserKeys) {
-                String otherUserId = otherUserKey.replace("user:behavior:", "");
-                if (otherUserId.equals(userId)) {
-                    continue;
-                }
-                
-                Set<Object> otherUserProducts = redisTemplate.opsForSet().members(otherUserKey);
-                if (otherUserProducts != null && !otherUserProducts.isEmpty()) {
-                    // Calculate Jaccard similarity
-                    Set<Object> intersection = new HashSet<>(userProducts);
-                    intersection.retainAll(otherUserProducts);
-                    
-                    Set<Object> union = new HashSet<>(userProducts);
-                    union.addAll(otherUserProducts);
-                    
-                    if (!union.isEmpty()) {
-                        double similarity = (double) intersection.size() / union.size();
-                        // Consider users with similarity > 0.2 as similar
-                        if (similarity > 0.2) {
-                            similarUsers.add(otherUserId);
-                        }
+            String url = reviewServiceUrl + "/api/reviews/user/" + userId;
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> reviews = dependencyGuard.callIdempotent("review-service",
+                () -> restTemplate.getForObject(url, List.class));
+            if (reviews != null) {
+                for (Map<String, Object> review : reviews) {
+                    Object productId = review.get("productId");
+                    if (productId != null) {
+                        products.add(productId.toString());
                     }
                 }
-                
-                // Limit to top 10 similar users for performance
-                if (similarUsers.size() >= 10) {
-                    break;
-                }
             }
         } catch (Exception e) {
-            logger.error("Error finding similar users: {}", e.getMessage());
+            // Not cached, so the next request asks review-service again
+            logger.debug("Failed to get user reviews: {}", e.getMessage());
+            return products;
         }
-        
-        return similarUsers;
+        Set<String> result = Set.copyOf(products);
+        reviewedProducts.put(userId, result);
+        return result;
     }
     
     /**
@@ -487,15 +502,31 @@ public class RecommendationService {
      * - Description keywords: 10% weight
      * 
      * Compares: category, brand, price range, description
+     * 
+     * Served from the precomputed {@link ItemSimilarityIndex} (one lookup, no product-service calls);
+     * products not in the index yet are scored live against the first catalog page.
      */
     public List<ProductRecommendation> getSimilarProducts(String productId, int limit) {
+        List<ProductRecommendation> indexed = itemSimilarityService.getSimilarProducts(productId, limit);
+        if (indexed != null) {
+            for (ProductRecommendation pr : indexed) {
+                pr.setReason("Similar product (Content-Based)");
+                pr.setType("CONTENT_BASED");
+            }
+            return indexed;
+        }
+        return getSimilarProductsLive(productId, limit);
+    }
+    
+    /**
+     * Live content-based scoring for products the similarity index does not cover yet
+     */
+    private List<ProductRecommendation> getSimilarProductsLive(String productId, int limit) {
         List<ProductRecommendation> recommendations = new ArrayList<>();
         
         try {
             // Get current product details
-            @SuppressWarnings("unchecked")
-            Map<String, Object> currentProduct = restTemplate.getForObject(
-                productServiceUrl + "/api/products/" + productId, Map.class);
+            Map<String, Object> currentProduct = productCardCache.getCard(productId);
             
             if (currentProduct == null) {
                 return recommendations;
@@ -518,15 +549,16 @@ public class RecommendationService {
             
             // Get candidate products
             @SuppressWarnings("unchecked")
-            Map<String, Object> productResponse = restTemplate.getForObject(
-                productServiceUrl + "/api/products?page=0&size=" + (limit * 3), Map.class);
+            Map<String, Object> productResponse = dependencyGuard.callWithCachedFallback("product-service", "products:size=" + (limit * 3),
+                () -> restTemplate.getForObject(productServiceUrl + "/api/products?page=0&size=" + (limit * 3), Map.class),
+                e -> { throw e; });
             
             if (productResponse != null && productResponse.containsKey("content")) {
                 @SuppressWarnings("unchecked")
                 List<Map<String, Object>> products = (List<Map<String, Object>>) productResponse.get("content");
                 
                 if (products != null) {
-                    List<ProductRecommendation> scoredProducts = new ArrayList<>();
+                    Map<String, Double> scoredProducts = new HashMap<>();
                     
                     for (Map<String, Object> product : products) {
                         // Fix: Null check for product ID to avoid NullPointerException
@@ -597,18 +629,17 @@ public class RecommendationService {
                         
                         // Only add products with meaningful similarity
                         if (score > 0.2) {
-                            ProductRecommendation pr = enrichProductRecommendation(pid, score);
-                            if (pr != null) {
-                                pr.setReason("Similar product (Content-Based)");
-                                pr.setType("CONTENT_BASED");
-                                scoredProducts.add(pr);
-                            }
+                            scoredProducts.put(pid, score);
                         }
                     }
                     
-                    // Sort by score and return top N
-                    scoredProducts.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-                    return scoredProducts.stream().limit(limit).collect(Collectors.toList());
+                    // Sort by score, enrich the top N in one batch
+                    Map<String, Double> top = new LinkedHashMap<>();
+                    scoredProducts.entrySet().stream()
+                        .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                        .limit(limit)
+                        .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+                    return enrichProductRecommendations(top, "Similar product (Content-Based)", "CONTENT_BASED");
                 }
             }
         } catch (Exception e) {
@@ -619,53 +650,56 @@ public class RecommendationService {
     }
     
     /**
-     * Get popular products (fallback for new users)
+     * Get popular products (fallback for new users): the top of the time-decayed popularity set
+     * kept by {@link BehaviorEventBuffer}, topped up with the best rated catalog products while
+     * the set has fewer entries than requested
      */
     private List<ProductRecommendation> getPopularProducts(int limit) {
-        List<ProductRecommendation> recommendations = new ArrayList<>();
+        List<ProductRecommendation> recommendations = getTrendingProducts(limit);
+        if (recommendations.size() >= limit) {
+            return recommendations;
+        }
+        Set<String> seen = new HashSet<>();
+        for (ProductRecommendation pr : recommendations) {
+            seen.add(pr.getProductId());
+        }
         
         try {
-            // Get products sorted by popularity (from Redis or reviews)
+            // Top up from the catalog, best rated first
             @SuppressWarnings("unchecked")
-            Map<String, Object> productResponse = restTemplate.getForObject(
-                productServiceUrl + "/api/products?page=0&size=" + limit, Map.class);
+            Map<String, Object> productResponse = dependencyGuard.callWithCachedFallback("product-service", "products:size=" + limit,
+                () -> restTemplate.getForObject(productServiceUrl + "/api/products?page=0&size=" + limit, Map.class),
+                e -> { throw e; });
             
             if (productResponse != null && productResponse.containsKey("content")) {
                 @SuppressWarnings("unchecked")
                 List<Map<String, Object>> products = (List<Map<String, Object>>) productResponse.get("content");
                 
                 if (products != null) {
-                    // Sort by average rating if available
+                    // Sort by average rating if available (kept on the product by product-service,
+                    // so the page already carries it and no per-product review calls are needed)
                     products.sort((p1, p2) -> {
-                        try {
-                            // Fix: Null checks for product IDs to avoid NullPointerException
-                            Object id1Obj = p1.get("id");
-                            Object id2Obj = p2.get("id");
-                            if (id1Obj == null || id2Obj == null) {
-                                return 0;
-                            }
-                            Double r1 = getProductAverageRating(id1Obj.toString());
-                            Double r2 = getProductAverageRating(id2Obj.toString());
-                            if (r1 != null && r2 != null) {
-                                return Double.compare(r2, r1);
-                            }
-                        } catch (Exception e) {
-                            // Ignore
+                        Double r1 = averageRatingOf(p1);
+                        Double r2 = averageRatingOf(p2);
+                        if (r1 != null && r2 != null) {
+                            return Double.compare(r2, r1);
                         }
                         return 0;
                     });
                     
-                    for (Map<String, Object> product : products.stream().limit(limit).toList()) {
+                    for (Map<String, Object> product : products) {
+                        if (recommendations.size() >= limit) {
+                            break;
+                        }
                         // Fix: Null check for product ID to avoid NullPointerException
                         Object idObj = product.get("id");
-                        if (idObj == null) {
-                            continue; // Skip products without ID
+                        if (idObj == null || !seen.add(idObj.toString())) {
+                            continue; // Skip products without ID or already in the list
                         }
-                        String productId = idObj.toString();
-                        Double avgRating = getProductAverageRating(productId);
+                        Double avgRating = averageRatingOf(product);
                         double score = avgRating != null ? avgRating / 5.0 : 0.7;
                         
-                        ProductRecommendation pr = enrichProductRecommendation(productId, score);
+                        ProductRecommendation pr = toRecommendation(idObj.toString(), product, score);
                         if (pr != null) {
                             pr.setReason("Popular products");
                             pr.setType("POPULAR");
@@ -682,73 +716,96 @@ public class RecommendationService {
     }
     
     /**
-     * Enrich product recommendation with details from Product Service
+     * Top products of the decayed product:popularity set (ZREVRANGE), scored relative to the first
      */
-    private ProductRecommendation enrichProductRecommendation(String productId, double score) {
+    private List<ProductRecommendation> getTrendingProducts(int limit) {
+        if (redisTemplate == null || limit <= 0) {
+            return new ArrayList<>();
+        }
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> product = restTemplate.getForObject(
-                productServiceUrl + "/api/products/" + productId, Map.class);
-            
-            if (product != null) {
-                // Fix: Null checks for name and price to avoid NullPointerException
-                Object nameObj = product.get("name");
-                Object priceObj = product.get("price");
-                if (nameObj == null || priceObj == null) {
-                    logger.debug("Product {} missing name or price, skipping enrichment", productId);
-                    return null;
+            Set<ZSetOperations.TypedTuple<Object>> top = redisTemplate.opsForZSet()
+                .reverseRangeWithScores(BehaviorEventBuffer.POPULARITY_KEY, 0, limit - 1);
+            if (top == null || top.isEmpty()) {
+                return new ArrayList<>();
+            }
+            Map<String, Double> scored = new LinkedHashMap<>();
+            double max = 0;
+            for (ZSetOperations.TypedTuple<Object> entry : top) {
+                if (entry.getValue() == null || entry.getScore() == null) {
+                    continue;
                 }
-                
-                ProductRecommendation pr = new ProductRecommendation();
-                pr.setProductId(productId);
-                pr.setProductName(nameObj.toString());
-                try {
-                    pr.setPrice(new BigDecimal(priceObj.toString()));
-                } catch (NumberFormatException e) {
-                    logger.debug("Invalid price format for product {}: {}", productId, e.getMessage());
-                    return null;
+                max = Math.max(max, entry.getScore());
+                scored.put(entry.getValue().toString(), entry.getScore());
+            }
+            if (max > 0) {
+                for (Map.Entry<String, Double> entry : scored.entrySet()) {
+                    entry.setValue(entry.getValue() / max);
                 }
-                pr.setProductImage(product.get("imageUrl") != null ? product.get("imageUrl").toString() : "");
-                pr.setScore(Math.min(1.0, Math.max(0.0, score)));
-                return pr;
             }
+            return enrichProductRecommendations(scored, "Popular products", "POPULAR");
         } catch (Exception e) {
-            logger.debug("Failed to enrich product {}: {}", productId, e.getMessage());
+            logger.debug("Popularity set unavailable: {}", e.getMessage());
+            return new ArrayList<>();
         }
-        return null;
     }
     
     /**
-     * Get average rating for a product
+     * Enrich scored products with details from Product Service, in one batch call for the whole list.
+     * Keeps the order of the map; products that cannot be loaded are left out.
      */
-    private Double getProductAverageRating(String productId) {
-        try {
-            String url = reviewServiceUrl + "/api/reviews/product/" + productId + "/stats";
-            @SuppressWarnings("unchecked")
-            Map<String, Object> stats = restTemplate.getForObject(url, Map.class);
-            
-            if (stats != null && stats.containsKey("averageRating")) {
-                Object avgRating = stats.get("averageRating");
-                if (avgRating != null) {
-                    return Double.valueOf(avgRating.toString());
-                }
-            }
-        } catch (Exception e) {
-            // Fallback: try product service
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> product = restTemplate.getForObject(
-                    productServiceUrl + "/api/products/" + productId, Map.class);
-                if (product != null && product.containsKey("averageRating")) {
-                    Object avgRating = product.get("averageRating");
-                    if (avgRating != null) {
-                        return Double.valueOf(avgRating.toString());
-                    }
-                }
-            } catch (Exception ex) {
-                // Ignore
+    private List<ProductRecommendation> enrichProductRecommendations(Map<String, Double> scored, String reason, String type) {
+        List<ProductRecommendation> result = new ArrayList<>(scored.size());
+        if (scored.isEmpty()) {
+            return result;
+        }
+        Map<String, Map<String, Object>> cards = productCardCache.getCards(scored.keySet());
+        for (Map.Entry<String, Double> entry : scored.entrySet()) {
+            Map<String, Object> product = cards.get(entry.getKey());
+            ProductRecommendation pr = product != null ? toRecommendation(entry.getKey(), product, entry.getValue()) : null;
+            if (pr != null) {
+                pr.setReason(reason);
+                pr.setType(type);
+                result.add(pr);
             }
         }
-        return null;
+        return result;
+    }
+    
+    /**
+     * Build a recommendation from product data; null if name or price is missing
+     */
+    private ProductRecommendation toRecommendation(String productId, Map<String, Object> product, double score) {
+        // Fix: Null checks for name and price to avoid NullPointerException
+        Object nameObj = product.get("name");
+        Object priceObj = product.get("price");
+        if (nameObj == null || priceObj == null) {
+            logger.debug("Product {} missing name or price, skipping enrichment", productId);
+            return null;
+        }
+        
+        ProductRecommendation pr = new ProductRecommendation();
+        pr.setProductId(productId);
+        pr.setProductName(nameObj.toString());
+        try {
+            pr.setPrice(new BigDecimal(priceObj.toString()));
+        } catch (NumberFormatException e) {
+            logger.debug("Invalid price format for product {}: {}", productId, e.getMessage());
+            return null;
+        }
+        pr.setProductImage(product.get("imageUrl") != null ? product.get("imageUrl").toString() : "");
+        pr.setScore(Math.min(1.0, Math.max(0.0, score)));
+        return pr;
+    }
+    
+    private static Double averageRatingOf(Map<String, Object> product) {
+        Object avgRating = product.get("averageRating");
+        if (avgRating == null) {
+            return null;
+        }
+        try {
+            return Double.valueOf(avgRating.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
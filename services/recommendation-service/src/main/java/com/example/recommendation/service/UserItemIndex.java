@@ -0,0 +1,229 @@
+package com.example.recommendation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inverted user-item index in Redis for user-based Collaborative Filtering.
+ *
+ * Next to each user's product set ({@code user:behavior:{userId}}) the index keeps, per product,
+ * the users who interacted with it ({@code product:users:{productId}}); both are written by
+ * {@link BehaviorEventBuffer}. Similar users are found by
+ * reading the user sets of the current user's products only, so the cost grows with the user's own
+ * history instead of with the number of users. Candidates are ranked by exact Jaccard similarity
+ * computed on their full product sets, read in one pipelined round trip.
+ *
+ * Products with more than {@code max-users-per-product} users (bestsellers) are not probed: they link
+ * almost everyone and say little about taste. They still count in the Jaccard of the candidates found
+ * through other products.
+ */
+@Component
+public class UserItemIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserItemIndex.class);
+
+    static final String USER_BEHAVIOR_PREFIX = "user:behavior:";
+    static final String PRODUCT_USERS_PREFIX = "product:users:";
+    private static final String BACKFILL_MARKER = "product:users:backfilled";
+    private static final long TTL_DAYS = 90;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${recommendation.similar-users.max-probe-products:200}")
+    private int maxProbeProducts;
+
+    @Value("${recommendation.similar-users.max-users-per-product:5000}")
+    private long maxUsersPerProduct;
+
+    @Value("${recommendation.similar-users.max-candidates:500}")
+    private int maxCandidates;
+
+    @Value("${recommendation.similar-users.min-similarity:0.2}")
+    private double minSimilarity;
+
+    /**
+     * Most similar users (Jaccard above min-similarity), best first, each with their product set
+     */
+    public Map<String, Set<String>> findSimilarUsers(String userId, Set<String> userProducts, int limit) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        if (redisTemplate == null || userProducts == null || userProducts.isEmpty()) {
+            return result;
+        }
+
+        // Step 1: sizes of the probed products' user sets, to skip bestsellers
+        List<String> probed = new ArrayList<>(userProducts);
+        if (probed.size() > maxProbeProducts) {
+            probed = probed.subList(0, maxProbeProducts);
+        }
+        List<Object> sizes = pipelined(probed, (ops, productId) -> ops.opsForSet().size(PRODUCT_USERS_PREFIX + productId));
+        List<String> selective = new ArrayList<>();
+        for (int i = 0; i < probed.size(); i++) {
+            Object size = sizes.get(i);
+            if (size instanceof Long && (Long) size > 0 && (Long) size <= maxUsersPerProduct) {
+                selective.add(probed.get(i));
+            }
+        }
+
+        // Step 2: users sharing those products, counted per user
+        Map<String, Integer> shared = new HashMap<>();
+        List<Object> userSets = pipelined(selective, (ops, productId) -> ops.opsForSet().members(PRODUCT_USERS_PREFIX + productId));
+        for (Object members : userSets) {
+            for (String other : toStrings(members)) {
+                if (!other.equals(userId)) {
+                    shared.merge(other, 1, Integer::sum);
+                }
+            }
+        }
+        if (shared.isEmpty()) {
+            return result;
+        }
+
+        // Step 3: exact Jaccard on the full product sets of the strongest candidates
+        List<String> candidates = new ArrayList<>(shared.keySet());
+        candidates.sort((a, b) -> Integer.compare(shared.get(b), shared.get(a)));
+        if (candidates.size() > maxCandidates) {
+            candidates = candidates.subList(0, maxCandidates);
+        }
+        List<Object> candidateSets = pipelined(candidates, (ops, other) -> ops.opsForSet().members(USER_BEHAVIOR_PREFIX + other));
+
+        List<String> ranked = new ArrayList<>();
+        Map<String, Double> similarity = new HashMap<>();
+        Map<String, Set<String>> products = new HashMap<>();
+        List<String> stale = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            String other = candidates.get(i);
+            Set<String> otherProducts = toStrings(candidateSets.get(i));
+            if (otherProducts.isEmpty()) {
+                stale.add(other); // behavior expired, index entry outlived it
+                continue;
+            }
+            int intersection = 0;
+            for (String productId : otherProducts) {
+                if (userProducts.contains(productId)) {
+                    intersection++;
+                }
+            }
+            double jaccard = (double) intersection / (userProducts.size() + otherProducts.size() - intersection);
+            if (jaccard > minSimilarity) {
+                ranked.add(other);
+                similarity.put(other, jaccard);
+                products.put(other, otherProducts);
+            }
+        }
+        ranked.sort((a, b) -> Double.compare(similarity.get(b), similarity.get(a)));
+        for (String other : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            result.put(other, products.get(other));
+        }
+
+        if (!stale.isEmpty()) {
+            removeStale(selective, stale);
+        }
+        return result;
+    }
+
+    /**
+     * Build the index from existing user behavior sets, once per Redis (guarded by a marker key).
+     * Uses SCAN, so Redis keeps serving other clients while it runs.
+     */
+    public int backfillIfNeeded() {
+        if (redisTemplate == null) {
+            return 0;
+        }
+        Boolean first = redisTemplate.opsForValue().setIfAbsent(BACKFILL_MARKER, "running", Duration.ofHours(1));
+        if (!Boolean.TRUE.equals(first)) {
+            return 0;
+        }
+        int users = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(USER_BEHAVIOR_PREFIX + "*").count(500).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                String userId = key.substring(USER_BEHAVIOR_PREFIX.length());
+                if (userId.contains(":")) {
+                    continue; // per-behavior-type set (user:behavior:{userId}:{type})
+                }
+                Set<Object> productIds = redisTemplate.opsForSet().members(key);
+                if (productIds != null && !productIds.isEmpty()) {
+                    pipelined(toStrings(productIds), (ops, productId) -> {
+                        ops.opsForSet().add(PRODUCT_USERS_PREFIX + productId, userId);
+                        ops.expire(PRODUCT_USERS_PREFIX + productId, TTL_DAYS, TimeUnit.DAYS);
+                        return null;
+                    });
+                    users++;
+                }
+            }
+        } catch (RuntimeException e) {
+            redisTemplate.delete(BACKFILL_MARKER);
+            throw e;
+        }
+        redisTemplate.opsForValue().set(BACKFILL_MARKER, "done");
+        logger.info("Backfilled user-item index from {} users", users);
+        return users;
+    }
+
+    private void removeStale(List<String> productIds, List<String> staleUsers) {
+        try {
+            Object[] users = staleUsers.toArray();
+            pipelined(productIds, (ops, productId) -> ops.opsForSet().remove(PRODUCT_USERS_PREFIX + productId, users));
+        } catch (Exception e) {
+            logger.debug("Failed to remove stale users from user-item index: {}", e.getMessage());
+        }
+    }
+
+    private interface PipelinedCommand {
+        Object apply(RedisOperations<String, Object> ops, String argument);
+    }
+
+    /**
+     * One command per argument in a single round trip; results in argument order
+     */
+    private List<Object> pipelined(Collection<String> arguments, PipelinedCommand command) {
+        if (arguments.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String argument : arguments) {
+                    command.apply(ops, argument);
+                }
+                return null;
+            }
+        });
+    }
+
+    private static Set<String> toStrings(Object members) {
+        Set<String> result = new HashSet<>();
+        if (members instanceof Collection) {
+            for (Object member : (Collection<?>) members) {
+                if (member != null) {
+                    result.add(member.toString());
+                }
+            }
+        }
+        return result;
+    }
+}
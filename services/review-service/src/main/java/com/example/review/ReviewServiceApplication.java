@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -28,9 +29,7 @@ public class ReviewServiceApplication {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        
+    public RestTemplate restTemplate(RestTemplateBuilder builder) {
         // Add interceptor to add service authentication headers
         List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
         interceptors.add((request, body, execution) -> {
@@ -47,7 +46,7 @@ public class ReviewServiceApplication {
             return execution.execute(request, body);
         });
         
-        restTemplate.setInterceptors(interceptors);
-        return restTemplate;
+        // Pooled client, timeouts and lb:// support come from the shared HttpClientAutoConfiguration
+        return builder.additionalInterceptors(interceptors).build();
     }
 }
@@ -443,27 +443,19 @@ public class ReviewService {
      */
     private boolean hasUserPurchasedProduct(String userId, String productId) {
         try {
-            // Call Order Service to check if user has purchased this product
-            String url = orderServiceUrl + "/api/orders/user/" + userId + "/purchased-products";
-            System.out.println("Checking purchase history: " + url);
+            // Point lookup on Order Service's purchased-products index
+            String url = orderServiceUrl + "/api/orders/purchased/" + userId + "/" + productId;
             
             @SuppressWarnings("unchecked")
             Map<String, Object> response = (Map<String, Object>) restTemplate.getForObject(url, Map.class);
             
-            if (response != null && response.containsKey("products")) {
-                @SuppressWarnings("unchecked")
-                List<String> purchasedProductIds = (List<String>) response.get("products");
-                boolean hasPurchased = purchasedProductIds.contains(productId);
-                System.out.println("User " + userId + " purchased product " + productId + ": " + hasPurchased);
-                return hasPurchased;
-            }
-            
-            System.out.println("No purchase history found for user " + userId);
-            return false;
+            boolean hasPurchased = response != null && Boolean.TRUE.equals(response.get("purchased"));
+            logger.debug("User {} purchased product {}: {}", userId, productId, hasPurchased);
+            return hasPurchased;
         } catch (Exception e) {
             // Log error but allow review with unverified status
-            System.err.println("Failed to check purchase history for user " + userId + 
-                ", product " + productId + ": " + e.getMessage());
+            logger.warn("Failed to check purchase history for user {}, product {}: {}",
+                userId, productId, e.getMessage());
             // Return false - review will be created but marked as unverified
             return false;
         }
@@ -0,0 +1,113 @@
+package com.example.shared.http;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Shared pooled HTTP client for inter-service calls.
+ *
+ * Every RestTemplate built from the injected {@code RestTemplateBuilder} gets the same
+ * keep-alive connection pool (Apache HttpClient 5), consistent timeouts, {@code lb://}
+ * resolution through Eureka and per-downstream pool metrics.
+ */
+@AutoConfiguration
+@ConditionalOnClass({RestTemplate.class, CloseableHttpClient.class})
+@ConditionalOnProperty(prefix = "shared.http-client", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public PoolingHttpClientConnectionManager sharedHttpConnectionManager(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(properties.getMaxTotalConnections())
+            .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                .setTimeToLive(TimeValue.of(properties.getConnectionTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+
+        properties.getTargets().forEach((name, target) -> {
+            if (target.getUrl() != null && target.getMaxConnections() != null) {
+                connectionManager.setMaxPerRoute(HttpRoutes.toRoute(target.getUrl()), target.getMaxConnections());
+            }
+        });
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public CloseableHttpClient sharedHttpClient(PoolingHttpClientConnectionManager connectionManager,
+                                                HttpClientProperties properties) {
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(properties.getIdleEvictTimeout()))
+            .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PooledClientHttpRequestFactory sharedClientHttpRequestFactory(CloseableHttpClient httpClient,
+                                                                         HttpClientProperties properties) {
+        return new PooledClientHttpRequestFactory(httpClient, properties);
+    }
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RestTemplateCustomizer pooledRestTemplateCustomizer(PooledClientHttpRequestFactory requestFactory) {
+        return restTemplate -> restTemplate.setRequestFactory(requestFactory);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(LoadBalancerClient.class)
+    static class LoadBalancedUriConfiguration {
+
+        @Bean
+        public LoadBalancedUriInterceptor loadBalancedUriInterceptor(ObjectProvider<LoadBalancerClient> loadBalancerClient) {
+            return new LoadBalancedUriInterceptor(loadBalancerClient);
+        }
+
+        @Bean
+        public RestTemplateCustomizer loadBalancedUriRestTemplateCustomizer(LoadBalancedUriInterceptor interceptor) {
+            return restTemplate -> restTemplate.getInterceptors().add(0, interceptor);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class PoolMetricsConfiguration {
+
+        @Bean
+        public HttpClientPoolMetrics httpClientPoolMetrics(PoolingHttpClientConnectionManager connectionManager,
+                                                           HttpClientProperties properties) {
+            return new HttpClientPoolMetrics(connectionManager, properties);
+        }
+    }
+}
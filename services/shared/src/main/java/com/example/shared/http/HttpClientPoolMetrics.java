@@ -0,0 +1,54 @@
+package com.example.shared.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+
+import java.util.function.Function;
+
+/**
+ * Connection pool gauges for the shared HttpClient, in total and per configured target.
+ * Request latency per downstream is already recorded by Spring Boot as {@code http.client.requests}.
+ */
+public class HttpClientPoolMetrics implements MeterBinder {
+
+    private static final String METRIC_NAME = "http.client.pool.connections";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final HttpClientProperties properties;
+
+    public HttpClientPoolMetrics(PoolingHttpClientConnectionManager connectionManager, HttpClientProperties properties) {
+        this.connectionManager = connectionManager;
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, "all", cm -> cm.getTotalStats());
+        properties.getTargets().forEach((name, target) -> {
+            if (target.getUrl() != null) {
+                HttpRoute route = HttpRoutes.toRoute(target.getUrl());
+                register(registry, name, cm -> cm.getStats(route));
+            }
+        });
+    }
+
+    private void register(MeterRegistry registry, String target,
+                          Function<PoolingHttpClientConnectionManager, PoolStats> stats) {
+        Gauge.builder(METRIC_NAME, connectionManager, cm -> stats.apply(cm).getLeased())
+            .tag("target", target).tag("state", "leased")
+            .register(registry);
+        Gauge.builder(METRIC_NAME, connectionManager, cm -> stats.apply(cm).getAvailable())
+            .tag("target", target).tag("state", "available")
+            .register(registry);
+        Gauge.builder(METRIC_NAME, connectionManager, cm -> stats.apply(cm).getPending())
+            .tag("target", target).tag("state", "pending")
+            .register(registry);
+        Gauge.builder(METRIC_NAME, connectionManager, cm -> stats.apply(cm).getMax())
+            .tag("target", target).tag("state", "max")
+            .register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.shared.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the shared pooled HTTP client used by every service RestTemplate.
+ *
+ * <pre>
+ * shared:
+ *   http-client:
+ *     connect-timeout: 5s
+ *     read-timeout: 10s
+ *     max-connections-per-route: 50
+ *     targets:
+ *       product-service:
+ *         url: http://localhost:8088
+ *         max-connections: 100
+ *         read-timeout: 5s
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "shared.http-client")
+public class HttpClientProperties {
+
+    private boolean enabled = true;
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /** Max time to wait for a free connection from the pool */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+
+    private int maxTotalConnections = 200;
+
+    private int maxConnectionsPerRoute = 50;
+
+    private Duration idleEvictTimeout = Duration.ofSeconds(30);
+
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    /** Per-downstream overrides, keyed by a logical name used in metrics */
+    private Map<String, Target> targets = new LinkedHashMap<>();
+
+    public static class Target {
+
+        /** Base URL of the downstream, e.g. http://localhost:8088 */
+        private String url;
+
+        private Integer maxConnections;
+
+        private Duration readTimeout;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public Integer getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(Integer maxConnections) { this.maxConnections = maxConnections; }
+
+        public Duration getReadTimeout() { return readTimeout; }
+        public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getConnectTimeout() { return connectTimeout; }
+    public void setConnectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; }
+
+    public Duration getReadTimeout() { return readTimeout; }
+    public void setReadTimeout(Duration readTimeout) { this.readTimeout = readTimeout; }
+
+    public Duration getConnectionRequestTimeout() { return connectionRequestTimeout; }
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) { this.connectionRequestTimeout = connectionRequestTimeout; }
+
+    public int getMaxTotalConnections() { return maxTotalConnections; }
+    public void setMaxTotalConnections(int maxTotalConnections) { this.maxTotalConnections = maxTotalConnections; }
+
+    public int getMaxConnectionsPerRoute() { return maxConnectionsPerRoute; }
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) { this.maxConnectionsPerRoute = maxConnectionsPerRoute; }
+
+    public Duration getIdleEvictTimeout() { return idleEvictTimeout; }
+    public void setIdleEvictTimeout(Duration idleEvictTimeout) { this.idleEvictTimeout = idleEvictTimeout; }
+
+    public Duration getConnectionTimeToLive() { return connectionTimeToLive; }
+    public void setConnectionTimeToLive(Duration connectionTimeToLive) { this.connectionTimeToLive = connectionTimeToLive; }
+
+    public Map<String, Target> getTargets() { return targets; }
+    public void setTargets(Map<String, Target> targets) { this.targets = targets; }
+}
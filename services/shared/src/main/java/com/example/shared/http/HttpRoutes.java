@@ -0,0 +1,35 @@
+package com.example.shared.http;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.http.HttpHost;
+
+import java.net.URI;
+
+/**
+ * Helpers to map configured target URLs onto HttpClient routes.
+ */
+final class HttpRoutes {
+
+    private HttpRoutes() {
+    }
+
+    static HttpHost toHost(String url) {
+        URI uri = URI.create(url);
+        String scheme = uri.getScheme() != null ? uri.getScheme() : "http";
+        int port = uri.getPort() >= 0 ? uri.getPort() : ("https".equalsIgnoreCase(scheme) ? 443 : 80);
+        return new HttpHost(scheme, uri.getHost(), port);
+    }
+
+    static HttpRoute toRoute(String url) {
+        HttpHost host = toHost(url);
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(host.getSchemeName()));
+    }
+
+    /**
+     * host:port key with the default port filled in, used to match request URIs to targets
+     */
+    static String authorityKey(String scheme, String host, int port) {
+        int effectivePort = port >= 0 ? port : ("https".equalsIgnoreCase(scheme) ? 443 : 80);
+        return host.toLowerCase() + ":" + effectivePort;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.shared.http;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Resolves {@code lb://service-name/path} URLs through the Eureka-backed LoadBalancerClient.
+ * Plain http/https URLs are passed through untouched, so the interceptor is safe on every RestTemplate.
+ */
+public class LoadBalancedUriInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String LB_SCHEME = "lb";
+
+    private final ObjectProvider<LoadBalancerClient> loadBalancerClient;
+
+    public LoadBalancedUriInterceptor(ObjectProvider<LoadBalancerClient> loadBalancerClient) {
+        this.loadBalancerClient = loadBalancerClient;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        URI uri = request.getURI();
+        if (!LB_SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            return execution.execute(request, body);
+        }
+
+        LoadBalancerClient client = loadBalancerClient.getIfAvailable();
+        if (client == null) {
+            throw new IllegalStateException("No LoadBalancerClient available to resolve " + uri);
+        }
+        String serviceId = uri.getHost();
+        ServiceInstance instance = client.choose(serviceId);
+        if (instance == null) {
+            throw new IOException("No instances available for " + serviceId);
+        }
+
+        URI resolved = UriComponentsBuilder.fromUri(uri)
+            .scheme(instance.isSecure() ? "https" : "http")
+            .host(instance.getHost())
+            .port(instance.getPort())
+            .build(true)
+            .toUri();
+
+        HttpRequest resolvedRequest = new HttpRequestWrapper(request) {
+            @Override
+            public URI getURI() {
+                return resolved;
+            }
+        };
+        return execution.execute(resolvedRequest, body);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shared.http;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request factory backed by the shared pooled HttpClient.
+ * Applies the per-target read timeout from {@link HttpClientProperties} to each request.
+ */
+public class PooledClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final Map<String, RequestConfig> targetRequestConfigs = new HashMap<>();
+
+    public PooledClientHttpRequestFactory(HttpClient httpClient, HttpClientProperties properties) {
+        super(httpClient);
+        Timeout connectionRequestTimeout = Timeout.of(properties.getConnectionRequestTimeout());
+        properties.getTargets().forEach((name, target) -> {
+            if (target.getUrl() == null || target.getReadTimeout() == null) {
+                return;
+            }
+            HttpHost host = HttpRoutes.toHost(target.getUrl());
+            targetRequestConfigs.put(
+                HttpRoutes.authorityKey(host.getSchemeName(), host.getHostName(), host.getPort()),
+                RequestConfig.custom()
+                    .setConnectionRequestTimeout(connectionRequestTimeout)
+                    .setResponseTimeout(Timeout.of(target.getReadTimeout()))
+                    .build()
+            );
+        });
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        if (targetRequestConfigs.isEmpty() || uri.getHost() == null) {
+            return null;
+        }
+        RequestConfig config = targetRequestConfigs.get(
+            HttpRoutes.authorityKey(uri.getScheme(), uri.getHost(), uri.getPort()));
+        if (config == null) {
+            return null;
+        }
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(config);
+        return context;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.shared.idempotency;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A consumer's claim on a Kafka event. The unique (consumer, event id) pair is what makes
+ * redelivered events a no-op once the claim is {@link ProcessedEventStatus#DONE}; while it is
+ * {@link ProcessedEventStatus#IN_PROGRESS} the lease tells others whether the holder is still at it.
+ * Rows written before the status existed have a null status and count as done.
+ */
+@Entity
+@Table(name = "processed_events", indexes = {
+    @Index(name = "idx_processed_events_consumer_event", columnList = "consumer,event_id", unique = true),
+    @Index(name = "idx_processed_events_processed_at", columnList = "processed_at")
+})
+public class ProcessedEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "consumer", nullable = false, length = 100)
+    private String consumer;
+
+    @Column(name = "event_id", nullable = false, length = 100)
+    private String eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private ProcessedEventStatus status;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @CreationTimestamp
+    @Column(name = "processed_at", updatable = false)
+    private LocalDateTime processedAt;
+
+    public ProcessedEvent() {}
+
+    public ProcessedEvent(String consumer, String eventId, String leaseOwner, LocalDateTime leaseUntil) {
+        this.consumer = consumer;
+        this.eventId = eventId;
+        this.status = ProcessedEventStatus.IN_PROGRESS;
+        this.leaseOwner = leaseOwner;
+        this.leaseUntil = leaseUntil;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getConsumer() { return consumer; }
+    public void setConsumer(String consumer) { this.consumer = consumer; }
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+    public ProcessedEventStatus getStatus() { return status; }
+    public void setStatus(ProcessedEventStatus status) { this.status = status; }
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+}
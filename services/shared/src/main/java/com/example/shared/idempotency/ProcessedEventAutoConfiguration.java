@@ -0,0 +1,29 @@
+package com.example.shared.idempotency;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Registers the shared {@link ProcessedEventService} for services that set
+ * {@code shared.processed-events.property-prefix}. The package is added to the auto-configuration
+ * packages, so the service's JPA setup picks up {@link ProcessedEvent} and its repository.
+ */
+@AutoConfiguration(before = {HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+@ConditionalOnClass(JpaRepository.class)
+@ConditionalOnProperty(prefix = "shared.processed-events", name = "property-prefix")
+@AutoConfigurationPackage
+public class ProcessedEventAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ProcessedEventService processedEventService() {
+        return new ProcessedEventService();
+    }
+}
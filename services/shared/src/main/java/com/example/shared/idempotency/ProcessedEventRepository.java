@@ -0,0 +1,41 @@
+package com.example.shared.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessedEventRepository extends JpaRepository<ProcessedEvent, Long> {
+
+    List<ProcessedEvent> findByConsumerAndEventIdIn(String consumer, Collection<String> eventIds);
+
+    /**
+     * Take over an unfinished claim that is ours or whose lease ran out
+     */
+    @Modifying
+    @Query("UPDATE ProcessedEvent p SET p.leaseOwner = :owner, p.leaseUntil = :until " +
+           "WHERE p.id = :id AND p.status = com.example.shared.idempotency.ProcessedEventStatus.IN_PROGRESS " +
+           "AND (p.leaseOwner = :owner OR p.leaseUntil IS NULL OR p.leaseUntil < :now)")
+    int takeOver(@Param("id") Long id, @Param("owner") String owner,
+                 @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProcessedEvent p SET p.status = com.example.shared.idempotency.ProcessedEventStatus.DONE, " +
+           "p.leaseUntil = NULL WHERE p.consumer = :consumer AND p.eventId IN :eventIds")
+    int complete(@Param("consumer") String consumer, @Param("eventIds") Collection<String> eventIds);
+
+    @Modifying
+    @Query("DELETE FROM ProcessedEvent p WHERE p.consumer = :consumer AND p.eventId = :eventId " +
+           "AND p.status = com.example.shared.idempotency.ProcessedEventStatus.IN_PROGRESS")
+    int release(@Param("consumer") String consumer, @Param("eventId") String eventId);
+
+    @Modifying
+    @Query("DELETE FROM ProcessedEvent p WHERE p.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,187 @@
+package com.example.shared.idempotency;
+
+import com.example.shared.util.NodeNames;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Idempotency store for Kafka consumers.
+ *
+ * A consumer claims the event ids of a batch before acting on them. A claim starts
+ * {@link ProcessedEventStatus#IN_PROGRESS} with a lease and only becomes
+ * {@link ProcessedEventStatus#DONE} through {@link #complete} once the handler has finished, so
+ * delivery stays at-least-once: a claim left behind by a crashed consumer is taken over when its
+ * lease runs out, and a failed handler releases its claim for the retried delivery. Events that are
+ * already done (redeliveries after a rebalance or a failed commit) are filtered out, so their side
+ * effects are not repeated.
+ *
+ * Settings are read under the service's own prefix, {@code shared.processed-events.property-prefix}
+ * (e.g. {@code notification.kafka.processed-events}): {@code lease-seconds}, {@code retention-days}
+ * and {@code cleanup-cron}.
+ */
+public class ProcessedEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedEventService.class);
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${${shared.processed-events.property-prefix}.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${${shared.processed-events.property-prefix}.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private final String node = NodeNames.unique("consumer");
+
+    private TransactionTemplate tx;
+
+    /**
+     * Outcome of a claim: events to handle now, and events another consumer is still working on
+     */
+    public static class Claim {
+        private final Set<String> claimed;
+        private final Set<String> busy;
+
+        Claim(Set<String> claimed, Set<String> busy) {
+            this.claimed = claimed;
+            this.busy = busy;
+        }
+
+        public boolean isClaimed(String eventId) {
+            return claimed.contains(eventId);
+        }
+
+        /**
+         * Held under a live lease by another consumer; retry the delivery instead of skipping it
+         */
+        public boolean isBusy(String eventId) {
+            return busy.contains(eventId);
+        }
+
+        public int size() {
+            return claimed.size();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Claim the given event ids for a consumer
+     */
+    public Claim claim(String consumer, Collection<String> eventIds) {
+        Set<String> fresh = new LinkedHashSet<>(eventIds);
+        Set<String> claimed = new LinkedHashSet<>();
+        Set<String> busy = new HashSet<>();
+        if (fresh.isEmpty()) {
+            return new Claim(claimed, busy);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusSeconds(leaseSeconds);
+
+        for (ProcessedEvent existing : processedEventRepository.findByConsumerAndEventIdIn(consumer, fresh)) {
+            String eventId = existing.getEventId();
+            fresh.remove(eventId);
+            if (existing.getStatus() != ProcessedEventStatus.IN_PROGRESS) {
+                continue; // done
+            }
+            Integer taken = tx.execute(status -> processedEventRepository.takeOver(existing.getId(), node, until, now));
+            if (taken != null && taken == 1) {
+                logger.info("Event {} of {} was left unfinished by {}, processing it again", eventId, consumer,
+                    existing.getLeaseOwner());
+                claimed.add(eventId);
+            } else {
+                busy.add(eventId);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return new Claim(claimed, busy);
+        }
+
+        List<ProcessedEvent> markers = new ArrayList<>(fresh.size());
+        for (String eventId : fresh) {
+            markers.add(new ProcessedEvent(consumer, eventId, node, until));
+        }
+        try {
+            tx.executeWithoutResult(status -> processedEventRepository.saveAllAndFlush(markers));
+            claimed.addAll(fresh);
+            return new Claim(claimed, busy);
+        } catch (DataIntegrityViolationException e) {
+            // Another consumer claimed some of them in between; fall back to one claim per event
+            logger.debug("Batch claim for {} hit a duplicate, claiming one by one", consumer);
+        }
+
+        for (String eventId : fresh) {
+            try {
+                tx.executeWithoutResult(status ->
+                    processedEventRepository.saveAndFlush(new ProcessedEvent(consumer, eventId, node, until)));
+                claimed.add(eventId);
+            } catch (DataIntegrityViolationException e) {
+                // Claimed elsewhere just now; a retry sees whether that finished
+                busy.add(eventId);
+            }
+        }
+        return new Claim(claimed, busy);
+    }
+
+    /**
+     * Mark handled events as done; from now on their redeliveries are skipped
+     */
+    public void complete(String consumer, Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        tx.executeWithoutResult(status -> processedEventRepository.complete(consumer, eventIds));
+    }
+
+    /**
+     * Give up a claim so a redelivery of the event is handled again
+     */
+    public void release(String consumer, String eventId) {
+        try {
+            tx.executeWithoutResult(status -> processedEventRepository.release(consumer, eventId));
+        } catch (Exception e) {
+            // The lease still runs out, after which the redelivery takes the claim over
+            logger.warn("Could not release event {} for {}: {}", eventId, consumer, e.getMessage());
+        }
+    }
+
+    /**
+     * Markers only need to outlive the window in which a redelivery can happen
+     */
+    @Scheduled(cron = "${${shared.processed-events.property-prefix}.cleanup-cron:0 30 3 * * *}")
+    public void purgeOldMarkers() {
+        try {
+            Integer deleted = tx.execute(status ->
+                processedEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays)));
+            if (deleted != null && deleted > 0) {
+                logger.info("Purged {} processed event markers", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Error purging processed event markers: {}", e.getMessage(), e);
+        }
+    }
+}
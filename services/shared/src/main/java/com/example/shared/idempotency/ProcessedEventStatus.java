@@ -0,0 +1,11 @@
+package com.example.shared.idempotency;
+
+/**
+ * State of a consumer's claim on an event
+ */
+public enum ProcessedEventStatus {
+    /** Claimed, handler still running (or crashed before finishing) */
+    IN_PROGRESS,
+    /** Handler completed; redeliveries are skipped */
+    DONE
+}
@@ -0,0 +1,186 @@
+package com.example.shared.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Guards calls to other services with a per-dependency circuit breaker, semaphore
+ * bulkhead, budgeted retry and last-good-response cache (Resilience4j).
+ *
+ * A dependency is identified by name (e.g. "product-service"); its policy comes from
+ * {@code shared.resilience.dependencies.<name>} over {@code shared.resilience.defaults}.
+ * Calls beyond the bulkhead limit or behind an open circuit fail immediately instead of
+ * holding a request thread, so one slow service cannot exhaust the caller's Tomcat pool.
+ *
+ * 4xx responses are answers, not outages: they are not retried, do not count as circuit
+ * failures and never fall back to a cached value.
+ */
+public class DependencyGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyGuard.class);
+
+    private final ResilienceProperties properties;
+    private final ConcurrentMap<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public DependencyGuard(ResilienceProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Call without retry - use for non-idempotent requests (reservations, payments, notifications)
+     */
+    public <T> T call(String dependency, Supplier<T> call) {
+        return execute(guard(dependency), call, false);
+    }
+
+    /**
+     * Idempotent call (GET-like); transient failures are retried within the retry budget
+     */
+    public <T> T callIdempotent(String dependency, Supplier<T> call) {
+        return execute(guard(dependency), call, true);
+    }
+
+    /**
+     * Call without retry; any failure (including rejection) is mapped by {@code fallback}
+     */
+    public <T> T callWithFallback(String dependency, Supplier<T> call, Function<RuntimeException, T> fallback) {
+        try {
+            return call(dependency, call);
+        } catch (RuntimeException e) {
+            logFailure(dependency, e);
+            return fallback.apply(e);
+        }
+    }
+
+    /**
+     * Idempotent call whose last good result is cached under {@code cacheKey}.
+     * On an outage the cached value is returned; without one, {@code fallback} decides.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T callWithCachedFallback(String dependency, String cacheKey, Supplier<T> call,
+                                        Function<RuntimeException, T> fallback) {
+        Guard guard = guard(dependency);
+        try {
+            T result = execute(guard, call, true);
+            guard.fallbackCache.put(cacheKey, result);
+            return result;
+        } catch (RuntimeException e) {
+            logFailure(dependency, e);
+            if (!(e instanceof HttpClientErrorException)) {
+                Object cached = guard.fallbackCache.get(cacheKey);
+                if (cached != null) {
+                    logger.debug("Serving cached fallback for {} [{}]", dependency, cacheKey);
+                    return (T) cached;
+                }
+            }
+            return fallback.apply(e);
+        }
+    }
+
+    /**
+     * Snapshot of circuit, bulkhead and retry budget state per dependency (for health/admin endpoints)
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        guards.forEach((name, guard) -> {
+            CircuitBreaker.Metrics metrics = guard.circuitBreaker.getMetrics();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("state", guard.circuitBreaker.getState().name());
+            entry.put("failureRate", metrics.getFailureRate());
+            entry.put("slowCallRate", metrics.getSlowCallRate());
+            entry.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+            entry.put("bulkheadAvailable", guard.bulkhead.getMetrics().getAvailableConcurrentCalls());
+            entry.put("retryBudget", guard.retryBudget.availableRetries());
+            entry.put("cachedFallbacks", guard.fallbackCache.size());
+            status.put(name, entry);
+        });
+        return status;
+    }
+
+    private <T> T execute(Guard guard, Supplier<T> call, boolean retryable) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        guard.retryBudget.recordCall();
+        Supplier<T> decorated = Bulkhead.decorateSupplier(guard.bulkhead, call);
+        decorated = CircuitBreaker.decorateSupplier(guard.circuitBreaker, decorated);
+        if (retryable) {
+            decorated = Retry.decorateSupplier(guard.retry, decorated);
+        }
+        return decorated.get();
+    }
+
+    private Guard guard(String dependency) {
+        return guards.computeIfAbsent(dependency, this::createGuard);
+    }
+
+    private Guard createGuard(String dependency) {
+        ResilienceProperties.Policy policy = properties.resolve(dependency);
+
+        CircuitBreaker circuitBreaker = CircuitBreaker.of(dependency, CircuitBreakerConfig.custom()
+            .failureRateThreshold(policy.getFailureRateThreshold())
+            .slowCallRateThreshold(policy.getSlowCallRateThreshold())
+            .slowCallDurationThreshold(policy.getSlowCallDurationThreshold())
+            .slidingWindowSize(policy.getSlidingWindowSize())
+            .minimumNumberOfCalls(policy.getMinimumNumberOfCalls())
+            .waitDurationInOpenState(policy.getWaitDurationInOpenState())
+            .permittedNumberOfCallsInHalfOpenState(policy.getPermittedCallsInHalfOpenState())
+            .automaticTransitionFromOpenToHalfOpenEnabled(true)
+            .ignoreExceptions(HttpClientErrorException.class)
+            .build());
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+            logger.warn("Circuit breaker for {}: {}", dependency, event.getStateTransition()));
+
+        Bulkhead bulkhead = Bulkhead.of(dependency, BulkheadConfig.custom()
+            .maxConcurrentCalls(policy.getMaxConcurrentCalls())
+            .maxWaitDuration(policy.getMaxWaitDuration())
+            .build());
+
+        RetryBudget retryBudget = new RetryBudget(policy.getRetryBudgetRatio(), policy.getRetryBudgetMinPerSecond());
+        Retry retry = Retry.of(dependency, RetryConfig.custom()
+            .maxAttempts(1 + Math.max(0, policy.getMaxRetryAttempts()))
+            .waitDuration(policy.getRetryWaitDuration())
+            .retryOnException(e -> isTransient(e) && retryBudget.tryAcquireRetry())
+            .build());
+
+        FallbackCache fallbackCache = new FallbackCache(policy.getFallbackCacheSize(), policy.getFallbackCacheTtl());
+
+        return new Guard(circuitBreaker, bulkhead, retry, retryBudget, fallbackCache);
+    }
+
+    private static boolean isTransient(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+
+    private static void logFailure(String dependency, RuntimeException e) {
+        if (e instanceof CallNotPermittedException) {
+            logger.debug("Call to {} rejected: circuit open", dependency);
+        } else if (e instanceof BulkheadFullException) {
+            logger.warn("Call to {} rejected: too many concurrent calls", dependency);
+        } else {
+            logger.warn("Call to {} failed: {}", dependency, e.getMessage());
+        }
+    }
+
+    private record Guard(CircuitBreaker circuitBreaker, Bulkhead bulkhead, Retry retry,
+                         RetryBudget retryBudget, FallbackCache fallbackCache) {
+    }
+}
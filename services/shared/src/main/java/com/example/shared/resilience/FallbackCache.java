@@ -0,0 +1,51 @@
+package com.example.shared.resilience;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of last good responses per dependency, served when the dependency
+ * is failing, rejected by the bulkhead or behind an open circuit.
+ */
+final class FallbackCache {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    private record Entry(Object value, long storedAtNanos) {
+    }
+
+    FallbackCache(int maxSize, Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        int capacity = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized void put(String key, Object value) {
+        if (key != null && value != null) {
+            entries.put(key, new Entry(value, System.nanoTime()));
+        }
+    }
+
+    synchronized Object get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos() > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
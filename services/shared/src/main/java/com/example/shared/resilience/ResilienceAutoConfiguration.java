@@ -0,0 +1,23 @@
+package com.example.shared.resilience;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registers the shared {@link DependencyGuard} for inter-service calls.
+ */
+@AutoConfiguration
+@ConditionalOnClass(CircuitBreaker.class)
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class ResilienceAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DependencyGuard dependencyGuard(ResilienceProperties properties) {
+        return new DependencyGuard(properties);
+    }
+}
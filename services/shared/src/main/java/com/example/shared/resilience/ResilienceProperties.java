@@ -0,0 +1,165 @@
+package com.example.shared.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-dependency resilience policies used by {@link DependencyGuard}.
+ *
+ * <pre>
+ * shared:
+ *   resilience:
+ *     defaults:
+ *       max-concurrent-calls: 20
+ *       slow-call-duration-threshold: 3s
+ *     dependencies:
+ *       product-service:
+ *         max-concurrent-calls: 40
+ *         fallback-cache-ttl: 5m
+ * </pre>
+ *
+ * Values left unset on a dependency fall back to {@code defaults}.
+ */
+@ConfigurationProperties(prefix = "shared.resilience")
+public class ResilienceProperties {
+
+    private boolean enabled = true;
+
+    private Policy defaults = Policy.builtInDefaults();
+
+    private Map<String, Policy> dependencies = new LinkedHashMap<>();
+
+    /**
+     * Effective policy for a dependency (its own values over the defaults)
+     */
+    public Policy resolve(String dependency) {
+        Policy base = Policy.builtInDefaults().mergedWith(defaults);
+        Policy override = dependencies.get(dependency);
+        return override != null ? base.mergedWith(override) : base;
+    }
+
+    public static class Policy {
+
+        // Circuit breaker
+        private Float failureRateThreshold;
+        private Float slowCallRateThreshold;
+        private Duration slowCallDurationThreshold;
+        private Integer slidingWindowSize;
+        private Integer minimumNumberOfCalls;
+        private Duration waitDurationInOpenState;
+        private Integer permittedCallsInHalfOpenState;
+
+        // Semaphore bulkhead
+        private Integer maxConcurrentCalls;
+        private Duration maxWaitDuration;
+
+        // Retry and retry budget
+        private Integer maxRetryAttempts;
+        private Duration retryWaitDuration;
+        /** Share of calls that may be retried, e.g. 0.1 = at most one retry per ten calls */
+        private Double retryBudgetRatio;
+        /** Retries always allowed per second, so low-traffic dependencies can still retry */
+        private Double retryBudgetMinPerSecond;
+
+        // Cached fallback (last good response)
+        private Integer fallbackCacheSize;
+        private Duration fallbackCacheTtl;
+
+        static Policy builtInDefaults() {
+            Policy p = new Policy();
+            p.failureRateThreshold = 50f;
+            p.slowCallRateThreshold = 80f;
+            p.slowCallDurationThreshold = Duration.ofSeconds(3);
+            p.slidingWindowSize = 50;
+            p.minimumNumberOfCalls = 20;
+            p.waitDurationInOpenState = Duration.ofSeconds(30);
+            p.permittedCallsInHalfOpenState = 3;
+            p.maxConcurrentCalls = 20;
+            p.maxWaitDuration = Duration.ZERO;
+            p.maxRetryAttempts = 2;
+            p.retryWaitDuration = Duration.ofMillis(200);
+            p.retryBudgetRatio = 0.1;
+            p.retryBudgetMinPerSecond = 1.0;
+            p.fallbackCacheSize = 1000;
+            p.fallbackCacheTtl = Duration.ofMinutes(10);
+            return p;
+        }
+
+        Policy mergedWith(Policy o) {
+            Policy p = new Policy();
+            p.failureRateThreshold = o.failureRateThreshold != null ? o.failureRateThreshold : failureRateThreshold;
+            p.slowCallRateThreshold = o.slowCallRateThreshold != null ? o.slowCallRateThreshold : slowCallRateThreshold;
+            p.slowCallDurationThreshold = o.slowCallDurationThreshold != null ? o.slowCallDurationThreshold : slowCallDurationThreshold;
+            p.slidingWindowSize = o.slidingWindowSize != null ? o.slidingWindowSize : slidingWindowSize;
+            p.minimumNumberOfCalls = o.minimumNumberOfCalls != null ? o.minimumNumberOfCalls : minimumNumberOfCalls;
+            p.waitDurationInOpenState = o.waitDurationInOpenState != null ? o.waitDurationInOpenState : waitDurationInOpenState;
+            p.permittedCallsInHalfOpenState = o.permittedCallsInHalfOpenState != null ? o.permittedCallsInHalfOpenState : permittedCallsInHalfOpenState;
+            p.maxConcurrentCalls = o.maxConcurrentCalls != null ? o.maxConcurrentCalls : maxConcurrentCalls;
+            p.maxWaitDuration = o.maxWaitDuration != null ? o.maxWaitDuration : maxWaitDuration;
+            p.maxRetryAttempts = o.maxRetryAttempts != null ? o.maxRetryAttempts : maxRetryAttempts;
+            p.retryWaitDuration = o.retryWaitDuration != null ? o.retryWaitDuration : retryWaitDuration;
+            p.retryBudgetRatio = o.retryBudgetRatio != null ? o.retryBudgetRatio : retryBudgetRatio;
+            p.retryBudgetMinPerSecond = o.retryBudgetMinPerSecond != null ? o.retryBudgetMinPerSecond : retryBudgetMinPerSecond;
+            p.fallbackCacheSize = o.fallbackCacheSize != null ? o.fallbackCacheSize : fallbackCacheSize;
+            p.fallbackCacheTtl = o.fallbackCacheTtl != null ? o.fallbackCacheTtl : fallbackCacheTtl;
+            return p;
+        }
+
+        public Float getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(Float failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+        public Float getSlowCallRateThreshold() { return slowCallRateThreshold; }
+        public void setSlowCallRateThreshold(Float slowCallRateThreshold) { this.slowCallRateThreshold = slowCallRateThreshold; }
+
+        public Duration getSlowCallDurationThreshold() { return slowCallDurationThreshold; }
+        public void setSlowCallDurationThreshold(Duration slowCallDurationThreshold) { this.slowCallDurationThreshold = slowCallDurationThreshold; }
+
+        public Integer getSlidingWindowSize() { return slidingWindowSize; }
+        public void setSlidingWindowSize(Integer slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+
+        public Integer getMinimumNumberOfCalls() { return minimumNumberOfCalls; }
+        public void setMinimumNumberOfCalls(Integer minimumNumberOfCalls) { this.minimumNumberOfCalls = minimumNumberOfCalls; }
+
+        public Duration getWaitDurationInOpenState() { return waitDurationInOpenState; }
+        public void setWaitDurationInOpenState(Duration waitDurationInOpenState) { this.waitDurationInOpenState = waitDurationInOpenState; }
+
+        public Integer getPermittedCallsInHalfOpenState() { return permittedCallsInHalfOpenState; }
+        public void setPermittedCallsInHalfOpenState(Integer permittedCallsInHalfOpenState) { this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState; }
+
+        public Integer getMaxConcurrentCalls() { return maxConcurrentCalls; }
+        public void setMaxConcurrentCalls(Integer maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+
+        public Duration getMaxWaitDuration() { return maxWaitDuration; }
+        public void setMaxWaitDuration(Duration maxWaitDuration) { this.maxWaitDuration = maxWaitDuration; }
+
+        public Integer getMaxRetryAttempts() { return maxRetryAttempts; }
+        public void setMaxRetryAttempts(Integer maxRetryAttempts) { this.maxRetryAttempts = maxRetryAttempts; }
+
+        public Duration getRetryWaitDuration() { return retryWaitDuration; }
+        public void setRetryWaitDuration(Duration retryWaitDuration) { this.retryWaitDuration = retryWaitDuration; }
+
+        public Double getRetryBudgetRatio() { return retryBudgetRatio; }
+        public void setRetryBudgetRatio(Double retryBudgetRatio) { this.retryBudgetRatio = retryBudgetRatio; }
+
+        public Double getRetryBudgetMinPerSecond() { return retryBudgetMinPerSecond; }
+        public void setRetryBudgetMinPerSecond(Double retryBudgetMinPerSecond) { this.retryBudgetMinPerSecond = retryBudgetMinPerSecond; }
+
+        public Integer getFallbackCacheSize() { return fallbackCacheSize; }
+        public void setFallbackCacheSize(Integer fallbackCacheSize) { this.fallbackCacheSize = fallbackCacheSize; }
+
+        public Duration getFallbackCacheTtl() { return fallbackCacheTtl; }
+        public void setFallbackCacheTtl(Duration fallbackCacheTtl) { this.fallbackCacheTtl = fallbackCacheTtl; }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Policy getDefaults() { return defaults; }
+    public void setDefaults(Policy defaults) { this.defaults = defaults; }
+
+    public Map<String, Policy> getDependencies() { return dependencies; }
+    public void setDependencies(Map<String, Policy> dependencies) { this.dependencies = dependencies; }
+}
@@ -0,0 +1,54 @@
+package com.example.shared.resilience;
+
+/**
+ * Token bucket limiting retries to a share of the traffic to one dependency.
+ * Each call deposits {@code ratio} tokens, each retry withdraws one, and a small
+ * per-second refill keeps retries possible at low traffic. Under a real outage
+ * the bucket drains and callers stop multiplying load on the failing service.
+ */
+final class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxTokens;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = Math.max(0, ratio);
+        this.minPerSecond = Math.max(0, minPerSecond);
+        // Allow a short burst of retries but never more than ~10s worth of budget
+        this.maxTokens = Math.max(1, this.minPerSecond * 10 + this.ratio * 100);
+        this.tokens = Math.min(maxTokens, Math.max(1, this.minPerSecond));
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    synchronized void recordCall() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryAcquireRetry() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized double availableRetries() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000d;
+        lastRefillNanos = now;
+        if (minPerSecond > 0 && elapsedSeconds > 0) {
+            tokens = Math.min(maxTokens, tokens + elapsedSeconds * minPerSecond);
+        }
+    }
+}
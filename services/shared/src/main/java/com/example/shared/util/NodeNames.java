@@ -0,0 +1,31 @@
+package com.example.shared.util;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Names identifying one running instance, e.g. as the owner of a lease or claim row
+ */
+public class NodeNames {
+
+    // Lease owner columns are 100 characters
+    private static final int MAX_LENGTH = 100;
+
+    private NodeNames() {
+    }
+
+    /**
+     * Host name plus a random suffix, so two instances on one host differ; {@code fallbackHost}
+     * is used when the host name cannot be resolved
+     */
+    public static String unique(String fallbackHost) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = fallbackHost;
+        }
+        String name = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return name.length() > MAX_LENGTH ? name.substring(name.length() - MAX_LENGTH) : name;
+    }
+}
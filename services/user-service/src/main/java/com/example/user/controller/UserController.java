@@ -12,7 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.concurrent.CompletableFuture;
     import org.springframework.security.access.prepost.PreAuthorize;
@@ -48,6 +48,13 @@ public class UserController {
     @Value("${file.upload-dir:D:/Buildd24_10/Buildd30_7/Buildd43/services/user-service/uploads}")
     private String uploadDir;
 
+    // Plain (non-@LoadBalanced) client for notification-service, on the shared connection pool
+    private final RestTemplate notificationRestTemplate;
+
+    public UserController(RestTemplateBuilder restTemplateBuilder) {
+        this.notificationRestTemplate = restTemplateBuilder.build();
+    }
+
     @GetMapping("/health")
     @PermitAll
     public ResponseEntity<Map<String, String>> health() {
@@ -108,10 +115,7 @@ public class UserController {
             // Fire-and-forget email trigger with short timeouts to avoid blocking registration
             CompletableFuture.runAsync(() -> {
                 try {
-                    SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
-                    f.setConnectTimeout(5000);
-                    f.setReadTimeout(5000);
-                    RestTemplate rest = new RestTemplate(f);
+                    RestTemplate rest = notificationRestTemplate;
                     Map<String, String> payload = new HashMap<>();
                     payload.put("email", user.getEmail());
                     payload.put("token", user.getEmailVerificationToken());
@@ -737,10 +741,7 @@ public class UserController {
             // Send reset email via notification service
             CompletableFuture.runAsync(() -> {
                 try {
-                    SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
-                    f.setConnectTimeout(5000);
-                    f.setReadTimeout(5000);
-                    RestTemplate rest = new RestTemplate(f);
+                    RestTemplate rest = notificationRestTemplate;
                     Map<String, String> payload = new HashMap<>();
                     payload.put("email", email);
                     payload.put("token", resetToken);
@@ -840,10 +841,7 @@ public class UserController {
      */
     private void sendWelcomeEmail(String email, String firstName, String lastName) {
         try {
-            SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
-            f.setConnectTimeout(5000);
-            f.setReadTimeout(5000);
-            RestTemplate rest = new RestTemplate(f);
+            RestTemplate rest = notificationRestTemplate;
 
             Map<String, String> payload = new HashMap<>();
             payload.put("email", email);
@@ -863,10 +861,7 @@ public class UserController {
         int attempt = 0;
         while (attempt < maxRetries) {
             try {
-                SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
-                f.setConnectTimeout(5000);
-                f.setReadTimeout(5000);
-                RestTemplate rest = new RestTemplate(f);
+                RestTemplate rest = notificationRestTemplate;
 
                 Map<String, String> payload = new HashMap<>();
                 payload.put("email", email);
@@ -1,22 +1,38 @@
 package com.example.voucher.config;
 
+import com.example.voucher.event.VoucherEvent;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Kafka producer and consumers.
+ *
+ * Voucher events are consumed in batches through {@link #voucherEventBatchListenerContainerFactory()}:
+ * values are deserialized straight to {@link VoucherEvent}, offsets are committed per batch and
+ * listener concurrency is set per {@code @KafkaListener} to match the topic's partition count.
+ * Consumer factories register the client metrics with Micrometer, including consumer lag
+ * ({@code kafka.consumer.fetch.manager.records.lag} / {@code .records.lag.max}).
+ */
 @Configuration
 @EnableKafka
 public class KafkaConfig {
@@ -24,6 +40,18 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    @Value("${voucher.kafka.batch.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${voucher.kafka.batch.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    @Value("${voucher.kafka.batch.max-retries:3}")
+    private long maxRetries;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -52,7 +80,9 @@ public class KafkaConfig {
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.voucher.dto,com.example.voucher.entity");
 
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        registerMetrics(factory);
+        return factory;
     }
 
     @Bean
@@ -63,4 +93,39 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory);
         return factory;
     }
+
+    @Bean
+    public ConsumerFactory<String, VoucherEvent> voucherEventConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "voucher-service-events");
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        // Target type is fixed, so the producer's type headers are ignored; unreadable records arrive as null
+        JsonDeserializer<VoucherEvent> valueDeserializer = new JsonDeserializer<>(VoucherEvent.class, false);
+        DefaultKafkaConsumerFactory<String, VoucherEvent> factory = new DefaultKafkaConsumerFactory<>(
+                configProps, new StringDeserializer(), new ErrorHandlingDeserializer<>(valueDeserializer));
+        registerMetrics(factory);
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, VoucherEvent> voucherEventBatchListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, VoucherEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(voucherEventConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // Records before the failed index are committed, the rest of the batch is redelivered
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(retryIntervalMs, maxRetries)));
+        return factory;
+    }
+
+    private <K, V> void registerMetrics(DefaultKafkaConsumerFactory<K, V> factory) {
+        if (meterRegistry != null) {
+            factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        }
+    }
 }
@@ -61,6 +61,7 @@ public class SecurityConfig {
                 // Use regex pattern to match any userId
                 .requestMatchers("/api/vouchers/user/*/available").permitAll()
                 .requestMatchers("/api/vouchers/user/*/all").permitAll()
+                .requestMatchers("/api/vouchers/user/*/best").permitAll()
                 .requestMatchers("/api/vouchers/user/*/claim/*").permitAll()
                 .requestMatchers("/api/vouchers", "/api/vouchers/{id}").hasRole("ADMIN")
                 .requestMatchers("/api/vouchers/usage", "/api/vouchers/usage/order/{orderId}").hasRole("ADMIN")
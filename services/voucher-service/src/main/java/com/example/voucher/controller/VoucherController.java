@@ -1,5 +1,6 @@
 package com.example.voucher.controller;
 
+import com.example.voucher.dto.UserVoucherView;
 import com.example.voucher.dto.VoucherDTO;
 import com.example.voucher.dto.VoucherUsageDTO;
 import com.example.voucher.dto.VoucherUsageRequest;
@@ -207,9 +208,10 @@ public class VoucherController {
                 ));
             }
             
-            List<com.example.voucher.entity.UserVoucher> userVouchers = voucherService.getUserAvailableVouchers(userId);
-            List<Map<String, Object>> result = userVouchers.stream().map(uv -> {
-                Voucher voucher = voucherService.getVoucherByIdCached(uv.getVoucherId());
+            List<UserVoucherView> userVouchers = voucherService.getUserAvailableVoucherViews(userId);
+            List<Map<String, Object>> result = userVouchers.stream().map(view -> {
+                com.example.voucher.entity.UserVoucher uv = view.getUserVoucher();
+                Voucher voucher = view.getVoucher();
                 Map<String, Object> map = new java.util.HashMap<>();
                 map.put("userVoucherId", uv.getId());
                 map.put("voucherId", uv.getVoucherId());
@@ -235,6 +237,35 @@ public class VoucherController {
         }
     }
     
+    /**
+     * Rank all of the user's claimed vouchers against a cart; "best" is the one to pre-select
+     */
+    @PostMapping("/user/{userId}/best")
+    public ResponseEntity<?> getBestVouchersForCart(
+            @PathVariable String userId,
+            @RequestBody VoucherValidationRequest request) {
+        try {
+            if (userId == null || userId.trim().isEmpty() || request.getOrderAmount() == null) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "User ID and order amount are required"
+                ));
+            }
+
+            List<VoucherValidationResponse> ranked = voucherService.rankVouchersForCart(userId, request);
+            Map<String, Object> result = new java.util.HashMap<>();
+            result.put("best", ranked.isEmpty() ? null : ranked.get(0));
+            result.put("vouchers", ranked);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error ranking vouchers for userId {}: {}", userId, e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Error ranking vouchers: " + e.getMessage()
+            ));
+        }
+    }
+    
     /**
      * Get all vouchers for user (including used ones)
      */
@@ -248,9 +279,10 @@ public class VoucherController {
                 ));
             }
             
-            List<com.example.voucher.entity.UserVoucher> userVouchers = voucherService.getUserVouchers(userId);
-            List<Map<String, Object>> result = userVouchers.stream().map(uv -> {
-                Voucher voucher = voucherService.getVoucherByIdCached(uv.getVoucherId());
+            List<UserVoucherView> userVouchers = voucherService.getUserVoucherViews(userId);
+            List<Map<String, Object>> result = userVouchers.stream().map(view -> {
+                com.example.voucher.entity.UserVoucher uv = view.getUserVoucher();
+                Voucher voucher = view.getVoucher();
                 Map<String, Object> map = new java.util.HashMap<>();
                 map.put("userVoucherId", uv.getId());
                 map.put("voucherId", uv.getVoucherId());
@@ -0,0 +1,21 @@
+package com.example.voucher.dto;
+
+import com.example.voucher.entity.UserVoucher;
+import com.example.voucher.entity.Voucher;
+
+/**
+ * A user's voucher together with the voucher it refers to, loaded by one join query.
+ * voucher is null when the voucher row no longer exists.
+ */
+public class UserVoucherView {
+    private final UserVoucher userVoucher;
+    private final Voucher voucher;
+
+    public UserVoucherView(UserVoucher userVoucher, Voucher voucher) {
+        this.userVoucher = userVoucher;
+        this.voucher = voucher;
+    }
+
+    public UserVoucher getUserVoucher() { return userVoucher; }
+    public Voucher getVoucher() { return voucher; }
+}
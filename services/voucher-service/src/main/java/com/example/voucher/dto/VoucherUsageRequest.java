@@ -1,6 +1,9 @@
 package com.example.voucher.dto;
 
+import com.example.voucher.dto.VoucherValidationRequest.VoucherItem;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 public class VoucherUsageRequest {
     private Long voucherId;
@@ -11,6 +14,8 @@ public class VoucherUsageRequest {
     private BigDecimal originalAmount;
     private BigDecimal discountAmount;
     private BigDecimal finalAmount;
+    // Order items as sent to /validate; scoped vouchers are re-checked against them
+    private List<VoucherItem> items;
 
     public VoucherUsageRequest() {}
 
@@ -51,4 +56,7 @@ public class VoucherUsageRequest {
 
     public BigDecimal getFinalAmount() { return finalAmount; }
     public void setFinalAmount(BigDecimal finalAmount) { this.finalAmount = finalAmount; }
+
+    public List<VoucherItem> getItems() { return items; }
+    public void setItems(List<VoucherItem> items) { this.items = items; }
 }
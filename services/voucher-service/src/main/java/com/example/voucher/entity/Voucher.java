@@ -48,9 +48,14 @@ public class Voucher {
     @Column(name = "usage_limit")
     private Integer usageLimit;
     
-    @Column(name = "usage_count")
+    // Counters are only changed through the conditional updates in VoucherRepository, never by
+    // saving the entity, so an admin edit cannot overwrite redemptions made in the meantime
+    @Column(name = "usage_count", updatable = false)
     private Integer usageCount = 0;
     
+    @Column(name = "outstanding_claims", updatable = false)
+    private Integer outstandingClaims = 0; // claimed by users but not used yet
+    
     @Column(name = "usage_limit_per_user")
     private Integer usageLimitPerUser;
     
@@ -125,11 +130,6 @@ public class Voucher {
         return discount;
     }
     
-    public void incrementUsage() {
-        this.usageCount++;
-        this.updatedAt = LocalDateTime.now();
-    }
-    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -227,6 +227,14 @@ public class Voucher {
         this.usageCount = usageCount;
     }
     
+    public Integer getOutstandingClaims() {
+        return outstandingClaims;
+    }
+    
+    public void setOutstandingClaims(Integer outstandingClaims) {
+        this.outstandingClaims = outstandingClaims;
+    }
+    
     public Integer getUsageLimitPerUser() {
         return usageLimitPerUser;
     }
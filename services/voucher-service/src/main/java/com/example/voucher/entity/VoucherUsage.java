@@ -12,7 +12,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_voucher_usage_voucher", columnList = "voucher_id"),
     @Index(name = "idx_voucher_usage_user", columnList = "user_id"),
     @Index(name = "idx_voucher_usage_order", columnList = "order_id"),
-    @Index(name = "idx_voucher_usage_date", columnList = "used_at")
+    @Index(name = "idx_voucher_usage_date", columnList = "used_at"),
+    // Per-user limit: the n-th use of a voucher by a user can only be inserted once
+    @Index(name = "idx_voucher_usage_user_seq", columnList = "voucher_id,user_id,user_usage_seq", unique = true)
 })
 @EntityListeners(AuditingEntityListener.class)
 public class VoucherUsage {
@@ -48,6 +50,9 @@ public class VoucherUsage {
     @Column(name = "used_at", nullable = false)
     private LocalDateTime usedAt;
 
+    @Column(name = "user_usage_seq")
+    private Integer userUsageSeq; // 1..usageLimitPerUser, null when the voucher has no per-user limit
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -145,6 +150,14 @@ public class VoucherUsage {
         return usedAt;
     }
 
+    public Integer getUserUsageSeq() {
+        return userUsageSeq;
+    }
+
+    public void setUserUsageSeq(Integer userUsageSeq) {
+        this.userUsageSeq = userUsageSeq;
+    }
+
     public void setUsedAt(LocalDateTime usedAt) {
         this.usedAt = usedAt;
     }
@@ -0,0 +1,69 @@
+package com.example.voucher.event;
+
+import com.example.voucher.service.VoucherCache;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Applies voucher-events to this instance's {@link VoucherCache}.
+ *
+ * Uses a group id unique to the instance so every instance sees every event (a broadcast),
+ * starting from the latest offset: older events are covered by the cache TTL.
+ */
+@Component
+public class VoucherCacheInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoucherCacheInvalidationListener.class);
+
+    @Autowired
+    private VoucherCache voucherCache;
+
+    @KafkaListener(topics = "voucher-events",
+                   groupId = "voucher-cache-#{T(java.util.UUID).randomUUID().toString()}",
+                   containerFactory = "voucherEventBatchListenerContainerFactory",
+                   properties = {"auto.offset.reset=latest"})
+    public void onVoucherEvents(List<ConsumerRecord<String, VoucherEvent>> records) {
+        for (ConsumerRecord<String, VoucherEvent> record : records) {
+            VoucherEvent event = record.value();
+            if (event == null || event.getEventType() == null) {
+                continue;
+            }
+            Long voucherId = parseId(event.getVoucherId());
+            switch (event.getEventType()) {
+                case "VOUCHER_CACHE_INVALIDATED":
+                    if (event.getUserId() != null) {
+                        voucherCache.evictUser(event.getUserId(), voucherId);
+                    } else {
+                        voucherCache.evictLocal(voucherId, event.getVoucherCode(), null);
+                    }
+                    break;
+                case "VOUCHER_USED":
+                    voucherCache.evictUser(event.getUserId(), voucherId);
+                    break;
+                case "VOUCHER_EXPIRED":
+                    voucherCache.evictLocal(voucherId, event.getVoucherCode(), null);
+                    break;
+                default:
+                    break;
+            }
+        }
+        logger.debug("Applied {} voucher events to the cache", records.size());
+    }
+
+    private static Long parseId(String voucherId) {
+        if (voucherId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(voucherId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
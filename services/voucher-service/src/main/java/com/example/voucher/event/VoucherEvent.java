@@ -3,8 +3,10 @@ package com.example.voucher.event;
 import com.example.voucher.entity.VoucherUsage;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public class VoucherEvent {
+    private String eventId; // unique per published event, used by consumers to drop redeliveries
     private String eventType; // VOUCHER_APPLIED, VOUCHER_USED, VOUCHER_EXPIRED
     private String voucherId;
     private String voucherCode;
@@ -21,6 +23,7 @@ public class VoucherEvent {
     public VoucherEvent() {}
 
     public VoucherEvent(String eventType, VoucherUsage usage, String source) {
+        this.eventId = UUID.randomUUID().toString();
         this.eventType = eventType;
         this.voucherId = usage.getVoucherId() != null ? usage.getVoucherId().toString() : null;
         this.voucherCode = usage.getVoucherCode();
@@ -35,6 +38,7 @@ public class VoucherEvent {
     }
 
     public VoucherEvent(String eventType, String voucherId, String voucherCode, String userId, String source) {
+        this.eventId = UUID.randomUUID().toString();
         this.eventType = eventType;
         this.voucherId = voucherId;
         this.voucherCode = voucherCode;
@@ -44,6 +48,14 @@ public class VoucherEvent {
     }
 
     // Getters and Setters
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
     public String getEventType() {
         return eventType;
     }
@@ -1,48 +1,133 @@
 package com.example.voucher.event;
 
+import com.example.shared.idempotency.ProcessedEventService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Consumes voucher-events in batches. Events are keyed by {@link VoucherEvent#getEventId()}
+ * (topic/partition/offset for events published before the id existed) and claimed through
+ * {@link ProcessedEventService}, so a redelivered batch is not handled twice. Claims are marked
+ * done only after the event was handled.
+ */
 @Component
 public class VoucherEventConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(VoucherEventConsumer.class);
 
-    @KafkaListener(topics = "voucher-events", groupId = "voucher-service-events")
-    public void handleVoucherEvent(
-            @Payload VoucherEvent event,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            Acknowledgment acknowledgment) {
+    private static final String VOUCHER_TOPIC = "voucher-events";
+    private static final String CONSUMER = "voucher-service-events:" + VOUCHER_TOPIC;
 
-        try {
-            logger.info("Received voucher event: {} from topic: {}", event.getEventType(), topic);
-
-            switch (event.getEventType()) {
-                case "VOUCHER_APPLIED":
-                    handleVoucherApplied(event);
-                    break;
-                case "VOUCHER_USED":
-                    handleVoucherUsed(event);
-                    break;
-                case "VOUCHER_EXPIRED":
-                    handleVoucherExpired(event);
-                    break;
-                default:
-                    logger.warn("Unknown voucher event type: {}", event.getEventType());
+    @Autowired
+    private ProcessedEventService processedEventService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @KafkaListener(topics = VOUCHER_TOPIC, groupId = "voucher-service-events",
+                   containerFactory = "voucherEventBatchListenerContainerFactory",
+                   concurrency = "${voucher.kafka.events.concurrency:3}")
+    public void handleVoucherEvents(List<ConsumerRecord<String, VoucherEvent>> records) {
+        List<String> eventIds = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, VoucherEvent> record : records) {
+            eventIds.add(eventId(record));
+        }
+        ProcessedEventService.Claim claim = processedEventService.claim(CONSUMER, eventIds);
+        Set<String> handled = new HashSet<>();
+        List<String> done = new ArrayList<>();
+        logger.debug("Received {} voucher events, {} new", records.size(), claim.size());
+
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, VoucherEvent> record = records.get(i);
+            VoucherEvent event = record.value();
+            String eventId = eventIds.get(i);
+            if (event == null) {
+                logger.warn("Skipping unreadable voucher event at {}-{}@{}", record.topic(), record.partition(), record.offset());
+                count("invalid");
+                continue;
+            }
+            if (claim.isBusy(eventId)) {
+                // Another consumer holds a live claim; retry rather than skip it
+                count("busy");
+                throw fail(claim, eventIds, handled, done, i,
+                    new IllegalStateException("Voucher event " + eventId + " is being processed by another consumer"));
             }
+            if (!claim.isClaimed(eventId) || !handled.add(eventId)) {
+                count("duplicate");
+                continue;
+            }
+            try {
+                handleVoucherEvent(event);
+                done.add(eventId);
+                count("processed");
+            } catch (RuntimeException e) {
+                handled.remove(eventId);
+                count("failed");
+                throw fail(claim, eventIds, handled, done, i, e);
+            }
+        }
+        processedEventService.complete(CONSUMER, done);
+    }
 
-            acknowledgment.acknowledge();
-            logger.info("Successfully processed voucher event: {}", event.getEventType());
+    /**
+     * Mark what was handled as done and release this and the remaining claims; the container
+     * redelivers from the failed record
+     */
+    private BatchListenerFailedException fail(ProcessedEventService.Claim claim, List<String> eventIds, Set<String> handled,
+                                              List<String> done, int index, RuntimeException cause) {
+        processedEventService.complete(CONSUMER, done);
+        for (int j = index; j < eventIds.size(); j++) {
+            String pending = eventIds.get(j);
+            if (claim.isClaimed(pending) && !handled.contains(pending)) {
+                processedEventService.release(CONSUMER, pending);
+            }
+        }
+        return new BatchListenerFailedException("Failed to process voucher event " + eventIds.get(index), cause, index);
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to process voucher event: {}", e.getMessage(), e);
-            // Don't acknowledge on error - message will be retried
+    private void handleVoucherEvent(VoucherEvent event) {
+        logger.info("Received voucher event: {}", event.getEventType());
+
+        switch (event.getEventType() != null ? event.getEventType() : "") {
+            case "VOUCHER_APPLIED":
+                handleVoucherApplied(event);
+                break;
+            case "VOUCHER_USED":
+                handleVoucherUsed(event);
+                break;
+            case "VOUCHER_EXPIRED":
+                handleVoucherExpired(event);
+                break;
+            case "VOUCHER_CACHE_INVALIDATED":
+                // Handled on every instance by VoucherCacheInvalidationListener
+                break;
+            default:
+                logger.warn("Unknown voucher event type: {}", event.getEventType());
+        }
+    }
+
+    private static String eventId(ConsumerRecord<String, VoucherEvent> record) {
+        VoucherEvent event = record.value();
+        if (event != null && event.getEventId() != null) {
+            return event.getEventId();
+        }
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
+    private void count(String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("voucher.kafka.events", "topic", VOUCHER_TOPIC, "result", result).increment();
         }
     }
 
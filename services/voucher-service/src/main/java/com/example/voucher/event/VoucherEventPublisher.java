@@ -66,4 +66,21 @@ public class VoucherEventPublisher {
             logger.error("Failed to publish VOUCHER_EXPIRED event: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Tell every instance to drop its cached copy of a voucher (userId null) or of one user's
+     * state for it. Only goes to voucher-events; nothing user-facing happens for it.
+     */
+    public void publishCacheInvalidation(Long voucherId, String voucherCode, String userId) {
+        try {
+            VoucherEvent event = new VoucherEvent("VOUCHER_CACHE_INVALIDATED",
+                voucherId != null ? voucherId.toString() : null, voucherCode, userId, "SYSTEM");
+
+            kafkaTemplate.send(VOUCHER_TOPIC, voucherCode != null ? voucherCode : String.valueOf(voucherId), event);
+
+            logger.debug("Published VOUCHER_CACHE_INVALIDATED for voucher: {} user: {}", voucherId, userId);
+        } catch (Exception e) {
+            logger.error("Failed to publish VOUCHER_CACHE_INVALIDATED event: {}", e.getMessage(), e);
+        }
+    }
 }
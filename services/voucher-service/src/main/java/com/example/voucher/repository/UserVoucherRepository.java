@@ -1,7 +1,9 @@
 package com.example.voucher.repository;
 
+import com.example.voucher.dto.UserVoucherView;
 import com.example.voucher.entity.UserVoucher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -33,5 +35,32 @@ public interface UserVoucherRepository extends JpaRepository<UserVoucher, Long>
     
     @Query("SELECT COUNT(uv) FROM UserVoucher uv WHERE uv.userId = :userId AND uv.voucherId = :voucherId")
     Long countByUserIdAndVoucherId(@Param("userId") String userId, @Param("voucherId") Long voucherId);
+    
+    /**
+     * Mark the user's claim as used unless it already is. Returns 0 when there was no unused claim.
+     */
+    @Modifying
+    @Query("UPDATE UserVoucher uv SET uv.isUsed = true, uv.usedAt = :usedAt, uv.orderId = :orderId, " +
+           "uv.orderNumber = :orderNumber WHERE uv.userId = :userId AND uv.voucherId = :voucherId AND uv.isUsed = false")
+    int markUsedIfUnused(@Param("userId") String userId, @Param("voucherId") Long voucherId,
+                         @Param("orderId") Long orderId, @Param("orderNumber") String orderNumber,
+                         @Param("usedAt") LocalDateTime usedAt);
+    
+    /**
+     * The user's unused vouchers that are currently valid, each with its voucher, in one query
+     */
+    @Query("SELECT new com.example.voucher.dto.UserVoucherView(uv, v) FROM UserVoucher uv, Voucher v " +
+           "WHERE v.id = uv.voucherId AND uv.userId = :userId AND uv.isUsed = false AND v.isActive = true " +
+           "AND (v.startDate IS NULL OR v.startDate <= :now) " +
+           "AND (v.endDate IS NULL OR v.endDate > :now) " +
+           "ORDER BY uv.obtainedAt DESC")
+    List<UserVoucherView> findAvailableViewsByUserId(@Param("userId") String userId, @Param("now") LocalDateTime now);
+    
+    /**
+     * All of the user's vouchers (used ones included), each with its voucher if it still exists
+     */
+    @Query("SELECT new com.example.voucher.dto.UserVoucherView(uv, v) FROM UserVoucher uv " +
+           "LEFT JOIN Voucher v ON v.id = uv.voucherId " +
+           "WHERE uv.userId = :userId ORDER BY uv.obtainedAt DESC")
+    List<UserVoucherView> findViewsByUserId(@Param("userId") String userId);
 }
-
@@ -2,6 +2,7 @@ package com.example.voucher.repository;
 
 import com.example.voucher.entity.Voucher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,6 +29,12 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
            "ORDER BY v.createdAt DESC")
     List<Voucher> findActivePublicVouchers(@Param("now") LocalDateTime now);
     
+    /**
+     * Every active voucher, for the in-memory snapshot (date filtering happens on read)
+     */
+    @Query("SELECT v FROM Voucher v WHERE v.isActive = true ORDER BY v.createdAt DESC")
+    List<Voucher> findAllActive();
+    
     /**
      * Find vouchers that have expired (for scheduled task)
      */
@@ -38,4 +45,50 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
     
     @Query("SELECT COUNT(vu) FROM VoucherUsage vu WHERE vu.voucherId = :voucherId AND vu.userId = :userId")
     Long countUsageByVoucherAndUser(@Param("voucherId") Long voucherId, @Param("userId") String userId);
+    
+    /**
+     * Count one redemption if the voucher still has uses left, and free the user's claim slot when
+     * the redemption used one. Returns 0 when the limit is reached.
+     */
+    @Modifying
+    @Query("UPDATE Voucher v SET v.usageCount = COALESCE(v.usageCount, 0) + 1, " +
+           "v.outstandingClaims = CASE WHEN :claimUsed = true AND v.outstandingClaims > 0 " +
+           "THEN v.outstandingClaims - 1 ELSE v.outstandingClaims END, v.updatedAt = :now " +
+           "WHERE v.id = :id AND (v.usageLimit IS NULL OR COALESCE(v.usageCount, 0) < v.usageLimit)")
+    int incrementUsageIfAvailable(@Param("id") Long id, @Param("claimUsed") boolean claimUsed,
+                                  @Param("now") LocalDateTime now);
+    
+    /**
+     * Reserve a claim slot if fewer than usageLimit claims are outstanding. Returns 0 when none is left.
+     */
+    @Modifying
+    @Query("UPDATE Voucher v SET v.outstandingClaims = COALESCE(v.outstandingClaims, 0) + 1 " +
+           "WHERE v.id = :id AND (v.usageLimit IS NULL OR COALESCE(v.outstandingClaims, 0) < v.usageLimit)")
+    int reserveClaimIfAvailable(@Param("id") Long id);
+    
+    @Modifying
+    @Query("UPDATE Voucher v SET v.outstandingClaims = v.outstandingClaims - 1 " +
+           "WHERE v.id = :id AND v.outstandingClaims > 0")
+    int releaseClaim(@Param("id") Long id);
+    
+    /**
+     * Active vouchers whose counters disagree with the usage / claim rows
+     */
+    @Query("SELECT v.id FROM Voucher v WHERE v.isActive = true AND (" +
+           "COALESCE(v.usageCount, 0) < (SELECT COUNT(vu) FROM VoucherUsage vu WHERE vu.voucherId = v.id) " +
+           "OR v.outstandingClaims IS NULL " +
+           "OR v.outstandingClaims <> (SELECT COUNT(uv) FROM UserVoucher uv WHERE uv.voucherId = v.id AND uv.isUsed = false))")
+    List<Long> findVoucherIdsWithCounterDrift();
+    
+    /**
+     * Recompute the counters of one voucher from the usage / claim rows in a single statement.
+     * usageCount is only ever raised: a higher stored count (e.g. imported vouchers) is kept.
+     */
+    @Modifying
+    @Query("UPDATE Voucher v SET " +
+           "v.usageCount = CASE WHEN COALESCE(v.usageCount, 0) < (SELECT COUNT(vu) FROM VoucherUsage vu WHERE vu.voucherId = v.id) " +
+           "THEN (SELECT COUNT(vu2) FROM VoucherUsage vu2 WHERE vu2.voucherId = v.id) ELSE v.usageCount END, " +
+           "v.outstandingClaims = (SELECT COUNT(uv) FROM UserVoucher uv WHERE uv.voucherId = v.id AND uv.isUsed = false) " +
+           "WHERE v.id = :id")
+    int reconcileCounters(@Param("id") Long id);
 }
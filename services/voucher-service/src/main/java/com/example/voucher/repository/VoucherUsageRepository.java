@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +33,12 @@ public interface VoucherUsageRepository extends JpaRepository<VoucherUsage, Long
     @Query("SELECT COUNT(vu) FROM VoucherUsage vu WHERE vu.voucherId = :voucherId AND vu.userId = :userId")
     Long countUsageByVoucherIdAndUserId(@Param("voucherId") Long voucherId, @Param("userId") String userId);
 
+    /**
+     * Per-voucher redemption counts of one user, as [voucherId, count] rows
+     */
+    @Query("SELECT vu.voucherId, COUNT(vu) FROM VoucherUsage vu WHERE vu.userId = :userId AND vu.voucherId IN :voucherIds GROUP BY vu.voucherId")
+    List<Object[]> countUsageByUserIdGroupedByVoucherId(@Param("userId") String userId, @Param("voucherIds") Collection<Long> voucherIds);
+
     boolean existsByOrderId(Long orderId);
 
     boolean existsByOrderNumber(String orderNumber);
@@ -0,0 +1,60 @@
+package com.example.voucher.scheduled;
+
+import com.example.voucher.repository.VoucherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Keeps the voucher redemption counters in line with the rows they summarize.
+ *
+ * usage_count and outstanding_claims are maintained by conditional updates on the hot path.
+ * This job picks up vouchers whose counters disagree with voucher_usages / user_vouchers
+ * (rows created before the counters existed, manual fixes in the database) and recomputes
+ * them, one voucher per short transaction.
+ */
+@Component
+public class VoucherCounterReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoucherCounterReconciler.class);
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Scheduled(initialDelayString = "${voucher.redemption.reconcile-initial-delay-ms:30000}",
+               fixedDelayString = "${voucher.redemption.reconcile-interval-ms:300000}")
+    public void reconcileCounters() {
+        try {
+            List<Long> voucherIds = voucherRepository.findVoucherIdsWithCounterDrift();
+            if (voucherIds.isEmpty()) {
+                return;
+            }
+
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            int fixed = 0;
+            for (Long voucherId : voucherIds) {
+                try {
+                    Integer updated = tx.execute(status -> voucherRepository.reconcileCounters(voucherId));
+                    if (updated != null && updated > 0) {
+                        fixed++;
+                    }
+                } catch (Exception e) {
+                    logger.error("Error reconciling counters of voucher {}: {}", voucherId, e.getMessage(), e);
+                }
+            }
+            logger.info("Reconciled redemption counters of {}/{} vouchers", fixed, voucherIds.size());
+
+        } catch (Exception e) {
+            logger.error("Error in voucher counter reconciliation: {}", e.getMessage(), e);
+        }
+    }
+}
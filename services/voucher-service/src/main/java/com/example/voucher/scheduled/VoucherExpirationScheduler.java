@@ -3,6 +3,7 @@ package com.example.voucher.scheduled;
 import com.example.voucher.entity.Voucher;
 import com.example.voucher.event.VoucherEventPublisher;
 import com.example.voucher.repository.VoucherRepository;
+import com.example.voucher.service.ActiveVoucherSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,9 @@ public class VoucherExpirationScheduler {
     @Autowired
     private VoucherEventPublisher eventPublisher;
 
+    @Autowired
+    private ActiveVoucherSnapshot activeVoucherSnapshot;
+
     /**
      * Cleanup expired vouchers once per day (optional - for database consistency)
      * Note: Vouchers are automatically hidden via query filtering based on real-time comparison
@@ -65,6 +69,10 @@ public class VoucherExpirationScheduler {
                     }
                 }
 
+                if (deactivatedCount > 0) {
+                    activeVoucherSnapshot.invalidate();
+                }
+
                 logger.info("Cleanup completed: {}/{} expired vouchers deactivated", 
                     deactivatedCount, expiredVouchers.size());
             }
@@ -104,12 +112,7 @@ public class VoucherExpirationScheduler {
 
             logger.info("Checking for vouchers expiring in 7 days: {}", warningDate);
 
-            List<Voucher> expiringSoon = voucherRepository.findAll().stream()
-                .filter(voucher -> voucher.isActive())
-                .filter(voucher -> voucher.getEndDate() != null)
-                .filter(voucher -> voucher.getEndDate().isAfter(now))
-                .filter(voucher -> voucher.getEndDate().isBefore(warningDate))
-                .toList();
+            List<Voucher> expiringSoon = activeVoucherSnapshot.getEndingBetween(now, warningDate);
 
             if (!expiringSoon.isEmpty()) {
                 logger.info("Found {} vouchers expiring soon", expiringSoon.size());
@@ -0,0 +1,107 @@
+package com.example.voucher.service;
+
+import com.example.voucher.entity.Voucher;
+import com.example.voucher.repository.VoucherRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory list of all active vouchers, newest first.
+ *
+ * Loaded with one query and reused until a voucher changes ({@link #invalidate()} is called from
+ * {@link VoucherCache} on local changes and on invalidation events from other instances) or the
+ * snapshot is older than {@code voucher.snapshot.max-age-seconds}. Date windows are checked on
+ * read, so a voucher starting or ending needs no reload. The vouchers are shared: read only.
+ */
+@Component
+public class ActiveVoucherSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveVoucherSnapshot.class);
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Value("${voucher.snapshot.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private static final class Snapshot {
+        final List<Voucher> vouchers;
+        final long generation;
+        final LocalDateTime loadedAt;
+
+        Snapshot(List<Voucher> vouchers, long generation, LocalDateTime loadedAt) {
+            this.vouchers = vouchers;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * All active vouchers (any date window), newest first
+     */
+    public List<Voucher> getActiveVouchers() {
+        Snapshot current = snapshot;
+        if (current == null || current.generation != generation.get()
+                || current.loadedAt.isBefore(LocalDateTime.now().minusSeconds(maxAgeSeconds))) {
+            current = reload();
+        }
+        return current.vouchers;
+    }
+
+    /**
+     * Active, public vouchers inside their date window; same result as
+     * {@code VoucherRepository.findActivePublicVouchers(now)}
+     */
+    public List<Voucher> getActivePublicVouchers(LocalDateTime now) {
+        return getActiveVouchers().stream()
+            .filter(Voucher::isPublic)
+            .filter(v -> v.getStartDate() == null || !v.getStartDate().isAfter(now))
+            .filter(v -> v.getEndDate() == null || v.getEndDate().isAfter(now))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Active vouchers whose end date falls in (from, to)
+     */
+    public List<Voucher> getEndingBetween(LocalDateTime from, LocalDateTime to) {
+        return getActiveVouchers().stream()
+            .filter(v -> v.getEndDate() != null)
+            .filter(v -> v.getEndDate().isAfter(from))
+            .filter(v -> v.getEndDate().isBefore(to))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Mark the snapshot stale; the next read reloads it
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        long wanted = generation.get();
+        if (current != null && current.generation == wanted
+                && !current.loadedAt.isBefore(LocalDateTime.now().minusSeconds(maxAgeSeconds))) {
+            return current;
+        }
+        List<Voucher> vouchers = Collections.unmodifiableList(voucherRepository.findAllActive());
+        Snapshot loaded = new Snapshot(vouchers, wanted, LocalDateTime.now());
+        snapshot = loaded;
+        logger.debug("Loaded active voucher snapshot: {} vouchers", vouchers.size());
+        return loaded;
+    }
+}
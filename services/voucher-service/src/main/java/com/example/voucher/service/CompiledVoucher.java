@@ -0,0 +1,244 @@
+package com.example.voucher.service;
+
+import com.example.voucher.dto.VoucherValidationRequest;
+import com.example.voucher.dto.VoucherValidationResponse;
+import com.example.voucher.entity.Voucher;
+import com.example.voucher.entity.VoucherType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable, pre-parsed form of a voucher's rules.
+ *
+ * Built once per cache load: dates, limits, amounts and the applicable item ids are copied out of
+ * the entity (the JSON item list is parsed here into a {@link VoucherApplicability}, not per
+ * request), so evaluating a cart is plain field comparisons and one pass over its items. The per-user part of the rules takes a {@link UserVoucherState} that the caller
+ * loads separately. Usage counts are a snapshot; the authoritative limit check is the conditional
+ * update at redemption time.
+ */
+public final class CompiledVoucher {
+
+    private final Voucher voucher;
+    private final Long id;
+    private final String code;
+    private final boolean active;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final Integer usageLimit;
+    private final int usageCount;
+    private final Integer usageLimitPerUser;
+    private final BigDecimal minOrderAmount;
+    private final BigDecimal maxDiscountAmount;
+    private final VoucherType type;
+    private final BigDecimal value;
+    private final boolean freeShipping;
+    private final String applicableTo;
+    private final Set<String> applicableItemIds;
+    private final VoucherApplicability applicability;
+
+    private CompiledVoucher(Voucher voucher) {
+        this.voucher = voucher;
+        this.id = voucher.getId();
+        this.code = voucher.getCode();
+        this.active = voucher.isActive();
+        this.startDate = voucher.getStartDate();
+        this.endDate = voucher.getEndDate();
+        this.usageLimit = voucher.getUsageLimit();
+        this.usageCount = voucher.getUsageCount() != null ? voucher.getUsageCount() : 0;
+        this.usageLimitPerUser = voucher.getUsageLimitPerUser();
+        this.minOrderAmount = voucher.getMinOrderAmount();
+        this.maxDiscountAmount = voucher.getMaxDiscountAmount();
+        this.type = voucher.getType();
+        this.value = voucher.getValue();
+        this.freeShipping = Boolean.TRUE.equals(voucher.getFreeShipping());
+        this.applicableTo = voucher.getApplicableTo() != null ? voucher.getApplicableTo() : "ALL";
+        this.applicableItemIds = parseItemIds(voucher.getApplicableItems());
+        this.applicability = VoucherApplicability.compileOrNothing(voucher.getApplicableTo(), voucher.getApplicableItems());
+    }
+
+    public static CompiledVoucher compile(Voucher voucher) {
+        return new CompiledVoucher(voucher);
+    }
+
+    /**
+     * The entity this was compiled from. Shared between requests: read it, never modify it.
+     */
+    public Voucher voucher() {
+        return voucher;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public Integer getUsageLimitPerUser() {
+        return usageLimitPerUser;
+    }
+
+    public String getApplicableTo() {
+        return applicableTo;
+    }
+
+    public Set<String> getApplicableItemIds() {
+        return applicableItemIds;
+    }
+
+    public VoucherApplicability getApplicability() {
+        return applicability;
+    }
+
+    /**
+     * Active, inside its date window and (as of the snapshot) not used up
+     */
+    public boolean isCurrentlyValid(LocalDateTime now) {
+        return active &&
+               (startDate == null || !now.isBefore(startDate)) &&
+               (endDate == null || now.isBefore(endDate)) &&
+               (usageLimit == null || usageCount < usageLimit);
+    }
+
+    /**
+     * Validate a cart/order against the voucher rules and compute the discount
+     */
+    public VoucherValidationResponse evaluate(VoucherValidationRequest request, UserVoucherState userState, LocalDateTime now) {
+        return evaluate(request, userState, now, true);
+    }
+
+    /**
+     * Same as {@link #evaluate(VoucherValidationRequest, UserVoucherState, LocalDateTime)}; with
+     * {@code checkItems} false the items are not matched against the voucher scope and the discount
+     * is computed on the whole order. Only for re-checks of an order whose items were already
+     * validated but are not known any more.
+     */
+    public VoucherValidationResponse evaluate(VoucherValidationRequest request, UserVoucherState userState,
+                                              LocalDateTime now, boolean checkItems) {
+        boolean hasUser = request.getUserId() != null && !request.getUserId().isEmpty();
+
+        // Check if user has claimed this voucher (if required)
+        if (hasUser) {
+            if (!userState.isClaimed()) {
+                return new VoucherValidationResponse(false,
+                    "Bạn chưa lấy voucher này. Vui lòng lấy voucher trước khi sử dụng.");
+            }
+            if (userState.isUsed()) {
+                return new VoucherValidationResponse(false, "Voucher này đã được sử dụng");
+            }
+            if (endDate != null && now.isAfter(endDate)) {
+                return new VoucherValidationResponse(false, "Voucher đã hết hạn");
+            }
+        }
+
+        // Check if voucher is valid (dates, usage limits)
+        if (!isCurrentlyValid(now)) {
+            return new VoucherValidationResponse(false, "Voucher has expired or usage limit exceeded");
+        }
+
+        // Check minimum order amount
+        if (minOrderAmount != null && request.getOrderAmount().compareTo(minOrderAmount) < 0) {
+            return new VoucherValidationResponse(false,
+                String.format("Minimum order amount required: %s", minOrderAmount));
+        }
+
+        // Check user-specific usage limit
+        if (usageLimitPerUser != null && request.getUserId() != null && userState.getUses() >= usageLimitPerUser) {
+            return new VoucherValidationResponse(false,
+                "You have reached the maximum usage limit for this voucher");
+        }
+
+        // Check if items are applicable; scoped vouchers discount only the eligible subtotal
+        BigDecimal discountBase = checkItems
+            ? applicability.discountBase(request.getItems(), request.getOrderAmount())
+            : request.getOrderAmount();
+        if (discountBase == null) {
+            return new VoucherValidationResponse(false, "Voucher not applicable to selected items");
+        }
+
+        // Calculate discount (minimum order amount was checked on the whole order above)
+        BigDecimal discountAmount = discountOn(discountBase);
+        BigDecimal finalAmount = request.getOrderAmount().subtract(discountAmount);
+
+        return new VoucherValidationResponse(
+            true,
+            "Voucher applied successfully",
+            discountAmount,
+            finalAmount,
+            id,
+            code,
+            type,
+            value,
+            freeShipping
+        );
+    }
+
+    /**
+     * Same result as {@link Voucher#calculateDiscount(BigDecimal)} on the compiled fields
+     */
+    public BigDecimal calculateDiscount(BigDecimal orderAmount, LocalDateTime now) {
+        if (!isCurrentlyValid(now) || orderAmount == null || orderAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return BigDecimal.ZERO;
+        }
+        if (minOrderAmount != null && orderAmount.compareTo(minOrderAmount) < 0) {
+            return BigDecimal.ZERO;
+        }
+        return discountOn(orderAmount);
+    }
+
+    private BigDecimal discountOn(BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal discount = BigDecimal.ZERO;
+        if (type == VoucherType.PERCENTAGE) {
+            discount = amount.multiply(value).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+            if (maxDiscountAmount != null && discount.compareTo(maxDiscountAmount) > 0) {
+                discount = maxDiscountAmount;
+            }
+        } else if (type == VoucherType.FIXED_AMOUNT) {
+            discount = value;
+            if (discount.compareTo(amount) > 0) {
+                discount = amount;
+            }
+        }
+        return discount;
+    }
+
+    /**
+     * Parse the applicable_items JSON array (e.g. ["12","15"] or [12,15]) into a set of ids
+     */
+    static Set<String> parseItemIds(String json) {
+        if (json == null || json.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        String body = json.trim();
+        if (body.startsWith("[")) {
+            body = body.substring(1);
+        }
+        if (body.endsWith("]")) {
+            body = body.substring(0, body.length() - 1);
+        }
+        for (String part : body.split(",")) {
+            String id = part.trim();
+            if (id.length() >= 2 && id.startsWith("\"") && id.endsWith("\"")) {
+                id = id.substring(1, id.length() - 1).trim();
+            }
+            if (!id.isEmpty()) {
+                ids.add(id);
+            }
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+}
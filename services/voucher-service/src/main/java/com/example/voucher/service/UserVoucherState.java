@@ -0,0 +1,32 @@
+package com.example.voucher.service;
+
+/**
+ * What the validation rules need to know about one user and one voucher:
+ * whether the user claimed it, whether the claim is used, and how often the user redeemed it.
+ */
+public final class UserVoucherState {
+
+    public static final UserVoucherState NONE = new UserVoucherState(false, false, 0);
+
+    private final boolean claimed;
+    private final boolean used;
+    private final long uses;
+
+    public UserVoucherState(boolean claimed, boolean used, long uses) {
+        this.claimed = claimed;
+        this.used = used;
+        this.uses = uses;
+    }
+
+    public boolean isClaimed() {
+        return claimed;
+    }
+
+    public boolean isUsed() {
+        return used;
+    }
+
+    public long getUses() {
+        return uses;
+    }
+}
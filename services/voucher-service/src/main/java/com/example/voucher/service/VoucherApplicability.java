@@ -0,0 +1,136 @@
+package com.example.voucher.service;
+
+import com.example.voucher.dto.VoucherValidationRequest.VoucherItem;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which cart items a voucher applies to, as sorted id arrays.
+ *
+ * Compiled from {@code applicable_to} (ALL, PRODUCT, CATEGORY, BRAND) and the
+ * {@code applicable_items} JSON array when a voucher is created or updated and whenever the
+ * voucher cache loads it. Matching a cart is one pass over its items with a binary search per
+ * item, and yields the subtotal of the eligible items that scoped discounts are computed on.
+ * Items without a category or brand id (carts created before the cart sent them) match no
+ * CATEGORY or BRAND voucher, and a request without items matches no scoped voucher at all
+ * (redemption re-checks skip the match when the caller sends no items, see VoucherService).
+ */
+public final class VoucherApplicability {
+
+    public static final String ALL = "ALL";
+    public static final String PRODUCT = "PRODUCT";
+    public static final String CATEGORY = "CATEGORY";
+    public static final String BRAND = "BRAND";
+
+    private static final VoucherApplicability EVERYTHING = new VoucherApplicability(ALL, new String[0], new long[0]);
+
+    private final String scope;
+    private final String[] productIds; // sorted, PRODUCT scope
+    private final long[] groupIds;     // sorted, CATEGORY / BRAND scope
+
+    private VoucherApplicability(String scope, String[] productIds, long[] groupIds) {
+        this.scope = scope;
+        this.productIds = productIds;
+        this.groupIds = groupIds;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown scope or a non-numeric category/brand id
+     */
+    public static VoucherApplicability compile(String applicableTo, String applicableItems) {
+        String scope = applicableTo == null || applicableTo.isBlank() ? ALL : applicableTo.trim().toUpperCase();
+        Set<String> ids = CompiledVoucher.parseItemIds(applicableItems);
+        switch (scope) {
+            case ALL:
+                return EVERYTHING;
+            case PRODUCT: {
+                String[] products = ids.toArray(new String[0]);
+                Arrays.sort(products);
+                return new VoucherApplicability(scope, products, new long[0]);
+            }
+            case CATEGORY:
+            case BRAND: {
+                long[] groups = new long[ids.size()];
+                int i = 0;
+                for (String id : ids) {
+                    try {
+                        groups[i++] = Long.parseLong(id);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid " + scope.toLowerCase() + " id in applicable items: " + id);
+                    }
+                }
+                Arrays.sort(groups);
+                return new VoucherApplicability(scope, new String[0], groups);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown voucher scope: " + applicableTo);
+        }
+    }
+
+    /**
+     * Lenient variant for vouchers already stored: an unreadable scope matches nothing
+     */
+    static VoucherApplicability compileOrNothing(String applicableTo, String applicableItems) {
+        try {
+            return compile(applicableTo, applicableItems);
+        } catch (IllegalArgumentException e) {
+            return new VoucherApplicability(PRODUCT, new String[0], new long[0]);
+        }
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public boolean isUnrestricted() {
+        return ALL.equals(scope);
+    }
+
+    public boolean appliesTo(VoucherItem item) {
+        switch (scope) {
+            case ALL:
+                return true;
+            case PRODUCT:
+                return item.getProductId() != null && Arrays.binarySearch(productIds, item.getProductId()) >= 0;
+            case CATEGORY:
+                return item.getCategoryId() != null && Arrays.binarySearch(groupIds, item.getCategoryId()) >= 0;
+            case BRAND:
+                return item.getBrandId() != null && Arrays.binarySearch(groupIds, item.getBrandId()) >= 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Amount the discount is computed on, in one pass over the items: the whole order for
+     * unrestricted vouchers, otherwise the subtotal of the eligible items (never more than the
+     * order amount). Returns null when no item is eligible, which includes a request without
+     * items for a scoped voucher: nothing shows that the order contains an eligible item.
+     */
+    public BigDecimal discountBase(List<VoucherItem> items, BigDecimal orderAmount) {
+        if (isUnrestricted()) {
+            return orderAmount;
+        }
+        if (items == null || items.isEmpty()) {
+            return null;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        boolean any = false;
+        for (VoucherItem item : items) {
+            if (appliesTo(item)) {
+                any = true;
+                if (item.getPrice() != null) {
+                    int quantity = item.getQuantity() != null ? item.getQuantity() : 1;
+                    total = total.add(item.getPrice().multiply(BigDecimal.valueOf(quantity)));
+                }
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        return orderAmount != null && total.compareTo(orderAmount) > 0 ? orderAmount : total;
+    }
+}
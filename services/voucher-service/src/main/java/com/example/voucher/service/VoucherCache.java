@@ -0,0 +1,203 @@
+package com.example.voucher.service;
+
+import com.example.voucher.entity.UserVoucher;
+import com.example.voucher.event.VoucherEventPublisher;
+import com.example.voucher.repository.UserVoucherRepository;
+import com.example.voucher.repository.VoucherRepository;
+import com.example.voucher.repository.VoucherUsageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Local Caffeine cache of compiled vouchers and per-user voucher state.
+ *
+ * Entries expire after a short TTL. Changes made on any instance are also pushed out as
+ * VOUCHER_CACHE_INVALIDATED events on the voucher-events topic, which every instance consumes
+ * with its own group ({@link com.example.voucher.event.VoucherCacheInvalidationListener}).
+ * Invalidation happens after commit so no instance reloads the old row.
+ *
+ * Usage counts are not invalidated on every redemption: a stale count can only be lower than
+ * the real one, and the redemption itself is checked atomically in the database.
+ */
+@Component
+public class VoucherCache {
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @Autowired
+    private UserVoucherRepository userVoucherRepository;
+
+    @Autowired
+    private VoucherUsageRepository voucherUsageRepository;
+
+    @Autowired
+    private VoucherEventPublisher eventPublisher;
+
+    @Autowired
+    private ActiveVoucherSnapshot activeVoucherSnapshot;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${voucher.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${voucher.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${voucher.cache.user-state-ttl-seconds:30}")
+    private long userStateTtlSeconds;
+
+    @Value("${voucher.cache.user-state-max-size:100000}")
+    private long userStateMaxSize;
+
+    private Cache<Long, Optional<CompiledVoucher>> byId;
+    private Cache<String, Optional<CompiledVoucher>> activeByCode;
+    private Cache<String, UserVoucherState> userStates;
+
+    @PostConstruct
+    public void init() {
+        byId = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        activeByCode = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        userStates = Caffeine.newBuilder()
+            .maximumSize(userStateMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(userStateTtlSeconds))
+            .recordStats()
+            .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, byId, "voucher.byId");
+            CaffeineCacheMetrics.monitor(meterRegistry, activeByCode, "voucher.byCode");
+            CaffeineCacheMetrics.monitor(meterRegistry, userStates, "voucher.userState");
+        }
+    }
+
+    /**
+     * Voucher by id, active or not; null if it does not exist
+     */
+    public CompiledVoucher getById(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return byId.get(id, key -> voucherRepository.findById(key).map(CompiledVoucher::compile)).orElse(null);
+    }
+
+    /**
+     * Active voucher by (upper-case) code; null if unknown or inactive. Misses are cached too,
+     * so repeated lookups of a wrong code do not reach the database.
+     */
+    public CompiledVoucher getActiveByCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        return activeByCode.get(code, key -> voucherRepository.findByCodeAndIsActiveTrue(key).map(CompiledVoucher::compile))
+            .orElse(null);
+    }
+
+    public UserVoucherState getUserState(String userId, CompiledVoucher voucher) {
+        if (userId == null || userId.isEmpty()) {
+            return UserVoucherState.NONE;
+        }
+        return userStates.get(userKey(userId, voucher.getId()), key -> loadUserState(userId, voucher));
+    }
+
+    /**
+     * Read the user's state straight from the database (for redemption, where it must be current)
+     */
+    public UserVoucherState loadUserState(String userId, CompiledVoucher voucher) {
+        if (userId == null || userId.isEmpty()) {
+            return UserVoucherState.NONE;
+        }
+        Optional<UserVoucher> claim = userVoucherRepository.findByUserIdAndVoucherId(userId, voucher.getId());
+        long uses = voucher.getUsageLimitPerUser() != null
+            ? voucherUsageRepository.countUsageByVoucherIdAndUserId(voucher.getId(), userId)
+            : 0;
+        return new UserVoucherState(claim.isPresent(), claim.map(UserVoucher::getIsUsed).orElse(false), uses);
+    }
+
+    /**
+     * Drop cached entries on this instance only
+     */
+    public void evictLocal(Long voucherId, String code, String userId) {
+        if (voucherId != null) {
+            byId.invalidate(voucherId);
+            if (userId != null) {
+                userStates.invalidate(userKey(userId, voucherId));
+            }
+        }
+        if (code != null) {
+            activeByCode.invalidate(code.toUpperCase());
+        }
+        if (userId == null && (voucherId != null || code != null)) {
+            activeVoucherSnapshot.invalidate();
+        }
+    }
+
+    /**
+     * Drop cached entries on every instance once the current transaction commits.
+     * Pass a userId to drop only that user's state, or null to drop the voucher itself.
+     */
+    public void invalidate(Long voucherId, String code, String userId) {
+        afterCommit(() -> {
+            if (userId == null) {
+                evictLocal(voucherId, code, null);
+            } else {
+                userStates.invalidate(userKey(userId, voucherId));
+            }
+            eventPublisher.publishCacheInvalidation(voucherId, code, userId);
+        });
+    }
+
+    /**
+     * Drop one user's cached state on this instance after commit; other instances are
+     * expected to learn about the change from an event that is published anyway (VOUCHER_USED)
+     */
+    public void evictUserAfterCommit(String userId, Long voucherId) {
+        if (userId == null || voucherId == null) {
+            return;
+        }
+        afterCommit(() -> userStates.invalidate(userKey(userId, voucherId)));
+    }
+
+    public void evictUser(String userId, Long voucherId) {
+        if (userId != null && voucherId != null) {
+            userStates.invalidate(userKey(userId, voucherId));
+        }
+    }
+
+    private static String userKey(String userId, Long voucherId) {
+        return userId + ":" + voucherId;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
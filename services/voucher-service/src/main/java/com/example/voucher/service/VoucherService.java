@@ -2,6 +2,7 @@ package com.example.voucher.service;
 
 import com.example.voucher.dto.VoucherValidationRequest;
 import com.example.voucher.dto.VoucherValidationResponse;
+import com.example.voucher.dto.UserVoucherView;
 import com.example.voucher.dto.VoucherUsageRequest;
 import com.example.voucher.entity.UserVoucher;
 import com.example.voucher.entity.Voucher;
@@ -13,13 +14,19 @@ import com.example.voucher.repository.VoucherUsageRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -39,20 +46,28 @@ public class VoucherService {
     @Autowired
     private VoucherEventPublisher eventPublisher;
 
+    @Autowired
+    private VoucherCache voucherCache;
+
+    @Autowired
+    private ActiveVoucherSnapshot activeVoucherSnapshot;
+
     /**
      * Validate and apply voucher to cart/order
      */
     public VoucherValidationResponse validateAndApplyVoucher(VoucherValidationRequest request) {
         try {
-            // Find voucher by code (cache disabled)
-            Voucher voucher = getVoucherByCodeCached(request.getVoucherCode());
+            // Find voucher by code (cached, rules precompiled)
+            CompiledVoucher voucher = request.getVoucherCode() != null
+                ? voucherCache.getActiveByCode(request.getVoucherCode().toUpperCase())
+                : null;
             if (voucher == null) {
                 return new VoucherValidationResponse(false, "Voucher code not found or inactive");
             }
 
-            // Validate voucher business rules
-            VoucherValidationResponse response = validateVoucherBusinessRules(voucher, request);
-            return response;
+            // Validate voucher business rules against the cached per-user state
+            UserVoucherState userState = voucherCache.getUserState(request.getUserId(), voucher);
+            return voucher.evaluate(request, userState, LocalDateTime.now());
 
         } catch (Exception e) {
             logger.error("Error validating voucher {}: {}", request.getVoucherCode(), e.getMessage(), e);
@@ -61,40 +76,47 @@ public class VoucherService {
     }
 
     /**
-     * Record voucher usage when order is placed (Redis disabled - using database only)
+     * Record voucher usage when order is placed.
+     *
+     * Limits are enforced by the database, not by reading and comparing counts: the user's claim is
+     * flipped to used with a conditional update, the per-user limit is a unique (voucher, user, n-th use)
+     * row, and the global counter is a conditional {@code usage_count < usage_limit} increment. The
+     * counter update runs last so the hot voucher row stays locked only until commit.
      */
     @Transactional
     public VoucherUsage recordVoucherUsage(VoucherUsageRequest request) {
         try {
-            // Get current voucher
-            Voucher voucher = getVoucherByIdCached(request.getVoucherId());
+            // Get current voucher (from the database: redemption must not rely on cached state)
+            Voucher voucher = voucherRepository.findById(request.getVoucherId()).orElse(null);
             if (voucher == null) {
                 throw new IllegalArgumentException("Voucher not found");
             }
+            CompiledVoucher rules = CompiledVoucher.compile(voucher);
 
             // Double-check validation before usage
             VoucherValidationRequest validationRequest = new VoucherValidationRequest();
             validationRequest.setVoucherCode(request.getVoucherCode());
             validationRequest.setUserId(request.getUserId());
             validationRequest.setOrderAmount(request.getOriginalAmount());
+            validationRequest.setItems(request.getItems());
 
-            VoucherValidationResponse validation = validateVoucherBusinessRules(voucher, validationRequest);
+            // Scoped vouchers are matched against the order items; callers that do not send them
+            // rely on the applicability check of their /validate call
+            boolean checkItems = request.getItems() != null && !request.getItems().isEmpty();
+            VoucherValidationResponse validation = rules.evaluate(validationRequest,
+                voucherCache.loadUserState(request.getUserId(), rules), LocalDateTime.now(), checkItems);
             if (!validation.isValid()) {
                 throw new IllegalStateException("Voucher validation failed: " + validation.getMessage());
             }
 
-            // Check usage limit (from database, no Redis cache)
-            if (voucher.getUsageLimit() != null && voucher.getUsageCount() >= voucher.getUsageLimit()) {
-                throw new IllegalStateException("Voucher usage limit exceeded");
+            // Mark user voucher as used (atomic: only one order can use the claim)
+            boolean hasUser = request.getUserId() != null && !request.getUserId().isEmpty();
+            if (hasUser && userVoucherRepository.markUsedIfUnused(request.getUserId(), request.getVoucherId(),
+                    request.getOrderId(), request.getOrderNumber(), LocalDateTime.now()) == 0) {
+                throw new IllegalStateException("Voucher này đã được sử dụng");
             }
 
-        // Mark user voucher as used
-        if (request.getUserId() != null && !request.getUserId().isEmpty()) {
-            markUserVoucherAsUsed(request.getUserId(), request.getVoucherId(), 
-                request.getOrderId(), request.getOrderNumber());
-        }
-        
-        // Create usage record
+            // Create usage record
             VoucherUsage usage = new VoucherUsage(
                 request.getVoucherId(),
                 request.getVoucherCode(),
@@ -105,19 +127,31 @@ public class VoucherService {
                 request.getDiscountAmount(),
                 request.getFinalAmount()
             );
+            if (hasUser && voucher.getUsageLimitPerUser() != null) {
+                long previousUses = voucherUsageRepository.countUsageByVoucherIdAndUserId(voucher.getId(), request.getUserId());
+                if (previousUses >= voucher.getUsageLimitPerUser()) {
+                    throw new IllegalStateException("You have reached the maximum usage limit for this voucher");
+                }
+                usage.setUserUsageSeq((int) previousUses + 1);
+            }
 
-            // Save to database
-            VoucherUsage savedUsage = voucherUsageRepository.save(usage);
-
-            // Update voucher usage count
-            voucher.incrementUsage();
-            voucherRepository.save(voucher);
+            // Save to database; a concurrent use by the same user collides on the per-user unique key
+            VoucherUsage savedUsage;
+            try {
+                savedUsage = voucherUsageRepository.saveAndFlush(usage);
+            } catch (DataIntegrityViolationException e) {
+                throw new IllegalStateException("You have reached the maximum usage limit for this voucher");
+            }
 
-            // Update cache
-            updateVoucherCache(request.getVoucherId());
+            // Update voucher usage count (and release the claim slot in the same statement)
+            if (voucherRepository.incrementUsageIfAvailable(voucher.getId(), hasUser, LocalDateTime.now()) == 0) {
+                throw new IllegalStateException("Voucher usage limit exceeded");
+            }
 
-            // Clear validation cache since voucher state changed
-            clearVoucherValidationCache(request.getVoucherCode());
+            // The user's cached state changed; other instances evict it on the VOUCHER_USED event
+            if (hasUser) {
+                voucherCache.evictUserAfterCommit(request.getUserId(), voucher.getId());
+            }
 
             // Publish voucher used event
             eventPublisher.publishVoucherUsedEvent(savedUsage);
@@ -134,85 +168,19 @@ public class VoucherService {
     }
 
     /**
-     * Get voucher by code (cache disabled)
+     * Get active voucher by code from the cache. The returned entity is shared: do not modify it.
      */
     public Voucher getVoucherByCodeCached(String code) {
-        Optional<Voucher> voucherOpt = voucherRepository.findByCodeAndIsActiveTrue(code.toUpperCase());
-        return voucherOpt.orElse(null);
+        CompiledVoucher voucher = voucherCache.getActiveByCode(code.toUpperCase());
+        return voucher != null ? voucher.voucher() : null;
     }
 
     /**
-     * Get voucher by ID (cache disabled)
+     * Get voucher by ID from the cache. The returned entity is shared: do not modify it.
      */
     public Voucher getVoucherByIdCached(Long id) {
-        return voucherRepository.findById(id).orElse(null);
-    }
-
-    /**
-     * Validate voucher business rules
-     */
-    private VoucherValidationResponse validateVoucherBusinessRules(Voucher voucher, VoucherValidationRequest request) {
-        // Check if user has claimed this voucher (if required)
-        if (request.getUserId() != null && !request.getUserId().isEmpty()) {
-            Optional<UserVoucher> userVoucherOpt = userVoucherRepository.findByUserIdAndVoucherId(
-                request.getUserId(), voucher.getId());
-            if (userVoucherOpt.isEmpty()) {
-                return new VoucherValidationResponse(false, 
-                    "Bạn chưa lấy voucher này. Vui lòng lấy voucher trước khi sử dụng.");
-            }
-            
-            UserVoucher userVoucher = userVoucherOpt.get();
-            if (userVoucher.getIsUsed()) {
-                return new VoucherValidationResponse(false, "Voucher này đã được sử dụng");
-            }
-            
-            // Check if voucher is expired
-            if (userVoucher.isExpired(voucher.getEndDate())) {
-                return new VoucherValidationResponse(false, "Voucher đã hết hạn");
-            }
-        }
-        
-        // Check if voucher is valid (dates, usage limits)
-        if (!isVoucherCurrentlyValid(voucher)) {
-            return new VoucherValidationResponse(false, "Voucher has expired or usage limit exceeded");
-        }
-        
-        // Check minimum order amount
-        if (voucher.getMinOrderAmount() != null &&
-            request.getOrderAmount().compareTo(voucher.getMinOrderAmount()) < 0) {
-            return new VoucherValidationResponse(false,
-                String.format("Minimum order amount required: %s", voucher.getMinOrderAmount()));
-        }
-        
-        // Check user-specific usage limit
-        if (voucher.getUsageLimitPerUser() != null && request.getUserId() != null) {
-            Long userUsageCount = voucherUsageRepository.countUsageByVoucherIdAndUserId(voucher.getId(), request.getUserId());
-            if (userUsageCount >= voucher.getUsageLimitPerUser()) {
-                return new VoucherValidationResponse(false,
-                    "You have reached the maximum usage limit for this voucher");
-            }
-        }
-
-        // Check if items are applicable (simplified - in real implementation, check against product/brand/category)
-        if (!isApplicableToItems(voucher, request)) {
-            return new VoucherValidationResponse(false, "Voucher not applicable to selected items");
-        }
-        
-        // Calculate discount
-        BigDecimal discountAmount = voucher.calculateDiscount(request.getOrderAmount());
-        BigDecimal finalAmount = request.getOrderAmount().subtract(discountAmount);
-
-        return new VoucherValidationResponse(
-            true,
-            "Voucher applied successfully",
-            discountAmount,
-            finalAmount,
-            voucher.getId(),
-            voucher.getCode(),
-            voucher.getType(),
-            voucher.getValue(),
-            voucher.getFreeShipping() != null ? voucher.getFreeShipping() : false
-        );
+        CompiledVoucher voucher = voucherCache.getById(id);
+        return voucher != null ? voucher.voucher() : null;
     }
 
     /**
@@ -227,36 +195,23 @@ public class VoucherService {
     }
 
     /**
-     * Check if voucher is applicable to items
-     */
-    private boolean isApplicableToItems(Voucher voucher, VoucherValidationRequest request) {
-        // Simplified implementation - in real scenario, check against actual products
-        // For now, assume all vouchers are applicable unless specified otherwise
-        if (voucher.getApplicableTo() == null || "ALL".equals(voucher.getApplicableTo())) {
-            return true;
-        }
-
-
-        return true;
-    }
-
-    /**
-     * Clear voucher validation cache (no-op, cache disabled)
+     * Drop the cached voucher for a code on every instance (after commit)
      */
     public void clearVoucherValidationCache(String voucherCode) {
-        // No-op: cache disabled
+        voucherCache.invalidate(null, voucherCode, null);
     }
 
     /**
-     * Update voucher cache (no-op, cache disabled)
+     * Drop the cached voucher on every instance (after commit)
      */
     public void updateVoucherCache(Long voucherId) {
-        // No-op: cache disabled
+        voucherCache.invalidate(voucherId, null, null);
     }
 
     // Admin methods
     public Voucher createVoucher(Voucher voucher) {
         voucher.setCode(voucher.getCode().toUpperCase());
+        normalizeApplicability(voucher);
         voucher.setCreatedAt(LocalDateTime.now());
         voucher.setUpdatedAt(LocalDateTime.now());
         
@@ -265,6 +220,8 @@ public class VoucherService {
         }
         
         Voucher saved = voucherRepository.save(voucher);
+        // A lookup of the code before it existed may have been cached as a miss
+        clearVoucherValidationCache(saved.getCode());
         logger.info("Created new voucher: {}", voucher.getCode());
         return saved;
     }
@@ -275,7 +232,7 @@ public class VoucherService {
      */
     public List<Voucher> getActivePublicVouchers() {
         LocalDateTime now = LocalDateTime.now();
-        return voucherRepository.findActivePublicVouchers(now);
+        return activeVoucherSnapshot.getActivePublicVouchers(now);
     }
     
     public List<Voucher> getAllVouchers() {
@@ -314,18 +271,31 @@ public class VoucherService {
         existingVoucher.setPublic(updatedVoucher.isPublic());
         existingVoucher.setApplicableTo(updatedVoucher.getApplicableTo());
         existingVoucher.setApplicableItems(updatedVoucher.getApplicableItems());
+        normalizeApplicability(existingVoucher);
         existingVoucher.setUpdatedAt(LocalDateTime.now());
 
         Voucher saved = voucherRepository.save(existingVoucher);
 
         // Clear caches
-        clearVoucherValidationCache(saved.getCode());
-        updateVoucherCache(saved.getId());
+        voucherCache.invalidate(saved.getId(), saved.getCode(), null);
         
         logger.info("Updated voucher: {}", existingVoucher.getCode());
         return saved;
     }
 
+    /**
+     * Reject scopes and item ids the applicability index cannot use, and store the scope
+     * upper-cased so the stored form is what gets compiled
+     */
+    private void normalizeApplicability(Voucher voucher) {
+        VoucherApplicability applicability = VoucherApplicability.compile(
+            voucher.getApplicableTo(), voucher.getApplicableItems());
+        if (!applicability.isUnrestricted() && CompiledVoucher.parseItemIds(voucher.getApplicableItems()).isEmpty()) {
+            throw new IllegalArgumentException("Applicable items are required for scope " + applicability.getScope());
+        }
+        voucher.setApplicableTo(applicability.getScope());
+    }
+
     public void deactivateVoucher(Long voucherId) {
         Voucher voucher = voucherRepository.findById(voucherId)
                 .orElseThrow(() -> new IllegalArgumentException("Voucher not found"));
@@ -336,8 +306,7 @@ public class VoucherService {
         voucherRepository.save(voucher);
 
         // Clear caches
-        clearVoucherValidationCache(voucher.getCode());
-        updateVoucherCache(voucher.getId());
+        voucherCache.invalidate(voucher.getId(), voucher.getCode(), null);
         
         logger.info("Deactivated voucher: {}", voucher.getCode());
     }
@@ -405,26 +374,27 @@ public class VoucherService {
             throw new IllegalStateException("Voucher đã hết hạn hoặc đã hết lượt sử dụng");
         }
         
-        // Check usage limit
-        if (voucher.getUsageLimit() != null) {
-            Long claimedCount = userVoucherRepository.countUnusedByVoucherId(voucherId);
-            if (claimedCount >= voucher.getUsageLimit()) {
-                logger.warn("Voucher {} has reached usage limit (claimed: {}, limit: {})", 
-                    voucherId, claimedCount, voucher.getUsageLimit());
-                throw new IllegalStateException("Voucher đã hết lượt lấy");
-            }
+        // Create UserVoucher; the unique (user, voucher) key rejects a concurrent second claim
+        UserVoucher userVoucher = new UserVoucher(userId, voucherId, voucher.getCode());
+        try {
+            userVoucher = userVoucherRepository.saveAndFlush(userVoucher);
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("User {} already has voucher {}", userId, voucherId);
+            throw new IllegalStateException("Bạn đã lấy voucher này rồi");
         }
         
-        // Create UserVoucher
-        UserVoucher userVoucher = new UserVoucher(userId, voucherId, voucher.getCode());
-        userVoucher = userVoucherRepository.save(userVoucher);
+        // Reserve a slot atomically (outstanding claims < usage limit); last so the voucher row is locked briefly
+        if (voucherRepository.reserveClaimIfAvailable(voucherId) == 0) {
+            logger.warn("Voucher {} has reached usage limit (limit: {})", voucherId, voucher.getUsageLimit());
+            throw new IllegalStateException("Voucher đã hết lượt lấy");
+        }
+        
+        // Every instance may have cached "not claimed" for this user
+        voucherCache.invalidate(voucherId, null, userId);
         
         logger.info("User {} successfully claimed voucher {} (userVoucherId: {})", 
             userId, voucher.getCode(), userVoucher.getId());
         
-        // Flush to ensure it's persisted before returning
-        userVoucherRepository.flush();
-        
         return userVoucher;
     }
     
@@ -432,38 +402,64 @@ public class VoucherService {
      * Get available vouchers for a user (vouchers that user has claimed and not used)
      */
     public List<UserVoucher> getUserAvailableVouchers(String userId) {
-        logger.debug("Getting available vouchers for user {}", userId);
-        
-        // First, get all unused vouchers for the user
-        List<UserVoucher> allUnused = userVoucherRepository.findByUserIdAndIsUsedFalseOrderByObtainedAtDesc(userId);
-        logger.debug("Found {} unused vouchers for user {} (before filtering)", allUnused.size(), userId);
-        
-        // Filter to only include vouchers that are still valid
-        LocalDateTime now = LocalDateTime.now();
-        List<UserVoucher> result = allUnused.stream()
-            .filter(uv -> {
-                Voucher voucher = getVoucherByIdCached(uv.getVoucherId());
-                if (voucher == null) {
-                    logger.warn("Voucher {} not found for userVoucher {}", uv.getVoucherId(), uv.getId());
-                    return false;
-                }
-                // Check if voucher is active and within valid date range
-                boolean isValid = voucher.isActive() 
-                    && (voucher.getStartDate() == null || voucher.getStartDate().isBefore(now) || voucher.getStartDate().isEqual(now))
-                    && (voucher.getEndDate() == null || voucher.getEndDate().isAfter(now));
-                
-                if (!isValid) {
-                    logger.debug("Voucher {} is not valid (active: {}, startDate: {}, endDate: {})", 
-                        uv.getVoucherId(), voucher.isActive(), voucher.getStartDate(), voucher.getEndDate());
-                }
-                return isValid;
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        logger.debug("Found {} available vouchers for user {} (after filtering)", result.size(), userId);
+        List<UserVoucher> result = userVoucherRepository.findAvailableVouchersForUser(userId, LocalDateTime.now());
+        logger.debug("Found {} available vouchers for user {}", result.size(), userId);
         return result;
     }
     
+    /**
+     * Available vouchers of a user together with the voucher details, in one query
+     */
+    public List<UserVoucherView> getUserAvailableVoucherViews(String userId) {
+        return userVoucherRepository.findAvailableViewsByUserId(userId, LocalDateTime.now());
+    }
+    
+    /**
+     * All vouchers of a user (including used ones) together with the voucher details, in one query
+     */
+    public List<UserVoucherView> getUserVoucherViews(String userId) {
+        return userVoucherRepository.findViewsByUserId(userId);
+    }
+    
+    /**
+     * Evaluate every voucher the user has claimed and not used against one cart, best first.
+     *
+     * One query for the claims and one for the user's redemption counts; voucher rules come
+     * from the cache, so ranking a wallet costs the same as validating a single code.
+     * Only vouchers valid for the cart are returned, ordered by discount, free shipping first on ties.
+     */
+    @Transactional(readOnly = true)
+    public List<VoucherValidationResponse> rankVouchersForCart(String userId, VoucherValidationRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UserVoucher> claims = userVoucherRepository.findAvailableVouchersForUser(userId, now);
+        if (claims.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Long> usesByVoucher = new HashMap<>();
+        List<Long> voucherIds = claims.stream().map(UserVoucher::getVoucherId).distinct().collect(Collectors.toList());
+        for (Object[] row : voucherUsageRepository.countUsageByUserIdGroupedByVoucherId(userId, voucherIds)) {
+            usesByVoucher.put((Long) row[0], (Long) row[1]);
+        }
+
+        request.setUserId(userId);
+        List<VoucherValidationResponse> ranked = new ArrayList<>();
+        for (Long voucherId : voucherIds) {
+            CompiledVoucher voucher = voucherCache.getById(voucherId);
+            if (voucher == null) {
+                continue;
+            }
+            UserVoucherState state = new UserVoucherState(true, false, usesByVoucher.getOrDefault(voucherId, 0L));
+            VoucherValidationResponse response = voucher.evaluate(request, state, now);
+            if (response.isValid()) {
+                ranked.add(response);
+            }
+        }
+        ranked.sort(Comparator.comparing(VoucherValidationResponse::getDiscountAmount, Comparator.reverseOrder())
+            .thenComparing(r -> !Boolean.TRUE.equals(r.getFreeShipping())));
+        return ranked;
+    }
+
     /**
      * Get all vouchers for a user (including used ones)
      */
@@ -472,19 +468,19 @@ public class VoucherService {
     }
     
     /**
-     * Mark user voucher as used when order is placed
+     * Mark user voucher as used when order is placed.
+     * Returns false when the user has no unused claim for the voucher.
      */
     @Transactional
-    public void markUserVoucherAsUsed(String userId, Long voucherId, Long orderId, String orderNumber) {
-        Optional<UserVoucher> userVoucherOpt = userVoucherRepository.findByUserIdAndVoucherId(userId, voucherId);
-        if (userVoucherOpt.isPresent()) {
-            UserVoucher userVoucher = userVoucherOpt.get();
-            if (!userVoucher.getIsUsed()) {
-                userVoucher.markAsUsed(orderId, orderNumber);
-                userVoucherRepository.save(userVoucher);
-                logger.info("Marked user voucher {} as used for order {}", voucherId, orderNumber);
-            }
+    public boolean markUserVoucherAsUsed(String userId, Long voucherId, Long orderId, String orderNumber) {
+        int marked = userVoucherRepository.markUsedIfUnused(userId, voucherId, orderId, orderNumber, LocalDateTime.now());
+        if (marked == 0) {
+            return false;
         }
+        voucherRepository.releaseClaim(voucherId);
+        voucherCache.invalidate(voucherId, null, userId);
+        logger.info("Marked user voucher {} as used for order {}", voucherId, orderNumber);
+        return true;
     }
     
 }
@@ -0,0 +1,131 @@
+package com.example.voucher.service;
+
+import com.example.voucher.dto.VoucherUsageRequest;
+import com.example.voucher.dto.VoucherValidationRequest.VoucherItem;
+import com.example.voucher.entity.Voucher;
+import com.example.voucher.entity.VoucherType;
+import com.example.voucher.entity.VoucherUsage;
+import com.example.voucher.event.VoucherEventPublisher;
+import com.example.voucher.repository.UserVoucherRepository;
+import com.example.voucher.repository.VoucherRepository;
+import com.example.voucher.repository.VoucherUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redeeming a scoped (CATEGORY) voucher: the re-check at redemption must accept the order that
+ * /validate accepted, so the claim is marked used and the usage counted
+ */
+class VoucherServiceTest {
+
+    private static final Long VOUCHER_ID = 11L;
+    private static final String CODE = "PHONES10";
+    private static final String USER = "user-1";
+    private static final long PHONES = 3L;
+    private static final long LAPTOPS = 4L;
+
+    private VoucherRepository voucherRepository;
+    private VoucherUsageRepository voucherUsageRepository;
+    private UserVoucherRepository userVoucherRepository;
+    private VoucherCache voucherCache;
+    private VoucherService voucherService;
+
+    @BeforeEach
+    void setUp() {
+        voucherRepository = mock(VoucherRepository.class);
+        voucherUsageRepository = mock(VoucherUsageRepository.class);
+        userVoucherRepository = mock(UserVoucherRepository.class);
+        voucherCache = mock(VoucherCache.class);
+
+        voucherService = new VoucherService();
+        ReflectionTestUtils.setField(voucherService, "voucherRepository", voucherRepository);
+        ReflectionTestUtils.setField(voucherService, "voucherUsageRepository", voucherUsageRepository);
+        ReflectionTestUtils.setField(voucherService, "userVoucherRepository", userVoucherRepository);
+        ReflectionTestUtils.setField(voucherService, "voucherCache", voucherCache);
+        ReflectionTestUtils.setField(voucherService, "eventPublisher", mock(VoucherEventPublisher.class));
+
+        Voucher voucher = new Voucher(CODE, "10% off phones", VoucherType.PERCENTAGE, new BigDecimal("10"));
+        voucher.setId(VOUCHER_ID);
+        voucher.setActive(true);
+        voucher.setStartDate(LocalDateTime.now().minusDays(1));
+        voucher.setEndDate(LocalDateTime.now().plusDays(1));
+        voucher.setUsageLimit(100);
+        voucher.setUsageCount(0);
+        voucher.setUsageLimitPerUser(1);
+        voucher.setApplicableTo(VoucherApplicability.CATEGORY);
+        voucher.setApplicableItems("[" + PHONES + "]");
+
+        when(voucherRepository.findById(VOUCHER_ID)).thenReturn(Optional.of(voucher));
+        when(voucherCache.loadUserState(eq(USER), any())).thenReturn(new UserVoucherState(true, false, 0));
+        when(userVoucherRepository.markUsedIfUnused(eq(USER), eq(VOUCHER_ID), any(), anyString(), any())).thenReturn(1);
+        when(voucherUsageRepository.countUsageByVoucherIdAndUserId(VOUCHER_ID, USER)).thenReturn(0L);
+        when(voucherUsageRepository.saveAndFlush(any(VoucherUsage.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(voucherRepository.incrementUsageIfAvailable(eq(VOUCHER_ID), anyBoolean(), any())).thenReturn(1);
+    }
+
+    @Test
+    void redeemsCategoryVoucherWithMatchingItems() {
+        VoucherUsageRequest request = usageRequest(List.of(item("p-1", PHONES, "1000000"), item("p-2", LAPTOPS, "500000")));
+
+        VoucherUsage usage = voucherService.recordVoucherUsage(request);
+
+        assertEquals(VOUCHER_ID, usage.getVoucherId());
+        verify(userVoucherRepository).markUsedIfUnused(eq(USER), eq(VOUCHER_ID), any(), eq("ORD-1"), any());
+        verify(voucherRepository).incrementUsageIfAvailable(eq(VOUCHER_ID), eq(true), any());
+    }
+
+    @Test
+    void redeemsCategoryVoucherWhenCallerSendsNoItems() {
+        voucherService.recordVoucherUsage(usageRequest(null));
+
+        verify(userVoucherRepository).markUsedIfUnused(eq(USER), eq(VOUCHER_ID), any(), eq("ORD-1"), any());
+        verify(voucherRepository).incrementUsageIfAvailable(eq(VOUCHER_ID), eq(true), any());
+    }
+
+    @Test
+    void rejectsCategoryVoucherForItemsOutsideTheCategory() {
+        VoucherUsageRequest request = usageRequest(List.of(item("p-2", LAPTOPS, "500000")));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> voucherService.recordVoucherUsage(request));
+
+        assertTrue(e.getMessage().contains("not applicable"));
+        verify(userVoucherRepository, never()).markUsedIfUnused(anyString(), anyLong(), any(), anyString(), any());
+        verify(voucherRepository, never()).incrementUsageIfAvailable(anyLong(), anyBoolean(), any());
+    }
+
+    private static VoucherUsageRequest usageRequest(List<VoucherItem> items) {
+        VoucherUsageRequest request = new VoucherUsageRequest(VOUCHER_ID, CODE, USER, null, "ORD-1",
+            new BigDecimal("1500000"), new BigDecimal("100000"), new BigDecimal("1400000"));
+        request.setItems(items);
+        return request;
+    }
+
+    private static VoucherItem item(String productId, long categoryId, String price) {
+        VoucherItem item = new VoucherItem();
+        item.setProductId(productId);
+        item.setCategoryId(categoryId);
+        item.setPrice(new BigDecimal(price));
+        item.setQuantity(1);
+        return item;
+    }
+}
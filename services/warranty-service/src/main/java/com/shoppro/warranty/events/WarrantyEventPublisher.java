@@ -2,10 +2,14 @@ package com.shoppro.warranty.events;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shoppro.warranty.entity.WarrantyRequest;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 @Service
 public class WarrantyEventPublisher {
 
@@ -18,6 +22,11 @@ public class WarrantyEventPublisher {
     private static final String WARRANTY_REQUESTED_TOPIC = "warranty-requested";
     private static final String WARRANTY_STATUS_UPDATED_TOPIC = "warranty-status-updated";
 
+    /**
+     * Header carrying a unique id per published event; consumers use it to drop redeliveries
+     */
+    public static final String EVENT_ID_HEADER = "eventId";
+
     /**
      * Publish warranty requested event
      */
@@ -28,7 +37,7 @@ public class WarrantyEventPublisher {
         }
         try {
             String eventData = objectMapper.writeValueAsString(warrantyRequest);
-            kafkaTemplate.send(WARRANTY_REQUESTED_TOPIC, warrantyRequest.getRequestNumber(), eventData);
+            kafkaTemplate.send(record(WARRANTY_REQUESTED_TOPIC, warrantyRequest.getRequestNumber(), eventData));
             System.out.println("Published WARRANTY_REQUESTED event for request: " + warrantyRequest.getRequestNumber());
         } catch (Exception e) {
             System.err.println("Failed to publish WARRANTY_REQUESTED event: " + e.getMessage());
@@ -45,10 +54,16 @@ public class WarrantyEventPublisher {
         }
         try {
             String eventData = objectMapper.writeValueAsString(warrantyRequest);
-            kafkaTemplate.send(WARRANTY_STATUS_UPDATED_TOPIC, warrantyRequest.getRequestNumber(), eventData);
+            kafkaTemplate.send(record(WARRANTY_STATUS_UPDATED_TOPIC, warrantyRequest.getRequestNumber(), eventData));
             System.out.println("Published WARRANTY_STATUS_UPDATED event for request: " + warrantyRequest.getRequestNumber());
         } catch (Exception e) {
             System.err.println("Failed to publish WARRANTY_STATUS_UPDATED event: " + e.getMessage());
         }
     }
+
+    private static ProducerRecord<String, String> record(String topic, String key, String value) {
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, value);
+        record.headers().add(EVENT_ID_HEADER, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
 }
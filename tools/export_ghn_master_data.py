@@ -0,0 +1,88 @@
+"""
+Export GHN province / district / ward master data for order-service.
+
+Writes the dataset bundled in the order-service jar
+(services/order-service/src/main/resources/geography/ghn-master-data.json), in the same
+format GeographyService reads and writes for its snapshots. Run it whenever GHN changes
+its administrative units, then commit the file.
+
+    GHN_TOKEN=<token> python tools/export_ghn_master_data.py [output.json]
+
+GHN_API_BASE_URL overrides the master-data endpoint (default: production gateway).
+"""
+import datetime as dt
+import json
+import os
+import sys
+import urllib.request
+from concurrent.futures import ThreadPoolExecutor
+from pathlib import Path
+
+BASE_URL = os.getenv("GHN_API_BASE_URL", "https://online-gateway.ghn.vn/shiip/public-api/v2").replace("/v2", "")
+MASTER_DATA_URL = BASE_URL + "/master-data"
+DEFAULT_OUTPUT = (Path(__file__).parent.parent / "services" / "order-service" / "src" / "main"
+                  / "resources" / "geography" / "ghn-master-data.json")
+# GHN rate-limits per token; a few parallel calls keep the ~760 requests under a minute
+WORKERS = 8
+
+
+def fetch_list(token: str, path: str) -> list[dict]:
+    request = urllib.request.Request(MASTER_DATA_URL + path, headers={"Token": token})
+    with urllib.request.urlopen(request, timeout=30) as response:
+        body = json.load(response)
+    if body.get("code") != 200:
+        raise RuntimeError(f"GHN {path}: {body.get('code')} {body.get('message')}")
+    # GHN answers null data for units without children
+    return body.get("data") or []
+
+
+def main() -> None:
+    token = os.getenv("GHN_TOKEN")
+    if not token:
+        sys.exit("GHN_TOKEN is required")
+    output = Path(sys.argv[1]) if len(sys.argv) > 1 else DEFAULT_OUTPUT
+
+    provinces = [
+        {"id": p["ProvinceID"], "name": p.get("ProvinceName"), "code": p.get("Code")}
+        for p in fetch_list(token, "/province")
+        if p.get("ProvinceID") is not None
+    ]
+
+    with ThreadPoolExecutor(max_workers=WORKERS) as pool:
+        district_lists = pool.map(lambda p: (p["id"], fetch_list(token, f"/district?province_id={p['id']}")), provinces)
+        districts = [
+            {"id": d["DistrictID"], "provinceId": province_id, "name": d.get("DistrictName"), "code": d.get("Code")}
+            for province_id, items in district_lists
+            for d in items
+            if d.get("DistrictID") is not None
+        ]
+
+        ward_lists = pool.map(lambda d: (d["id"], fetch_list(token, f"/ward?district_id={d['id']}")), districts)
+        wards = [
+            {"code": w["WardCode"], "districtId": district_id, "name": w.get("WardName")}
+            for district_id, items in ward_lists
+            for w in items
+            if w.get("WardCode") is not None
+        ]
+
+    provinces.sort(key=lambda p: p["id"])
+    districts.sort(key=lambda d: (d["provinceId"], d["id"]))
+    wards.sort(key=lambda w: (w["districtId"], w["code"]))
+
+    dataset = {
+        "version": dt.date.today().isoformat(),
+        "source": "GHN master-data; regenerate with GHN_TOKEN=... python tools/export_ghn_master_data.py",
+        "provinces": provinces,
+        "districts": districts,
+        "wards": wards,
+    }
+    tmp = output.with_name(output.name + ".tmp")
+    with open(tmp, "w", encoding="utf-8") as f:
+        json.dump(dataset, f, ensure_ascii=False, indent=1)
+        f.write("\n")
+    os.replace(tmp, output)
+    print(f"{len(provinces)} provinces, {len(districts)} districts, {len(wards)} wards -> {output}")
+
+
+if __name__ == "__main__":
+    main()